@@ -23,13 +23,21 @@ package uk.ac.ox.oxfish;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.esotericsoftware.minlog.Log;
+import com.google.common.base.Preconditions;
 import com.google.common.io.Files;
+import uk.ac.ox.oxfish.model.ParallelBatchRunner;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
+import uk.ac.ox.oxfish.utility.SimulationProfiler;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Created by carrknight on 11/18/15.
@@ -59,6 +67,33 @@ public class YamlMain {
     @Parameter(names={"--heatmap"},description = "year at which point to start gathering tow heatmap data. Negative values turns it off")
     private Integer towHeatmapGatherer = null;
 
+    @Parameter(names={"--checkpoint"},description = "start from this checkpoint (as saved by --save) rather than from the scenario; years are then counted from the checkpoint")
+    private String checkpoint = null;
+
+    @Parameter(names={"--fork"},description = "with --checkpoint, a policy script to run from the checkpoint; repeat it to run many policies from the same checkpoint")
+    private List<String> forks = new ArrayList<>();
+
+    @Parameter(names={"--stream"},description = "writes logbooks and tow logs as the simulation runs rather than keeping them in memory until the end")
+    private boolean streamOutputs = false;
+
+    @Parameter(names={"--compress"},description = "with --stream, gzips the streamed outputs")
+    private boolean compressOutputs = false;
+
+    @Parameter(names={"--profile"},description = "times schedule phases, components, fisher actions and route lookups; written to profile.csv and profile.json in the output folder")
+    private boolean profile = false;
+
+    @Parameter(names={"--sweep"},description = "runs a batch over these values of a scenario address, written as address=value1:value2:...; repeat it to sweep the grid of many addresses")
+    private List<String> sweeps = new ArrayList<>();
+
+    @Parameter(names={"--runs"},description = "runs a batch with this many seeds (starting from --seed) for each set of swept values")
+    private int runs = 0;
+
+    @Parameter(names={"--threads"},description = "with --sweep or --runs, how many runs to carry out at once")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names={"--columns"},description = "with --sweep or --runs, the yearly columns to write (all of them if not given)")
+    private List<String> columns = new ArrayList<>();
+
     public static void main(String[] args) throws IOException {
 
         /**
@@ -70,10 +105,42 @@ public class YamlMain {
         YamlMain main = new YamlMain();
         if(args.length>1) //if there are multiple parameters, read them up!
             new JCommander(main, Arrays.copyOfRange(args,1,args.length));
-        FishStateUtilities.run(simulationName, inputFile, Paths.get("output", simulationName), main.seed, main.logLevel,
-                               main.additionalData, main.policyScript,
-                               main.yearsToRun, main.saveOnExit,
-                               main.towHeatmapGatherer, null, null);
+        SimulationProfiler.setEnabled(main.profile);
+        if(!main.sweeps.isEmpty() || main.runs > 0) {
+            LinkedHashMap<String, List<Double>> values = new LinkedHashMap<>();
+            for (String sweep : main.sweeps) {
+                String[] addressAndValues = sweep.split("=", 2);
+                Preconditions.checkArgument(addressAndValues.length == 2, "sweeps look like address=value1:value2");
+                List<Double> addressValues = new ArrayList<>();
+                for (String value : addressAndValues[1].split(":"))
+                    addressValues.add(Double.parseDouble(value));
+                values.put(addressAndValues[0].trim(), addressValues);
+            }
+            Log.set(main.logLevel);
+            ParallelBatchRunner runner = new ParallelBatchRunner(inputFile, main.yearsToRun, main.columns,
+                                                                 Paths.get("output", simulationName),
+                                                                 ParallelBatchRunner.grid(values),
+                                                                 Math.max(main.runs, 1), main.seed, main.threads);
+            runner.setAdditionalData(main.additionalData);
+            try {
+                runner.run();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        else if(main.checkpoint != null) {
+            List<String> policies = main.forks.isEmpty() ?
+                    Collections.singletonList(main.policyScript) : main.forks;
+            FishStateUtilities.runFromCheckpoint(simulationName, Paths.get(main.checkpoint),
+                                                 Paths.get("output", simulationName), main.logLevel,
+                                                 policies, main.yearsToRun, main.saveOnExit);
+        }
+        else
+            FishStateUtilities.run(simulationName, inputFile, Paths.get("output", simulationName), main.seed, main.logLevel,
+                                   main.additionalData, main.policyScript,
+                                   main.yearsToRun, main.saveOnExit,
+                                   main.towHeatmapGatherer, null, null,
+                                   main.streamOutputs, main.compressOutputs);
 
 
     }
@@ -186,4 +253,166 @@ public class YamlMain {
     public void setAdditionalData(boolean additionalData) {
         this.additionalData = additionalData;
     }
+
+    /**
+     * Getter for property 'checkpoint'.
+     *
+     * @return Value for property 'checkpoint'.
+     */
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Setter for property 'checkpoint'.
+     *
+     * @param checkpoint Value to set for property 'checkpoint'.
+     */
+    public void setCheckpoint(String checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Getter for property 'forks'.
+     *
+     * @return Value for property 'forks'.
+     */
+    public List<String> getForks() {
+        return forks;
+    }
+
+    /**
+     * Setter for property 'forks'.
+     *
+     * @param forks Value to set for property 'forks'.
+     */
+    public void setForks(List<String> forks) {
+        this.forks = forks;
+    }
+
+    /**
+     * Getter for property 'streamOutputs'.
+     *
+     * @return Value for property 'streamOutputs'.
+     */
+    public boolean isStreamOutputs() {
+        return streamOutputs;
+    }
+
+    /**
+     * Setter for property 'streamOutputs'.
+     *
+     * @param streamOutputs Value to set for property 'streamOutputs'.
+     */
+    public void setStreamOutputs(boolean streamOutputs) {
+        this.streamOutputs = streamOutputs;
+    }
+
+    /**
+     * Getter for property 'compressOutputs'.
+     *
+     * @return Value for property 'compressOutputs'.
+     */
+    public boolean isCompressOutputs() {
+        return compressOutputs;
+    }
+
+    /**
+     * Setter for property 'compressOutputs'.
+     *
+     * @param compressOutputs Value to set for property 'compressOutputs'.
+     */
+    public void setCompressOutputs(boolean compressOutputs) {
+        this.compressOutputs = compressOutputs;
+    }
+
+    /**
+     * Getter for property 'profile'.
+     *
+     * @return Value for property 'profile'.
+     */
+    public boolean isProfile() {
+        return profile;
+    }
+
+    /**
+     * Setter for property 'profile'.
+     *
+     * @param profile Value to set for property 'profile'.
+     */
+    public void setProfile(boolean profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Getter for property 'sweeps'.
+     *
+     * @return Value for property 'sweeps'.
+     */
+    public List<String> getSweeps() {
+        return sweeps;
+    }
+
+    /**
+     * Setter for property 'sweeps'.
+     *
+     * @param sweeps Value to set for property 'sweeps'.
+     */
+    public void setSweeps(List<String> sweeps) {
+        this.sweeps = sweeps;
+    }
+
+    /**
+     * Getter for property 'runs'.
+     *
+     * @return Value for property 'runs'.
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Setter for property 'runs'.
+     *
+     * @param runs Value to set for property 'runs'.
+     */
+    public void setRuns(int runs) {
+        this.runs = runs;
+    }
+
+    /**
+     * Getter for property 'threads'.
+     *
+     * @return Value for property 'threads'.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Setter for property 'threads'.
+     *
+     * @param threads Value to set for property 'threads'.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Getter for property 'columns'.
+     *
+     * @return Value for property 'columns'.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Setter for property 'columns'.
+     *
+     * @param columns Value to set for property 'columns'.
+     */
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
 }
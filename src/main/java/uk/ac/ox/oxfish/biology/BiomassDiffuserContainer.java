@@ -25,8 +25,8 @@ import ec.util.MersenneTwisterFast;
 import org.jetbrains.annotations.Nullable;
 import sim.engine.SimState;
 import sim.engine.Steppable;
-import sim.util.Bag;
 import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.NeighborhoodIndex;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 import uk.ac.ox.oxfish.utility.Pair;
@@ -133,8 +133,7 @@ public class BiomassDiffuserContainer implements Steppable {
 
 
             //grab neighbors
-            neighbors.putIfAbsent(tile, getUsefulNeighbors(tile, map));
-            List<SeaTile> neighborList = neighbors.get(tile);
+            List<SeaTile> neighborList = neighbors.computeIfAbsent(tile, t -> getUsefulNeighbors(t, map));
             //for each neighbor
             for (SeaTile neighbor : neighborList) {
                 //for each specie
@@ -197,12 +196,13 @@ public class BiomassDiffuserContainer implements Steppable {
      */
     public static List<SeaTile> getUsefulNeighbors(SeaTile tile, NauticalMap map)
     {
-        final Bag mooreNeighbors = map.getMooreNeighbors(tile, 1);
+        final NeighborhoodIndex waterNeighbors = map.getNeighborhoodIndex(1, true);
+        final int tileIndex = waterNeighbors.indexOf(tile);
         List<SeaTile> toKeep = new LinkedList<>();
-        for(Object inBag : mooreNeighbors)
+        for(int position = waterNeighbors.start(tileIndex); position < waterNeighbors.end(tileIndex); position++)
         {
-            SeaTile newTile = (SeaTile) inBag;
-            if (newTile.isWater() && newTile.getBiology() instanceof BiomassLocalBiology)
+            SeaTile newTile = waterNeighbors.tileAt(position);
+            if (newTile.getBiology() instanceof BiomassLocalBiology)
             {
                 toKeep.add(newTile);
             }
@@ -21,14 +21,19 @@
 package uk.ac.ox.oxfish.biology.complicated;
 
 import com.beust.jcommander.internal.Lists;
+import com.google.common.base.Preconditions;
 import ec.util.MersenneTwisterFast;
-import sim.util.Bag;
 import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.NeighborhoodIndex;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 /**
  * Deals with the basics that are common for all diffusers
@@ -49,6 +54,25 @@ public abstract class AbstractAbundanceDiffuser implements AbundanceDiffuser {
      */
     private final Map<SeaTile, List<SeaTile>> neighbors = new HashMap<>();
 
+    /**
+     * when above 0 fish move from a snapshot of the day's abundance rather than one tile at a time: the map is split
+     * in this many partitions whose flows are computed in parallel (each partition with its own randomizer) and then
+     * applied all at once. Results depend on the model seed and on this number but not on thread scheduling.
+     * The partitions run on the common fork-join pool: diffusers have no turn off to shut a pool of their own down.
+     * 0 (the default) means the original sequential diffusion
+     */
+    private int parallelism = 0;
+
+    /**
+     * tiles and neighbors in the shape the snapshot diffusion wants them
+     */
+    private SnapshotLayout layout;
+
+    /**
+     * one per partition, reused day after day
+     */
+    private SnapshotPartition[] partitions = new SnapshotPartition[0];
+
 
     public AbstractAbundanceDiffuser(
             int diffusingRange, boolean rounding) {
@@ -63,16 +87,20 @@ public abstract class AbstractAbundanceDiffuser implements AbundanceDiffuser {
             Map<SeaTile, AbundanceLocalBiology> biologies,
             FishState model) {
 
+        if(parallelism > 0) {
+            stepFromSnapshot(species, biologies, model);
+            return;
+        }
+
         //turn it into a list and shuffle it
         List<Map.Entry<SeaTile, AbundanceLocalBiology>> locals = Lists.newArrayList(biologies.entrySet());
         Collections.shuffle(locals, new Random(model.getRandom().nextLong()));
 
 
         for (Map.Entry<SeaTile, AbundanceLocalBiology> here : locals) {
-            neighbors.putIfAbsent(here.getKey(),
-                                  getNeighborsWithAbundanceBasedLocalBiology(here.getKey(), model.getMap(),
-                                                                             biologies));
-            List<SeaTile> potential = neighbors.get(here.getKey());
+            List<SeaTile> potential = neighbors.computeIfAbsent(
+                    here.getKey(),
+                    tile -> getNeighborsWithAbundanceBasedLocalBiology(tile, model.getMap(), biologies));
             if(potential.size()==0)
                 continue;
             //shuffle neighbors
@@ -115,6 +143,143 @@ public abstract class AbstractAbundanceDiffuser implements AbundanceDiffuser {
     }
 
 
+    /**
+     * diffusion in two passes: first each partition computes (without touching the abundance) what leaves each of its
+     * tiles for each neighbor, capping outflows so that no tile can send away more fish than it has; then each
+     * partition adds up the changes of its own tiles
+     */
+    private void stepFromSnapshot(
+            Species species,
+            Map<SeaTile, AbundanceLocalBiology> biologies,
+            FishState model)
+    {
+        if(layout == null || !layout.isFor(biologies))
+        {
+            layout = new SnapshotLayout(biologies, model.getMap());
+            partitions = new SnapshotPartition[0];
+        }
+        final int tiles = layout.biologies.length;
+        if(tiles == 0)
+            return;
+
+        final int numberOfPartitions = Math.min(parallelism, tiles);
+        if(partitions.length != numberOfPartitions)
+        {
+            partitions = new SnapshotPartition[numberOfPartitions];
+            for(int p = 0; p < numberOfPartitions; p++)
+                partitions[p] = new SnapshotPartition(
+                        p * tiles / numberOfPartitions, (p + 1) * tiles / numberOfPartitions, tiles);
+        }
+        //the snapshot is the abundance itself, untouched until the second pass
+        final double[][][] abundance = new double[tiles][][];
+        for(int tile = 0; tile < tiles; tile++)
+            abundance[tile] = layout.biologies[tile].getAbundance(species).asMatrix();
+        //randomizers are seeded from the model one, in partition order
+        for(SnapshotPartition partition : partitions)
+            partition.random.setSeed(model.getRandom().nextLong());
+
+        runPartitions(partition -> computeFlows(partition, species, abundance));
+        runPartitions(partition -> applyFlows(partition, species, abundance));
+    }
+
+    private void runPartitions(Consumer<SnapshotPartition> pass)
+    {
+        if(partitions.length == 1)
+        {
+            pass.accept(partitions[0]);
+            return;
+        }
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(partitions.length);
+        for(SnapshotPartition partition : partitions)
+            tasks.add(ForkJoinPool.commonPool().submit(() -> pass.accept(partition)));
+        for(ForkJoinTask<?> task : tasks)
+            task.join();
+    }
+
+    private void computeFlows(SnapshotPartition partition, Species species, double[][][] abundance)
+    {
+        final int subdivisions = species.getNumberOfSubdivisions();
+        final int bins = species.getNumberOfBins();
+        final StructuredAbundance scratchHere = partition.scratch(0, subdivisions, bins);
+        final StructuredAbundance scratchThere = partition.scratch(1, subdivisions, bins);
+
+        for(int here = partition.from; here < partition.to; here++)
+        {
+            final int[] neighborsHere = layout.neighbors[here];
+            if(neighborsHere.length == 0)
+                continue;
+            final double[] outflows = partition.outflows(neighborsHere.length);
+            for(int subdivision = 0; subdivision < subdivisions; subdivision++)
+            {
+                for (int bin = 0; bin < bins; bin++) {
+                    final double stock = abundance[here][subdivision][bin];
+                    double fishHere = stock;
+                    if(rounding)
+                        fishHere = (int) fishHere;
+                    double totalOutflow = 0;
+                    for(int k = 0; k < neighborsHere.length; k++)
+                    {
+                        final int there = neighborsHere[k];
+                        double fishThere = abundance[there][subdivision][bin];
+                        //let the implementation move fish between two copies and read back what it moved
+                        scratchHere.asMatrix()[subdivision][bin] = stock;
+                        scratchThere.asMatrix()[subdivision][bin] = fishThere;
+                        if (rounding)
+                            fishThere = (int) fishThere;
+                        move(species, layout.tiles[here],
+                             scratchHere, layout.tiles[there], scratchThere, fishHere - fishThere, fishHere, fishThere,
+                             bin, partition.random,
+                             rounding, subdivision, layout.biologies[here], layout.biologies[there]);
+                        outflows[k] = Math.max(stock - scratchHere.asMatrix()[subdivision][bin], 0);
+                        totalOutflow += outflows[k];
+                    }
+                    if(totalOutflow <= 0)
+                        continue;
+                    //from a snapshot every neighbor sees all the fish: make sure we don't send away more than we have
+                    final double scaling = totalOutflow > stock ? stock / totalOutflow : 1;
+                    final int cell = subdivision * bins + bin;
+                    for(int k = 0; k < neighborsHere.length; k++)
+                    {
+                        double outflow = outflows[k] * scaling;
+                        if(rounding && scaling < 1)
+                            outflow = Math.floor(outflow);
+                        if(outflow <= 0)
+                            continue;
+                        partition.changes(here, subdivisions * bins)[cell] -= outflow;
+                        partition.changes(neighborsHere[k], subdivisions * bins)[cell] += outflow;
+                    }
+                }
+            }
+        }
+    }
+
+    private void applyFlows(SnapshotPartition partition, Species species, double[][][] abundance)
+    {
+        final int bins = species.getNumberOfBins();
+        for(int tile = partition.from; tile < partition.to; tile++)
+        {
+            //partitions in order, so sums come out the same every time
+            for(SnapshotPartition source : partitions)
+            {
+                final double[] changes = source.changes[tile];
+                if(changes == null)
+                    continue;
+                for(int cell = 0; cell < changes.length; cell++)
+                {
+                    if(changes[cell] == 0)
+                        continue;
+                    final double[] row = abundance[tile][cell / bins];
+                    row[cell % bins] += changes[cell];
+                    //a tile that sent everything away might be a rounding error below 0
+                    assert row[cell % bins] >= -FishStateUtilities.EPSILON;
+                    if(row[cell % bins] < 0)
+                        row[cell % bins] = 0;
+                }
+                Arrays.fill(changes, 0);
+            }
+        }
+    }
+
     /**
      * ask implementation how to move. This gets called iff there is a positive delta (that is, there are more fish here than there)
      *  @param species species moving
@@ -158,11 +323,12 @@ public abstract class AbstractAbundanceDiffuser implements AbundanceDiffuser {
             NauticalMap map,
             Map<SeaTile, AbundanceLocalBiology> biologies)
     {
-        final Bag mooreNeighbors = map.getMooreNeighbors(tile, diffusingRange);
+        final NeighborhoodIndex waterNeighbors = map.getNeighborhoodIndex(diffusingRange, true);
+        final int tileIndex = waterNeighbors.indexOf(tile);
         List<SeaTile> toKeep = new LinkedList<>();
-        for(Object inBag : mooreNeighbors)
+        for(int position = waterNeighbors.start(tileIndex); position < waterNeighbors.end(tileIndex); position++)
         {
-            SeaTile newTile = (SeaTile) inBag;
+            SeaTile newTile = waterNeighbors.tileAt(position);
             if (biologies.containsKey(newTile))
             {
                 assert newTile.isWater();
@@ -172,4 +338,110 @@ public abstract class AbstractAbundanceDiffuser implements AbundanceDiffuser {
         }
         return toKeep;
     }
+    /**
+     * Getter for property 'parallelism'.
+     *
+     * @return Value for property 'parallelism'.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Setter for property 'parallelism'.
+     *
+     * @param parallelism Value to set for property 'parallelism'.
+     */
+    public void setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism >= 0);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * the diffusing tiles sorted by map index, with their neighbors as positions in the same arrays
+     */
+    private class SnapshotLayout {
+
+        private final Map<SeaTile, AbundanceLocalBiology> source;
+
+        private final int sourceSize;
+
+        private final SeaTile[] tiles;
+
+        private final AbundanceLocalBiology[] biologies;
+
+        private final int[][] neighbors;
+
+        private SnapshotLayout(Map<SeaTile, AbundanceLocalBiology> source, NauticalMap map) {
+            this.source = source;
+            this.sourceSize = source.size();
+            tiles = source.keySet().toArray(new SeaTile[0]);
+            Arrays.sort(tiles, Comparator.comparingInt(map::getTileIndex));
+            biologies = new AbundanceLocalBiology[tiles.length];
+            final Map<SeaTile, Integer> positions = new HashMap<>(tiles.length * 2);
+            for(int i = 0; i < tiles.length; i++) {
+                biologies[i] = source.get(tiles[i]);
+                positions.put(tiles[i], i);
+            }
+            //neighbors in map order too: the sequential diffusion shuffles the lists in place
+            neighbors = new int[tiles.length][];
+            for(int i = 0; i < tiles.length; i++) {
+                final List<SeaTile> potential = AbstractAbundanceDiffuser.this.neighbors.computeIfAbsent(
+                        tiles[i],
+                        tile -> getNeighborsWithAbundanceBasedLocalBiology(tile, map, source));
+                neighbors[i] = potential.stream().mapToInt(positions::get).sorted().toArray();
+            }
+        }
+
+        private boolean isFor(Map<SeaTile, AbundanceLocalBiology> biologies) {
+            return biologies == source && biologies.size() == sourceSize;
+        }
+    }
+
+    /**
+     * a contiguous range of tiles, its randomizer and the changes it wants to make to any tile
+     */
+    private static class SnapshotPartition {
+
+        private final int from;
+
+        private final int to;
+
+        private final MersenneTwisterFast random = new MersenneTwisterFast();
+
+        /**
+         * for each tile that this partition sends fish to (or takes them from) the change per subdivision*bins+bin;
+         * only tiles this partition touches get an array
+         */
+        private final double[][] changes;
+
+        private final StructuredAbundance[] scratch = new StructuredAbundance[2];
+
+        private double[] outflows = new double[0];
+
+        private SnapshotPartition(int from, int to, int tiles) {
+            this.from = from;
+            this.to = to;
+            this.changes = new double[tiles][];
+        }
+
+        private double[] changes(int tile, int cells) {
+            if(changes[tile] == null || changes[tile].length != cells)
+                changes[tile] = new double[cells];
+            return changes[tile];
+        }
+
+        private StructuredAbundance scratch(int which, int subdivisions, int bins) {
+            if(scratch[which] == null || scratch[which].getSubdivisions() != subdivisions ||
+                    scratch[which].getBins() != bins)
+                scratch[which] = new StructuredAbundance(subdivisions, bins);
+            return scratch[which];
+        }
+
+        private double[] outflows(int neighbors) {
+            if(outflows.length < neighbors)
+                outflows = new double[neighbors];
+            return outflows;
+        }
+    }
 }
@@ -22,6 +22,7 @@ package uk.ac.ox.oxfish.biology.complicated;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
 import uk.ac.ox.oxfish.biology.GlobalBiology;
 import uk.ac.ox.oxfish.biology.LocalBiology;
 import uk.ac.ox.oxfish.biology.Species;
@@ -30,7 +31,6 @@ import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
 import java.util.Arrays;
-import java.util.HashMap;
 
 /**
  * A local biology object based on abundance.
@@ -44,10 +44,15 @@ public class AbundanceLocalBiology implements LocalBiology
 
 
     /**
-     * the hashmap contains for each species a table [age][male-female] corresponding to the number of fish of that
-     * age and that sex
+     * for each species (by index) a table [subdivision][bin] corresponding to the number of fish in that bin
      */
-    private final HashMap<Species,double[][]>  abundance = new HashMap<>();
+    private final double[][][] abundance;
+
+    /**
+     * the structured abundance handed out for each species; it only wraps the live arrays so there is no need to
+     * create a new one at each call
+     */
+    private final StructuredAbundance[] structuredAbundance;
 
 
 
@@ -56,23 +61,77 @@ public class AbundanceLocalBiology implements LocalBiology
      */
     private double lastComputedBiomass[];
 
+    /**
+     * where the fish are kept (null if in arrays of our own)
+     */
+    @Nullable
+    private final AbundanceStore store;
+
+    /**
+     * our slot in the store (-1 if we have no store)
+     */
+    private final int slot;
+
+    /**
+     * the store version lastComputedBiomass was computed at; when the store gets edited as a whole the biomass is
+     * computed again
+     */
+    private long storeVersion;
+
     /**
      * creates an abundance based local biology that starts off as entirely empty
      * @param biology a list of species
      */
     public AbundanceLocalBiology(GlobalBiology biology)
     {
+        this(biology, null);
+    }
 
+    /**
+     * creates an abundance based local biology that starts off as entirely empty
+     * @param biology a list of species
+     * @param store if not null the fish are kept in a new slot of this store rather than in arrays of our own
+     */
+    public AbundanceLocalBiology(GlobalBiology biology, @Nullable AbundanceStore store)
+    {
+
+        final int numberOfSpecies = biology.getSpecies().size();
+        abundance = new double[numberOfSpecies][][];
+        structuredAbundance = new StructuredAbundance[numberOfSpecies];
+        slot = store == null ? -1 : store.allocate();
         //for each species create cohorts
         for(Species species : biology.getSpecies()) {
-            double[][] fish = new double[species.getNumberOfSubdivisions()][];
-            for(int i=0; i<fish.length; i++)
-                fish[i] = new double[species.getNumberOfBins()];
-            abundance.put(species, fish);
+            double[][] fish;
+            if(store == null) {
+                fish = new double[species.getNumberOfSubdivisions()][];
+                for (int i = 0; i < fish.length; i++)
+                    fish[i] = new double[species.getNumberOfBins()];
+            }
+            else
+                fish = store.view(species, slot);
+            abundance[species.getIndex()] = fish;
+            structuredAbundance[species.getIndex()] = new StructuredAbundance(fish);
         }
         //done!
-        lastComputedBiomass = new double[biology.getSpecies().size()];
+        lastComputedBiomass = new double[numberOfSpecies];
         Arrays.fill(lastComputedBiomass,Double.NaN);
+        this.store = store;
+        storeVersion = store == null ? 0 : store.getVersion();
+    }
+
+    /**
+     * the store holding our fish, null if we keep our own arrays
+     */
+    @Nullable
+    public AbundanceStore getStore() {
+        return store;
+    }
+
+    /**
+     * our slot in the store, -1 if we keep our own arrays
+     */
+    public int getSlot() {
+        return slot;
     }
 
 
@@ -85,6 +144,10 @@ public class AbundanceLocalBiology implements LocalBiology
     @Override
     public double getBiomass(Species species) {
 
+        if(store != null && storeVersion != store.getVersion()) {
+            Arrays.fill(lastComputedBiomass,Double.NaN);
+            storeVersion = store.getVersion();
+        }
         if(Double.isNaN(lastComputedBiomass[species.getIndex()] )) {
             lastComputedBiomass[species.getIndex()] = FishStateUtilities.weigh(
                     getAbundance(species),
@@ -141,7 +204,7 @@ public class AbundanceLocalBiology implements LocalBiology
             Preconditions.checkArgument(catches.getSubdivisions()==species.getNumberOfSubdivisions(), "wrong number of cohorts/subdivisions");
 
 
-            final double[][] abundanceHere = this.abundance.get(species);
+            final double[][] abundanceHere = this.abundance[species.getIndex()];
 
 
             double[][] catchesMatrix = catches.asMatrix();
@@ -172,8 +235,7 @@ public class AbundanceLocalBiology implements LocalBiology
     public StructuredAbundance getAbundance(Species species) {
         Arrays.fill(lastComputedBiomass,Double.NaN); //force a recount after calling this
 
-        return new StructuredAbundance(abundance.get(species)
-        );
+        return structuredAbundance[species.getIndex()];
 
     }
 
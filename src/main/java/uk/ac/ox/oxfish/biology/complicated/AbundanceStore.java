@@ -0,0 +1,184 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.biology.complicated;
+
+import com.google.common.base.Preconditions;
+import uk.ac.ox.oxfish.biology.GlobalBiology;
+import uk.ac.ox.oxfish.biology.Species;
+
+import java.util.Arrays;
+
+/**
+ * Holds the abundance of many {@link AbundanceLocalBiology} in one place: for each species a single table of rows
+ * indexed [slot * subdivisions + subdivision], each row being the bins of that subdivision. Local biologies built over
+ * the store get a slot and read/write their rows directly so nothing is copied and
+ * {@link StructuredAbundance#asMatrix()} keeps returning live arrays. <br>
+ * Rows are allocated a block of slots at a time, so the rows of neighbouring slots sit next to each other in memory and
+ * whole-map operations are plain loops over the table without going through the local biologies:
+ * {@link SingleSpeciesNaturalProcesses} sums recruitment's total abundance ({@link #sum(Species)}) and weighs the
+ * slots recruits are allocated by ({@link #weigh(Species)}) here, and processes that can work on the whole table at
+ * once ({@link AgingProcess#ageStore}, {@link NaturalMortalityProcess#cullStore}) age and cull it through
+ * {@link #edit(Species)}. <br>
+ * Each row is still an array of its own (rather than an offset in one array per species) because
+ * {@link StructuredAbundance#asMatrix()} has to keep handing out live [subdivision][bin] matrices.
+ */
+public class AbundanceStore {
+
+    /**
+     * how many slots get allocated together whenever we run out
+     */
+    private static final int BLOCK_SIZE = 256;
+
+    private final Species[] species;
+
+    /**
+     * for each species (by index) all the rows of all the slots
+     */
+    private final double[][][] rows;
+
+    /**
+     * number of slots given out
+     */
+    private int size = 0;
+
+    /**
+     * number of slots for which rows exist
+     */
+    private int capacity = 0;
+
+    /**
+     * how many times the rows were handed out for writing by {@link #edit(Species)}; biologies over the store compare
+     * it with the one they last weighed their fish at
+     */
+    private long version = 0;
+
+    public AbundanceStore(GlobalBiology biology) {
+        species = biology.getSpecies().toArray(new Species[0]);
+        rows = new double[species.length][][];
+        for (int i = 0; i < species.length; i++) {
+            Preconditions.checkArgument(species[i].getIndex() == i,
+                                        "species index doesn't match its position in the biology");
+            rows[i] = new double[0][];
+        }
+    }
+
+    /**
+     * reserves a new (empty) slot for a local biology
+     * @return the slot index
+     */
+    public int allocate() {
+        if (size == capacity)
+            grow();
+        return size++;
+    }
+
+    private void grow() {
+        final int newCapacity = capacity + BLOCK_SIZE;
+        for (int i = 0; i < species.length; i++) {
+            final int subdivisions = species[i].getNumberOfSubdivisions();
+            final int bins = species[i].getNumberOfBins();
+            rows[i] = Arrays.copyOf(rows[i], newCapacity * subdivisions);
+            //allocate the whole block in one go
+            for (int row = capacity * subdivisions; row < newCapacity * subdivisions; row++)
+                rows[i][row] = new double[bins];
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * the [subdivision][bin] matrix of a slot; the rows are the store's own so writing to them modifies the store
+     */
+    public double[][] view(Species species, int slot) {
+        Preconditions.checkElementIndex(slot, size);
+        final int subdivisions = species.getNumberOfSubdivisions();
+        final double[][] view = new double[subdivisions][];
+        System.arraycopy(rows[species.getIndex()], slot * subdivisions, view, 0, subdivisions);
+        return view;
+    }
+
+    /**
+     * total number of fish per subdivision per bin, summed over all slots
+     */
+    public StructuredAbundance sum(Species species) {
+        final int subdivisions = species.getNumberOfSubdivisions();
+        final int bins = species.getNumberOfBins();
+        final double[][] speciesRows = rows[species.getIndex()];
+        final double[][] total = new double[subdivisions][bins];
+        for (int row = 0; row < size * subdivisions; row++) {
+            final double[] source = speciesRows[row];
+            final double[] destination = total[row % subdivisions];
+            for (int bin = 0; bin < bins; bin++)
+                destination[bin] += source[bin];
+        }
+        return new StructuredAbundance(total);
+    }
+
+    /**
+     * the whole table of rows of a species, to modify every slot in one loop: row slot * subdivisions + subdivision
+     * holds the bins of that subdivision and only the first {@link #size()} * subdivisions rows are in use. Whatever
+     * biomass the biologies over the store have cached is forgotten
+     */
+    public double[][] edit(Species species) {
+        version++;
+        return rows[species.getIndex()];
+    }
+
+    /**
+     * weight of the species in each slot; the same sum (in the same order) each biology would compute on its own
+     */
+    public double[] weigh(Species species) {
+        final int subdivisions = species.getNumberOfSubdivisions();
+        final int bins = species.getNumberOfBins();
+        final Meristics meristics = species.getMeristics();
+        //weights are the same for every slot: read them once
+        final double[][] weights = new double[subdivisions][bins];
+        for (int subdivision = 0; subdivision < subdivisions; subdivision++)
+            for (int bin = 0; bin < bins; bin++)
+                weights[subdivision][bin] = meristics.getWeight(subdivision, bin);
+        final double[][] speciesRows = rows[species.getIndex()];
+        final double[] biomass = new double[size];
+        for (int row = 0; row < size * subdivisions; row++) {
+            final double[] abundance = speciesRows[row];
+            final double[] weight = weights[row % subdivisions];
+            double total = biomass[row / subdivisions];
+            for (int bin = 0; bin < bins; bin++)
+                total += abundance[bin] * weight[bin];
+            biomass[row / subdivisions] = total;
+        }
+        return biomass;
+    }
+
+    /**
+     * Getter for property 'version'.
+     *
+     * @return Value for property 'version'.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * number of slots in use
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -52,5 +52,20 @@ public interface AgingProcess {
             Collection<AbundanceLocalBiology> localBiology, Species species,
             FishState model, boolean rounding, int daysToSimulate);
 
+    /**
+     * ages every slot of the store in one pass, if this process can do it without going through the local biologies
+     * one by one (the default can't)
+     * @param store the store holding the fish of all the local biologies to age
+     * @param model link to the model
+     * @param rounding whether we expect numbers to be rounded to integers
+     * @param daysToSimulate simulation days
+     * @return true if the store was aged, false if nothing was done and the biologies need aging one by one
+     */
+    default boolean ageStore(
+            AbundanceStore store, Species species,
+            FishState model, boolean rounding, int daysToSimulate) {
+        return false;
+    }
+
 
 }
@@ -21,6 +21,7 @@
 package uk.ac.ox.oxfish.biology.complicated;
 
 import com.google.common.base.Preconditions;
+import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
 /**
@@ -83,5 +84,34 @@ public class ExponentialMortalityProcess implements NaturalMortalityProcess {
         }
     }
 
+    /**
+     * same as {@link #cull(Meristics, boolean, StructuredAbundance, int)}, in one loop over all the rows of the store
+     */
+    @Override
+    public boolean cullStore(
+            Species species, boolean rounding, AbundanceStore store, int daysSimulated) {
+        final int subdivisions = species.getNumberOfSubdivisions();
+        Preconditions.checkArgument(subdivisions ==mortalityParameters.length,
+                                    "There ought to be a mortality parameter for each subdivision/cohort");
 
+        double scaling = daysSimulated/365d;
+        final double[] survivingProportion = new double[subdivisions];
+        for(int subdivision=0; subdivision<subdivisions; subdivision++)
+            survivingProportion[subdivision] = Math.exp((-mortalityParameters[subdivision] * scaling));
+
+        final double[][] rows = store.edit(species);
+        for(int row=0; row<store.size() * subdivisions; row++)
+        {
+            final double[] abundance = rows[row];
+            final double surviving = survivingProportion[row % subdivisions];
+            for (int i = 0; i < abundance.length; i++)
+            {
+                abundance[i] = abundance[i] * surviving;
+                if (rounding) {
+                    abundance[i] = (int) FishStateUtilities.round(abundance[i]);
+                }
+            }
+        }
+        return true;
+    }
 }
@@ -20,6 +20,8 @@
 
 package uk.ac.ox.oxfish.biology.complicated;
 
+import uk.ac.ox.oxfish.biology.Species;
+
 public interface NaturalMortalityProcess {
 
     /**
@@ -31,4 +33,17 @@ public interface NaturalMortalityProcess {
      */
     void cull(
             Meristics species, boolean rounding, StructuredAbundance structuredAbundance, int daysSimulated);
+
+    /**
+     * kills fish in every slot of the store in one pass, if this process can (the default can't)
+     * @param species the fish species to kill
+     * @param rounding whether we want the process to round all abundances to closest int
+     * @param store the store holding the fish of all the local biologies to cull
+     * @param daysSimulated how many days are we simulating the mortality for
+     * @return true if the store was culled, false if nothing was done and the abundances need culling one by one
+     */
+    default boolean cullStore(
+            Species species, boolean rounding, AbundanceStore store, int daysSimulated) {
+        return false;
+    }
 }
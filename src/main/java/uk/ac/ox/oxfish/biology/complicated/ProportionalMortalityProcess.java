@@ -20,6 +20,7 @@
 
 package uk.ac.ox.oxfish.biology.complicated;
 
+import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
 public class ProportionalMortalityProcess implements NaturalMortalityProcess {
@@ -55,4 +56,26 @@ public class ProportionalMortalityProcess implements NaturalMortalityProcess {
                     abundanceMatrix[cohort][bin] = FishStateUtilities.quickRounding(abundanceMatrix[cohort][bin]);
             }
     }
+
+    /**
+     * same as {@link #cull(Meristics, boolean, StructuredAbundance, int)}, in one loop over all the rows of the store
+     */
+    @Override
+    public boolean cullStore(
+            Species species, boolean rounding, AbundanceStore store, int daysSimulated)
+    {
+        double scaling = daysSimulated/365d;
+        double effectiveMortality = 1d-Math.pow(1d-yearlyMortality,scaling);
+        final double[][] rows = store.edit(species);
+
+        for(int row=0; row<store.size() * species.getNumberOfSubdivisions(); row++) {
+            final double[] cohort = rows[row];
+            for (int bin = 0; bin < cohort.length; bin++) {
+                cohort[bin] -= cohort[bin] * (effectiveMortality);
+                if (rounding)
+                    cohort[bin] = FishStateUtilities.quickRounding(cohort[bin]);
+            }
+        }
+        return true;
+    }
 }
@@ -22,6 +22,7 @@ package uk.ac.ox.oxfish.biology.complicated;
 
 import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import uk.ac.ox.oxfish.biology.Species;
@@ -97,6 +98,12 @@ public class SingleSpeciesNaturalProcesses implements Steppable, Startable
 
     private final Map<SeaTile,AbundanceLocalBiology> biologies = new LinkedHashMap<>();
 
+    /**
+     * the store all our biologies keep their fish in; null if they don't all share the same one
+     */
+    @Nullable
+    private AbundanceStore store;
+
     /**
      * schedules itself every year
      *
@@ -153,20 +160,13 @@ public class SingleSpeciesNaturalProcesses implements Steppable, Startable
          *     |_|_\___\__|_|  \_,_|_|\__|_|_|_\___|_||_\__|
          *
          */
-        //we need to sum up all the abundances
-        List<StructuredAbundance> abundances = new LinkedList<>();
-        for (AbundanceLocalBiology biology : biologies.values()) {
-            abundances.add(biology.getAbundance(species));
-        }
         //now create the total number of recruits
         lastRecruits = recruitment.recruit(species, species.getMeristics(),
-                                           StructuredAbundance.sum(abundances, abundances.get(0).getBins(),
-                                                                   abundances.get(0).getSubdivisions()),
+                                           totalAbundance(),
                                            model.getDayOfTheYear(),
                                            daysSimulated());
         if (rounding)
             lastRecruits = (int) (lastRecruits);
-        abundances.clear();
 
 
         //decide where recruits are going to go before mortality hits
@@ -190,11 +190,13 @@ public class SingleSpeciesNaturalProcesses implements Steppable, Startable
          *     /_/ \_\__, |_|_||_\__, |
          *           |___/       |___/
          */
-        agingProcess.age(biologies.values(),
-                         species,
-                         model,
-                         rounding,
-                         daysSimulated());
+        if(!storeHoldsOurBiologies() ||
+                !agingProcess.ageStore(store, species, model, rounding, daysSimulated()))
+            agingProcess.age(biologies.values(),
+                             species,
+                             model,
+                             rounding,
+                             daysSimulated());
 
 
         /***
@@ -212,6 +214,28 @@ public class SingleSpeciesNaturalProcesses implements Steppable, Startable
         }
     }
 
+    /**
+     * true if the store holds exactly our biologies (one slot each), so that whole-map operations can be single
+     * passes over the store rather than going through the biologies one by one
+     */
+    private boolean storeHoldsOurBiologies() {
+        return store != null && store.size() == biologies.size();
+    }
+
+    /**
+     * sums up the abundance of all the biologies
+     */
+    private StructuredAbundance totalAbundance() {
+        if (storeHoldsOurBiologies())
+            return store.sum(species);
+        List<StructuredAbundance> abundances = new LinkedList<>();
+        for (AbundanceLocalBiology biology : biologies.values()) {
+            abundances.add(biology.getAbundance(species));
+        }
+        return StructuredAbundance.sum(abundances, abundances.get(0).getBins(),
+                                       abundances.get(0).getSubdivisions());
+    }
+
     @NotNull
     private LinkedHashMap<AbundanceLocalBiology, Double> prepareAllocation(FishState model) {
         final LinkedHashMap<AbundanceLocalBiology, Double> biomassWeight= new LinkedHashMap<>();
@@ -237,9 +261,11 @@ public class SingleSpeciesNaturalProcesses implements Steppable, Startable
             }
             else {
                 //map for each biology its total weight
+                final double[] slotBiomass = storeHoldsOurBiologies() ? store.weigh(species) : null;
                 double totalBiomass = biologies.values().stream().mapToDouble(
                         value -> {
-                            Double biomass = value.getBiomass(species);
+                            Double biomass = slotBiomass != null ? slotBiomass[value.getSlot()] :
+                                    value.getBiomass(species);
                             biomassWeight.put(value, biomass);
                             return biomass;
                         }).sum();
@@ -292,6 +318,8 @@ public class SingleSpeciesNaturalProcesses implements Steppable, Startable
     }
 
     private void kill() {
+        if(storeHoldsOurBiologies() && mortality.cullStore(species, rounding, store, daysSimulated()))
+            return;
         for (AbundanceLocalBiology abundanceBasedLocalBiology : biologies.values()) {
             mortality.cull(
                     species.getMeristics(), rounding,
@@ -309,6 +337,7 @@ public class SingleSpeciesNaturalProcesses implements Steppable, Startable
     public void add(AbundanceLocalBiology localBiology, SeaTile tile) {
         Preconditions.checkArgument(!biologies.containsKey(tile));
         Preconditions.checkArgument(!biologies.containsKey(localBiology));
+        store = biologies.isEmpty() || store == localBiology.getStore() ? localBiology.getStore() : null;
         biologies.put(tile, localBiology);
     }
 
@@ -70,15 +70,28 @@ public class StandardAgingProcess extends LocalAgingProcess {
         StructuredAbundance abundance = localBiology.getAbundance(species);
         //escalator move everything
         for(int subdivision=0; subdivision<abundance.getSubdivisions(); subdivision++)
-        {
-            double[] segment = abundance.asMatrix()[subdivision];
-            double oldest = segment[segment.length-1];
-            System.arraycopy(segment,0,segment,1,segment.length-1);
-            segment[0] = 0;
-            if(preserveLastAge)
-                segment[segment.length-1]+= oldest;
+            age(abundance.asMatrix()[subdivision]);
+    }
+
+    /**
+     * same as aging each local biology, in one loop over all the rows of the store
+     */
+    @Override
+    public boolean ageStore(
+            AbundanceStore store, Species species, FishState model, boolean rounding, int daysToSimulate) {
+        Preconditions.checkArgument(daysToSimulate==365, "This should be used yearly!");
+        final double[][] rows = store.edit(species);
+        for(int row=0; row<store.size() * species.getNumberOfSubdivisions(); row++)
+            age(rows[row]);
+        return true;
+    }
 
-        }
+    private void age(double[] segment) {
+        double oldest = segment[segment.length-1];
+        System.arraycopy(segment,0,segment,1,segment.length-1);
+        segment[0] = 0;
+        if(preserveLastAge)
+            segment[segment.length-1]+= oldest;
     }
 
 
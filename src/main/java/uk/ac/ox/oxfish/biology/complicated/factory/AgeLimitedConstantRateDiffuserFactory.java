@@ -46,6 +46,12 @@ public class AgeLimitedConstantRateDiffuserFactory implements AlgorithmFactory<A
 
     private DoubleParameter largestMovingBin = new FixedDoubleParameter(10000);
 
+    /**
+     * when above 0 fish diffuse from a daily snapshot, the map split in this many partitions computed in parallel
+     */
+    private DoubleParameter parallelism = new FixedDoubleParameter(0);
+
+
     /**
      * Applies this function to the given argument.
      *
@@ -54,12 +60,14 @@ public class AgeLimitedConstantRateDiffuserFactory implements AlgorithmFactory<A
      */
     @Override
     public AgeLimitedConstantRateDiffuser apply(FishState state) {
-        return new AgeLimitedConstantRateDiffuser(
+        AgeLimitedConstantRateDiffuser diffuser = new AgeLimitedConstantRateDiffuser(
                 diffusingRange.apply(state.getRandom()).intValue(),
                 diffusingRate.apply(state.getRandom()),
                 smallestMovingBin.apply(state.getRandom()).intValue(),
                 largestMovingBin.apply(state.getRandom()).intValue()
         );
+        diffuser.setParallelism(parallelism.apply(state.getRandom()).intValue());
+        return diffuser;
     }
 
 
@@ -134,4 +142,22 @@ public class AgeLimitedConstantRateDiffuserFactory implements AlgorithmFactory<A
     public void setLargestMovingBin(DoubleParameter largestMovingBin) {
         this.largestMovingBin = largestMovingBin;
     }
+
+    /**
+     * Getter for property 'parallelism'.
+     *
+     * @return Value for property 'parallelism'.
+     */
+    public DoubleParameter getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Setter for property 'parallelism'.
+     *
+     * @param parallelism Value to set for property 'parallelism'.
+     */
+    public void setParallelism(DoubleParameter parallelism) {
+        this.parallelism = parallelism;
+    }
 }
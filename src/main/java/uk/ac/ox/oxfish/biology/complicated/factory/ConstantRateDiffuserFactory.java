@@ -43,6 +43,12 @@ public class ConstantRateDiffuserFactory
     private final DoubleParameter diffusingRange = new FixedDoubleParameter(1);
 
 
+    /**
+     * when above 0 fish diffuse from a daily snapshot, the map split in this many partitions computed in parallel
+     */
+    private DoubleParameter parallelism = new FixedDoubleParameter(0);
+
+
     /**
      * Applies this function to the given argument.
      *
@@ -51,10 +57,12 @@ public class ConstantRateDiffuserFactory
      */
     @Override
     public ConstantRateAbundanceDiffuser apply(FishState state) {
-        return new ConstantRateAbundanceDiffuser(
+        ConstantRateAbundanceDiffuser diffuser = new ConstantRateAbundanceDiffuser(
                 diffusingRange.apply(state.getRandom()).intValue(),
                 diffusingRate.apply(state.getRandom())
         );
+        diffuser.setParallelism(parallelism.apply(state.getRandom()).intValue());
+        return diffuser;
     }
 
 
@@ -75,4 +83,22 @@ public class ConstantRateDiffuserFactory
     public DoubleParameter getDiffusingRange() {
         return diffusingRange;
     }
+
+    /**
+     * Getter for property 'parallelism'.
+     *
+     * @return Value for property 'parallelism'.
+     */
+    public DoubleParameter getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Setter for property 'parallelism'.
+     *
+     * @param parallelism Value to set for property 'parallelism'.
+     */
+    public void setParallelism(DoubleParameter parallelism) {
+        this.parallelism = parallelism;
+    }
 }
@@ -104,6 +104,11 @@ public class MultipleSpeciesAbundanceInitializer implements AllocatedBiologyInit
      */
     private final LinkedHashMap<SeaTile,AbundanceLocalBiology> locals = new LinkedHashMap<>();
 
+    /**
+     * keeps the fish of all the local biologies together; created with the first local biology
+     */
+    private AbundanceStore store;
+
 
     /**
      * contains all the mortality+recruitment processes of each species
@@ -126,13 +131,28 @@ public class MultipleSpeciesAbundanceInitializer implements AllocatedBiologyInit
      */
     public static LocalBiology generateAbundanceBiologyExceptOnLand(
             GlobalBiology biology, SeaTile seaTile, HashMap<SeaTile, AbundanceLocalBiology> locals) {
+        return generateAbundanceBiologyExceptOnLand(biology, seaTile, locals, null);
+    }
+
+    /**
+     * the generate local made static so the MultipleSpeciesInitializer can use it too
+     *
+     * @param biology global biology file
+     * @param seaTile seatile
+     * @param locals a map seatiles---> abundance local biologies that gets filled if this is not a land tile
+     * @param store where the abundance biologies keep their fish (null means each keeps its own)
+     * @return empty biology on land, abundance biology in water
+     */
+    public static LocalBiology generateAbundanceBiologyExceptOnLand(
+            GlobalBiology biology, SeaTile seaTile, HashMap<SeaTile, AbundanceLocalBiology> locals,
+            AbundanceStore store) {
         if (seaTile.isLand())
             return new EmptyLocalBiology();
 
 
 
 
-        AbundanceLocalBiology local = new AbundanceLocalBiology(biology);
+        AbundanceLocalBiology local = new AbundanceLocalBiology(biology, store);
         locals.put(seaTile,local);
         return local;
     }
@@ -214,8 +234,10 @@ public class MultipleSpeciesAbundanceInitializer implements AllocatedBiologyInit
     public LocalBiology generateLocal(
             GlobalBiology biology, SeaTile seaTile, MersenneTwisterFast random, int mapHeightInCells,
             int mapWidthInCells, NauticalMap map) {
+        if(store == null)
+            store = new AbundanceStore(biology);
         return generateAbundanceBiologyExceptOnLand(biology,seaTile,
-                                                                                      locals);
+                                                    locals, store);
     }
 
 
@@ -462,6 +484,13 @@ public class MultipleSpeciesAbundanceInitializer implements AllocatedBiologyInit
         return locals.size();
     }
 
+    /**
+     * where all the local biologies keep their fish (null until the first one is created)
+     */
+    public AbundanceStore getAbundanceStore() {
+        return store;
+    }
+
     /**
 
      */
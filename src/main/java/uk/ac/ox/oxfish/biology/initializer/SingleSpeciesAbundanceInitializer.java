@@ -139,6 +139,11 @@ public class SingleSpeciesAbundanceInitializer implements BiologyInitializer
      */
     private Map<SeaTile, Double> initialWeights = new HashMap<>();
 
+    /**
+     * keeps the fish of all the local biologies together; created with the first local biology
+     */
+    private AbundanceStore store;
+
 
     /**
      * this is the default "read from files" california stock assessment constructor
@@ -213,7 +218,9 @@ public class SingleSpeciesAbundanceInitializer implements BiologyInitializer
         )  <= 0))
             return  new EmptyLocalBiology();
         else {
-            AbundanceLocalBiology local = new AbundanceLocalBiology(biology);
+            if(store == null)
+                store = new AbundanceStore(biology);
+            AbundanceLocalBiology local = new AbundanceLocalBiology(biology, store);
             initialWeights.put(seaTile, weight);
             return local;
         }
@@ -21,15 +21,17 @@
 package uk.ac.ox.oxfish.biology.initializer.allocator;
 
 import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
 import ec.util.MersenneTwisterFast;
 import org.jetbrains.annotations.NotNull;
 import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.geography.sampling.BinaryGrid;
 import uk.ac.ox.oxfish.geography.sampling.GeographicalSample;
 
 import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.nio.file.Path;
-import java.util.Iterator;
 
 public abstract class FileBiomassAllocator implements BiomassAllocator {
 
@@ -41,7 +43,7 @@ public abstract class FileBiomassAllocator implements BiomassAllocator {
 
 
     /**
-     * the path to the file to read
+     * the path to the file to read: a csv of points or a {@link BinaryGrid}
      */
     @NotNull
     private final Path csvFile;
@@ -60,41 +62,46 @@ public abstract class FileBiomassAllocator implements BiomassAllocator {
         Preconditions.checkArgument(!initialized);
         initialized = true;
 
+        if(Files.getFileExtension(csvFile.getFileName().toString()).equalsIgnoreCase(BinaryGrid.EXTENSION)) {
+            observeGrid(map, BinaryGrid.read(csvFile));
+            return;
+        }
+
         //otherwise read from data
-        GeographicalSample biologicalSample = new
-                GeographicalSample(csvFile,
-                                   inputFileHasHeader);
+        GeographicalSample biologicalSample = GeographicalSample.read(csvFile, inputFileHasHeader);
 
         //check it was read correctly
         Preconditions.checkArgument(
                 biologicalSample.getNumberOfObservations()>0,
                 "The CSV provided" + csvFile + " had no data!");
 
-        //get read to iterate!
-        Iterator<Double> x = biologicalSample.getFirstCoordinate().iterator();
-        Iterator<Double> y = biologicalSample.getSecondCoordinate().iterator();
-        Iterator<Double> value = biologicalSample.getObservations().iterator();
-
         for(int i=0; i<biologicalSample.getNumberOfObservations(); i++)
-        {
-            //this is quite slow. We have to do it only once though!
-            Double currentX = x.next();
-            Double currentY = y.next();
-            Double nextValue = value.next();
-
-            observePoint(map, currentX, currentY, nextValue);
-
-        }
-        //should be done, now!
-        Preconditions.checkState(!x.hasNext(),"failed to iterate all x columns; mismatch column sizes?");
-        Preconditions.checkState(!y.hasNext(),"failed to iterate all y columns; mismatch column sizes?");
-        Preconditions.checkState(!value.hasNext(),"failed to iterate all value columns; mismatch column sizes?");
+            observePoint(map, biologicalSample.getFirstCoordinate(i), biologicalSample.getSecondCoordinate(i),
+                         biologicalSample.getObservation(i));
 
         //initialization complete!
 
 
     }
 
+    /**
+     * a binary grid (first layer) is observed one cell at a time, as if it were a point at the center of the cell
+     * whose value is the cell's (cells with no data are skipped)
+     */
+    private void observeGrid(NauticalMap map, BinaryGrid grid) {
+        FloatBuffer values = grid.getLayer(0);
+        boolean observed = false;
+        for(int x=0; x<grid.getWidth(); x++)
+            for(int y=0; y<grid.getHeight(); y++) {
+                float value = values.get(x * grid.getHeight() + y);
+                if(!Float.isNaN(value)) {
+                    observePoint(map, grid.getCellCenterX(x), grid.getCellCenterY(y), (double) value);
+                    observed = true;
+                }
+            }
+        Preconditions.checkArgument(observed, "The grid provided" + csvFile + " had no data!");
+    }
+
     protected abstract void observePoint(NauticalMap map, Double currentX, Double currentY, Double nextValue);
 
 
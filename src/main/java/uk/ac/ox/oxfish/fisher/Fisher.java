@@ -23,6 +23,7 @@ package uk.ac.ox.oxfish.fisher;
 import com.esotericsoftware.minlog.Log;
 import com.google.common.base.Preconditions;
 import ec.util.MersenneTwisterFast;
+import org.jetbrains.annotations.Nullable;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
@@ -62,6 +63,7 @@ import uk.ac.ox.oxfish.model.restrictions.RegionalRestrictions;
 import uk.ac.ox.oxfish.model.restrictions.ReputationalRestrictions;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 import uk.ac.ox.oxfish.utility.Pair;
+import uk.ac.ox.oxfish.utility.SimulationProfiler;
 import uk.ac.ox.oxfish.utility.adaptation.Adaptation;
 import uk.ac.ox.oxfish.utility.adaptation.AdaptationDailyScheduler;
 import uk.ac.ox.oxfish.utility.adaptation.AdaptationPerTripScheduler;
@@ -396,7 +398,15 @@ public class Fisher implements Steppable, Startable{
             double hoursLeftBeforeAction = hoursLeft;
 
             //take an action
-            ActionResult result = status.getAction().act(model, this, status.getRegulation(), hoursLeft);
+            final ActionResult result;
+            if(SimulationProfiler.isEnabled()) {
+                final long nanos = System.nanoTime();
+                final long bytes = SimulationProfiler.allocatedBytes();
+                result = status.getAction().act(model, this, status.getRegulation(), hoursLeft);
+                SimulationProfiler.timer(SimulationProfiler.ACTION, status.getAction().getClass()).record(nanos, bytes);
+            }
+            else
+                result = status.getAction().act(model, this, status.getRegulation(), hoursLeft);
             hoursLeft = result.getHoursLeft();
             //if you have been moving or you were staying still somewhere away from port
             if(status.getAction() instanceof Moving || !isAtPort())
@@ -537,16 +547,16 @@ public class Fisher implements Steppable, Startable{
         final double litersBought = equipment.getBoat().refill();
         status.setFuelEmergencyOverride(false);
         status.setExogenousEmergencyOverride(false);
-        memory.getYearlyCounter().count(FisherYearlyTimeSeries.HOURS_OUT, status.getHoursAtSea());
-        memory.getYearlyCounter().count(FisherYearlyTimeSeries.FUEL_CONSUMPTION, litersBought);
+        memory.getYearlyCounter().count(memory.getHoursOutColumn(), status.getHoursAtSea());
+        memory.getYearlyCounter().count(memory.getFuelConsumptionColumn(), litersBought);
 
         //now pay for it
         double gasExpenditure = litersBought * status.getHomePort().getGasPricePerLiter();
         spendForTrip(gasExpenditure);
-        memory.getYearlyCounter().count(FisherYearlyTimeSeries.FUEL_EXPENDITURE, gasExpenditure);
+        memory.getYearlyCounter().count(memory.getFuelExpenditureColumn(), gasExpenditure);
         if(status.getHoursAtSea()>0) //if you have been somewhere at all
         {
-            memory.getYearlyCounter().count(FisherYearlyTimeSeries.TRIPS, 1);
+            memory.getYearlyCounter().count(memory.getTripsColumn(), 1);
             //log all areas as just visited!
             for(SeaTile tile : getCurrentTrip().getTilesFished())
                 memory.registerVisit(tile, (int) state.getDay());
@@ -574,8 +584,8 @@ public class Fisher implements Steppable, Startable{
         if(status.getHoursAtSea()>0) {
 	        TripRecord finished = memory.getTripLogger().finishTrip(status.getHoursAtSea(), getHomePort(), this);
 	        //account for the costs
-	        memory.getYearlyCounter().count(FisherYearlyTimeSeries.VARIABLE_COSTS,finished.getTotalCosts());
-	        memory.getYearlyCounter().count(FisherYearlyTimeSeries.EARNINGS,finished.getEarnings());
+	        memory.getYearlyCounter().count(memory.getVariableCostsColumn(),finished.getTotalCosts());
+	        memory.getYearlyCounter().count(memory.getEarningsColumn(),finished.getEarnings());
 
         }
 
@@ -879,8 +889,8 @@ public class Fisher implements Steppable, Startable{
         if(litersBurned>0)
             consumeFuel(litersBurned);
 
-        memory.getYearlyCounter().count(FisherYearlyTimeSeries.EFFORT, hoursSpentFishing);
-        memory.getDailyCounter().count(FisherYearlyTimeSeries.EFFORT, hoursSpentFishing);
+        memory.getYearlyCounter().count(memory.getEffortColumn(), hoursSpentFishing);
+        memory.getDailyCounter().countEffort(hoursSpentFishing);
     }
 
     public Gear getGear() {
@@ -941,7 +951,7 @@ public class Fisher implements Steppable, Startable{
     public void earn(double moneyEarned)
     {
         status.setBankBalance(status.getBankBalance() + moneyEarned);
-        getDailyCounter().count(FisherYearlyTimeSeries.CASH_FLOW_COLUMN, moneyEarned);
+        getDailyCounter().countCashFlow(moneyEarned);
 
     }
 
@@ -954,7 +964,7 @@ public class Fisher implements Steppable, Startable{
     {
         spendExogenously(moneySpent);
         memory.getTripLogger().recordCosts(moneySpent);
-        getDailyCounter().count(FisherYearlyTimeSeries.CASH_FLOW_COLUMN, -moneySpent);
+        getDailyCounter().countCashFlow(-moneySpent);
 
     }
 
@@ -978,7 +988,7 @@ public class Fisher implements Steppable, Startable{
      */
     public void spendExogenously(double moneySpent){
         status.setBankBalance(status.getBankBalance() - moneySpent);
-        getDailyCounter().count(FisherYearlyTimeSeries.CASH_FLOW_COLUMN, -moneySpent);
+        getDailyCounter().countCashFlow(-moneySpent);
 
     }
 
@@ -1053,6 +1063,35 @@ public class Fisher implements Steppable, Startable{
     public List<TripRecord> getFinishedTrips() {
         return memory.getTripLogger().getFinishedTrips();
     }
+
+    /**
+     * number of trips ever finished, including those no longer kept in {@link #getFinishedTrips()}
+     */
+    public int getNumberOfFinishedTrips() {
+        return memory.getTripLogger().getNumberOfFinishedTrips();
+    }
+
+    /**
+     * summaries of the older trips no longer kept in {@link #getFinishedTrips()}; null if there are none
+     */
+    @Nullable
+    public TripArchive getTripArchive() {
+        return memory.getTripLogger().getArchive();
+    }
+
+    /**
+     * see {@link TripLogger#hasRetiredTripsSince(int)}
+     */
+    public boolean hasRetiredTripsSince(int day) {
+        return memory.getTripLogger().hasRetiredTripsSince(day);
+    }
+
+    /**
+     * see {@link TripLogger#setRetention(int, int, boolean, int)}
+     */
+    public void setTripRetention(int hotTrips, int hotDays, boolean archivingOldTrips, int archivedTrips) {
+        memory.getTripLogger().setRetention(hotTrips, hotDays, archivingOldTrips, archivedTrips);
+    }
     
     public List<SharedTripRecord> getSharedTrips(){
     	return memory.getSharedTrips();
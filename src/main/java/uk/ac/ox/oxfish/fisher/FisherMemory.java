@@ -74,6 +74,45 @@ public class FisherMemory implements Serializable, FisherStartable {
         return yearlyCounter;
     }
 
+    /**
+     * handles of the yearly counter columns the fisher counts into
+     */
+    private final int fuelConsumptionColumn;
+    private final int fuelExpenditureColumn;
+    private final int variableCostsColumn;
+    private final int earningsColumn;
+    private final int tripsColumn;
+    private final int effortColumn;
+    private final int hoursOutColumn;
+
+    public int getFuelConsumptionColumn() {
+        return fuelConsumptionColumn;
+    }
+
+    public int getFuelExpenditureColumn() {
+        return fuelExpenditureColumn;
+    }
+
+    public int getVariableCostsColumn() {
+        return variableCostsColumn;
+    }
+
+    public int getEarningsColumn() {
+        return earningsColumn;
+    }
+
+    public int getTripsColumn() {
+        return tripsColumn;
+    }
+
+    public int getEffortColumn() {
+        return effortColumn;
+    }
+
+    public int getHoursOutColumn() {
+        return hoursOutColumn;
+    }
+
     FisherDailyCounter dailyCounter;
 
     public FisherDailyCounter getDailyCounter() {
@@ -157,6 +196,13 @@ public class FisherMemory implements Serializable, FisherStartable {
             LocationMemories<TripRecord> tripMemories) {
         yearlyTimeSeries = new FisherYearlyTimeSeries();
         yearlyCounter = new Counter(IntervalPolicy.EVERY_YEAR);
+        fuelConsumptionColumn = yearlyCounter.addColumn(FisherYearlyTimeSeries.FUEL_CONSUMPTION);
+        fuelExpenditureColumn = yearlyCounter.addColumn(FisherYearlyTimeSeries.FUEL_EXPENDITURE);
+        variableCostsColumn = yearlyCounter.addColumn(FisherYearlyTimeSeries.VARIABLE_COSTS);
+        earningsColumn = yearlyCounter.addColumn(FisherYearlyTimeSeries.EARNINGS);
+        tripsColumn = yearlyCounter.addColumn(FisherYearlyTimeSeries.TRIPS);
+        effortColumn = yearlyCounter.addColumn(FisherYearlyTimeSeries.EFFORT);
+        hoursOutColumn = yearlyCounter.addColumn(FisherYearlyTimeSeries.HOURS_OUT);
         this.dailyTimeSeries = new FisherDailyTimeSeries();
         this.tripMemories = tripMemories;
         this.sharedTrips = new ArrayList<SharedTripRecord>();
@@ -164,13 +210,6 @@ public class FisherMemory implements Serializable, FisherStartable {
 
     @Override
     public void start(FishState model, Fisher fisher) {
-        yearlyCounter.addColumn(FisherYearlyTimeSeries.FUEL_CONSUMPTION);
-        yearlyCounter.addColumn(FisherYearlyTimeSeries.FUEL_EXPENDITURE);
-        yearlyCounter.addColumn(FisherYearlyTimeSeries.VARIABLE_COSTS);
-        yearlyCounter.addColumn(FisherYearlyTimeSeries.EARNINGS);
-        yearlyCounter.addColumn(FisherYearlyTimeSeries.TRIPS);
-        yearlyCounter.addColumn(FisherYearlyTimeSeries.EFFORT);
-        yearlyCounter.addColumn(FisherYearlyTimeSeries.HOURS_OUT);
         dailyCounter = new FisherDailyCounter(model.getSpecies().size());
 
         dailyTimeSeries.start(model, fisher);
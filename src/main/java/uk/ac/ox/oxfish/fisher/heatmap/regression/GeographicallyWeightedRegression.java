@@ -33,12 +33,17 @@ import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Each tile is a separate local linear regression where the weight of the observation is given by RBF distance
+ * Each tile is a separate local linear regression where the weight of the observation is given by RBF distance. <br>
+ * When a minimum kernel weight is given, observations only update the tiles whose kernel weight is at least that:
+ * the tiles within reach of each observed tile are found once and remembered, the filters are stored in flat arrays and
+ * the tiles left out only get their uncertainty increased (as an infinitely far observation would) the next time they
+ * are looked at.
  * Created by carrknight on 8/18/16.
  */
 public class GeographicallyWeightedRegression implements GeographicalRegression<Double> {
@@ -62,6 +67,39 @@ public class GeographicallyWeightedRegression implements GeographicalRegression<
     private final RBFDistance kernel;
     private final NauticalMap map;
 
+    /**
+     * kernel weights below this are treated as 0; when this is 0 every observation goes through every tile
+     */
+    private final double minimumKernelWeight;
+
+    /**
+     * truncated kernel only: the tiles with a filter, their betas [tile * dimension + i] and uncertainties
+     * [(tile * dimension + row) * dimension + column]
+     */
+    private SeaTile[] tiles;
+
+    private HashMap<SeaTile,Integer> tileIndices;
+
+    private double[] betas;
+
+    private double[] uncertainties;
+
+    /**
+     * truncated kernel only: how many observations each tile's uncertainty has accounted for
+     */
+    private int[] observationsAccountedFor;
+
+    /**
+     * truncated kernel only: for each observed tile, the tiles it reaches and the sigma^2 of the observation there
+     */
+    private final HashMap<SeaTile,Neighborhood> neighborhoods = new HashMap<>();
+
+    private int observationsAdded = 0;
+
+    private double exponentialForgetting;
+
+    private final int dimension;
+
 
     public GeographicallyWeightedRegression(
             NauticalMap map, double exponentialForgetting,
@@ -71,26 +109,58 @@ public class GeographicallyWeightedRegression implements GeographicalRegression<
             double initialMax,
             double initialUncertainty,
             MersenneTwisterFast random) {
+        this(map, exponentialForgetting, distance, rbfBandwidth, nonInterceptExtractors,
+             initialMin, initialMax, initialUncertainty, 0, random);
+    }
+
+    public GeographicallyWeightedRegression(
+            NauticalMap map, double exponentialForgetting,
+            Distance distance, double rbfBandwidth,
+            ObservationExtractor[] nonInterceptExtractors,
+            double initialMin,
+            double initialMax,
+            double initialUncertainty,
+            double minimumKernelWeight,
+            MersenneTwisterFast random) {
         this.distance = distance;
         this.map = map;
         Preconditions.checkArgument(initialMax>initialMin);
+        Preconditions.checkArgument(minimumKernelWeight >= 0 && minimumKernelWeight < 1,
+                                    "minimum kernel weight must be in [0,1)");
+        this.minimumKernelWeight = minimumKernelWeight;
+        this.exponentialForgetting = exponentialForgetting;
         //get extractors and add intercept
         this.extractors = new ObservationExtractor[nonInterceptExtractors.length+1];
         for(int i=0; i<nonInterceptExtractors.length; i++)
             this.extractors[i+1] = nonInterceptExtractors[i];
         this.extractors[0] = new InterceptExtractor();
+        this.dimension = extractors.length;
 
         this.kernel = new RBFDistance(rbfBandwidth);
 
         //each tile its own lowess with a random intercept
         List<SeaTile> tiles = map.getAllSeaTilesExcludingLandAsList();
-        for(SeaTile tile : tiles) {
-            double[] beta = new double[nonInterceptExtractors.length+1];
-            beta[0] = random.nextDouble() *(initialMax-initialMin) + initialMin;
-            lowesses.put(tile, new LeastSquareFilter(nonInterceptExtractors.length + 1,
-                                                     initialUncertainty, beta,
-                                                     exponentialForgetting));
+        if(minimumKernelWeight > 0) {
+            this.tiles = tiles.toArray(new SeaTile[0]);
+            tileIndices = new HashMap<>(tiles.size());
+            betas = new double[tiles.size() * dimension];
+            uncertainties = new double[tiles.size() * dimension * dimension];
+            observationsAccountedFor = new int[tiles.size()];
+            for (int i = 0; i < tiles.size(); i++) {
+                tileIndices.put(tiles.get(i), i);
+                betas[i * dimension] = random.nextDouble() * (initialMax - initialMin) + initialMin;
+                for (int j = 0; j < dimension; j++)
+                    uncertainties[(i * dimension + j) * dimension + j] = initialUncertainty;
+            }
         }
+        else
+            for(SeaTile tile : tiles) {
+                double[] beta = new double[nonInterceptExtractors.length+1];
+                beta[0] = random.nextDouble() *(initialMax-initialMin) + initialMin;
+                lowesses.put(tile, new LeastSquareFilter(nonInterceptExtractors.length + 1,
+                                                         initialUncertainty, beta,
+                                                         exponentialForgetting));
+            }
 
 
 
@@ -103,6 +173,11 @@ public class GeographicallyWeightedRegression implements GeographicalRegression<
         double[] features = ObservationExtractor.convertToFeatures(
                 observation.getTile(), observation.getTime(),
                 fisher, extractors, model);
+        if(minimumKernelWeight > 0)
+        {
+            addObservationToNeighborhood(observation, features);
+            return;
+        }
         //go through all the tiles
         for(Map.Entry<SeaTile,LeastSquareFilter> lowess : lowesses.entrySet())
         {
@@ -119,6 +194,54 @@ public class GeographicallyWeightedRegression implements GeographicalRegression<
         }
     }
 
+    private void addObservationToNeighborhood(GeographicalObservation<Double> observation, double[] features) {
+        Neighborhood neighborhood = neighborhoods.computeIfAbsent(observation.getTile(), this::findNeighborhood);
+        observationsAdded++;
+        for(int i=0; i<neighborhood.tiles.length; i++)
+        {
+            int tile = neighborhood.tiles[i];
+            //catch up with the observations that didn't reach this tile
+            catchUp(tile, observationsAdded - 1);
+            LeastSquareFilter.addObservation(betas, tile * dimension,
+                                             uncertainties, tile * dimension * dimension,
+                                             dimension, exponentialForgetting,
+                                             features, observation.getValue(), neighborhood.sigmas[i]);
+            observationsAccountedFor[tile] = observationsAdded;
+        }
+    }
+
+    /**
+     * all the tiles whose kernel weight from this one is at least the minimum
+     */
+    private Neighborhood findNeighborhood(SeaTile observed) {
+        int[] reached = new int[tiles.length];
+        double[] sigmas = new double[tiles.length];
+        int size = 0;
+        for(int i=0; i<tiles.length; i++)
+        {
+            double weight = kernel.transform(distance.distance(tiles[i], observed, map));
+            if(weight >= minimumKernelWeight && Double.isFinite(1d/weight))
+            {
+                reached[size] = i;
+                sigmas[size] = 1d/weight;
+                size++;
+            }
+        }
+        return new Neighborhood(Arrays.copyOf(reached, size), Arrays.copyOf(sigmas, size));
+    }
+
+    /**
+     * increase the uncertainty of the tile for all the observations it missed: dividing by the forgetting once per
+     * missed observation is the same as dividing once by the forgetting to the power of the observations missed
+     */
+    private void catchUp(int tile, int observations) {
+        int missed = observations - observationsAccountedFor[tile];
+        if(missed > 0)
+            LeastSquareFilter.increaseUncertainty(uncertainties, tile * dimension * dimension,
+                                                  dimension, Math.pow(exponentialForgetting, missed));
+        observationsAccountedFor[tile] = observations;
+    }
+
 
     /**
      * returns the current kernel prediction
@@ -127,30 +250,71 @@ public class GeographicallyWeightedRegression implements GeographicalRegression<
     @Override
     public double predict(SeaTile tile, double time, Fisher fisher, FishState model) {
 
-        LeastSquareFilter predictor = lowesses.get(tile);
-        if(predictor==null)
-            return Double.NaN;
-        else {
-            double[] features = ObservationExtractor.convertToFeatures(
-                    tile,time,fisher,extractors, model);
-            double prediction = 0;
-            for(int i=0; i<features.length; i++)
-                prediction += features[i] * predictor.getBeta()[i];
-            return prediction;
+        //read the betas where they are stored rather than copying them out
+        double[] beta;
+        int offset;
+        if(minimumKernelWeight > 0)
+        {
+            Integer index = tileIndices.get(tile);
+            if(index == null)
+                return Double.NaN;
+            catchUp(index, observationsAdded);
+            beta = betas;
+            offset = index * dimension;
         }
+        else
+        {
+            LeastSquareFilter predictor = lowesses.get(tile);
+            if(predictor == null)
+                return Double.NaN;
+            beta = predictor.getBeta();
+            offset = 0;
+        }
+        double[] features = ObservationExtractor.convertToFeatures(
+                tile,time,fisher,extractors, model);
+        double prediction = 0;
+        for(int i=0; i<features.length; i++)
+            prediction += features[i] * beta[offset + i];
+        return prediction;
 
     }
 
 
+    /**
+     * the betas of the tile; in the truncated kernel mode this is a copy, {@link #predict(SeaTile, double, Fisher, FishState)}
+     * reads them in place instead
+     */
     @VisibleForTesting
     public double[] getBeta(SeaTile tile)
     {
+        if(minimumKernelWeight > 0)
+        {
+            Integer index = tileIndices.get(tile);
+            if(index == null)
+                return null;
+            catchUp(index, observationsAdded);
+            return Arrays.copyOfRange(betas, index * dimension, (index + 1) * dimension);
+        }
         LeastSquareFilter predictor = lowesses.get(tile);
         if(predictor==null)
             return  null;
         else
             return predictor.getBeta();
     }
+
+    /**
+     * the uncertainty matrix of a tile in the truncated kernel mode, flattened row by row
+     */
+    @VisibleForTesting
+    double[] getUncertainty(SeaTile tile)
+    {
+        Preconditions.checkState(minimumKernelWeight > 0);
+        int index = tileIndices.get(tile);
+        catchUp(index, observationsAdded);
+        return Arrays.copyOfRange(uncertainties, index * dimension * dimension,
+                                  (index + 1) * dimension * dimension);
+    }
+
     /**
      * ignored
      */
@@ -181,6 +345,8 @@ public class GeographicallyWeightedRegression implements GeographicalRegression<
     @Override
     public double[] getParametersAsArray() {
 
+        if(minimumKernelWeight > 0)
+            return new double[]{exponentialForgetting,kernel.getBandwidth()};
         double currentForgetting = lowesses.values().iterator().next().getExponentialForgetting();
         //check that they all have the same forgetting!
         assert  lowesses.values().stream().allMatch(
@@ -196,8 +362,28 @@ public class GeographicallyWeightedRegression implements GeographicalRegression<
     public void setParameters(double[] parameterArray) {
 
         assert parameterArray.length==2;
+        if(minimumKernelWeight > 0) {
+            //missed observations were missed with the old forgetting
+            for (int tile = 0; tile < tiles.length; tile++)
+                catchUp(tile, observationsAdded);
+            //and the reach of each tile depends on the bandwidth
+            neighborhoods.clear();
+        }
+        exponentialForgetting = parameterArray[0];
         lowesses.values().forEach(lowessTile -> lowessTile.setExponentialForgetting(parameterArray[0]));
         kernel.setBandwidth(parameterArray[1]);
 
     }
+
+    private static class Neighborhood {
+
+        private final int[] tiles;
+
+        private final double[] sigmas;
+
+        private Neighborhood(int[] tiles, double[] sigmas) {
+            this.tiles = tiles;
+            this.sigmas = sigmas;
+        }
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.fisher.heatmap.regression.bayes;
+
+import com.google.common.base.Preconditions;
+import ec.util.MersenneTwisterFast;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Many one-dimensional particle filters (one per tile) whose particles all live in one double[tiles x particles]
+ * array, row by row. Evidence is normal around the observation and drift is a clamped gaussian shock, same as
+ * {@link ParticleFilter#defaultParticleFilter(double, double, double, int, MersenneTwisterFast)}, but computed in
+ * plain loops over the array and resampled systematically (one uniform draw per tile, walking a reusable cdf buffer).
+ * <br>
+ * Each update draws one seed from the model randomizer and every tile derives its own random numbers from that seed
+ * and its index, so tiles can be updated in parallel and still give the same result as updating them one by one.
+ * <br>
+ * Means and standard deviations are cached per tile until its particles change.
+ */
+public class ParticleFilterMatrix {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int tiles;
+
+    private final int size;
+
+    private final double min;
+
+    private final double max;
+
+    private final double drift;
+
+    /**
+     * particle i of tile t is at t * size + i
+     */
+    private final double[] particles;
+
+    private final double[] means;
+
+    private final double[] deviations;
+
+    /**
+     * true when the tile's particles changed since its mean and deviation were computed
+     */
+    private final boolean[] stale;
+
+    /**
+     * cdf and resampled positions, one buffer per thread
+     */
+    private final ThreadLocal<double[]> buffers;
+
+    /**
+     * when true tiles are updated in parallel
+     */
+    private boolean parallel;
+
+    /**
+     * @param tiles number of filters
+     * @param size particles per filter
+     * @param min smallest value a particle can take
+     * @param max largest value a particle can take
+     * @param drift standard deviation of the daily shock to each particle
+     * @param random used to place particles uniformly at first
+     */
+    public ParticleFilterMatrix(
+            int tiles, int size, double min, double max, double drift, MersenneTwisterFast random) {
+        Preconditions.checkArgument(size > 0, "filters need at least one particle");
+        Preconditions.checkArgument(max >= min);
+        this.tiles = tiles;
+        this.size = size;
+        this.min = min;
+        this.max = max;
+        this.drift = drift;
+        this.particles = new double[tiles * size];
+        for (int i = 0; i < particles.length; i++)
+            particles[i] = random.nextDouble() * (max - min) + min;
+        this.means = new double[tiles];
+        this.deviations = new double[tiles];
+        this.stale = new boolean[tiles];
+        Arrays.fill(stale, true);
+        this.buffers = ThreadLocal.withInitial(() -> new double[2 * size]);
+    }
+
+    /**
+     * adds a gaussian shock to each particle (clamped between min and max); that's our time elapse phase
+     */
+    public void drift(MersenneTwisterFast random) {
+        final long seed = random.nextLong();
+        forEachTile(tile -> {
+            int start = tile * size;
+            for (int i = start; i < start + size; i++)
+                particles[i] = Math.max(Math.min(particles[i] + gaussian(seed, i) * drift, max), min);
+            stale[tile] = true;
+        });
+    }
+
+    /**
+     * weights each tile's particles by p(e|x)~N(observation, deviation of that tile) and resamples them. If no particle
+     * has any weight left the tile is reset to a uniform spread
+     * @param observation the evidence
+     * @param evidenceDeviations the standard deviation of the evidence for each tile; NaN tiles are left alone
+     */
+    public void updateGivenEvidence(double observation, double[] evidenceDeviations, MersenneTwisterFast random) {
+        Preconditions.checkArgument(evidenceDeviations.length == tiles);
+        final long seed = random.nextLong();
+        forEachTile(tile -> {
+            if (!Double.isNaN(evidenceDeviations[tile]))
+                updateTile(tile, observation, evidenceDeviations[tile], seed);
+        });
+    }
+
+    private void updateTile(int tile, double observation, double deviation, long seed) {
+        final int start = tile * size;
+        final double[] buffer = buffers.get();
+        //reweight, accumulating the cdf as we go
+        final double variance = deviation * deviation;
+        final double normalization = Math.sqrt(2 * variance * Math.PI);
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            double distance = particles[start + i] - observation;
+            total += Math.exp(-distance * distance / (2 * variance)) / normalization;
+            buffer[i] = total;
+        }
+        if (total <= 0 || Double.isNaN(total)) {
+            for (int i = 0; i < size; i++)
+                particles[start + i] = uniform(seed, start + i) * (max - min) + min;
+        } else {
+            //systematic resampling: evenly spaced pointers into the cdf, with a random offset
+            final double offset = uniform(seed, start);
+            int j = 0;
+            for (int k = 0; k < size; k++) {
+                double pointer = (offset + k) / size * total;
+                while (j < size - 1 && buffer[j] < pointer)
+                    j++;
+                buffer[size + k] = particles[start + j];
+            }
+            System.arraycopy(buffer, size, particles, start, size);
+        }
+        stale[tile] = true;
+    }
+
+    private void forEachTile(IntConsumer update) {
+        if (parallel)
+            IntStream.range(0, tiles).parallel().forEach(update);
+        else
+            for (int tile = 0; tile < tiles; tile++)
+                update.accept(tile);
+    }
+
+    /**
+     * the average particle position of this tile
+     */
+    public double getMean(int tile) {
+        summarize(tile);
+        return means[tile];
+    }
+
+    /**
+     * the (population) standard deviation of the particle positions of this tile
+     */
+    public double getStandardDeviation(int tile) {
+        summarize(tile);
+        return deviations[tile];
+    }
+
+    private void summarize(int tile) {
+        if (!stale[tile])
+            return;
+        final int start = tile * size;
+        double mean = 0;
+        for (int i = start; i < start + size; i++)
+            mean += particles[i];
+        mean /= size;
+        double variance = 0;
+        for (int i = start; i < start + size; i++)
+            variance += (particles[i] - mean) * (particles[i] - mean);
+        means[tile] = mean;
+        deviations[tile] = Math.sqrt(variance / size);
+        stale[tile] = false;
+    }
+
+    /**
+     * a uniform [0,1) number that only depends on the seed and the index (splitmix64)
+     */
+    private static double uniform(long seed, long index) {
+        long z = seed + (index + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return ((z ^ (z >>> 31)) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * a standard normal number that only depends on the seed and the index (Box-Muller)
+     */
+    private static double gaussian(long seed, long index) {
+        double radius = Math.sqrt(-2 * Math.log(1 - uniform(seed, 2 * index)));
+        return radius * Math.cos(2 * Math.PI * uniform(seed, 2 * index + 1));
+    }
+
+    /**
+     * number of filters
+     */
+    public int getTiles() {
+        return tiles;
+    }
+
+    /**
+     * particles per filter
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter for property 'parallel'.
+     *
+     * @return Value for property 'parallel'.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Setter for property 'parallel'.
+     *
+     * @param parallel Value to set for property 'parallel'.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+}
@@ -28,7 +28,7 @@ import uk.ac.ox.oxfish.model.FishState;
  * Returns day of the year
  * Created by carrknight on 2/13/17.
  */
-public class DayOfTheYearExtractor implements ObservationExtractor {
+public class DayOfTheYearExtractor implements GroupLevelExtractor {
 
 
     @Override
@@ -25,9 +25,10 @@ import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
 
 /**
+ * The gas price at the fisher's home port; the same for every group, so shared per home port and day
  * Created by carrknight on 2/13/17.
  */
-public class GasPriceExtractor implements ObservationExtractor {
+public class GasPriceExtractor implements GroupLevelExtractor {
 
 
     @Override
@@ -35,4 +36,25 @@ public class GasPriceExtractor implements ObservationExtractor {
             SeaTile tile, double timeOfObservation, Fisher agent, FishState model) {
         return agent.getHomePort().getGasPricePerLiter();
     }
+
+    /**
+     * the price depends on where the fisher's home is
+     */
+    @Override
+    public Object getSharingKey(Fisher fisher) {
+        return fisher.getHomePort();
+    }
+
+    /**
+     * no state, all gas price extractors are the same
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o != null && getClass() == o.getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
 }
@@ -31,7 +31,7 @@ import uk.ac.ox.oxfish.model.FishState;
  * the intercept associated with that group!
  * Created by carrknight on 8/7/17.
  */
-public class GroupInterceptExtractor implements ObservationExtractor{
+public class GroupInterceptExtractor implements GroupLevelExtractor{
 
     /**
      * intercepts, must be all provided even the ones that are 0 to avoid interference with the
@@ -0,0 +1,43 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.fisher.heatmap.regression.extractors;
+
+import org.jetbrains.annotations.Nullable;
+import uk.ac.ox.oxfish.fisher.Fisher;
+
+/**
+ * An extractor whose value depends only on the group (of a map discretization) the tile is in, on the day and
+ * possibly on something about who is asking (see {@link #getSharingKey(Fisher)}), not on the exact tile. Logit
+ * choosers compute these once per group, key and day and share them between all the fishers using equal extractors
+ * (see {@link uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.SharedCovariates}).
+ */
+public interface GroupLevelExtractor extends ObservationExtractor {
+
+    /**
+     * whatever else, besides group and day, the value depends on (say the fisher's home port); values are only shared
+     * between fishers with equal keys
+     * @param fisher who is asking
+     * @return the key, or null if the value is the same for everybody
+     */
+    @Nullable
+    default Object getSharingKey(Fisher fisher) {
+        return null;
+    }
+}
@@ -28,7 +28,7 @@ import uk.ac.ox.oxfish.model.FishState;
  * Always returns the same number
  * Created by carrknight on 2/13/17.
  */
-public class InterceptExtractor implements ObservationExtractor {
+public class InterceptExtractor implements GroupLevelExtractor {
 
 
     private final double intercept;
@@ -49,7 +49,7 @@ public class PeriodHabitBooleanExtractor implements ObservationExtractor {
         //it it has been less than ```period``` days since you went there, you get the habit bonus!
         return  model.getDay() -
                 agent.getDiscretizedLocationMemory()
-                        .getLastDayVisited(discretization.getGroup(tile)) < period ?
+                        .getLastDayVisited(discretization.getGroupIndex(tile)) < period ?
                 1 : 0;
     }
 }
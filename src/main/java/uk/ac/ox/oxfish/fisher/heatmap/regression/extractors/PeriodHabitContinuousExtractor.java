@@ -49,7 +49,7 @@ public class PeriodHabitContinuousExtractor implements ObservationExtractor {
         //it it has been less than ```period``` days since you went there, you get the habit bonus!
         return  count(model.getDay(),
                       agent.getDiscretizedLocationMemory().getVisits(
-                              (discretization.getGroup(tile))
+                              (discretization.getGroupIndex(tile))
                       ));
     }
 
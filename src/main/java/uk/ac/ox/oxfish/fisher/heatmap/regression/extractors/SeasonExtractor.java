@@ -29,7 +29,7 @@ import uk.ac.ox.oxfish.utility.Season;
  * Seasonal dummy
  * Created by carrknight on 4/12/17.
  */
-public class SeasonExtractor implements ObservationExtractor
+public class SeasonExtractor implements GroupLevelExtractor
 {
 
 
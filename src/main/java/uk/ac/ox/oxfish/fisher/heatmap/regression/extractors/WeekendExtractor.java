@@ -27,7 +27,7 @@ import uk.ac.ox.oxfish.model.FishState;
 /**
  * Created by carrknight on 4/19/17.
  */
-public class WeekendExtractor implements ObservationExtractor {
+public class WeekendExtractor implements GroupLevelExtractor {
 
 
     @Override
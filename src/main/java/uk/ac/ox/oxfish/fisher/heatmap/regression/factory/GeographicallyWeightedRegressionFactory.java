@@ -44,6 +44,10 @@ public class GeographicallyWeightedRegressionFactory implements AlgorithmFactory
     private DoubleParameter initialUncertainty = new FixedDoubleParameter(10000);
     private DoubleParameter rbfBandwidth = new FixedDoubleParameter(3);
     private DoubleParameter exponentialForgetting = new FixedDoubleParameter(.98d);
+    /**
+     * observations don't update tiles where their kernel weight is below this; 0 means every tile is always updated
+     */
+    private DoubleParameter minimumKernelWeight = new FixedDoubleParameter(0);
 
 
     private final static ObservationExtractor[] extractors = new ObservationExtractor[2];
@@ -74,6 +78,7 @@ public class GeographicallyWeightedRegressionFactory implements AlgorithmFactory
                 initialMin.apply(fishState.getRandom()),
                 initialMax.apply(fishState.getRandom()),
                 initialUncertainty.apply(fishState.getRandom()),
+                minimumKernelWeight.apply(fishState.getRandom()),
                 fishState.getRandom()
         );
 
@@ -169,4 +174,22 @@ public class GeographicallyWeightedRegressionFactory implements AlgorithmFactory
     public void setExponentialForgetting(DoubleParameter exponentialForgetting) {
         this.exponentialForgetting = exponentialForgetting;
     }
+
+    /**
+     * Getter for property 'minimumKernelWeight'.
+     *
+     * @return Value for property 'minimumKernelWeight'.
+     */
+    public DoubleParameter getMinimumKernelWeight() {
+        return minimumKernelWeight;
+    }
+
+    /**
+     * Setter for property 'minimumKernelWeight'.
+     *
+     * @param minimumKernelWeight Value to set for property 'minimumKernelWeight'.
+     */
+    public void setMinimumKernelWeight(DoubleParameter minimumKernelWeight) {
+        this.minimumKernelWeight = minimumKernelWeight;
+    }
 }
@@ -49,6 +49,7 @@ public class NumericalGeographicalRegressions {
         NAMES.put(NearestNeighborTransductionFactory.class, "Nearest Neighbor Transduction");
         NAMES.put(KernelTransductionFactory.class, "Kernel Transduction");
         NAMES.put(DefaultRBFKernelTransductionFactory.class, "RBF Kernel Transduction");
+        NAMES.put(SparseKernelTransductionFactory.class, "Sparse Kernel Transduction");
         NAMES.put(ParticleFilterRegressionFactory.class, "Particle Filter Regression");
         NAMES.put(SimpleKalmanRegressionFactory.class, "Simple Kalman");
         NAMES.put(GeographicallyWeightedRegressionFactory.class, "GWR");
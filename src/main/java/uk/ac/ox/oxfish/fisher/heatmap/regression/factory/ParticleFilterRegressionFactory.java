@@ -44,6 +44,11 @@ public class ParticleFilterRegressionFactory  implements AlgorithmFactory<Partic
 
     private DoubleParameter maxValue = new FixedDoubleParameter(100);
 
+    /**
+     * update the filters of different tiles in parallel
+     */
+    private boolean parallel = false;
+
 
     /**
      * Applies this function to the given argument.
@@ -61,7 +66,8 @@ public class ParticleFilterRegressionFactory  implements AlgorithmFactory<Partic
                 state.getMap(),
                 state.getRandom(),
                 minValue.apply(state.getRandom()),
-                maxValue.apply(state.getRandom())
+                maxValue.apply(state.getRandom()),
+                parallel
         );
     }
 
@@ -173,4 +179,22 @@ public class ParticleFilterRegressionFactory  implements AlgorithmFactory<Partic
     public void setMaxValue(DoubleParameter maxValue) {
         this.maxValue = maxValue;
     }
+
+    /**
+     * Getter for property 'parallel'.
+     *
+     * @return Value for property 'parallel'.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Setter for property 'parallel'.
+     *
+     * @param parallel Value to set for property 'parallel'.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.fisher.heatmap.regression.factory;
+
+import com.google.common.collect.Lists;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GridXExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GridYExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.KernelNeighbourhoodIndex;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.SparseKernelTransduction;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.utility.AlgorithmFactory;
+import uk.ac.ox.oxfish.utility.Locker;
+import uk.ac.ox.oxfish.utility.Pair;
+import uk.ac.ox.oxfish.utility.parameters.DoubleParameter;
+import uk.ac.ox.oxfish.utility.parameters.FixedDoubleParameter;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Like {@link KernelTransductionFactory} but the transduction only updates tiles whose kernel weight is above the
+ * cutoff. Fishers drawing the same bandwidth (and cutoff) share the same neighbourhood index
+ */
+public class SparseKernelTransductionFactory implements AlgorithmFactory<SparseKernelTransduction>
+{
+
+
+    private DoubleParameter spaceBandwidth = new FixedDoubleParameter(5);
+
+
+    private DoubleParameter forgettingFactor = new FixedDoubleParameter(1);
+
+
+    private DoubleParameter cutoff = new FixedDoubleParameter(.001);
+
+    /**
+     * one index per bandwidth and cutoff, per model
+     */
+    private final Locker<FishState, HashMap<List<Double>, KernelNeighbourhoodIndex>> indices = new Locker<>();
+
+
+    /**
+     * Applies this function to the given argument.
+     *
+     * @param state the function argument
+     * @return the function result
+     */
+    @Override
+    public SparseKernelTransduction apply(FishState state) {
+        double bandwidth = spaceBandwidth.apply(state.getRandom());
+        double forgetting = forgettingFactor.apply(state.getRandom());
+        double weightCutoff = cutoff.apply(state.getRandom());
+        KernelNeighbourhoodIndex index = indices.presentKey(state, HashMap::new).computeIfAbsent(
+                Lists.newArrayList(bandwidth, weightCutoff),
+                key -> new KernelNeighbourhoodIndex(state.getMap(), bandwidth, bandwidth, weightCutoff));
+        return new SparseKernelTransduction(
+                index,
+                forgetting,
+                new Pair<>(new GridXExtractor(), bandwidth),
+
+                new Pair<>(new GridYExtractor(), bandwidth));
+    }
+
+
+    public DoubleParameter getSpaceBandwidth() {
+        return spaceBandwidth;
+    }
+
+    public void setSpaceBandwidth(DoubleParameter spaceBandwidth) {
+        this.spaceBandwidth = spaceBandwidth;
+    }
+
+    public DoubleParameter getForgettingFactor() {
+        return forgettingFactor;
+    }
+
+    public void setForgettingFactor(DoubleParameter forgettingFactor) {
+        this.forgettingFactor = forgettingFactor;
+    }
+
+    /**
+     * Getter for property 'cutoff'.
+     *
+     * @return Value for property 'cutoff'.
+     */
+    public DoubleParameter getCutoff() {
+        return cutoff;
+    }
+
+    /**
+     * Setter for property 'cutoff'.
+     *
+     * @param cutoff Value to set for property 'cutoff'.
+     */
+    public void setCutoff(DoubleParameter cutoff) {
+        this.cutoff = cutoff;
+    }
+}
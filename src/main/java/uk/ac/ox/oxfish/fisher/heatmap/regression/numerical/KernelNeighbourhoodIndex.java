@@ -0,0 +1,177 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.fisher.heatmap.regression.numerical;
+
+import com.google.common.base.Preconditions;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.SeaTile;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The spatial part of a {@link SparseKernelTransduction}, which only depends on the map, the grid-x and grid-y
+ * bandwidths and the weight cutoff and so can be shared by every fisher using the same ones: the sea tiles numbered
+ * densely, which of them sits at each grid position and the RBF weight of each x and y offset up to the offset at
+ * which it drops below the cutoff (no tile further away than that can get a weight above the cutoff, whatever the
+ * other extractors say, since every RBF factor is at most 1).
+ */
+public class KernelNeighbourhoodIndex {
+
+    private final NauticalMap map;
+
+    private final SeaTile[] tiles;
+
+    /**
+     * from gridX * height + gridY to the tile number, -1 for land
+     */
+    private final int[] tileAt;
+
+    private final int width;
+
+    private final int height;
+
+    private final double xBandwidth;
+
+    private final double yBandwidth;
+
+    private final double cutoff;
+
+    /**
+     * RBF weight of a difference of |dx| columns, for all |dx| whose weight is at least the cutoff
+     */
+    private final double[] xWeights;
+
+    private final double[] yWeights;
+
+    /**
+     * @param map the map whose sea tiles are predicted
+     * @param xBandwidth bandwidth of the grid-x kernel; NaN if the kernel ignores x
+     * @param yBandwidth bandwidth of the grid-y kernel; NaN if the kernel ignores y
+     * @param cutoff kernel weights below this are ignored
+     */
+    public KernelNeighbourhoodIndex(NauticalMap map, double xBandwidth, double yBandwidth, double cutoff) {
+        Preconditions.checkArgument(cutoff >= 0 && cutoff < 1, "cutoff must be in [0,1)");
+        this.map = map;
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.xBandwidth = xBandwidth;
+        this.yBandwidth = yBandwidth;
+        this.cutoff = cutoff;
+
+        List<SeaTile> seaTiles = map.getAllSeaTilesExcludingLandAsList();
+        tiles = seaTiles.toArray(new SeaTile[seaTiles.size()]);
+        tileAt = new int[width * height];
+        Arrays.fill(tileAt, -1);
+        for (int i = 0; i < tiles.length; i++)
+            tileAt[tiles[i].getGridX() * height + tiles[i].getGridY()] = i;
+
+        xWeights = weights(xBandwidth, width, cutoff);
+        yWeights = weights(yBandwidth, height, cutoff);
+    }
+
+    private static double[] weights(double bandwidth, int length, double cutoff) {
+        double[] weights = new double[length];
+        int radius = 0;
+        for (; radius < length; radius++) {
+            weights[radius] = Double.isNaN(bandwidth) ? 1 : Math.exp(-(double) radius * radius / bandwidth);
+            if (weights[radius] < cutoff)
+                break;
+        }
+        return Arrays.copyOf(weights, radius);
+    }
+
+    /**
+     * the number of the tile at this grid position, -1 if it is land
+     */
+    public int getTile(int gridX, int gridY) {
+        return tileAt[gridX * height + gridY];
+    }
+
+    /**
+     * the number of this tile, -1 if it is land
+     */
+    public int getTile(SeaTile tile) {
+        return getTile(tile.getGridX(), tile.getGridY());
+    }
+
+    /**
+     * the tile with this number
+     */
+    public SeaTile getSeaTile(int tile) {
+        return tiles[tile];
+    }
+
+    public int getNumberOfTiles() {
+        return tiles.length;
+    }
+
+    /**
+     * how many columns away a tile can be and still weigh at least the cutoff
+     */
+    public int getRadiusX() {
+        return xWeights.length - 1;
+    }
+
+    /**
+     * how many rows away a tile can be and still weigh at least the cutoff
+     */
+    public int getRadiusY() {
+        return yWeights.length - 1;
+    }
+
+    /**
+     * the x part of the kernel for tiles dx columns apart; only defined up to {@link #getRadiusX()}
+     */
+    public double getXWeight(int dx) {
+        return xWeights[dx];
+    }
+
+    /**
+     * the y part of the kernel for tiles dy rows apart; only defined up to {@link #getRadiusY()}
+     */
+    public double getYWeight(int dy) {
+        return yWeights[dy];
+    }
+
+    public NauticalMap getMap() {
+        return map;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getXBandwidth() {
+        return xBandwidth;
+    }
+
+    public double getYBandwidth() {
+        return yBandwidth;
+    }
+
+    public double getCutoff() {
+        return cutoff;
+    }
+}
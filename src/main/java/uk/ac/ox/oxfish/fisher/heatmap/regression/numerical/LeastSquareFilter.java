@@ -155,6 +155,67 @@ public class LeastSquareFilter {
 
     }
 
+    /**
+     * Same update as {@link #addObservation(double[], double, double)} but for a filter whose beta and uncertainty
+     * matrix live in flat arrays (row-major for the uncertainty) starting at the given offsets. Useful when storing many
+     * filters together
+     */
+    public static void addObservation(
+            double[] beta, int betaOffset,
+            double[] uncertainty, int uncertaintyOffset,
+            int dimension, double exponentialForgetting,
+            double[] x, double y, double sigmaSquared){
+
+        assert x.length == dimension;
+
+        double pi[] = new double[dimension];
+        for(int column=0; column<dimension; column++)
+            for(int row=0; row<dimension; row++)
+                pi[column] += x[row] * uncertainty[uncertaintyOffset + row * dimension + column];
+
+        double gamma = exponentialForgetting * sigmaSquared;
+        for(int row=0; row<dimension; row++)
+            gamma+= x[row] *  pi[row];
+
+        //if the dispersion is not invertible, do not add the observation
+        if(gamma == 0)
+        {
+            increaseUncertainty(uncertainty, uncertaintyOffset, dimension, exponentialForgetting);
+            return;
+        }
+
+        double[] kalman = new double[dimension];
+        for(int row=0; row<dimension; row++)
+            kalman[row] = pi[row] / gamma;
+
+        double prediction = 0;
+        for(int i=0; i<x.length; i++)
+            prediction += x[i] * beta[betaOffset + i];
+        double predictionError = y - prediction;
+
+        for(int i=0; i<dimension; i++)
+            beta[betaOffset + i] += predictionError * kalman[i];
+
+        for(int row=0; row<dimension; row++)
+            for(int column=0; column<dimension; column++)
+            {
+                final int cell = uncertaintyOffset + row * dimension + column;
+                uncertainty[cell]-=kalman[row] * pi[column];
+                uncertainty[cell]/=exponentialForgetting;
+            }
+
+    }
+
+    /**
+     * same as {@link #increaseUncertainty()} for a filter stored in a flat array
+     */
+    public static void increaseUncertainty(
+            double[] uncertainty, int uncertaintyOffset, int dimension, double exponentialForgetting)
+    {
+        for(int cell=uncertaintyOffset; cell<uncertaintyOffset + dimension * dimension; cell++)
+            uncertainty[cell]/=exponentialForgetting;
+    }
+
     /**
      * Getter for property 'beta'.
      *
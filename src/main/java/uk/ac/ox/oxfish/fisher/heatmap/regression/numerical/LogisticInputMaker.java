@@ -20,13 +20,15 @@
 
 package uk.ac.ox.oxfish.fisher.heatmap.regression.numerical;
 
+import org.jetbrains.annotations.Nullable;
 import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GroupLevelExtractor;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
 
-import java.util.HashMap;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Takes a bunch of extractors and when the regression need it, turns them into the input matrix (x) of the
@@ -49,14 +51,48 @@ public class LogisticInputMaker {
      */
     private final Function<Integer,SeaTile> armToTileExtractor;
 
-    private HashMap<Integer,SeaTile> lastExtraction = null;
+    /**
+     * the tile each arm was represented by the last time the input was built (null if none could be found)
+     */
+    private SeaTile[] lastExtraction = null;
+
+    /**
+     * the input matrix, reused every time
+     */
+    private double[][] x = null;
+
+    /**
+     * where group-level covariates are taken from; null if every covariate is computed on the spot
+     */
+    private final SharedCovariates shared;
+
+    /**
+     * from arm to map group; only needed with shared covariates
+     */
+    private final IntUnaryOperator armToGroup;
 
 
+    /**
+     * @param extractors one array of extractors per arm
+     * @param armToTileExtractor picks a tile for each arm (or null if none)
+     * @param shared where to take {@link GroupLevelExtractor} values from; null to compute them every time
+     * @param armToGroup which map group each arm is; ignored if shared is null
+     */
     public LogisticInputMaker(
             ObservationExtractor[][] extractors,
-            Function<Integer, SeaTile> armToTileExtractor) {
+            Function<Integer, SeaTile> armToTileExtractor,
+            @Nullable SharedCovariates shared,
+            IntUnaryOperator armToGroup) {
         this.extractors = extractors;
         this.armToTileExtractor = armToTileExtractor;
+        this.shared = shared;
+        this.armToGroup = armToGroup;
+    }
+
+    public LogisticInputMaker(
+            ObservationExtractor[][] extractors,
+            Function<Integer, SeaTile> armToTileExtractor) {
+        this(extractors, armToTileExtractor, null, arm -> arm);
     }
 
     public LogisticInputMaker(
@@ -65,7 +101,7 @@ public class LogisticInputMaker {
     }
 
     /**
-     * extract the design matrix to feed into a regression
+     * extract the design matrix to feed into a regression. The matrix is reused (and overwritten) by the next call
      * @param fisher the fisher
      * @param state the state
      * @return a matrix of inputs
@@ -73,19 +109,23 @@ public class LogisticInputMaker {
     public double[][] getRegressionInput(Fisher fisher, FishState state)
     {
         //compute all the x ahead of time
-        lastExtraction = new HashMap<>();
-        final double[][] x = new double[extractors.length][];
+        if(x == null) {
+            lastExtraction = new SeaTile[extractors.length];
+            x = new double[extractors.length][extractors.length == 0 ? 0 : extractors[0].length];
+        }
+        final double now = state.getHoursSinceStart();
         for(int i=0; i<extractors.length; i++)
         {
-            x[i] = new double[extractors[0].length];
             SeaTile tile = armToTileExtractor.apply(i);
-            lastExtraction.put(i, tile);
+            lastExtraction[i] = tile;
             for(int j=0; j<extractors[0].length; j++) {
-                if(tile!=null)
-                    x[i][j] = extractors[i][j].extract(lastExtraction.get(i),
-                                                       state.getHoursSinceStart(), fisher, state);
-                else
+                if(tile==null)
                     x[i][j] = Double.NaN;
+                else if(shared != null && extractors[i][j] instanceof GroupLevelExtractor)
+                    x[i][j] = shared.get((GroupLevelExtractor) extractors[i][j], armToGroup.applyAsInt(i),
+                                         tile, fisher, state);
+                else
+                    x[i][j] = extractors[i][j].extract(tile, now, fisher, state);
             }
 
         }
@@ -114,11 +154,11 @@ public class LogisticInputMaker {
     }
 
     /**
-     * Getter for property 'lastExtraction'.
-     *
-     * @return Value for property 'lastExtraction'.
+     * the tile the arm was represented by the last time the input was built
+     * @param arm the arm
+     * @return the tile or null if none could be found (or no input was built yet)
      */
-    public HashMap<Integer, SeaTile> getLastExtraction() {
-        return lastExtraction;
+    public SeaTile getLastExtraction(int arm) {
+        return lastExtraction == null ? null : lastExtraction[arm];
     }
 }
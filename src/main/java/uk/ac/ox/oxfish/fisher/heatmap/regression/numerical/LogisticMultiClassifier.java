@@ -21,10 +21,6 @@
 package uk.ac.ox.oxfish.fisher.heatmap.regression.numerical;
 
 import ec.util.MersenneTwisterFast;
-import uk.ac.ox.oxfish.fisher.Fisher;
-import uk.ac.ox.oxfish.geography.SeaTile;
-import uk.ac.ox.oxfish.model.FishState;
-import uk.ac.ox.oxfish.utility.bandit.BanditSwitch;
 import uk.ac.ox.oxfish.utility.bandit.SoftmaxBanditAlgorithm;
 
 import java.util.function.Function;
@@ -50,36 +46,60 @@ public class LogisticMultiClassifier {
     }
 
     /**
-     * pick an arm given your beta and the input matrix
+     * scratch space for {@link #choose(double[][], MersenneTwisterFast)}: the utility, then the weight, of each arm
+     */
+    private double[] weights;
+
+    /**
+     * pick an arm given your beta and the input matrix. Arms whose utility isn't finite get
+     * {@link #INVALID_PENALTY} instead. Works on primitive arrays and allocates nothing after the first call
      * @param x the input matrix
      * @param random the randomizer
      * @return choice in terms of index
      */
-    public Integer choose(final double[][] x, MersenneTwisterFast random)
+    public int choose(final double[][] x, MersenneTwisterFast random)
     {
-
-
-        return SoftmaxBanditAlgorithm.drawFromSoftmax(
-                random,
-                getNumberOfOptions(),
-                new Function<Integer, Double>() {
-                    @Override
-                    public Double apply(Integer arm) {
-                        double[] beta = betas[arm];
-                        assert beta.length == x[0].length;
-                        //sum them up
-                        double sum = 0;
-                        for(int i=0; i<beta.length ;i++)
-                            sum += beta[i] *  x[arm][i];
-                        //there might be some very invalid ones
-                        if(Double.isFinite(sum))
-                            return sum;
-                        else
-                            return INVALID_PENALTY;
-                    }
-                }
-
-        );
+        final int options = betas.length;
+        if(weights == null)
+            weights = new double[options];
+
+        double max = Double.NEGATIVE_INFINITY;
+        for(int arm=0; arm<options; arm++)
+        {
+            final double[] beta = betas[arm];
+            final double[] covariates = x[arm];
+            assert beta.length == covariates.length;
+            //sum them up
+            double sum = 0;
+            for(int i=0; i<beta.length ;i++)
+                sum += beta[i] *  covariates[i];
+            //there might be some very invalid ones
+            if(!Double.isFinite(sum))
+                sum = INVALID_PENALTY;
+            weights[arm] = sum;
+            if(sum > max)
+                max = sum;
+        }
+        //softmax, shifted by the largest utility so that nothing overflows
+        double total = 0;
+        for(int arm=0; arm<options; arm++)
+        {
+            weights[arm] = Math.exp(weights[arm] - max);
+            total += weights[arm];
+        }
+        final double draw = random.nextDouble() * total;
+        double cumulative = 0;
+        for(int arm=0; arm<options; arm++)
+        {
+            cumulative += weights[arm];
+            if(draw < cumulative)
+                return arm;
+        }
+        //rounding; return the last arm with any weight
+        for(int arm=options-1; arm>0; arm--)
+            if(weights[arm] > 0)
+                return arm;
+        return 0;
 
     }
 
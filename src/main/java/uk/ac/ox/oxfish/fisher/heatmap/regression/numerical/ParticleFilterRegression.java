@@ -25,28 +25,40 @@ import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
 import uk.ac.ox.oxfish.fisher.Fisher;
-import uk.ac.ox.oxfish.fisher.heatmap.regression.bayes.Belief;
-import uk.ac.ox.oxfish.fisher.heatmap.regression.bayes.ParticleFilter;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.bayes.ParticleFilterMatrix;
 import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.StepOrder;
-import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 
 /**
- *A geographical regression which at its core is just a long hash map of separate
+ *A geographical regression which at its core is one particle filter per sea tile, all kept in a single
+ * {@link ParticleFilterMatrix}
  *
  * Created by carrknight on 8/1/16.
  */
 public class ParticleFilterRegression implements GeographicalRegression<Double> {
 
 
-    private final HashMap<SeaTile,ParticleFilter<Double>> filters = new HashMap<>();
+    private final ParticleFilterMatrix filters;
+
+    /**
+     * the sea tiles, in the order their filters are in the matrix
+     */
+    private final SeaTile[] tiles;
+
+    /**
+     * from gridX * height + gridY to the tile's filter, -1 for land
+     */
+    private final int[] filterIndex;
+
+    /**
+     * evidence deviation of each filter for the observation being processed
+     */
+    private final double[] evidenceDeviations;
 
 
     /**
@@ -79,6 +91,15 @@ public class ParticleFilterRegression implements GeographicalRegression<Double>
     public ParticleFilterRegression(
             double distanceNoise, double evidenceDeviation, double temporalDrift, int filterSizes,
             NauticalMap map, MersenneTwisterFast random, double minValue, double maxValue) {
+        this(distanceNoise, evidenceDeviation, temporalDrift, filterSizes, map, random, minValue, maxValue, false);
+    }
+
+    /**
+     * @param parallel when true filters are updated in parallel (the results are the same)
+     */
+    public ParticleFilterRegression(
+            double distanceNoise, double evidenceDeviation, double temporalDrift, int filterSizes,
+            NauticalMap map, MersenneTwisterFast random, double minValue, double maxValue, boolean parallel) {
         this.distanceNoise = distanceNoise;
         this.evidenceDeviation = evidenceDeviation;
         this.temporalDrift = temporalDrift;
@@ -88,13 +109,15 @@ public class ParticleFilterRegression implements GeographicalRegression<Double>
         this.minValue = minValue;
         this.maxValue = maxValue;
 
-        List<SeaTile> tiles = map.getAllSeaTilesExcludingLandAsList();
-        for(SeaTile tile : tiles)
-            filters.put(tile,ParticleFilter.defaultParticleFilter(minValue,
-                                                           maxValue,
-                                                           temporalDrift,
-                                                           filterSizes,
-                                                           random));
+        List<SeaTile> seaTiles = map.getAllSeaTilesExcludingLandAsList();
+        tiles = seaTiles.toArray(new SeaTile[seaTiles.size()]);
+        filterIndex = new int[map.getWidth() * map.getHeight()];
+        Arrays.fill(filterIndex, -1);
+        for(int i = 0; i < tiles.length; i++)
+            filterIndex[tiles[i].getGridX() * map.getHeight() + tiles[i].getGridY()] = i;
+        evidenceDeviations = new double[tiles.length];
+        filters = new ParticleFilterMatrix(tiles.length, filterSizes, minValue, maxValue, temporalDrift, random);
+        filters.setParallel(parallel);
     }
 
     /**
@@ -110,8 +133,7 @@ public class ParticleFilterRegression implements GeographicalRegression<Double>
         receipt = model.scheduleEveryDay(new Steppable() {
             @Override
             public void step(SimState simState) {
-                for (ParticleFilter<Double> filter : filters.values())
-                    filter.drift(random);
+                filters.drift(random);
             }
         }, StepOrder.DAWN);
 
@@ -135,47 +157,25 @@ public class ParticleFilterRegression implements GeographicalRegression<Double>
     @Override
     public void addObservation(GeographicalObservation<Double> observation, Fisher fisher, FishState model) {
 
-        for(Map.Entry<SeaTile,ParticleFilter<Double>> filter : filters.entrySet())
+        for(int i = 0; i < tiles.length; i++)
         {
-            double distance = map.distance(observation.getTile(),filter.getKey());
+            double distance = map.distance(observation.getTile(),tiles[i]);
             double totalDeviation = evidenceDeviation * (1 + distanceNoise * distance);
-            Function<Double, Double> evidenceProbability = FishStateUtilities.normalPDF(
-                    observation.getValue(), totalDeviation
-            );
             //if there is a meaningful difference between probability max and min then there is some value in this
-            if(totalDeviation < (maxValue-minValue)/2)
-                filter.getValue().updateGivenEvidence(
-                        evidenceProbability, random);
-
+            evidenceDeviations[i] = totalDeviation < (maxValue-minValue)/2 ? totalDeviation : Double.NaN;
         }
+        filters.updateGivenEvidence(observation.getValue(), evidenceDeviations, random);
 
     }
 
     public double getMean(SeaTile tile){
-        ParticleFilter<Double> filter = filters.get(tile);
-        if(filter == null)
-            return Double.NaN;
-        else
-        {
-            Belief<Double> belief = filter.getBelief();
-            if(belief.getTotalWeight()<=0)
-                return Double.NaN;
-            double mean = 0;
-            for (Map.Entry<Double, Double> temp : belief.getCdf().entrySet())
-            {
-                mean += temp.getKey() * temp.getValue();
-            }
-            return mean;
-        }
-
-
+        int filter = filterIndex[tile.getGridX() * map.getHeight() + tile.getGridY()];
+        return filter < 0 ? Double.NaN : filters.getMean(filter);
     }
 
     public double getStandardDeviation(SeaTile tile){
-        ParticleFilter<Double> filter = filters.get(tile);
-        return Belief.getSummaryStatistics(filter.getBelief())[1];
-
-
+        int filter = filterIndex[tile.getGridX() * map.getHeight() + tile.getGridY()];
+        return filter < 0 ? Double.NaN : filters.getStandardDeviation(filter);
     }
 
     public double getDistanceNoise() {
@@ -202,6 +202,10 @@ public class ParticleFilterRegression implements GeographicalRegression<Double>
         return random;
     }
 
+    public boolean isParallel() {
+        return filters.isParallel();
+    }
+
     public double getMinValue() {
         return minValue;
     }
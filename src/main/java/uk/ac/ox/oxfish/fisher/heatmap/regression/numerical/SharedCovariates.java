@@ -0,0 +1,94 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.fisher.heatmap.regression.numerical;
+
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GroupLevelExtractor;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.model.FishState;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Daily values of {@link GroupLevelExtractor}s, one per group (and sharing key), computed the first time anybody
+ * asks for them on a given day and then shared by everybody asking on the same day with the same key. Extractors
+ * are told apart by {@code equals}: most are only equal to themselves, so fishers share their values only when they
+ * share extractor objects, while stateless extractors that define equality share values across instances. <br>
+ * One of these is meant to serve a whole model.
+ */
+public class SharedCovariates {
+
+    private final int numberOfGroups;
+
+    /**
+     * extractor ---> sharing key ---> daily values
+     */
+    private final HashMap<GroupLevelExtractor, HashMap<Object, Column>> columns = new HashMap<>();
+
+    public SharedCovariates(int numberOfGroups) {
+        this.numberOfGroups = numberOfGroups;
+    }
+
+    /**
+     * the value of the extractor for this group today
+     * @param extractor the extractor
+     * @param group the group the tile belongs to
+     * @param tile a tile of the group; only used if the value hasn't been computed yet today
+     * @param fisher who is asking; gives the sharing key and is used if the value hasn't been computed yet today
+     * @param state the model
+     * @return the value of the extractor
+     */
+    public double get(GroupLevelExtractor extractor, int group, SeaTile tile, Fisher fisher, FishState state) {
+        HashMap<Object, Column> columnsByKey = columns.get(extractor);
+        if (columnsByKey == null) {
+            columnsByKey = new HashMap<>();
+            columns.put(extractor, columnsByKey);
+        }
+        final Object key = extractor.getSharingKey(fisher);
+        Column column = columnsByKey.get(key);
+        if (column == null) {
+            column = new Column(numberOfGroups);
+            columnsByKey.put(key, column);
+        }
+        final int today = state.getDay();
+        if (column.days[group] != today) {
+            column.values[group] = extractor.extract(tile, state.getHoursSinceStart(), fisher, state);
+            column.days[group] = today;
+        }
+        return column.values[group];
+    }
+
+    private static class Column {
+
+        private final double[] values;
+
+        /**
+         * the day each value was computed
+         */
+        private final int[] days;
+
+        private Column(int numberOfGroups) {
+            values = new double[numberOfGroups];
+            days = new int[numberOfGroups];
+            Arrays.fill(days, Integer.MIN_VALUE);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.fisher.heatmap.regression.numerical;
+
+import com.google.common.base.Preconditions;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GridXExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GridYExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.utility.Pair;
+
+import java.util.Arrays;
+
+/**
+ * Same recursive kernel predictions as {@link KernelTransduction} (one {@link KernelTilePredictor} per sea tile) but
+ * each observation only updates the tiles whose kernel weight is at least a cutoff. The grid-x and grid-y kernels
+ * come from a {@link KernelNeighbourhoodIndex} (which can be shared with other fishers), so only the tiles close enough
+ * to the observation are ever looked at. Predictions and denominators are kept in arrays indexed by tile number;
+ * the forgetting factor is applied to a tile's denominator lazily, for all the observations it skipped, the next
+ * time it is updated.
+ */
+public class SparseKernelTransduction implements GeographicalRegression<Double> {
+
+    private KernelNeighbourhoodIndex index;
+
+    private final double forgettingFactor;
+
+    /**
+     * all extractors, in the order they were given
+     */
+    private final ObservationExtractor[] extractors;
+
+    private double[] bandwidths;
+
+    /**
+     * position in the extractors of the grid-x and grid-y ones (-1 if there are none)
+     */
+    private final int xExtractor;
+
+    private final int yExtractor;
+
+    /**
+     * the extractors that aren't handled by the index
+     */
+    private final int[] otherExtractors;
+
+    /**
+     * what the other extractors say about the observation being added
+     */
+    private final double[] observed;
+
+    private final double[] predictions;
+
+    private final double[] denominators;
+
+    /**
+     * the last observation (counting from 1) each tile was updated with
+     */
+    private final int[] lastUpdate;
+
+    private int observations = 0;
+
+    /**
+     * builds its own index
+     * @param cutoff kernel weights below this are ignored
+     */
+    public SparseKernelTransduction(
+            NauticalMap map,
+            double forgettingFactor,
+            double cutoff,
+            Pair<ObservationExtractor,Double>... extractorsAndBandwidths) {
+        this(new KernelNeighbourhoodIndex(map,
+                                          gridBandwidth(GridXExtractor.class, extractorsAndBandwidths),
+                                          gridBandwidth(GridYExtractor.class, extractorsAndBandwidths),
+                                          cutoff),
+             forgettingFactor, extractorsAndBandwidths);
+    }
+
+    /**
+     * @param index the index to use; its bandwidths must be the ones of the grid-x and grid-y extractors given
+     */
+    public SparseKernelTransduction(
+            KernelNeighbourhoodIndex index,
+            double forgettingFactor,
+            Pair<ObservationExtractor,Double>... extractorsAndBandwidths) {
+        Preconditions.checkArgument(extractorsAndBandwidths.length > 0);
+        this.index = index;
+        this.forgettingFactor = forgettingFactor;
+        extractors = new ObservationExtractor[extractorsAndBandwidths.length];
+        bandwidths = new double[extractorsAndBandwidths.length];
+        for(int i=0; i< extractorsAndBandwidths.length; i++) {
+            extractors[i] = extractorsAndBandwidths[i].getFirst();
+            bandwidths[i] = extractorsAndBandwidths[i].getSecond();
+        }
+        xExtractor = firstOfClass(GridXExtractor.class, extractors);
+        yExtractor = firstOfClass(GridYExtractor.class, extractors);
+        Preconditions.checkArgument(
+                Double.compare(index.getXBandwidth(), xExtractor < 0 ? Double.NaN : bandwidths[xExtractor]) == 0 &&
+                Double.compare(index.getYBandwidth(), yExtractor < 0 ? Double.NaN : bandwidths[yExtractor]) == 0,
+                "the index was built for different grid bandwidths");
+        int others = 0;
+        otherExtractors = new int[extractors.length];
+        for(int i=0; i<extractors.length; i++)
+            if(i != xExtractor && i != yExtractor)
+                otherExtractors[others++] = i;
+        observed = new double[others];
+
+        predictions = new double[index.getNumberOfTiles()];
+        denominators = new double[index.getNumberOfTiles()];
+        lastUpdate = new int[index.getNumberOfTiles()];
+    }
+
+    private static int firstOfClass(Class<? extends ObservationExtractor> type, ObservationExtractor[] extractors) {
+        for(int i=0; i<extractors.length; i++)
+            if(type.isInstance(extractors[i]))
+                return i;
+        return -1;
+    }
+
+    /**
+     * the bandwidth of the first extractor of the given class, NaN if there is none
+     */
+    public static double gridBandwidth(
+            Class<? extends ObservationExtractor> type,
+            Pair<ObservationExtractor,Double>... extractorsAndBandwidths) {
+        for(Pair<ObservationExtractor,Double> extractor : extractorsAndBandwidths)
+            if(type.isInstance(extractor.getFirst()))
+                return extractor.getSecond();
+        return Double.NaN;
+    }
+
+    /**
+     * returns the current kernel prediction
+     */
+    @Override
+    public double predict(SeaTile tile, double time, Fisher fisher, FishState model) {
+        int number = index.getTile(tile);
+        return number < 0 ? Double.NaN : predictions[number];
+    }
+
+    @Override
+    public void addObservation(GeographicalObservation<Double> observation, Fisher fisher, FishState model) {
+
+        observations++;
+        SeaTile where = observation.getTile();
+        double time = observation.getTime();
+        double value = observation.getValue();
+        int others = observed.length;
+        for(int k=0; k<others; k++)
+            observed[k] = extractors[otherExtractors[k]].extract(where, time, fisher, model);
+
+        double cutoff = index.getCutoff();
+        int observationX = where.getGridX();
+        int observationY = where.getGridY();
+        int fromX = Math.max(0, observationX - index.getRadiusX());
+        int toX = Math.min(index.getWidth() - 1, observationX + index.getRadiusX());
+        int fromY = Math.max(0, observationY - index.getRadiusY());
+        int toY = Math.min(index.getHeight() - 1, observationY + index.getRadiusY());
+        for(int x = fromX; x <= toX; x++) {
+            double xWeight = index.getXWeight(Math.abs(x - observationX));
+            for(int y = fromY; y <= toY; y++) {
+                int tile = index.getTile(x, y);
+                if(tile < 0)
+                    continue;
+                double kernel = xWeight * index.getYWeight(Math.abs(y - observationY));
+                if(kernel < cutoff)
+                    continue;
+                for(int k=0; k<others; k++) {
+                    int extractor = otherExtractors[k];
+                    double difference = observed[k] -
+                            extractors[extractor].extract(index.getSeaTile(tile), time, fisher, model);
+                    kernel *= Math.exp(- difference * difference / bandwidths[extractor]);
+                }
+                if(kernel < cutoff)
+                    continue;
+                update(tile, kernel, value);
+            }
+        }
+    }
+
+    private void update(int tile, double kernel, double value) {
+        //forget for this observation and all those that skipped this tile
+        int elapsed = observations - lastUpdate[tile];
+        double denominator = denominators[tile] *
+                (elapsed == 1 ? forgettingFactor : Math.pow(forgettingFactor, elapsed)) + kernel;
+        Preconditions.checkArgument(Double.isFinite(denominator), denominator + " , " +
+                forgettingFactor + " , " + kernel + " , " + Arrays.toString(bandwidths));
+        denominators[tile] = denominator;
+        lastUpdate[tile] = observations;
+        if (denominator > 0)
+            predictions[tile] += (value - predictions[tile]) * kernel / denominator;
+    }
+
+    public double getForgettingFactor() {
+        return forgettingFactor;
+    }
+
+    /**
+     * Getter for property 'index'.
+     *
+     * @return Value for property 'index'.
+     */
+    public KernelNeighbourhoodIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * ignored
+     */
+    @Override
+    public void start(FishState model,Fisher fisher) {
+
+    }
+
+    /**
+     * ignored
+     */
+    @Override
+    public void turnOff(Fisher fisher) {
+
+    }
+
+    /**
+     * It's already a double so return it!
+     */
+    @Override
+    public double extractNumericalYFromObservation(
+            GeographicalObservation<Double> observation, Fisher fisher) {
+        return observation.getValue();
+    }
+
+    /**
+     * the bandwidths, same as {@link KernelTransduction}
+     */
+    @Override
+    public double[] getParametersAsArray() {
+        return bandwidths.clone();
+    }
+
+    /**
+     * receives new bandwidths; if the grid ones changed this regression stops sharing its index and builds its own
+     */
+    @Override
+    public void setParameters(double[] parameterArray) {
+        Preconditions.checkArgument(parameterArray.length == bandwidths.length);
+        bandwidths = parameterArray.clone();
+        double xBandwidth = xExtractor < 0 ? Double.NaN : bandwidths[xExtractor];
+        double yBandwidth = yExtractor < 0 ? Double.NaN : bandwidths[yExtractor];
+        if(Double.compare(xBandwidth, index.getXBandwidth()) != 0 ||
+                Double.compare(yBandwidth, index.getYBandwidth()) != 0)
+            index = new KernelNeighbourhoodIndex(index.getMap(), xBandwidth, yBandwidth, index.getCutoff());
+    }
+
+}
@@ -56,8 +56,8 @@ public class DiscretizedLocationMemory {
 
     public void registerVisit(SeaTile tile, int day)
     {
-        Integer group = discretization.getGroup(tile);
-        if(group!=null)
+        int group = discretization.getGroupIndex(tile);
+        if(group>=0)
         visits[group].add(day);
     }
 
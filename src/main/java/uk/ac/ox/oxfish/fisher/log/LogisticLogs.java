@@ -20,20 +20,33 @@
 
 package uk.ac.ox.oxfish.fisher.log;
 
+import com.google.common.base.Preconditions;
 import uk.ac.ox.oxfish.model.FishState;
-import uk.ac.ox.oxfish.model.data.OutputPlugin;
+import uk.ac.ox.oxfish.model.data.BackgroundFileWriter;
+import uk.ac.ox.oxfish.model.data.StreamingOutputPlugin;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.LinkedList;
 
 /**
  * Collection of logistic log that can output to file.
+ * When streaming, each flush moves the rows of every log to the file (log by log), so the file is grouped by
+ * log within each flush rather than over the whole simulation.
  * Created by carrknight on 1/10/17.
  */
-public class LogisticLogs extends LinkedList<LogisticLog> implements OutputPlugin {
+public class LogisticLogs extends LinkedList<LogisticLog> implements StreamingOutputPlugin {
 
 
     private String filename = "logistic_long.csv";
 
+    /**
+     * not null while streaming
+     */
+    private transient BackgroundFileWriter writer = null;
+
+    private transient boolean headerWritten = false;
+
     @Override
     public void reactToEndOfSimulation(FishState state) {
         //ignored
@@ -64,6 +77,48 @@ public class LogisticLogs extends LinkedList<LogisticLog> implements OutputPlugi
 
 
 
+    @Override
+    public void startStreaming(Path outputFolder, boolean compress) throws IOException {
+        Preconditions.checkState(writer == null, "Already streaming!");
+        writer = new BackgroundFileWriter(outputFolder.resolve(filename + (compress ? ".gz" : "")), compress);
+        headerWritten = false;
+        handOver();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if(writer != null) {
+            handOver();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void finishStreaming() throws IOException {
+        Preconditions.checkState(writer != null, "Not streaming!");
+        handOver();
+        writer.close();
+        writer = null;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return writer != null;
+    }
+
+    private void handOver() throws IOException {
+        if(isEmpty())
+            return;
+        if(!headerWritten) {
+            writer.write(get(0).getColumnNames() + "\n");
+            headerWritten = true;
+        }
+        for (LogisticLog log : this) {
+            writer.write(log.getData());
+            log.getData().setLength(0);
+        }
+    }
+
     /**
      * Setter for property 'filename'.
      *
@@ -0,0 +1,217 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.fisher.log;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.SeaTile;
+
+import java.util.Arrays;
+
+/**
+ * Compact, column by column, record of old trips: for each trip only its date, duration, earnings, costs, catch sold
+ * per species and most fished tile are kept, each in a primitive array. This is what {@link TripLogger} turns trips
+ * into once they fall out of its retention window. <br>
+ * The archive holds at most {@code capacity} trips: once full, each new trip overwrites the oldest one. Trips are
+ * indexed in the order they were archived (0 is the oldest still kept).
+ */
+public class TripArchive {
+
+    private final int numberOfSpecies;
+
+    /**
+     * the most trips kept; the arrays grow up to this size
+     */
+    private final int capacity;
+
+    private int size = 0;
+
+    /**
+     * where the oldest trip is in the arrays
+     */
+    private int head = 0;
+
+    /**
+     * all the trips ever archived, including those overwritten
+     */
+    private int numberOfArchivedTrips = 0;
+
+    private int[] tripDates;
+
+    private double[] durations;
+
+    private double[] earnings;
+
+    private double[] totalCosts;
+
+    private double[] opportunityCosts;
+
+    /**
+     * trip i, species j is at i * numberOfSpecies + j
+     */
+    private double[] soldCatch;
+
+    /**
+     * flat index (x * height + y) of the most fished tile, -1 if nothing was fished
+     */
+    private int[] mostFishedTiles;
+
+    public TripArchive(int numberOfSpecies, int capacity) {
+        Preconditions.checkArgument(capacity > 0, "the archive must be able to hold at least one trip");
+        this.numberOfSpecies = numberOfSpecies;
+        this.capacity = capacity;
+        int initialLength = Math.min(16, capacity);
+        tripDates = new int[initialLength];
+        durations = new double[initialLength];
+        earnings = new double[initialLength];
+        totalCosts = new double[initialLength];
+        opportunityCosts = new double[initialLength];
+        soldCatch = new double[initialLength * numberOfSpecies];
+        mostFishedTiles = new int[initialLength];
+    }
+
+    /**
+     * adds a (completed) trip at the end of the archive, overwriting the oldest one if the archive is full
+     * @param trip the trip to summarize
+     * @param map used to index the most fished tile; can be null if the map is unknown (the tile is then lost)
+     */
+    public void archive(TripRecord trip, @Nullable NauticalMap map) {
+        int slot;
+        if (size < capacity) {
+            if (size == tripDates.length)
+                grow();
+            slot = size;
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+        }
+        tripDates[slot] = trip.getTripDate();
+        durations[slot] = trip.getDurationInHours();
+        earnings[slot] = trip.getEarnings();
+        totalCosts[slot] = trip.getTotalCosts();
+        opportunityCosts[slot] = trip.getOpportunityCosts();
+        System.arraycopy(trip.getSoldCatch(), 0, soldCatch, slot * numberOfSpecies, numberOfSpecies);
+        SeaTile tile = map == null ? null : trip.getMostFishedTileInTrip();
+        mostFishedTiles[slot] = tile == null ? -1 : tile.getGridX() * map.getHeight() + tile.getGridY();
+        numberOfArchivedTrips++;
+    }
+
+    /**
+     * the arrays only grow while the archive isn't full, so the trips are still stored from 0 on
+     */
+    private void grow() {
+        int length = Math.min(tripDates.length * 2, capacity);
+        tripDates = Arrays.copyOf(tripDates, length);
+        durations = Arrays.copyOf(durations, length);
+        earnings = Arrays.copyOf(earnings, length);
+        totalCosts = Arrays.copyOf(totalCosts, length);
+        opportunityCosts = Arrays.copyOf(opportunityCosts, length);
+        soldCatch = Arrays.copyOf(soldCatch, length * numberOfSpecies);
+        mostFishedTiles = Arrays.copyOf(mostFishedTiles, length);
+    }
+
+    /**
+     * from the trip index (0 is the oldest kept) to its position in the arrays
+     */
+    private int slot(int trip) {
+        Preconditions.checkElementIndex(trip, size);
+        return (head + trip) % capacity;
+    }
+
+    /**
+     * number of trips currently in the archive
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * the most trips the archive keeps
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * number of trips ever archived, including those that have since been overwritten
+     */
+    public int getNumberOfArchivedTrips() {
+        return numberOfArchivedTrips;
+    }
+
+    public int getTripDate(int trip) {
+        return tripDates[slot(trip)];
+    }
+
+    public double getDurationInHours(int trip) {
+        return durations[slot(trip)];
+    }
+
+    public double getEarnings(int trip) {
+        return earnings[slot(trip)];
+    }
+
+    public double getTotalCosts(int trip) {
+        return totalCosts[slot(trip)];
+    }
+
+    public double getOpportunityCosts(int trip) {
+        return opportunityCosts[slot(trip)];
+    }
+
+    public double getTotalTripProfit(int trip) {
+        int slot = slot(trip);
+        return earnings[slot] - totalCosts[slot];
+    }
+
+    /**
+     * same as {@link TripRecord#getProfitPerHour(boolean)}
+     */
+    public double getProfitPerHour(int trip, boolean includingOpportunityCosts) {
+        int slot = slot(trip);
+        if (!includingOpportunityCosts)
+            return (earnings[slot] - totalCosts[slot]) / durations[slot];
+        else
+            return (earnings[slot] - totalCosts[slot] - opportunityCosts[slot]) / durations[slot];
+    }
+
+    public double getSoldCatch(int trip, int species) {
+        return soldCatch[slot(trip) * numberOfSpecies + species];
+    }
+
+    /**
+     * the flat index (x * height + y) of the tile most fished in the trip, -1 if none
+     */
+    public int getMostFishedTileIndex(int trip) {
+        return mostFishedTiles[slot(trip)];
+    }
+
+    /**
+     * the tile most fished in the trip, null if none
+     */
+    @Nullable
+    public SeaTile getMostFishedTile(int trip, NauticalMap map) {
+        int index = getMostFishedTileIndex(trip);
+        return index < 0 ? null : map.getSeaTileByIndex(index);
+    }
+}
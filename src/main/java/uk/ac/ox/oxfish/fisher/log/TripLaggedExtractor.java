@@ -159,16 +159,19 @@ public class TripLaggedExtractor implements Startable, Steppable, ObservationExt
 
 
         //if there is nobody to track you are going to sample the entire fishery!
-        if(fisherTracked != null)
+        if(fisherTracked != null) {
+            checkLastYearIsKept(fisherTracked, model.getDay());
             update(
                     fisherTracked.getFinishedTrips(),
                     model.getDay()
             );
+        }
         else
         {
             //get all trips!
             List<TripRecord> allTrips = new LinkedList<>();
             for (Fisher fisher : model.getFishers()) {
+                checkLastYearIsKept(fisher, model.getDay());
                 allTrips.addAll(fisher.getFinishedTrips());
             }
             update(
@@ -181,6 +184,16 @@ public class TripLaggedExtractor implements Startable, Steppable, ObservationExt
 
     }
 
+    /**
+     * the variable of interest needs full trip records, so a retention policy that archives or drops trips of the
+     * last year would quietly bias the averages
+     */
+    private static void checkLastYearIsKept(Fisher fisher, int dateToday) {
+        Preconditions.checkState(!fisher.hasRetiredTripsSince(dateToday - 365),
+                                 "Lagged trip averages need a full year of trip records; " +
+                                         "keep at least 365 days of trips when setting the trip retention");
+    }
+
     /**
      * Getter for property 'lastYearAverage'.
      *
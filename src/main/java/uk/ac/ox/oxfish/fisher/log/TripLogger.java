@@ -22,7 +22,9 @@ package uk.ac.ox.oxfish.fisher.log;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
 import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.ports.Port;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.Startable;
@@ -32,7 +34,10 @@ import java.util.LinkedList;
 import java.util.List;
 
 /**
- * Holds a list of all previous trips + can notify listeners that a trip has ended .
+ * Holds a list of all previous trips + can notify listeners that a trip has ended . <br>
+ * By default every finished trip is kept. With a retention policy only the latest trips (the last N and/or those
+ * from the last D days) are kept as full records; older ones are either summarized into a {@link TripArchive} or
+ * dropped, so that memory doesn't grow with the length of the run.
  * Created by carrknight on 6/17/15.
  */
 public class TripLogger implements Startable
@@ -58,12 +63,56 @@ public class TripLogger implements Startable
 
     private int numberOfSpecies = -1;
 
+    /**
+     * how many finished trips to keep as full records; negative means all of them
+     */
+    private int hotTrips = -1;
+
+    /**
+     * trips that started more than this many days before the latest finished trip started are no longer kept
+     * as full records; negative means no limit
+     */
+    private int hotDays = -1;
+
+    /**
+     * whether trips falling out of the retention window are archived or just forgotten
+     */
+    private boolean archivingOldTrips = true;
+
+    /**
+     * the most trips the archive keeps; past that the oldest archived trips are overwritten
+     */
+    private int archivedTrips = 1000;
+
+    /**
+     * created when the first trip is archived
+     */
+    @Nullable
+    private TripArchive archive = null;
+
+    /**
+     * date of the newest trip that fell out of the finished trips list
+     */
+    private int lastRetiredTripDate = Integer.MIN_VALUE;
+
+    /**
+     * to index tiles in the archive
+     */
+    @Nullable
+    private NauticalMap map = null;
+
+    /**
+     * all the trips ever finished, whether still kept or not
+     */
+    private int numberOfFinishedTrips = 0;
+
     /**
      * ignored
      */
     @Override
     public void start(FishState model) {
         numberOfSpecies = model.getSpecies().size();
+        map = model.getMap();
     }
 
     /**
@@ -108,6 +157,8 @@ public class TripLogger implements Startable
         currentTrip.completeTrip(hoursAtSea, terminal);
         //add it to the historical record
         finishedTrips.add(currentTrip);
+        numberOfFinishedTrips++;
+        retire(currentTrip.getTripDate());
         lastFinishedTrip = currentTrip;
         //tell the listeners
         for(TripListener listener : listeners)
@@ -116,6 +167,79 @@ public class TripLogger implements Startable
         return currentTrip;
     }
 
+    /**
+     * moves the trips that fell out of the retention window out of the finished trips list
+     */
+    private void retire(int today) {
+        while (!finishedTrips.isEmpty() &&
+                ((hotTrips >= 0 && finishedTrips.size() > hotTrips) ||
+                        (hotDays >= 0 && finishedTrips.getFirst().getTripDate() < today - hotDays))) {
+            TripRecord old = finishedTrips.removeFirst();
+            lastRetiredTripDate = Math.max(lastRetiredTripDate, old.getTripDate());
+            if (archivingOldTrips) {
+                if (archive == null)
+                    archive = new TripArchive(numberOfSpecies, archivedTrips);
+                archive.archive(old, map);
+            }
+        }
+    }
+
+    /**
+     * sets the retention policy; it applies from the next finished trip
+     * @param hotTrips how many finished trips to keep as full records; negative means no limit
+     * @param hotDays how many days' worth of finished trips to keep as full records; negative means no limit
+     * @param archivingOldTrips whether trips falling out of the window go in the archive or are just dropped
+     * @param archivedTrips the most trips the archive keeps (the oldest are overwritten first); an archive already
+     *                      created keeps its size
+     */
+    public void setRetention(int hotTrips, int hotDays, boolean archivingOldTrips, int archivedTrips) {
+        Preconditions.checkArgument(archivedTrips > 0 || !archivingOldTrips,
+                                    "archiving needs room for at least one trip");
+        this.hotTrips = hotTrips;
+        this.hotDays = hotDays;
+        this.archivingOldTrips = archivingOldTrips;
+        this.archivedTrips = archivedTrips;
+    }
+
+    public int getHotTrips() {
+        return hotTrips;
+    }
+
+    public int getHotDays() {
+        return hotDays;
+    }
+
+    public boolean isArchivingOldTrips() {
+        return archivingOldTrips;
+    }
+
+    public int getArchivedTrips() {
+        return archivedTrips;
+    }
+
+    /**
+     * the summaries of the trips no longer kept as full records, oldest first; null if none was archived
+     */
+    @Nullable
+    public TripArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * true if some trip dated on or after this day is no longer in the finished trips list (archived or dropped by the
+     * retention policy); never true without a retention policy
+     */
+    public boolean hasRetiredTripsSince(int day) {
+        return lastRetiredTripDate >= day;
+    }
+
+    /**
+     * number of trips ever finished, including those archived or dropped
+     */
+    public int getNumberOfFinishedTrips() {
+        return numberOfFinishedTrips;
+    }
+
     public TripRecord getCurrentTrip() {
         return currentTrip;
     }
@@ -132,6 +256,9 @@ public class TripLogger implements Startable
         currentTrip.recordTripCutShort();
     }
 
+    /**
+     * the finished trips still kept as full records (with no retention policy, all of them), oldest first
+     */
     public List<TripRecord> getFinishedTrips() {
         return Collections.unmodifiableList(finishedTrips);
     }
@@ -53,10 +53,49 @@ public class LameTripSimulator {
             double[] expectedHourlyCatches)
     {
 
+        checkExpectedCatches(expectedHourlyCatches);
+
+        //get path from port to fishing spot
+        Deque<SeaTile> routeToAndFrom = state.getMap().getRoute(fisher.getHomePort().getLocation(), fishingSpot);
+        if(routeToAndFrom == null)
+            return null;
+
+        return simulateRecord(fisher, fishingSpot, state, maxHoursOut, expectedHourlyCatches,
+                              pathDistance(routeToAndFrom, state.getMap()), false);
+
+
+    }
+
+    /**
+     * like {@link #simulateRecord(Fisher, SeaTile, FishState, double, double[])} but for when the distance between
+     * port and fishing spot is already known, so no route needs to be looked up
+     * @param tripDistance the distance (one way) between the home port and the fishing spot
+     */
+    public static TripRecord simulateRecord(
+            Fisher fisher, SeaTile fishingSpot, FishState state,
+            double maxHoursOut,
+            double[] expectedHourlyCatches,
+            double tripDistance)
+    {
+        return simulateRecord(fisher, fishingSpot, state, maxHoursOut, expectedHourlyCatches, tripDistance, true);
+    }
+
+    private static void checkExpectedCatches(double[] expectedHourlyCatches) {
         for(int i=0; i<expectedHourlyCatches.length; i++) {
             Preconditions.checkArgument(Double.isFinite(expectedHourlyCatches[i]));
             Preconditions.checkArgument((expectedHourlyCatches[i]>=0));
         }
+    }
+
+    private static TripRecord simulateRecord(
+            Fisher fisher, SeaTile fishingSpot, FishState state,
+            double maxHoursOut,
+            double[] expectedHourlyCatches,
+            double tripDistance,
+            boolean check)
+    {
+        if(check)
+            checkExpectedCatches(expectedHourlyCatches);
 
         int numberOfSpecies = state.getSpecies().size();
         TripRecord record = new TripRecord(numberOfSpecies, fisher.getHoursAtPort(),0);
@@ -64,13 +103,8 @@ public class LameTripSimulator {
         double timeSpentAtSea = 0;
         double gasConsumed = 0;
 
-        //get path from port to fishing spot
         Port homePort = fisher.getHomePort();
-        Deque<SeaTile> routeToAndFrom = state.getMap().getRoute(homePort.getLocation(), fishingSpot);
-        if(routeToAndFrom == null)
-            return null;
         //you need to go there
-        double tripDistance = pathDistance(routeToAndFrom, state.getMap());
         double distanceTravelled = tripDistance;
 
         timeSpentAtSea+= fisher.hypotheticalTravelTimeToMoveThisMuchAtFullSpeed(distanceTravelled);
@@ -0,0 +1,273 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.fisher.selfanalysis.profit;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
+import uk.ac.ox.oxfish.biology.Species;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.equipment.Boat;
+import uk.ac.ox.oxfish.fisher.equipment.Hold;
+import uk.ac.ox.oxfish.fisher.equipment.gear.Gear;
+import uk.ac.ox.oxfish.fisher.log.TripRecord;
+import uk.ac.ox.oxfish.fisher.selfanalysis.LameTripSimulator;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.geography.ports.Port;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.utility.FishStateUtilities;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Computes, for all the tiles where fishing is possible, the hourly profits a {@link ProfitFunction} with a
+ * {@link LameTripSimulator} would predict, but in one go. <br>
+ * The distance between each port and each tile is looked up once (one route per tile, the first time a fisher from
+ * that port asks) and kept in a per-port array, so later passes never look up routes. Each pass then asks the
+ * fisher's gear for the expected catches and the regulations for which tiles are allowed, and turns all of it
+ * into profits in a single pass over primitive arrays, with no trip records. That pass can be split across cores. <br>
+ * Fishers with additional trip costs or opportunity costs still get a trip record per tile, since costs are
+ * computed from records; they still save the route lookups. <br>
+ * One evaluator can (and should) be shared by all the fishers of a model, but passes must not run concurrently.
+ */
+public class BatchedTripEvaluator {
+
+    /**
+     * passes over at least this many tiles are split across cores, when parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 1000;
+
+    private static final int CHUNK_SIZE = 250;
+
+    /**
+     * the tiles we evaluate: water tiles where fishing is even possible, in map order
+     */
+    private final SeaTile[] candidates;
+
+    /**
+     * for each port, the distance of the shortest route to each candidate (NaN if not looked up yet, infinite if
+     * there is no route)
+     */
+    private final HashMap<Port, double[]> distanceFields = new HashMap<>();
+
+    private final boolean parallel;
+
+    /**
+     * scratch arrays, one entry per candidate (catches are species-major: candidate * species + species)
+     */
+    private double[] distances;
+
+    private double[] expectedCatches;
+
+    private double[] fuelPerHourOfFishing;
+
+    private double[] profits;
+
+    public BatchedTripEvaluator(FishState model, boolean parallel) {
+        this.parallel = parallel;
+        candidates = model.getMap().getAllSeaTilesExcludingLandAsList().stream().
+                filter(SeaTile::isFishingEvenPossibleHere).toArray(SeaTile[]::new);
+        distances = new double[candidates.length];
+        fuelPerHourOfFishing = new double[candidates.length];
+        profits = new double[candidates.length];
+        expectedCatches = new double[0];
+    }
+
+    /**
+     * the tile with the highest predicted hourly profits for this fisher (the first one, in map order, when tied)
+     *
+     * @param fisher      the fisher
+     * @param model       the model
+     * @param maxHoursOut the maximum length of a trip
+     * @return the best tile or null if no tile has finite profits (say, all closed)
+     */
+    @Nullable
+    public SeaTile pickBest(Fisher fisher, FishState model, double maxHoursOut) {
+        final double[] profits = evaluate(fisher, model, maxHoursOut);
+        SeaTile best = null;
+        double bestProfits = Double.NEGATIVE_INFINITY;
+        for (int tile = 0; tile < candidates.length; tile++)
+            if (profits[tile] > bestProfits) {
+                bestProfits = profits[tile];
+                best = candidates[tile];
+            }
+        return best;
+    }
+
+    /**
+     * computes the predicted hourly profits of a trip to each candidate tile
+     *
+     * @param fisher      the fisher
+     * @param model       the model
+     * @param maxHoursOut the maximum length of a trip
+     * @return the profits, in the same order as {@link #getCandidates()}; NaN where the fisher is not allowed, can't
+     * get to or can't predict catches for. This is a scratch array, overwritten by the next call
+     */
+    public double[] evaluate(Fisher fisher, FishState model, double maxHoursOut) {
+        final List<Species> species = model.getSpecies();
+        final int numberOfSpecies = species.size();
+        if (expectedCatches.length != candidates.length * numberOfSpecies)
+            expectedCatches = new double[candidates.length * numberOfSpecies];
+
+        final Port port = fisher.getHomePort();
+        final double[] field = distanceFields.computeIfAbsent(port, p -> {
+            double[] unknown = new double[candidates.length];
+            Arrays.fill(unknown, Double.NaN);
+            return unknown;
+        });
+        final Gear gear = fisher.getGear();
+        final Boat boat = fisher.getBoat();
+        final boolean onlyGasCosts = fisher.getAdditionalTripCosts().isEmpty() &&
+                fisher.getOpportunityCosts().isEmpty();
+        final ProfitFunction profitFunction = onlyGasCosts ? null : new ProfitFunction(maxHoursOut);
+
+        //talk to gear, regulations and pathfinder; these are objects and we only ask them in order
+        for (int tile = 0; tile < candidates.length; tile++) {
+            final SeaTile seaTile = candidates[tile];
+            distances[tile] = Double.NaN;
+            profits[tile] = Double.NaN;
+            if (!fisher.isAllowedToFishHere(seaTile, model))
+                continue;
+            final double[] catches = gear.expectedHourlyCatch(fisher, seaTile, 1, model.getBiology());
+            boolean finite = true;
+            for (int i = 0; i < numberOfSpecies; i++) {
+                finite = finite && Double.isFinite(catches[i]);
+                expectedCatches[tile * numberOfSpecies + i] = catches[i];
+            }
+            if (!finite)
+                continue;
+            for (int i = 0; i < numberOfSpecies; i++)
+                Preconditions.checkArgument(catches[i] >= 0);
+            if (Double.isNaN(field[tile]))
+                field[tile] = distanceTo(port, seaTile, model);
+            if (field[tile] == Double.POSITIVE_INFINITY)
+                continue;
+            if (!onlyGasCosts) {
+                TripRecord trip = profitFunction.simulateTrip(fisher, catches, seaTile, model, field[tile]);
+                profits[tile] = trip.getProfitPerHour(true);
+            } else {
+                distances[tile] = field[tile];
+                fuelPerHourOfFishing[tile] = gear.getFuelConsumptionPerHourOfFishing(fisher, boat, seaTile);
+            }
+        }
+        if (!onlyGasCosts)
+            return profits;
+
+        //everything tile-independent, once
+        final double[] prices = new double[numberOfSpecies];
+        final double[] sellable = new double[numberOfSpecies];
+        for (int i = 0; i < numberOfSpecies; i++) {
+            prices[i] = port.getMarginalPrice(species.get(i));
+            sellable[i] = fisher.getRegulation().maximumBiomassSellable(fisher, species.get(i), model);
+        }
+        final Pass pass = new Pass(boat, fisher.getMaximumHold(), maxHoursOut, port.getGasPricePerLiter(),
+                                   prices, sellable);
+        if (parallel && candidates.length >= PARALLEL_THRESHOLD) {
+            final int chunks = (candidates.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            IntStream.range(0, chunks).parallel().forEach(
+                    chunk -> pass.run(chunk * CHUNK_SIZE, Math.min(candidates.length, (chunk + 1) * CHUNK_SIZE)));
+        } else
+            pass.run(0, candidates.length);
+        return profits;
+    }
+
+    private static double distanceTo(Port port, SeaTile tile, FishState model) {
+        final Deque<SeaTile> route = model.getMap().getRoute(port.getLocation(), tile);
+        return route == null ? Double.POSITIVE_INFINITY : LameTripSimulator.pathDistance(route, model.getMap());
+    }
+
+    /**
+     * the same arithmetic as {@link LameTripSimulator} and {@link GasCost}, over the scratch arrays
+     */
+    private class Pass {
+
+        private final Boat boat;
+
+        private final double maxWeight;
+
+        private final double maxHoursOut;
+
+        private final double gasPrice;
+
+        private final double[] prices;
+
+        private final double[] sellable;
+
+        private Pass(Boat boat, double maxWeight, double maxHoursOut, double gasPrice,
+                     double[] prices, double[] sellable) {
+            this.boat = boat;
+            this.maxWeight = maxWeight;
+            this.maxHoursOut = maxHoursOut;
+            this.gasPrice = gasPrice;
+            this.prices = prices;
+            this.sellable = sellable;
+        }
+
+        private void run(int from, int to) {
+            final int numberOfSpecies = prices.length;
+            final double[] catches = new double[numberOfSpecies];
+            for (int tile = from; tile < to; tile++) {
+                final double distance = distances[tile];
+                if (Double.isNaN(distance))
+                    continue;
+                final int offset = tile * numberOfSpecies;
+                final double travelTime = boat.hypotheticalTravelTimeToMoveThisMuchAtFullSpeed(distance);
+                final double travelGas = boat.expectedFuelConsumption(distance);
+
+                double totalCatchPerHour = 0;
+                for (int i = 0; i < numberOfSpecies; i++)
+                    totalCatchPerHour += expectedCatches[offset + i];
+                final int hoursNeededToFillBoat = totalCatchPerHour > 0 ?
+                        (int) Math.ceil((maxWeight - FishStateUtilities.EPSILON) / totalCatchPerHour) :
+                        (int) maxHoursOut;
+                final int fishingHours = (int) Math.min(maxHoursOut + 1 - travelTime, hoursNeededToFillBoat);
+
+                double gas = travelGas;
+                double earnings = 0;
+                if (fishingHours > 0) {
+                    for (int i = 0; i < numberOfSpecies; i++)
+                        catches[i] = expectedCatches[offset + i] * fishingHours;
+                    Hold.throwOverboard(catches, maxWeight);
+                    gas += fuelPerHourOfFishing[tile] * fishingHours;
+                    for (int i = 0; i < numberOfSpecies; i++)
+                        earnings += prices[i] * Math.min(sellable[i], catches[i]);
+                }
+                gas += travelGas;
+                final double duration = travelTime + boat.hypotheticalTravelTimeToMoveThisMuchAtFullSpeed(distance) +
+                        fishingHours;
+                profits[tile] = (earnings - gas * gasPrice) / duration;
+            }
+        }
+    }
+
+    /**
+     * the tiles evaluated, in the order of the arrays returned by {@link #evaluate(Fisher, FishState, double)}
+     */
+    public SeaTile[] getCandidates() {
+        return candidates;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+}
@@ -125,6 +125,30 @@ public class ProfitFunction {
         return trip;
     }
 
+    /**
+     * like {@link #simulateTrip(Fisher, double[], SeaTile, FishState)} but for when the distance between port and
+     * fishing spot is already known
+     * @param tripDistance the distance (one way) between the home port and where
+     * @return the simulated trip, with costs, or null if the expected catches are not all finite
+     */
+    public TripRecord simulateTrip(Fisher fisher, double[] expectedCatches, SeaTile where, FishState state,
+                                   double tripDistance) {
+
+        for(int i=0; i<expectedCatches.length; i++)
+            if(!Double.isFinite(expectedCatches[i]))
+                return null;
+
+        TripRecord trip = simulator.simulateRecord(fisher,
+                                                   where,
+                                                   state,
+                                                   maxHours,
+                                                   expectedCatches,
+                                                   tripDistance);
+
+        recordCostsToTrip(fisher, trip, state);
+        return trip;
+    }
+
     private void recordCostsToTrip(Fisher fisher, TripRecord trip, FishState state) {
         double[] catches = trip.getSoldCatch();
         double earnings = 0;
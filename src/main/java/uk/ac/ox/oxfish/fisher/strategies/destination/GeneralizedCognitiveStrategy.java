@@ -20,8 +20,11 @@
 package uk.ac.ox.oxfish.fisher.strategies.destination;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import ec.util.MersenneTwisterFast;
 import sim.engine.SimState;
@@ -32,6 +35,7 @@ import uk.ac.ox.oxfish.fisher.actions.Action;
 import uk.ac.ox.oxfish.fisher.actions.AtPort;
 import uk.ac.ox.oxfish.fisher.log.SharedTripRecord;
 import uk.ac.ox.oxfish.fisher.log.Territory;
+import uk.ac.ox.oxfish.fisher.log.TripArchive;
 import uk.ac.ox.oxfish.fisher.log.TripRecord;
 import uk.ac.ox.oxfish.fisher.log.timeScalarFunctions.TimeScalarFunction;
 import uk.ac.ox.oxfish.fisher.selfanalysis.profit.Cost;
@@ -48,7 +52,13 @@ import uk.ac.ox.oxfish.model.market.MarketMap;
  */
 public class GeneralizedCognitiveStrategy implements DestinationStrategy {
 
-	static List<PubliclySharedProfit> publicProfit=new ArrayList<PubliclySharedProfit>();
+	/**
+	 * the profits fishers made public, one list per model so that models running side by side don't see each other's
+	 */
+	private static final Map<FishState,List<PubliclySharedProfit>> publicProfits =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
+	List<PubliclySharedProfit> publicProfit;
 	double minAbsoluteSatisfactoryProfit,
 			minRelativeSatisfactoryProfit,
 			weightProfit,
@@ -217,6 +227,7 @@ public class GeneralizedCognitiveStrategy implements DestinationStrategy {
 	@Override
 	public void start(FishState model, Fisher fisher) {
 		numberOfSpecies=model.getSpecies().size();
+		publicProfit = publicProfits.computeIfAbsent(model, state -> new ArrayList<>());
 		tripSharer = new TripSharer(fisher);
 //		addTerritories(model.getMap(), model.random, (int)numberOfTerritorySites);
 	}
@@ -283,6 +294,29 @@ public class GeneralizedCognitiveStrategy implements DestinationStrategy {
         boolean noObservations = true;
         List<ViableDestination> observedDestinations = new ArrayList<>();
         
+        //Older trips first, if the logger archived some
+        TripArchive archive = fisher.getTripArchive();
+        if(archive!=null){
+        	for(int trip=0; trip<archive.size(); trip++){
+        		int t=model.getDay()-archive.getTripDate(trip);
+        		double scalar=timeScalar(t);
+        		SeaTile tripDestination = archive.getMostFishedTile(trip, model.getMap());
+        		for(ViableDestination viableDestination : viableDestinations){
+        			if(viableDestination.destination.equals(tripDestination)){
+        				viableDestination.setObserved();
+        				if (!observedDestinations.contains(viableDestination))
+        					observedDestinations.add(viableDestination);
+        				noObservations = false;
+        				for(int i=0; i<numberOfSpecies; i++){
+        					viableDestination.expectedCatch[i] += scalar*archive.getSoldCatch(trip, i);
+        					viableDestination.scalarTotal+=scalar;
+        				}
+        				break;
+        			}
+        		}
+        	}
+        }
+
         //Now go through the finished trips and calculate expected catch at all locations 
         for(TripRecord trip: fisher.getFinishedTrips()){
         	//Calculate the time scalar for this trip based on the time
@@ -22,12 +22,14 @@ package uk.ac.ox.oxfish.fisher.strategies.destination;
 
 import com.google.common.base.Preconditions;
 import ec.util.MersenneTwisterFast;
+import org.jetbrains.annotations.Nullable;
 import org.jfree.util.Log;
 import uk.ac.ox.oxfish.fisher.Fisher;
 import uk.ac.ox.oxfish.fisher.actions.Action;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.LogisticInputMaker;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.LogisticMultiClassifier;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.SharedCovariates;
 import uk.ac.ox.oxfish.fisher.log.DiscretizedLocationMemory;
 import uk.ac.ox.oxfish.fisher.log.LogisticLog;
 import uk.ac.ox.oxfish.geography.SeaTile;
@@ -101,6 +103,29 @@ public class LogitDestinationStrategy implements DestinationStrategy{
             FavoriteDestinationStrategy delegate,
             MersenneTwisterFast random,
             boolean automaticallyAvoidMPA, boolean automaticallyAvoidWastelands)
+    {
+        this(betas, covariates, rowNames, discretization, delegate, random,
+             automaticallyAvoidMPA, automaticallyAvoidWastelands, null);
+    }
+
+    /**
+     *  @param betas table of all the betas (some might be ignored if the map doesn't cover them)
+     * @param covariates table of all hte observation extractors (generate x on the spot)
+     * @param rowNames column that assign to each row of betas the group it belongs to
+     * @param discretization the discretization map
+     * @param automaticallyAvoidMPA automatically avoid not allowed areas
+     * @param automaticallyAvoidWastelands automatically avoid areas where fish can't grow
+     * @param sharedCovariates cache of group-level covariates, shared with the other strategies using the same
+     *                         extractors; when null every covariate is computed on the spot
+     */
+    public LogitDestinationStrategy(
+            double[][] betas, ObservationExtractor[][] covariates,
+            List<Integer> rowNames,
+            MapDiscretization discretization,
+            FavoriteDestinationStrategy delegate,
+            MersenneTwisterFast random,
+            boolean automaticallyAvoidMPA, boolean automaticallyAvoidWastelands,
+            @Nullable SharedCovariates sharedCovariates)
     {
         this.automaticallyAvoidMPA = automaticallyAvoidMPA;
         this.automaticallyAvoidWastelands = automaticallyAvoidWastelands;
@@ -145,7 +170,9 @@ public class LogitDestinationStrategy implements DestinationStrategy{
                                                                        model,
                                                                        this.automaticallyAvoidWastelands,
                                                                        50);
-                }
+                },
+                sharedCovariates,
+                switcher::getGroup
         );
         this.classifier = new LogisticMultiClassifier(
                 effectiveBetas.toArray(new double[effectiveBetas.size()][]));
@@ -221,7 +248,7 @@ public class LogitDestinationStrategy implements DestinationStrategy{
 
 
 
-            destination = this.input.getLastExtraction().get(armChosen);
+            destination = this.input.getLastExtraction(armChosen);
             if(destination!=null && destination.isLand())
                 destination=null;
             if(numberOfTrials++>100) {
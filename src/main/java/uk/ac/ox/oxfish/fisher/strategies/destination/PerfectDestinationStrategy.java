@@ -26,8 +26,7 @@ import uk.ac.ox.oxfish.fisher.Fisher;
 import uk.ac.ox.oxfish.fisher.actions.Action;
 import uk.ac.ox.oxfish.fisher.log.TripListener;
 import uk.ac.ox.oxfish.fisher.log.TripRecord;
-import uk.ac.ox.oxfish.fisher.selfanalysis.LameTripSimulator;
-import uk.ac.ox.oxfish.fisher.selfanalysis.profit.ProfitFunction;
+import uk.ac.ox.oxfish.fisher.selfanalysis.profit.BatchedTripEvaluator;
 import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
@@ -38,12 +37,28 @@ public class PerfectDestinationStrategy implements DestinationStrategy, TripList
 
     private final FavoriteDestinationStrategy delegate;
 
+    /**
+     * does the actual evaluation; possibly shared with other fishers. Created at start if not given
+     */
+    private BatchedTripEvaluator evaluator;
+
 
     public PerfectDestinationStrategy(double maxHoursOut,
                                       NauticalMap map,
                                       MersenneTwisterFast random) {
+        this(maxHoursOut, map, random, null);
+    }
+
+    /**
+     * @param evaluator the evaluator to use; null to create a new (sequential) one at start
+     */
+    public PerfectDestinationStrategy(double maxHoursOut,
+                                      NauticalMap map,
+                                      MersenneTwisterFast random,
+                                      @Nullable BatchedTripEvaluator evaluator) {
         this.maxHoursOut = maxHoursOut;
         delegate = new FavoriteDestinationStrategy(map,random);
+        this.evaluator = evaluator;
     }
 
     /**
@@ -65,30 +80,7 @@ public class PerfectDestinationStrategy implements DestinationStrategy, TripList
 
     @Nullable
     private SeaTile pickBest(Fisher fisher, FishState model) {
-        ProfitFunction simulator = new ProfitFunction(new LameTripSimulator(),
-                                                      maxHoursOut);
-
-        SeaTile best = null;
-        double bestProfits = Double.NEGATIVE_INFINITY;
-        for (SeaTile seaTile : model.getMap().getAllSeaTilesExcludingLandAsList()) {
-            if(seaTile.isFishingEvenPossibleHere() &&
-                    fisher.isAllowedToFishHere(seaTile,model))
-            {
-                double profitsHere = simulator.hourlyProfitFromHypotheticalTripHere(
-                        fisher,seaTile,model,fisher.getGear().expectedHourlyCatch(fisher, seaTile,
-                                                                                  1,
-                                                                                  model.getBiology()),
-                        false
-                );
-                if(profitsHere>bestProfits)
-                {
-                    bestProfits = profitsHere;
-                    best=seaTile;
-                }
-            }
-        }
-
-        return best;
+        return evaluator.pickBest(fisher, model, maxHoursOut);
     }
 
     private FishState model;
@@ -98,6 +90,8 @@ public class PerfectDestinationStrategy implements DestinationStrategy, TripList
     @Override
     public void start(FishState model, Fisher fisher) {
 
+        if(evaluator == null)
+            evaluator = new BatchedTripEvaluator(model, false);
         delegate.setFavoriteSpot(pickBest(fisher,model));
 
         this.model=model;
@@ -116,4 +110,13 @@ public class PerfectDestinationStrategy implements DestinationStrategy, TripList
         if(favoriteSpot!=null) //not going to make a selection when you are not allowed out!
             delegate.setFavoriteSpot(favoriteSpot);
     }
+
+    /**
+     * Getter for property 'evaluator'.
+     *
+     * @return Value for property 'evaluator'.
+     */
+    public BatchedTripEvaluator getEvaluator() {
+        return evaluator;
+    }
 }
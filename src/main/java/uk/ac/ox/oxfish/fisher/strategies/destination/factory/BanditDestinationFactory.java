@@ -44,7 +44,7 @@ public class BanditDestinationFactory implements AlgorithmFactory<BanditDestinat
 
 
 
-    private static Locker<FishState,MapDiscretization> locker = new Locker();
+    private final Locker<FishState,MapDiscretization> locker = new Locker<>();
 
     private AlgorithmFactory<? extends Averager> average = new ExponentialMovingAverageFactory();
 
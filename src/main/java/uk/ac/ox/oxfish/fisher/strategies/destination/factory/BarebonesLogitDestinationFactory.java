@@ -23,6 +23,7 @@ package uk.ac.ox.oxfish.fisher.strategies.destination.factory;
 import org.jetbrains.annotations.NotNull;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.PortDistanceExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.SharedCovariates;
 import uk.ac.ox.oxfish.fisher.strategies.destination.FavoriteDestinationStrategy;
 import uk.ac.ox.oxfish.fisher.strategies.destination.LogitDestinationStrategy;
 import uk.ac.ox.oxfish.geography.discretization.CentroidMapFileFactory;
@@ -47,6 +48,10 @@ public abstract class  BarebonesLogitDestinationFactory implements
      * everybody shares the parent same destination logit strategy
      */
     private final Locker<FishState,MapDiscretization> discretizationLocker = new Locker<>();
+    /**
+     * group-level covariates (distance from port) are computed once for the whole model
+     */
+    private final Locker<FishState,SharedCovariates> covariatesLocker = new Locker<>();
     protected AlgorithmFactory<? extends MapDiscretizer> discretizer =
             new CentroidMapFileFactory();
     /**
@@ -102,7 +107,10 @@ public abstract class  BarebonesLogitDestinationFactory implements
                 discretization,
                 new FavoriteDestinationStrategy(state.getMap(), state.getRandom()),
                 state.getRandom(),
-                automaticallyAvoidMPA, automaticallyAvoidWastelands);
+                automaticallyAvoidMPA, automaticallyAvoidWastelands,
+                covariatesLocker.presentKey(
+                        state,
+                        () -> new SharedCovariates(discretization.getNumberOfGroups())));
 
 
     }
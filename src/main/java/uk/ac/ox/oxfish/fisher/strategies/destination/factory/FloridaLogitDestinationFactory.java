@@ -22,6 +22,7 @@ package uk.ac.ox.oxfish.fisher.strategies.destination.factory;
 
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.PortDistanceExtractor;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.*;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.SharedCovariates;
 import uk.ac.ox.oxfish.fisher.strategies.destination.FavoriteDestinationStrategy;
 import uk.ac.ox.oxfish.fisher.strategies.destination.LogitDestinationStrategy;
 import uk.ac.ox.oxfish.geography.discretization.MapDiscretization;
@@ -69,6 +70,14 @@ public class FloridaLogitDestinationFactory implements
      */
     private Locker<FishState,MapDiscretization> discretizationLocker = new Locker<>();
 
+    /**
+     * the extractors hold no state of their own, so everybody can share them (and with them the daily group-level
+     * covariates)
+     */
+    private Locker<FishState,ObservationExtractor[]> extractorLocker = new Locker<>();
+
+    private Locker<FishState,SharedCovariates> covariatesLocker = new Locker<>();
+
     private boolean automaticallyAvoidMPA = true;
 
     private boolean automaticallyAvoidWastelands = true;
@@ -113,13 +122,16 @@ public class FloridaLogitDestinationFactory implements
         }
         ObservationExtractor[][] extractors = new ObservationExtractor[betas.length][];
         ObservationExtractor[] commonExtractor =
-                    longlineFloridaCommonExtractor(discretization);
+                extractorLocker.presentKey(state, () -> longlineFloridaCommonExtractor(discretization));
         for (int i = 0; i < extractors.length; i++)
             extractors[i] = commonExtractor;
 
         return new LogitDestinationStrategy(betas, extractors, rowNames, discretization,
                                             new FavoriteDestinationStrategy(state.getMap(), state.getRandom()),
-                                            state.getRandom(), automaticallyAvoidMPA, automaticallyAvoidWastelands);
+                                            state.getRandom(), automaticallyAvoidMPA, automaticallyAvoidWastelands,
+                                            covariatesLocker.presentKey(
+                                                    state,
+                                                    () -> new SharedCovariates(discretization.getNumberOfGroups())));
 
     }
 
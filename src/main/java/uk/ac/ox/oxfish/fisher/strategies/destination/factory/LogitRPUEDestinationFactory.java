@@ -22,6 +22,7 @@ package uk.ac.ox.oxfish.fisher.strategies.destination.factory;
 
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.SimulatedHourlyProfitExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.SharedCovariates;
 import uk.ac.ox.oxfish.fisher.selfanalysis.LameTripSimulator;
 import uk.ac.ox.oxfish.fisher.strategies.destination.FavoriteDestinationStrategy;
 import uk.ac.ox.oxfish.fisher.strategies.destination.LogitDestinationStrategy;
@@ -51,6 +52,11 @@ public class LogitRPUEDestinationFactory implements AlgorithmFactory<LogitDestin
      */
     private Locker<FishState,MapDiscretization> discretizationLocker = new Locker<>();
 
+    /**
+     * one cache of group-level covariates for the whole model
+     */
+    private Locker<FishState,SharedCovariates> covariatesLocker = new Locker<>();
+
 
     private AlgorithmFactory<? extends MapDiscretizer> discretizer = new IdentityDiscretizerFactory();
 
@@ -116,7 +122,8 @@ public class LogitRPUEDestinationFactory implements AlgorithmFactory<LogitDestin
                         rowNames,
                         discretization,
                         new FavoriteDestinationStrategy(state.getMap(), state.getRandom()),
-                        state.getRandom(), automaticallyAvoidMPA, automaticallyAvoidWastelands);
+                        state.getRandom(), automaticallyAvoidMPA, automaticallyAvoidWastelands,
+                        covariatesLocker.presentKey(state, () -> new SharedCovariates(numberOfGroups)));
 
 
     }
@@ -20,9 +20,11 @@
 
 package uk.ac.ox.oxfish.fisher.strategies.destination.factory;
 
+import uk.ac.ox.oxfish.fisher.selfanalysis.profit.BatchedTripEvaluator;
 import uk.ac.ox.oxfish.fisher.strategies.destination.PerfectDestinationStrategy;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.utility.AlgorithmFactory;
+import uk.ac.ox.oxfish.utility.Locker;
 import uk.ac.ox.oxfish.utility.parameters.DoubleParameter;
 import uk.ac.ox.oxfish.utility.parameters.FixedDoubleParameter;
 
@@ -31,6 +33,16 @@ public class PerfectDestinationFactory implements AlgorithmFactory<PerfectDestin
 
     private DoubleParameter maxHoursOut = new FixedDoubleParameter(5*24d);
 
+    /**
+     * when true the profits of tiles are computed on all cores (large maps only)
+     */
+    private boolean parallel = false;
+
+    /**
+     * all fishers of a model share one evaluator (and its distances from port)
+     */
+    private final Locker<FishState, BatchedTripEvaluator> evaluators = new Locker<>();
+
 
     /**
      * Applies this function to the given argument.
@@ -43,7 +55,8 @@ public class PerfectDestinationFactory implements AlgorithmFactory<PerfectDestin
         return new PerfectDestinationStrategy(
                 maxHoursOut.apply(fishState.getRandom()),
                                   fishState.getMap(),
-                                  fishState.getRandom()
+                                  fishState.getRandom(),
+                evaluators.presentKey(fishState, () -> new BatchedTripEvaluator(fishState, parallel))
         );
     }
 
@@ -64,4 +77,22 @@ public class PerfectDestinationFactory implements AlgorithmFactory<PerfectDestin
     public void setMaxHoursOut(DoubleParameter maxHoursOut) {
         this.maxHoursOut = maxHoursOut;
     }
+
+    /**
+     * Getter for property 'parallel'.
+     *
+     * @return Value for property 'parallel'.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Setter for property 'parallel'.
+     *
+     * @param parallel Value to set for property 'parallel'.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
 }
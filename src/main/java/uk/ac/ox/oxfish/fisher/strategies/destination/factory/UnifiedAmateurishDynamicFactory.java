@@ -21,8 +21,10 @@
 package uk.ac.ox.oxfish.fisher.strategies.destination.factory;
 
 import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.log.TripArchive;
 import uk.ac.ox.oxfish.fisher.log.TripRecord;
 import uk.ac.ox.oxfish.fisher.strategies.destination.AmateurishDynamicStrategy;
+import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.FishStateDailyTimeSeries;
@@ -152,25 +154,7 @@ public class UnifiedAmateurishDynamicFactory implements AlgorithmFactory<Amateur
                     ,new Sensor<Fisher, Double>() {
                         @Override
                         public Double scan(Fisher fisher) {
-                            List<TripRecord> trips = fisher.getFinishedTrips();
-                            if(trips.size() < 2)
-                                return 0d;
-                            else
-                            {
-                                int timesExploited = 0;
-                                ListIterator<TripRecord> iterator = trips.listIterator(trips.size());
-                                SeaTile seatile = iterator.previous().getMostFishedTileInTrip();
-                                while(iterator.hasPrevious())
-                                {
-                                    SeaTile tileBefore = iterator.previous().getMostFishedTileInTrip();
-                                    if(tileBefore== seatile)
-                                        timesExploited++;
-                                    else
-                                       break;
-                                }
-                                return (double) timesExploited;
-                            }
-
+                            return (double) timesExploited(fisher, state.getMap());
                         }
                     },
                     // days at home
@@ -226,6 +210,40 @@ public class UnifiedAmateurishDynamicFactory implements AlgorithmFactory<Amateur
             return (lastProfits-average)/average;
     }
 
+    /**
+     * how many trips in a row, before the last one, fished mostly where the last one did. Goes back through the full
+     * trip records first and then, if the streak is still going, through the archived ones
+     */
+    static int timesExploited(Fisher fisher, NauticalMap map) {
+        List<TripRecord> trips = fisher.getFinishedTrips();
+        TripArchive archive = fisher.getTripArchive();
+        int archived = archive == null ? 0 : archive.size();
+        if(trips.size() + archived < 2)
+            return 0;
+
+        int timesExploited = 0;
+        ListIterator<TripRecord> iterator = trips.listIterator(trips.size());
+        SeaTile seatile = iterator.hasPrevious() ?
+                iterator.previous().getMostFishedTileInTrip() :
+                archive.getMostFishedTile(--archived, map);
+        while(iterator.hasPrevious())
+        {
+            SeaTile tileBefore = iterator.previous().getMostFishedTileInTrip();
+            if(tileBefore== seatile)
+                timesExploited++;
+            else
+                return timesExploited;
+        }
+        for(int trip = archived - 1; trip >= 0; trip--)
+        {
+            if(archive.getMostFishedTile(trip, map) == seatile)
+                timesExploited++;
+            else
+                break;
+        }
+        return timesExploited;
+    }
+
     /**
      * Getter for property 'noiseRate'.
      *
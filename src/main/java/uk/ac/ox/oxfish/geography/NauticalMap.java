@@ -43,14 +43,18 @@ import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.biology.initializer.BiologyInitializer;
 import uk.ac.ox.oxfish.fisher.Fisher;
 import uk.ac.ox.oxfish.geography.pathfinding.Pathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.PortRouteAtlas;
 import uk.ac.ox.oxfish.geography.ports.Port;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.Startable;
 import uk.ac.ox.oxfish.model.StepOrder;
 import uk.ac.ox.oxfish.utility.MasonUtils;
+import uk.ac.ox.oxfish.utility.SimulationProfiler;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -98,6 +102,12 @@ public class NauticalMap implements Startable
     private Pathfinder pathfinder;
 
 
+    /**
+     * optional precomputed routes to and from each port; built when the map starts. Null if not used
+     */
+    private PortRouteAtlas portRouteAtlas;
+
+
     /**
      * The list of ports
      */
@@ -216,6 +226,10 @@ public class NauticalMap implements Startable
             tile.start(model);
         }
 
+        //ports are all in by now
+        if(portRouteAtlas != null && !portRouteAtlas.isBuilt())
+            portRouteAtlas.build(this);
+
         Preconditions.checkArgument(receipt==null);
         //reset fished map count
         receipt =
@@ -288,6 +302,9 @@ public class NauticalMap implements Startable
         alreadyComputedNeighbors.clear();
         coordinateCache.clear();
         sizeOneNeighborhoods.clear();
+        indexedTiles = null;
+        waterMask = null;
+        neighborhoodIndices.clear();
     }
 
     /**
@@ -298,6 +315,9 @@ public class NauticalMap implements Startable
         waterSeaTiles = null;
         allTiles = null;
         lineTiles = null;
+        indexedTiles = null;
+        waterMask = null;
+        neighborhoodIndices.clear();
         //todo this works but make a test to be sure
         for(int i=0;i<rasterBackingGrid.getWidth(); i++)
             for(int j=0; j<rasterBackingGrid.getHeight(); j++)
@@ -338,6 +358,61 @@ public class NauticalMap implements Startable
         return (SeaTile) rasterBackingGrid.get(gridX, gridY);
     }
 
+    /**
+     * flat view of the grid where the tile at (x,y) sits at index x*height+y. Built lazily and forgotten every time
+     * tiles are recomputed
+     */
+    private SeaTile[] indexedTiles = null;
+
+    /**
+     * bit i is set when the tile at index i is water. Built together with indexedTiles
+     */
+    private BitSet waterMask = null;
+
+    private void buildTileIndex() {
+        final int height = getHeight();
+        final SeaTile[] tiles = new SeaTile[getWidth() * height];
+        final BitSet water = new BitSet(tiles.length);
+        for (int x = 0; x < getWidth(); x++)
+            for (int y = 0; y < height; y++) {
+                final int index = x * height + y;
+                tiles[index] = (SeaTile) rasterBackingGrid.get(x, y);
+                if (tiles[index].isWater())
+                    water.set(index);
+            }
+        waterMask = water;
+        indexedTiles = tiles;
+    }
+
+    /**
+     * the flat index (x*height+y) of a tile; stable as long as the map size doesn't change
+     * @param tile the tile
+     * @return its index
+     */
+    public int getTileIndex(SeaTile tile) {
+        return tile.getGridX() * getHeight() + tile.getGridY();
+    }
+
+    /**
+     * returns the sea tile with the given flat index (x*height+y)
+     * @param index the flat index of the tile
+     * @return the tile
+     */
+    public SeaTile getSeaTileByIndex(int index) {
+        if (indexedTiles == null)
+            buildTileIndex();
+        return indexedTiles[index];
+    }
+
+    /**
+     * a bitmask with the bit at each flat tile index set when that tile is water. Don't modify it!
+     */
+    public BitSet getWaterMask() {
+        if (waterMask == null)
+            buildTileIndex();
+        return waterMask;
+    }
+
     /**
      * basically getting coordinates is an expensive call; so we store previous calls here
      */
@@ -428,12 +503,41 @@ public Coordinate getCoordinates(int gridX, int gridY) {
         return neighbors;
     }
 
+    /**
+     * flat neighborhood indices, keyed by radius (times two, plus one for the water-only version)
+     */
+    private final Map<Integer,NeighborhoodIndex> neighborhoodIndices = new HashMap<>();
+
+    /**
+     * the Moore neighborhoods (bounded, origin excluded) of all tiles for a given radius, stored as flat arrays of tile
+     * indices. Neighbors are in the same order as {@link #getMooreNeighbors(SeaTile, int)}. Built the first time it is
+     * asked for and rebuilt after tiles change
+     * @param radius the neighborhood size
+     * @param waterOnly true to keep only neighbors that are water
+     * @return the index
+     */
+    public NeighborhoodIndex getNeighborhoodIndex(int radius, boolean waterOnly)
+    {
+        Preconditions.checkArgument(radius > 0);
+        final int key = radius * 2 + (waterOnly ? 1 : 0);
+        NeighborhoodIndex index = neighborhoodIndices.get(key);
+        if(index == null) {
+            if(indexedTiles == null)
+                buildTileIndex();
+            index = new NeighborhoodIndex(indexedTiles, waterMask, getWidth(), getHeight(), radius, waterOnly);
+            neighborhoodIndices.put(key, index);
+        }
+        return index;
+    }
+
     /**
      * tell the map some seatile has changed (not in its inner workings but really swapped out with a new seatile object).
      * Forgets all precomputed neighborhoods and recomputes MPAs
      */
     public void reactToSeaTileChange()
     {
+        alreadyComputedNeighbors.clear();
+        sizeOneNeighborhoods.clear();
         recomputeTilesMPA();
     }
 
@@ -533,6 +637,17 @@ public Coordinate getCoordinates(int gridX, int gridY) {
         this.pathfinder = pathfinder;
     }
 
+    public PortRouteAtlas getPortRouteAtlas() {
+        return portRouteAtlas;
+    }
+
+    /**
+     * sets the atlas to build at start; it should also be the path memory of the pathfinder to be of any use
+     */
+    public void setPortRouteAtlas(PortRouteAtlas portRouteAtlas) {
+        this.portRouteAtlas = portRouteAtlas;
+    }
+
     /**
      * return the full osmoseWFSPath that brings us from start to end
      * @param start the starting tile
@@ -540,6 +655,13 @@ public Coordinate getCoordinates(int gridX, int gridY) {
      * @return a queue of steps from start to end or null if it isn't possible to go from start to end
      */
     public Deque<SeaTile> getRoute(SeaTile start, SeaTile end) {
+        if(SimulationProfiler.isEnabled()) {
+            final long nanos = System.nanoTime();
+            final long bytes = SimulationProfiler.allocatedBytes();
+            final Deque<SeaTile> route = pathfinder.getRoute(this, start, end);
+            SimulationProfiler.timer(SimulationProfiler.PATHFINDER, pathfinder.getClass()).record(nanos, bytes);
+            return route;
+        }
         return pathfinder.getRoute(this, start, end);
     }
 
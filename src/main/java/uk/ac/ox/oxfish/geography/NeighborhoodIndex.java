@@ -0,0 +1,180 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * The bounded Moore neighborhoods of every tile of the map, for a given radius, stored flat: the neighbors of the tile
+ * with index i (x*height+y) are the tile indices in neighbors[offsets[i]] ... neighbors[offsets[i+1]-1].<br>
+ * Neighbors are listed in the same order {@link NauticalMap#getMooreNeighbors(SeaTile, int)} returns them so code
+ * moving over to this index visits tiles exactly as before. A water-only index keeps just the neighbors that are water
+ * (every tile, land or not, still has its own entry). <br>
+ * Get it from {@link NauticalMap#getNeighborhoodIndex(int, boolean)}; the map rebuilds it whenever tiles change.
+ */
+public class NeighborhoodIndex {
+
+    private final int radius;
+
+    private final boolean waterOnly;
+
+    private final int height;
+
+    /**
+     * offsets[i] is where the neighbors of tile i start; it has one more element than there are tiles
+     */
+    private final int[] offsets;
+
+    /**
+     * all neighborhoods, one after the other
+     */
+    private final int[] neighbors;
+
+    /**
+     * the map's flat tile index, to turn indices back into tiles
+     */
+    private final SeaTile[] tiles;
+
+    NeighborhoodIndex(SeaTile[] tiles, BitSet water, int width, int height, int radius, boolean waterOnly) {
+        this.radius = radius;
+        this.waterOnly = waterOnly;
+        this.height = height;
+        this.tiles = tiles;
+
+        final int[] buffer = new int[(2 * radius + 1) * (2 * radius + 1)];
+        offsets = new int[tiles.length + 1];
+        //first pass: count, so we can size the neighbors array exactly
+        for (int index = 0; index < tiles.length; index++) {
+            int size = mooreNeighbors(index / height, index % height, radius, width, height, buffer);
+            if (waterOnly)
+                size = keepWater(buffer, size, water);
+            offsets[index + 1] = offsets[index] + size;
+        }
+        neighbors = new int[offsets[tiles.length]];
+        for (int index = 0; index < tiles.length; index++) {
+            int size = mooreNeighbors(index / height, index % height, radius, width, height, buffer);
+            if (waterOnly)
+                size = keepWater(buffer, size, water);
+            System.arraycopy(buffer, 0, neighbors, offsets[index], size);
+        }
+    }
+
+    private static int keepWater(int[] buffer, int size, BitSet water) {
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+            if (water.get(buffer[i]))
+                buffer[kept++] = buffer[i];
+        return kept;
+    }
+
+    /**
+     * fills the buffer with the flat indices of the bounded Moore neighborhood of x,y in the same order MASON's
+     * ObjectGrid2D returns them: column by column, with the last neighbor moved into the slot of the (removed) origin
+     * @return the number of neighbors written into the buffer
+     */
+    public static int mooreNeighbors(int x, int y, int radius, int width, int height, int[] buffer) {
+        int size = 0;
+        int originSlot = -1;
+        final int minX = Math.max(x - radius, 0);
+        final int maxX = Math.min(x + radius, width - 1);
+        final int minY = Math.max(y - radius, 0);
+        final int maxY = Math.min(y + radius, height - 1);
+        for (int i = minX; i <= maxX; i++)
+            for (int j = minY; j <= maxY; j++) {
+                if (i == x && j == y)
+                    originSlot = size;
+                buffer[size++] = i * height + j;
+            }
+        assert originSlot >= 0;
+        buffer[originSlot] = buffer[--size];
+        return size;
+    }
+
+    /**
+     * where the neighbors of this tile start (use with {@link #end(int)} and {@link #neighborAt(int)})
+     */
+    public int start(int tileIndex) {
+        return offsets[tileIndex];
+    }
+
+    /**
+     * one past where the neighbors of this tile end
+     */
+    public int end(int tileIndex) {
+        return offsets[tileIndex + 1];
+    }
+
+    /**
+     * the tile index stored at this position of the flat neighbor array
+     */
+    public int neighborAt(int position) {
+        return neighbors[position];
+    }
+
+    /**
+     * the tile stored at this position of the flat neighbor array
+     */
+    public SeaTile tileAt(int position) {
+        return tiles[neighbors[position]];
+    }
+
+    public int size(int tileIndex) {
+        return offsets[tileIndex + 1] - offsets[tileIndex];
+    }
+
+    public int indexOf(SeaTile tile) {
+        return tile.getGridX() * height + tile.getGridY();
+    }
+
+    public void forEachNeighbor(int tileIndex, IntConsumer consumer) {
+        for (int position = offsets[tileIndex]; position < offsets[tileIndex + 1]; position++)
+            consumer.accept(neighbors[position]);
+    }
+
+    public void forEachNeighbor(SeaTile tile, Consumer<SeaTile> consumer) {
+        final int tileIndex = indexOf(tile);
+        for (int position = offsets[tileIndex]; position < offsets[tileIndex + 1]; position++)
+            consumer.accept(tiles[neighbors[position]]);
+    }
+
+    /**
+     * the neighbors of a tile as a new (modifiable) list
+     */
+    public List<SeaTile> getNeighbors(SeaTile tile) {
+        final int tileIndex = indexOf(tile);
+        final List<SeaTile> list = new ArrayList<>(size(tileIndex));
+        for (int position = offsets[tileIndex]; position < offsets[tileIndex + 1]; position++)
+            list.add(tiles[neighbors[position]]);
+        return list;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public boolean isWaterOnly() {
+        return waterOnly;
+    }
+}
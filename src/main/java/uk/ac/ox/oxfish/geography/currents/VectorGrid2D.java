@@ -31,4 +31,14 @@ public class VectorGrid2D {
             .filter(location -> inBounds(location, uGrid));
     }
 
+    /**
+     * the eastward component of the vectors, as a [x][y] array. Don't modify it!
+     */
+    public double[][] getU() { return uGrid.field; }
+
+    /**
+     * the northward component of the vectors, as a [x][y] array. Don't modify it!
+     */
+    public double[][] getV() { return vGrid.field; }
+
 }
@@ -24,10 +24,9 @@ import com.google.common.base.Preconditions;
 import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -51,9 +50,12 @@ public class MapDiscretization {
     private List<SeaTile>[] groups;
 
     /**
-     * the "inverse" mapping that gets for each seatile which group it belongs to
+     * the "inverse" mapping that gets for each seatile (by flat index, x * height + y) which group it belongs to;
+     * -1 for tiles in no group
      */
-    private Map<SeaTile,Integer> grouped;
+    private int[] grouped;
+
+    private int height;
 
     /**
      *  boolean is true if at least one cell within that group
@@ -84,11 +86,13 @@ public class MapDiscretization {
             validGroup[i] = groups[i].size()>0;
 
         //now again go through each group
-        grouped = new HashMap<>(map.getAllSeaTilesExcludingLandAsList().size());
+        height = map.getHeight();
+        grouped = new int[map.getWidth() * map.getHeight()];
+        Arrays.fill(grouped, -1);
         for (int i = 0; i < groups.length; i++)
             for (SeaTile tile : groups[i]) {
-                assert !grouped.containsKey(tile);
-                grouped.put(tile, i);
+                assert grouped[index(tile)] < 0;
+                grouped[index(tile)] = i;
             }
       //  assert allTilesAreInAGroup(map); not true anymore because you could decide to ignore certain seatiles (usually wastelands)
 
@@ -121,12 +125,24 @@ public class MapDiscretization {
      */
     public Integer getGroup(SeaTile tile)
     {
-        if(!grouped.containsKey(tile)) {
-            return null;
-        }
-        assert grouped.containsKey(tile);
-        assert tile.isWater();
-        return grouped.get(tile);
+        int group = getGroupIndex(tile);
+        return group < 0 ? null : group;
+    }
+
+    /**
+     * like {@link #getGroup(SeaTile)} but without boxing
+     * @param tile the tile
+     * @return the group index or -1 if the tile belongs to no group
+     */
+    public int getGroupIndex(SeaTile tile)
+    {
+        int group = grouped[index(tile)];
+        assert group < 0 || tile.isWater();
+        return group;
+    }
+
+    private int index(SeaTile tile) {
+        return tile.getGridX() * height + tile.getGridY();
     }
 
     public int getNumberOfGroups()
@@ -4,60 +4,224 @@ import org.jetbrains.annotations.Nullable;
 import sim.field.continuous.Continuous2D;
 import sim.util.Bag;
 import sim.util.Double2D;
+import uk.ac.ox.oxfish.geography.currents.VectorGrid2D;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiConsumer;
-import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Preconditions.checkState;
-import static uk.ac.ox.oxfish.utility.MasonUtils.bagToStream;
-import static uk.ac.ox.oxfish.utility.MasonUtils.inBounds;
 
+/**
+ * Keeps track of objects floating on a width x height map. Positions are stored in primitive arrays (the objects sit in
+ * the order a MASON {@link Continuous2D} would keep them in its allObjects bag: appended when added, last one swapped
+ * in when removed) and each unit cell keeps a bag of the objects in it, so that looking up what is in a cell
+ * doesn't need to scan anything. <br>
+ * Drift is applied in one batch: first all new positions are computed from the current grids, then they are
+ * applied in order. Callbacks are only told about objects leaving the map or entering a cell the caller asked to be
+ * notified about; moving from water to water needs no work beyond updating the arrays.
+ */
 public class DriftingObjectsMap {
 
-    private final Continuous2D field;
-    private Map<Object, BiConsumer<Double2D, Optional<Double2D>>> onMoveCallbacks = new HashMap<>();
+    private final int width;
 
-    DriftingObjectsMap(double width, double height) {
-        this.field = new Continuous2D(1.0, width, height);
+    private final int height;
+
+    private Object[] objects = new Object[16];
+
+    private double[] xs = new double[16];
+
+    private double[] ys = new double[16];
+
+    /**
+     * the cell (x * height + y) each object is in
+     */
+    private int[] cells = new int[16];
+
+    @SuppressWarnings("unchecked")
+    private BiConsumer<Double2D, Optional<Double2D>>[] callbacks = new BiConsumer[16];
+
+    private int size = 0;
+
+    /**
+     * from object to its position in the arrays
+     */
+    private final Map<Object, Integer> positions = new HashMap<>();
+
+    /**
+     * objects in each cell; null when empty
+     */
+    private final Bag[] buckets;
+
+    /**
+     * scratch arrays, for the positions objects drift to
+     */
+    private double[] nextXs = new double[16];
+
+    private double[] nextYs = new double[16];
+
+    /**
+     * while drifting: the position in the drift snapshot of the object at each array position (-1 if added mid-drift)
+     */
+    private int[] snapshotPositions = new int[16];
+
+    /**
+     * while drifting: the array position of each object in the drift snapshot (-1 once removed)
+     */
+    private int[] driftPositions = new int[16];
+
+    /**
+     * whether we are in the middle of {@link #applyDrift(VectorGrid2D, IntPredicate)}
+     */
+    private boolean drifting = false;
+
+    /**
+     * MASON copy of the map, only built if somebody (the GUI) asks for it
+     */
+    @Nullable
+    private Continuous2D field = null;
+
+    DriftingObjectsMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.buckets = new Bag[width * height];
+    }
+
+    /**
+     * Moves all objects along the given currents. Objects drifting off the map are removed and their callback is
+     * applied with an empty new location; objects drifting into a cell for which {@code notifyCells} is true are moved
+     * there and then their callback is applied with the new location. Objects are processed in the order they sit in
+     * the map, same as it was before the drift started.
+     *
+     * @param currents    the grid of currents to apply
+     * @param notifyCells which cells (x * height + y) the callbacks want to know about objects drifting into
+     */
+    void applyDrift(VectorGrid2D currents, IntPredicate notifyCells) {
+        final int snapshotSize = size;
+        final double[][] u = currents.getU();
+        final double[][] v = currents.getV();
+
+        // first compute where everybody goes; no side effects here
+        for (int i = 0; i < snapshotSize; i++) {
+            final double x = xs[i];
+            final double y = ys[i];
+            final int cellX = (int) x;
+            final int cellY = (int) y;
+            nextXs[i] = x + u[cellX][cellY];
+            nextYs[i] = y + v[cellX][cellY];
+        }
+
+        // then move them in order, keeping track of who is where as removals shuffle the arrays
+        for (int i = 0; i < snapshotSize; i++) {
+            snapshotPositions[i] = i;
+            driftPositions[i] = i;
+        }
+        drifting = true;
+        try {
+            for (int k = 0; k < snapshotSize; k++) {
+                final int i = driftPositions[k];
+                if (i < 0) // somebody's callback already took it off the map
+                    continue;
+                final double x = nextXs[k];
+                final double y = nextYs[k];
+                if (!inBounds(x, y)) {
+                    final Double2D oldLocation = new Double2D(xs[i], ys[i]);
+                    notifyRemoval(removeAt(i), oldLocation);
+                } else {
+                    final int newCell = toCell(x, y);
+                    final boolean notify = notifyCells.test(newCell) && callbacks[i] != null;
+                    final Double2D oldLocation = notify ? new Double2D(xs[i], ys[i]) : null;
+                    setLocation(i, x, y, newCell);
+                    if (notify)
+                        callbacks[i].accept(oldLocation, Optional.of(new Double2D(x, y)));
+                }
+            }
+        } finally {
+            drifting = false;
+        }
     }
 
-    void applyDrift(Function<Double2D, Optional<Double2D>> moverFunction) {
-        Bag objects = new Bag(field.allObjects); // make a copy, as objects can be removed
-        bagToStream(objects).forEach(o -> {
-            final Double2D oldLoc = field.getObjectLocationAsDouble2D(o);
-            final Optional<Double2D> newLoc = moverFunction.apply(oldLoc);
-            if (newLoc.isPresent()) // TODO: use `ifPresentOrElse` once we upgrade to Java >=9.
-                move(o, oldLoc, newLoc.get());
-            else
-                remove(o, oldLoc);
-        });
+    private boolean inBounds(double x, double y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
     }
 
-    private void move(Object object, Double2D oldLocation, Double2D newLocation) {
-        setObjectLocation(object, newLocation);
-        Optional
-            .ofNullable(onMoveCallbacks.get(object))
-            .ifPresent(f -> f.accept(oldLocation, Optional.of(newLocation)));
+    private int toCell(double x, double y) {
+        return ((int) x) * height + (int) y;
     }
 
-    private void remove(Object object, Double2D oldLocation) {
-        final Object result = field.remove(object);
-        checkNotNull(result, "Object not on the map!");
-        Optional
-            .ofNullable(onMoveCallbacks.remove(object))
-            .ifPresent(f -> f.accept(oldLocation, Optional.empty()));
+    private void setLocation(int position, double x, double y, int cell) {
+        final Object object = objects[position];
+        xs[position] = x;
+        ys[position] = y;
+        if (cells[position] != cell) {
+            removeFromBucket(object, cells[position]);
+            addToBucket(object, cell);
+            cells[position] = cell;
+        }
+        if (field != null)
+            field.setObjectLocation(object, new Double2D(x, y));
     }
 
-    private void setObjectLocation(Object object, Double2D newLocation) {
-        checkArgument(inBounds(newLocation, field));
-        final boolean result = field.setObjectLocation(object, newLocation);
-        checkState(result);
+    private void addToBucket(Object object, int cell) {
+        if (buckets[cell] == null)
+            buckets[cell] = new Bag();
+        buckets[cell].add(object);
+    }
+
+    private void removeFromBucket(Object object, int cell) {
+        final Bag bucket = buckets[cell];
+        bucket.remove(object);
+        if (bucket.isEmpty())
+            buckets[cell] = null;
+    }
+
+    /**
+     * takes the object at the given position off the map, moving the last one in its place
+     *
+     * @return its callback, if any
+     */
+    @Nullable
+    private BiConsumer<Double2D, Optional<Double2D>> removeAt(int position) {
+        final Object object = objects[position];
+        final BiConsumer<Double2D, Optional<Double2D>> callback = callbacks[position];
+        if (drifting && snapshotPositions[position] >= 0)
+            driftPositions[snapshotPositions[position]] = -1;
+        removeFromBucket(object, cells[position]);
+        positions.remove(object);
+        if (field != null)
+            field.remove(object);
+
+        final int last = size - 1;
+        if (position != last) {
+            objects[position] = objects[last];
+            xs[position] = xs[last];
+            ys[position] = ys[last];
+            cells[position] = cells[last];
+            callbacks[position] = callbacks[last];
+            if (drifting) {
+                snapshotPositions[position] = snapshotPositions[last];
+                if (snapshotPositions[position] >= 0)
+                    driftPositions[snapshotPositions[position]] = position;
+            }
+            positions.put(objects[position], position);
+        }
+        objects[last] = null;
+        callbacks[last] = null;
+        size--;
+        return callback;
+    }
+
+    private static void notifyRemoval(
+        @Nullable BiConsumer<Double2D, Optional<Double2D>> callback,
+        Double2D oldLocation
+    ) {
+        if (callback != null)
+            callback.accept(oldLocation, Optional.empty());
     }
 
     /**
@@ -67,26 +231,110 @@ public class DriftingObjectsMap {
      * @param object the object to remove
      */
     public void remove(Object object) {
-        remove(object, field.getObjectLocationAsDouble2D(object));
+        final Integer position = positions.get(object);
+        checkNotNull(position, "Object not on the map!");
+        final Double2D oldLocation = new Double2D(xs[position], ys[position]);
+        notifyRemoval(removeAt(position), oldLocation);
     }
 
     public void add(
         Object object, Double2D location,
         BiConsumer<Double2D, Optional<Double2D>> onMove
     ) {
-        setObjectLocation(object, location);
-        onMoveCallbacks.put(object, onMove);
+        checkArgument(inBounds(location.x, location.y));
+        final Integer existing = positions.get(object);
+        if (existing != null) {
+            setLocation(existing, location.x, location.y, toCell(location.x, location.y));
+            callbacks[existing] = onMove;
+            return;
+        }
+        if (size == objects.length)
+            grow();
+        final int position = size++;
+        objects[position] = object;
+        xs[position] = location.x;
+        ys[position] = location.y;
+        cells[position] = toCell(location.x, location.y);
+        callbacks[position] = onMove;
+        // not part of an ongoing drift, if any
+        snapshotPositions[position] = -1;
+        positions.put(object, position);
+        addToBucket(object, cells[position]);
+        if (field != null)
+            field.setObjectLocation(object, location);
+    }
+
+    private void grow() {
+        final int capacity = objects.length * 2;
+        objects = Arrays.copyOf(objects, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        cells = Arrays.copyOf(cells, capacity);
+        callbacks = Arrays.copyOf(callbacks, capacity);
+        nextXs = Arrays.copyOf(nextXs, capacity);
+        nextYs = Arrays.copyOf(nextYs, capacity);
+        snapshotPositions = Arrays.copyOf(snapshotPositions, capacity);
+        driftPositions = Arrays.copyOf(driftPositions, capacity);
     }
 
     @Nullable
     Double2D getObjectLocation(Object object) {
-        return field.getObjectLocation(object);
+        final Integer position = positions.get(object);
+        return position == null ? null : new Double2D(xs[position], ys[position]);
+    }
+
+    /**
+     * the cell (x * height + y) the object is in, or -1 if it isn't on the map
+     */
+    int getObjectCell(Object object) {
+        final Integer position = positions.get(object);
+        return position == null ? -1 : cells[position];
+    }
+
+    /**
+     * the objects in the given cell; this is the live bag (don't modify it!) or null if the cell is empty
+     */
+    @Nullable
+    Bag getObjectsAt(int x, int y) {
+        return buckets[x * height + y];
     }
 
     public Stream<Object> objects() {
-        return bagToStream(field.allObjects);
+        return Arrays.stream(objects, 0, size);
+    }
+
+    /**
+     * number of objects on the map
+     */
+    public int size() {
+        return size;
     }
 
-    public Continuous2D getField() { return field; }
+    /**
+     * the object at the given position; positions go from 0 to {@link #size()} and change when objects are removed
+     */
+    Object getObject(int position) {
+        return objects[position];
+    }
+
+    /**
+     * the cell (x * height + y) of the object at the given position
+     */
+    int getCell(int position) {
+        return cells[position];
+    }
+
+    /**
+     * A MASON view of the map, built the first time it is asked for and kept up to date from then on.
+     * Only needed by the GUI portrayals.
+     */
+    public Continuous2D getField() {
+        if (field == null) {
+            field = new Continuous2D(1.0, width, height);
+            for (int i = 0; i < size; i++)
+                field.setObjectLocation(objects[i], new Double2D(xs[i], ys[i]));
+        }
+        return field;
+    }
 
 }
@@ -7,8 +7,8 @@ import sim.engine.Stoppable;
 import sim.field.continuous.Continuous2D;
 import sim.util.Bag;
 import sim.util.Double2D;
-import sim.util.Int2D;
 import uk.ac.ox.oxfish.biology.GlobalBiology;
+import uk.ac.ox.oxfish.biology.LocalBiology;
 import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.biology.VariableBiomassBasedBiology;
 import uk.ac.ox.oxfish.fisher.equipment.fads.Fad;
@@ -20,6 +20,7 @@ import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.Startable;
 import uk.ac.ox.oxfish.model.StepOrder;
 
+import java.util.BitSet;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
@@ -71,12 +72,15 @@ public class FadMap implements Startable, Steppable {
     @Override
     public void step(SimState simState) {
         VectorGrid2D currentsMap = currentsMaps.atSteps(simState.schedule.getSteps());
-        driftingObjectsMap.applyDrift(currentsMap::move);
-        allFads().forEach(fad ->
-            getFadTile(fad)
-                .flatMap(FadMap::getVariableBiomassBasedBiology)
-                .ifPresent(biology -> fad.aggregateFish(biology, globalBiology))
-        );
+        // only drifting onto land needs the callback, the rest is taken care of by the drifting objects map
+        final BitSet water = nauticalMap.getWaterMask();
+        driftingObjectsMap.applyDrift(currentsMap, cell -> !water.get(cell));
+        for (int i = 0; i < driftingObjectsMap.size(); i++) {
+            final Fad fad = (Fad) driftingObjectsMap.getObject(i);
+            final LocalBiology biology = nauticalMap.getSeaTileByIndex(driftingObjectsMap.getCell(i)).getBiology();
+            if (biology instanceof VariableBiomassBasedBiology)
+                fad.aggregateFish((VariableBiomassBasedBiology) biology, globalBiology);
+        }
     }
 
     @NotNull
@@ -132,14 +136,13 @@ public class FadMap implements Startable, Steppable {
 
     @NotNull
     public Bag fadsAt(SeaTile seaTile) {
-        Int2D location = new Int2D(seaTile.getGridX(), seaTile.getGridY());
-        final Bag bag = driftingObjectsMap.getField().getObjectsAtDiscretizedLocation(location);
+        final Bag bag = driftingObjectsMap.getObjectsAt(seaTile.getGridX(), seaTile.getGridY());
         return bag == null ? new Bag() : bag;
     }
 
     /**
-     * Returns the Continuous2D field backing the floating objects map. Only public because the GUI
-     * portrayal needs to access it.
+     * Returns a Continuous2D view of the floating objects map, kept up to date once asked for. Only public because
+     * the GUI portrayal needs to access it.
      */
     @NotNull
     public Continuous2D getField() { return driftingObjectsMap.getField(); }
@@ -31,6 +31,10 @@ import uk.ac.ox.oxfish.biology.GlobalBiology;
 import uk.ac.ox.oxfish.geography.*;
 import uk.ac.ox.oxfish.geography.habitat.TileHabitat;
 import uk.ac.ox.oxfish.geography.pathfinding.AStarPathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.GridAStarPathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.Pathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.PortRouteAtlas;
+import uk.ac.ox.oxfish.geography.sampling.BinaryGrid;
 import uk.ac.ox.oxfish.geography.sampling.GeographicalSample;
 import uk.ac.ox.oxfish.geography.sampling.SampledMap;
 import uk.ac.ox.oxfish.model.FishState;
@@ -38,14 +42,16 @@ import uk.ac.ox.oxfish.model.FishState;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.nio.FloatBuffer;
 import java.nio.file.Path;
 import java.util.LinkedList;
-import java.util.OptionalDouble;
+import java.util.function.IntToDoubleFunction;
 
 /**
  *
  * Creates a map from file. If it is a csv it expects it being a depth map. If it is a data file it expects it
- * being a previous map that has been saved
+ * being a previous map that has been saved. If it is a grid file it expects a {@link BinaryGrid} whose first layer
+ * is the depth map (already gridded, so gridWidthInCells and padding are ignored)
  * Created by carrknight on 6/30/17.
  */
 public class FromFileMapInitializer implements MapInitializer {
@@ -70,15 +76,40 @@ public class FromFileMapInitializer implements MapInitializer {
      */
     final private boolean latLong;
 
+    /**
+     * when true the map routes with the array-backed {@link GridAStarPathfinder} rather than {@link AStarPathfinder}
+     */
+    final private boolean gridPathfinder;
+
+    /**
+     * when true routes to and from ports are precomputed by a {@link PortRouteAtlas} when the map starts
+     */
+    final private boolean portRouteAtlas;
+
+    /**
+     * where the port route atlas is cached between runs (null means it is always recomputed)
+     */
+    final private Path portRouteAtlasFolder;
+
 
     public FromFileMapInitializer(
         Path filePath, int gridWidthInCells, double mapPaddingInDegrees, boolean header, boolean latLong
+    ) {
+        this(filePath, gridWidthInCells, mapPaddingInDegrees, header, latLong, false, false, null);
+    }
+
+    public FromFileMapInitializer(
+        Path filePath, int gridWidthInCells, double mapPaddingInDegrees, boolean header, boolean latLong,
+        boolean gridPathfinder, boolean portRouteAtlas, Path portRouteAtlasFolder
     ) {
         this.filePath = filePath;
         this.gridWidthInCells = gridWidthInCells;
         this.mapPaddingInDegrees = mapPaddingInDegrees;
         this.header = header;
         this.latLong = latLong;
+        this.gridPathfinder = gridPathfinder;
+        this.portRouteAtlas = portRouteAtlas;
+        this.portRouteAtlasFolder = portRouteAtlasFolder;
     }
 
     @Override
@@ -103,15 +134,23 @@ public class FromFileMapInitializer implements MapInitializer {
                             new FileInputStream(filePath.toFile()));
 
                     sampledMap = (SampledMap) stream.readObject();
-                    return sampledAltitudeToNauticalMap(sampledMap.getAltitudeGrid(),
+                    return withPortRouteAtlas(sampledAltitudeToNauticalMap(sampledMap.getAltitudeGrid(),
                             sampledMap.getMbr(),
                             sampledMap.getGridHeight(),
-                            sampledMap.getGridWith(), latLong);
+                            sampledMap.getGridWith(), latLong, gridPathfinder));
+
+                //a binary grid converted from the csv beforehand: already binned, nothing to parse
+                case BinaryGrid.EXTENSION:
+                    BinaryGrid grid = BinaryGrid.read(filePath);
+                    FloatBuffer altitudes = grid.getLayer(0);
+                    return withPortRouteAtlas(averageAltitudeToNauticalMap(
+                            cell -> altitudes.get(cell), grid.getMbr(), grid.getHeight(), grid.getWidth(),
+                            latLong, gridPathfinder));
 
                 default:
                 case "csv":
                     //otherwise read from data
-                    GeographicalSample altitudeSample = new GeographicalSample(filePath,
+                    GeographicalSample altitudeSample = GeographicalSample.read(filePath,
                             header);
                     //create the mbr from max-min stuff
                     Envelope mbr = new Envelope(
@@ -130,15 +169,16 @@ public class FromFileMapInitializer implements MapInitializer {
                     geomGrid.setMBR(mbr);
 
                     //get the altitude grid
-                    Table<Integer, Integer, LinkedList<Double>> sampledAltitudeGrid = SampledMap.fileToGrid(
+                    double[] averageAltitude = SampledMap.fileToAverageGrid(
                             geomGrid,
                             altitudeSample,
                             gridWidthInCells,
                             gridHeightInCells
                     );
 
-                    return sampledAltitudeToNauticalMap(sampledAltitudeGrid, mbr, gridHeightInCells, gridWidthInCells,
-                            latLong);
+                    return withPortRouteAtlas(averageAltitudeToNauticalMap(
+                            cell -> averageAltitude[cell], mbr, gridHeightInCells, gridWidthInCells,
+                            latLong, gridPathfinder));
 
             }
 
@@ -152,26 +192,66 @@ public class FromFileMapInitializer implements MapInitializer {
 
 
 
+    /**
+     * if asked to, gives the map a port route atlas and a pathfinder that uses it as its memory
+     */
+    private NauticalMap withPortRouteAtlas(NauticalMap map) {
+        if (portRouteAtlas) {
+            PortRouteAtlas atlas = new PortRouteAtlas(portRouteAtlasFolder);
+            map.setPortRouteAtlas(atlas);
+            Distance distance = map.getDistance();
+            map.setPathfinder(gridPathfinder ?
+                                  new GridAStarPathfinder(distance, atlas) :
+                                  new AStarPathfinder(distance, atlas));
+        }
+        return map;
+    }
+
     public static NauticalMap sampledAltitudeToNauticalMap(
             Table<Integer, Integer,
                     LinkedList<Double>> sampledAltitudeGrid,
             Envelope mbr, int gridHeightInCells,
             int gridWidthInCells,
             final boolean latLong) {
+        return sampledAltitudeToNauticalMap(sampledAltitudeGrid, mbr, gridHeightInCells, gridWidthInCells, latLong,
+                                            false);
+    }
+
+    public static NauticalMap sampledAltitudeToNauticalMap(
+            Table<Integer, Integer,
+                    LinkedList<Double>> sampledAltitudeGrid,
+            Envelope mbr, int gridHeightInCells,
+            int gridWidthInCells,
+            final boolean latLong,
+            final boolean gridPathfinder) {
+        //so for altitude we just average them out
+        return averageAltitudeToNauticalMap(
+                cell -> sampledAltitudeGrid.get(cell / gridHeightInCells, cell % gridHeightInCells).
+                        stream().mapToDouble(value -> value).filter(aDouble -> aDouble > -9999).average().
+                        orElse(Double.NaN),
+                mbr, gridHeightInCells, gridWidthInCells, latLong, gridPathfinder);
+    }
+
+    /**
+     * builds the map from the average altitude of each cell
+     * @param averageAltitude from cell (x * gridHeightInCells + y) to its average altitude, NaN if unknown (it
+     *                        becomes land at 1000m)
+     */
+    public static NauticalMap averageAltitudeToNauticalMap(
+            IntToDoubleFunction averageAltitude,
+            Envelope mbr, int gridHeightInCells,
+            int gridWidthInCells,
+            final boolean latLong,
+            final boolean gridPathfinder) {
         //turn it into a proper map
         ObjectGrid2D altitudeGrid = new ObjectGrid2D(gridWidthInCells, gridHeightInCells);
 
-
-        //so for altitude we just average them out
         for(int x=0;x<gridWidthInCells;x++)
             for(int y=0;y<gridHeightInCells;y++)
             {
-                OptionalDouble average = sampledAltitudeGrid.get(x, y).
-                        stream().mapToDouble(
-                        value -> value).filter(
-                        aDouble -> aDouble > -9999).average();
+                double average = averageAltitude.applyAsDouble(x * gridHeightInCells + y);
                 altitudeGrid.set(x, y,
-                        new SeaTile(x, y, average.orElseGet(() -> 1000d), new TileHabitat(0)));
+                        new SeaTile(x, y, Double.isNaN(average) ? 1000d : average, new TileHabitat(0)));
             }
 
         GeomGridField unitedMap = new GeomGridField(altitudeGrid);
@@ -179,9 +259,10 @@ public class FromFileMapInitializer implements MapInitializer {
 
         //create the map
         Distance distance = latLong ? new EquirectangularDistanceByCoordinate() : new CartesianUTMDistance() ;
+        Pathfinder pathfinder = gridPathfinder ? new GridAStarPathfinder(distance) : new AStarPathfinder(distance);
         NauticalMap nauticalMap = new NauticalMap(unitedMap, new GeomVectorField(),
                 distance,
-                new AStarPathfinder(distance));
+                pathfinder);
 
         //cell distance:
         System.out.println("coordinates for 0,0 are: " + nauticalMap.getCoordinates(0,0) );
@@ -47,6 +47,21 @@ public class FromFileMapInitializerFactory implements AlgorithmFactory<FromFileM
 
     private boolean latLong = true;
 
+    /**
+     * when true routes are computed by the array-backed A* rather than the object one (same routes, faster)
+     */
+    private boolean gridPathfinder = false;
+
+    /**
+     * when true routes to and from ports are all precomputed when the map starts
+     */
+    private boolean portRouteAtlas = false;
+
+    /**
+     * where to cache the port route atlas between runs; leave empty to recompute it every time
+     */
+    private Path portRouteAtlasFolder = Paths.get("output", "port_route_atlas");
+
     public FromFileMapInitializerFactory() {
     }
 
@@ -71,7 +86,10 @@ public class FromFileMapInitializerFactory implements AlgorithmFactory<FromFileM
             gridWidthInCell.apply(rng).intValue(),
             mapPaddingInDegrees.apply(rng),
             header,
-            latLong
+            latLong,
+            gridPathfinder,
+            portRouteAtlas,
+            portRouteAtlasFolder.toString().trim().isEmpty() ? null : portRouteAtlasFolder
         );
     }
 
@@ -153,6 +171,29 @@ public class FromFileMapInitializerFactory implements AlgorithmFactory<FromFileM
         this.latLong = latLong;
     }
 
+    public boolean isGridPathfinder() {
+        return gridPathfinder;
+    }
+
+    public void setGridPathfinder(boolean gridPathfinder) {
+        this.gridPathfinder = gridPathfinder;
+    }
+
+    public boolean isPortRouteAtlas() {
+        return portRouteAtlas;
+    }
+
+    public void setPortRouteAtlas(boolean portRouteAtlas) {
+        this.portRouteAtlas = portRouteAtlas;
+    }
+
+    public Path getPortRouteAtlasFolder() {
+        return portRouteAtlasFolder;
+    }
+
+    public void setPortRouteAtlasFolder(Path portRouteAtlasFolder) {
+        this.portRouteAtlasFolder = portRouteAtlasFolder;
+    }
 
 
 }
@@ -19,14 +19,22 @@ public class AStarFallbackPathfinder implements Pathfinder {
     private final PathMemory memory;
 
     private final Pathfinder straightLinePathfinder = new StraightLinePathfinder(new DiscardingPathMemory());
-    private final AStarPathfinder aStarPathfinder;
+    private final Pathfinder aStarPathfinder;
 
     public AStarFallbackPathfinder(Distance distanceFunction) { this(distanceFunction, new TableBasedPathMemory()); }
 
     @SuppressWarnings("WeakerAccess")
     public AStarFallbackPathfinder(Distance distanceFunction, PathMemory memory) {
+        this(new AStarPathfinder(distanceFunction, memory), memory);
+    }
+
+    /**
+     * @param aStarPathfinder the A* implementation to fall back to; it should share the same memory
+     * @param memory the path memory
+     */
+    public AStarFallbackPathfinder(Pathfinder aStarPathfinder, PathMemory memory) {
         this.memory = memory;
-        this.aStarPathfinder = new AStarPathfinder(distanceFunction, memory);
+        this.aStarPathfinder = aStarPathfinder;
     }
 
     @SuppressWarnings("OptionalAssignedToNull")
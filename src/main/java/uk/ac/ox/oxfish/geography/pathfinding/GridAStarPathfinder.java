@@ -0,0 +1,191 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography.pathfinding;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import uk.ac.ox.oxfish.geography.Distance;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.NeighborhoodIndex;
+import uk.ac.ox.oxfish.geography.SeaTile;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.Optional;
+
+/**
+ * The same A* search as {@link AStarPathfinder} but working on flat grid indices (x*height+y) rather than on
+ * SeaTile objects. The frontier is a binary heap of primitives, scores and parents live in arrays that are reused from
+ * query to query (a generation stamp tells us which entries belong to the current search), land/water is read
+ * from the map's bitmask and neighbors from its {@link NeighborhoodIndex}. Once the arrays have grown to the size of the
+ * map a query allocates nothing but the route itself. <br>
+ * Neighbors are visited, and ties in the frontier broken, exactly like {@link AStarPathfinder} does it so the routes
+ * returned are the same.
+ */
+public class GridAStarPathfinder implements Pathfinder {
+
+    private final Distance distanceFunction;
+
+    private final PathMemory memory;
+
+    /**
+     * search arrays are reused but never shared between threads
+     */
+    private final ThreadLocal<SearchState> searchState = ThreadLocal.withInitial(SearchState::new);
+
+    public GridAStarPathfinder(Distance distanceFunction, PathMemory memory) {
+        this.distanceFunction = distanceFunction;
+        this.memory = memory;
+    }
+
+    public GridAStarPathfinder(Distance distanceFunction) {
+        this(distanceFunction, new TableBasedPathMemory());
+    }
+
+    /**
+     * return the full path that brings us from start to end
+     *
+     * @param map   the map
+     * @param start the starting tile
+     * @param end   the ending tile
+     * @return a queue of steps from start to end or null if it isn't possible to go from start to end
+     */
+    @Override
+    @SuppressWarnings("OptionalAssignedToNull")
+    public Deque<SeaTile> getRoute(NauticalMap map, SeaTile start, SeaTile end) {
+
+        //preconditions
+        Preconditions.checkNotNull(start);
+        Preconditions.checkNotNull(end);
+        Preconditions.checkNotNull(map);
+
+        // If we already have this path in our memory, return a mutable copy of it
+        final Optional<ImmutableList<SeaTile>> knownPath = memory.getPath(start, end);
+        if (knownPath != null) return knownPath.map(LinkedList::new).orElse(null);
+
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+        final BitSet water = map.getWaterMask();
+        final NeighborhoodIndex neighborhood = map.getNeighborhoodIndex(1, false);
+        final int startIndex = map.getTileIndex(start);
+        final int endIndex = map.getTileIndex(end);
+        final int endX = end.getGridX();
+        final int endY = end.getGridY();
+
+        final SearchState state = searchState.get();
+        state.prepare(width * height);
+        final int generation = state.generation;
+        final int[] reached = state.reached;
+        final int[] cameFrom = state.cameFrom;
+        final double[] costSoFar = state.costSoFar;
+        final PrimitiveFrontier frontier = state.frontier;
+
+        costSoFar[startIndex] = 0d;
+        frontier.push(startIndex, 0d);
+
+        //go!
+        while (!frontier.isEmpty()) {
+            final int current = frontier.poll();
+            //stop if we have arrived
+            if (current == endIndex)
+                break;
+
+            final SeaTile currentTile = map.getSeaTileByIndex(current);
+            final int last = neighborhood.end(current);
+            for (int position = neighborhood.start(current); position < last; position++) {
+                final int neighbor = neighborhood.neighborAt(position);
+
+                if (!water.get(neighbor) && neighbor != endIndex) //don't bother if it's land
+                    continue;
+
+                //check how much it would cost to move there
+                final double newCost = costSoFar[current] +
+                    distanceFunction.distance(currentTile, map.getSeaTileByIndex(neighbor), map);
+                if (reached[neighbor] != generation || newCost < costSoFar[neighbor]) {
+                    costSoFar[neighbor] = newCost;
+                    //same heuristic as the object based A*: straight line distance with cells of size 1
+                    final double priority = newCost + Math.sqrt(
+                        Math.pow(neighbor / height - endX, 2) + Math.pow(neighbor % height - endY, 2));
+                    frontier.push(neighbor, priority);
+                    cameFrom[neighbor] = current;
+                    reached[neighbor] = generation;
+                }
+            }
+        }
+
+        //if you haven't found the path, then return null
+        if (reached[endIndex] != generation) {
+            memory.putImpossiblePath(start, end);
+            return null;
+        }
+        //build the path
+        final LinkedList<SeaTile> path = new LinkedList<>();
+        int current = endIndex;
+        path.add(end);
+        while (current != startIndex) {
+            current = cameFrom[current];
+            path.add(map.getSeaTileByIndex(current));
+        }
+
+        // Since the path is from end to start, we use the opportunity to store a reversed version
+        memory.putPath(end, start, path);
+        // We then reverse it and store the version that goes from start to end
+        Collections.reverse(path);
+        memory.putPath(start, end, path);
+
+        return path;
+    }
+
+    /**
+     * all the arrays a single search needs, grown to the size of the map and reused by every search of a thread
+     */
+    private static class SearchState {
+
+        private int[] reached = new int[0];
+
+        private int[] cameFrom = new int[0];
+
+        private double[] costSoFar = new double[0];
+
+        private int generation = 0;
+
+        private final PrimitiveFrontier frontier = new PrimitiveFrontier();
+
+        private void prepare(int numberOfTiles) {
+            if (reached.length < numberOfTiles) {
+                reached = new int[numberOfTiles];
+                cameFrom = new int[numberOfTiles];
+                costSoFar = new double[numberOfTiles];
+                generation = 0;
+            }
+            generation++;
+            //on the (very) unlikely wrap around forget all stamps
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(reached, 0);
+                generation = 1;
+            }
+            frontier.clear();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography.pathfinding;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.vividsolutions.jts.geom.Envelope;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.NeighborhoodIndex;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.geography.ports.Port;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A path memory that knows in advance the shortest route between every port and every water tile. When the map
+ * starts it runs a Dijkstra search out of each port and keeps, for each port, the distance to each tile and the
+ * predecessor of each tile along the shortest route (as flat float/int arrays). Any route starting or ending in a port
+ * is then read off the predecessor field in O(path length); every other route is delegated to a normal path memory.
+ * <br>
+ * Routes are shortest routes (by the map's distance) but when there are ties they need not be the same route A* would
+ * have picked. <br>
+ * If a cache folder is given the atlas is written there as a binary file, named after a hash of the bathymetry, the
+ * land mask, the ports and the distance function, so that later runs on the same map memory-map the file instead of
+ * searching again. The file is written under a temporary name and then moved in place, so that a run reading the
+ * cache never sees a half written atlas.
+ */
+public class PortRouteAtlas implements PathMemory {
+
+    private static final int MAGIC = 0x504F5254; //"PORT"
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * magic, version, key (long), number of ports, number of tiles
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+    /**
+     * used for all the routes we don't know in advance
+     */
+    private final PathMemory delegate;
+
+    /**
+     * where to store/read the binary atlas; null means never touch the disk
+     */
+    private final Path cacheFolder;
+
+    /**
+     * the flat tile index of each port, in the order of the rows of the atlas
+     */
+    private int[] portTiles = new int[0];
+
+    /**
+     * row p holds the distance from port p to each tile (infinite if unreachable)
+     */
+    private FloatBuffer[] distances;
+
+    /**
+     * row p holds, for each tile, the previous tile on the shortest route from port p (-1 for the port itself and for
+     * unreachable tiles)
+     */
+    private IntBuffer[] predecessors;
+
+    private NauticalMap map;
+
+    public PortRouteAtlas(Path cacheFolder, PathMemory delegate) {
+        this.cacheFolder = cacheFolder;
+        this.delegate = delegate;
+    }
+
+    public PortRouteAtlas(Path cacheFolder) {
+        this(cacheFolder, new TableBasedPathMemory());
+    }
+
+    /**
+     * builds (or reads from the cache) the atlas for the ports currently on the map. Called by the map when it
+     * starts; until then all routes go to the delegate memory
+     * @param map the map, with its ports already added
+     */
+    public void build(NauticalMap map) {
+        Preconditions.checkArgument(this.map == null, "atlas already built");
+        final List<Port> ports = map.getPorts();
+        final int numberOfTiles = map.getWidth() * map.getHeight();
+        final int[] portTiles = new int[ports.size()];
+        for (int p = 0; p < portTiles.length; p++)
+            portTiles[p] = map.getTileIndex(ports.get(p).getLocation());
+
+        final long key = computeKey(map, portTiles);
+        final Path file = cacheFolder == null ? null :
+            cacheFolder.resolve("atlas_" + Long.toHexString(key) + ".bin");
+
+        distances = new FloatBuffer[portTiles.length];
+        predecessors = new IntBuffer[portTiles.length];
+        try {
+            if (file == null || !Files.exists(file) || !readFromFile(file, key, portTiles.length, numberOfTiles)) {
+                for (int p = 0; p < portTiles.length; p++) {
+                    final float[] distance = new float[numberOfTiles];
+                    final int[] predecessor = new int[numberOfTiles];
+                    dijkstra(map, portTiles[p], distance, predecessor);
+                    distances[p] = FloatBuffer.wrap(distance);
+                    predecessors[p] = IntBuffer.wrap(predecessor);
+                }
+                if (file != null)
+                    writeToFile(file, key, numberOfTiles);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read or write the port route atlas at " + file, e);
+        }
+        this.portTiles = portTiles;
+        this.map = map;
+    }
+
+    /**
+     * plain Dijkstra out of a single port over the water tiles of the map. Land tiles next to water get a distance
+     * and a predecessor too, but are never expanded
+     */
+    private static void dijkstra(NauticalMap map, int source, float[] distance, int[] predecessor) {
+        final BitSet water = map.getWaterMask();
+        final NeighborhoodIndex neighborhood = map.getNeighborhoodIndex(1, false);
+        final double[] cost = new double[distance.length];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+        final PrimitiveFrontier frontier = new PrimitiveFrontier();
+
+        cost[source] = 0;
+        frontier.push(source, 0);
+        while (!frontier.isEmpty()) {
+            final double priority = frontier.peekPriority();
+            final int current = frontier.poll();
+            if (priority > cost[current]) //stale entry, we found a better way already
+                continue;
+            //like A*, we can end a route on land (say, another port) but never go through it
+            if (current != source && !water.get(current))
+                continue;
+            final SeaTile currentTile = map.getSeaTileByIndex(current);
+            final int last = neighborhood.end(current);
+            for (int position = neighborhood.start(current); position < last; position++) {
+                final int neighbor = neighborhood.neighborAt(position);
+                final double newCost = cost[current] +
+                    map.getDistance().distance(currentTile, map.getSeaTileByIndex(neighbor), map);
+                if (newCost < cost[neighbor]) {
+                    cost[neighbor] = newCost;
+                    predecessor[neighbor] = current;
+                    frontier.push(neighbor, newCost);
+                }
+            }
+        }
+        for (int i = 0; i < cost.length; i++)
+            distance[i] = (float) cost[i];
+    }
+
+    /**
+     * hashes everything the atlas depends on: map size, bathymetry, which tiles can be crossed, where the ports are
+     * and the distance function
+     */
+    private static long computeKey(NauticalMap map, int[] portTiles) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(FORMAT_VERSION);
+        hasher.putInt(map.getWidth()).putInt(map.getHeight());
+        for (int i = 0; i < map.getWidth() * map.getHeight(); i++)
+            hasher.putDouble(map.getSeaTileByIndex(i).getAltitude());
+        //routes only go through water: the land mask, not the altitude, decides that
+        final BitSet water = map.getWaterMask();
+        hasher.putInt(water.length()).putBytes(water.toByteArray());
+        for (int portTile : portTiles)
+            hasher.putInt(portTile);
+        hasher.putUnencodedChars(map.getDistance().getClass().getName());
+        final Envelope mbr = map.getRasterBathymetry().getMBR();
+        hasher.putDouble(mbr.getMinX()).putDouble(mbr.getMaxX()).putDouble(mbr.getMinY()).putDouble(mbr.getMaxY());
+        //a couple of sample distances to catch differently parametrized distance functions
+        final SeaTile corner = map.getSeaTile(0, 0);
+        hasher.putDouble(map.distance(corner, map.getSeaTile(map.getWidth() - 1, map.getHeight() - 1)));
+        if (map.getWidth() > 1 && map.getHeight() > 1)
+            hasher.putDouble(map.distance(corner, map.getSeaTile(1, 1)));
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * writes the atlas next to where it should be and only then moves it in place
+     */
+    private void writeToFile(Path file, long key, int numberOfTiles) throws IOException {
+        Files.createDirectories(file.getParent());
+        final Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            writeAtlas(temporary, key, numberOfTiles);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writeAtlas(Path file, long key, int numberOfTiles) throws IOException {
+        final long size = HEADER_BYTES + (long) distances.length * numberOfTiles * 8;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(key);
+            buffer.putInt(distances.length).putInt(numberOfTiles);
+            for (int p = 0; p < distances.length; p++) {
+                buffer.asFloatBuffer().put(distances[p].duplicate());
+                buffer.position(buffer.position() + numberOfTiles * 4);
+                buffer.asIntBuffer().put(predecessors[p].duplicate());
+                buffer.position(buffer.position() + numberOfTiles * 4);
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * maps the file and points the atlas rows at it
+     * @return false if the file doesn't match what we expect (in which case we'll just recompute)
+     */
+    private boolean readFromFile(Path file, long key, int numberOfPorts, int numberOfTiles) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long expectedSize = HEADER_BYTES + (long) numberOfPorts * numberOfTiles * 8;
+            if (channel.size() != expectedSize)
+                return false;
+            //the mapping stays valid after the channel is closed
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, expectedSize);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getLong() != key ||
+                buffer.getInt() != numberOfPorts || buffer.getInt() != numberOfTiles)
+                return false;
+            for (int p = 0; p < numberOfPorts; p++) {
+                distances[p] = slice(buffer, numberOfTiles).asFloatBuffer();
+                predecessors[p] = slice(buffer, numberOfTiles).asIntBuffer();
+            }
+            return true;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int numberOfTiles) {
+        final ByteBuffer slice = buffer.slice();
+        slice.limit(numberOfTiles * 4);
+        buffer.position(buffer.position() + numberOfTiles * 4);
+        return slice;
+    }
+
+    private int rowOf(SeaTile tile) {
+        if (map == null || !tile.isPortHere())
+            return -1;
+        final int index = map.getTileIndex(tile);
+        for (int p = 0; p < portTiles.length; p++)
+            if (portTiles[p] == index)
+                return p;
+        return -1;
+    }
+
+    /**
+     * distance along the shortest route between a port and a tile
+     * @param portTile the tile where the port is
+     * @param tile any tile
+     * @return the distance or NaN if the atlas doesn't know about this port; infinity if the tile can't be reached
+     */
+    public double getDistanceFromPort(SeaTile portTile, SeaTile tile) {
+        final int row = rowOf(portTile);
+        if (row < 0)
+            return Double.NaN;
+        return distances[row].get(map.getTileIndex(tile));
+    }
+
+    /**
+     * Gets a path from memory, reading it off the atlas if either end is a port.
+     *
+     * @param start The SeaTile at which the path should start
+     * @param end   The SeaTile at which the path should end
+     * @return the path, an empty Optional if we know there isn't one, null if we know nothing
+     */
+    @Override @SuppressWarnings("OptionalAssignedToNull")
+    public Optional<ImmutableList<SeaTile>> getPath(SeaTile start, SeaTile end) {
+        if (start != end) {
+            int row = rowOf(start);
+            if (row >= 0)
+                return walk(row, end, true);
+            row = rowOf(end);
+            if (row >= 0)
+                return walk(row, start, false);
+        }
+        return delegate.getPath(start, end);
+    }
+
+    /**
+     * follows the predecessors from the tile back to the port
+     * @param fromPort true if the route should go from the port to the tile, false for the opposite direction
+     */
+    private Optional<ImmutableList<SeaTile>> walk(int row, SeaTile tile, boolean fromPort) {
+        final IntBuffer predecessor = predecessors[row];
+        int current = map.getTileIndex(tile);
+        if (predecessor.get(current) < 0)
+            return Optional.empty();
+        final LinkedList<SeaTile> path = new LinkedList<>();
+        while (current >= 0) {
+            if (fromPort)
+                path.addFirst(map.getSeaTileByIndex(current));
+            else
+                path.addLast(map.getSeaTileByIndex(current));
+            current = predecessor.get(current);
+        }
+        return Optional.of(ImmutableList.copyOf(path));
+    }
+
+    @Override public void putPath(SeaTile start, SeaTile end, ImmutableList<SeaTile> path) {
+        delegate.putPath(start, end, path);
+    }
+
+    @Override public void putImpossiblePath(SeaTile start, SeaTile end) {
+        delegate.putImpossiblePath(start, end);
+    }
+
+    public boolean isBuilt() {
+        return map != null;
+    }
+}
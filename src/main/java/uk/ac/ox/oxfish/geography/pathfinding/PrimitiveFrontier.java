@@ -0,0 +1,95 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A min-priority queue of tile indices backed by two parallel primitive arrays. Elements are never decreased in
+ * place: like the object pathfinders we just push a tile again when we find a cheaper way to it.<br>
+ * Sifting up and down is done exactly like java.util.PriorityQueue does it so that ties pop in the same order.
+ */
+final class PrimitiveFrontier {
+
+    private int[] tiles = new int[64];
+
+    private double[] priorities = new double[64];
+
+    private int size = 0;
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void push(int tile, double priority) {
+        if (size == tiles.length) {
+            tiles = Arrays.copyOf(tiles, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+        }
+        int k = size++;
+        while (k > 0) {
+            final int parent = (k - 1) >>> 1;
+            if (Double.compare(priority, priorities[parent]) >= 0)
+                break;
+            tiles[k] = tiles[parent];
+            priorities[k] = priorities[parent];
+            k = parent;
+        }
+        tiles[k] = tile;
+        priorities[k] = priority;
+    }
+
+    /**
+     * the priority of the head of the queue (call before polling it)
+     */
+    double peekPriority() {
+        return priorities[0];
+    }
+
+    int poll() {
+        final int result = tiles[0];
+        final int n = --size;
+        if (n > 0) {
+            final int tile = tiles[n];
+            final double priority = priorities[n];
+            int k = 0;
+            final int half = n >>> 1;
+            while (k < half) {
+                int child = (k << 1) + 1;
+                final int right = child + 1;
+                if (right < n && Double.compare(priorities[child], priorities[right]) > 0)
+                    child = right;
+                if (Double.compare(priority, priorities[child]) <= 0)
+                    break;
+                tiles[k] = tiles[child];
+                priorities[k] = priorities[child];
+                k = child;
+            }
+            tiles[k] = tile;
+            priorities[k] = priority;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.geography.sampling;
+
+import com.esotericsoftware.minlog.Log;
+import com.google.common.base.Preconditions;
+import com.vividsolutions.jts.geom.Envelope;
+import sim.field.geo.GeomGridField;
+import sim.field.grid.ObjectGrid2D;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A gridded input (bathymetry, biomass and so on) stored in a compact binary file rather than as a csv of points.
+ * The file starts with a header (the MBR, the size of a cell, the grid dimensions and the name of each layer) followed
+ * by one float per cell for each layer, cell x,y being the (x * height + y)-th float of its layer. Cells with no data
+ * are NaN. <br>
+ * Reading maps the file in memory, so there is nothing to parse: each layer is a view over the file. <br>
+ * Files are produced once from the csv inputs with {@link #convert(Path, boolean, int, double, String, Path)} (or
+ * {@link #main(String[])} from the command line).
+ */
+public class BinaryGrid {
+
+    /**
+     * extension of binary grid files
+     */
+    public static final String EXTENSION = "grid";
+
+    /**
+     * first bytes of every grid file
+     */
+    private static final byte[] MAGIC = "POSEIDON-GRID".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 1;
+
+    /**
+     * how many floats at a time go to disk when writing
+     */
+    private static final int WRITE_BUFFER_FLOATS = 1 << 14;
+
+    private final Envelope mbr;
+
+    private final int width;
+
+    private final int height;
+
+    private final List<String> layerNames;
+
+    private final FloatBuffer[] layers;
+
+    private BinaryGrid(Envelope mbr, int width, int height, List<String> layerNames, FloatBuffer[] layers) {
+        this.mbr = mbr;
+        this.width = width;
+        this.height = height;
+        this.layerNames = Collections.unmodifiableList(layerNames);
+        this.layers = layers;
+    }
+
+    /**
+     * writes the layers to file
+     * @param file where to write; overwritten if it exists
+     * @param mbr the envelope of the grid
+     * @param width grid width in cells
+     * @param height grid height in cells
+     * @param layers name to values (cell x,y at x * height + y), all width * height long
+     */
+    public static void write(
+            Path file, Envelope mbr, int width, int height, LinkedHashMap<String, float[]> layers) throws IOException {
+        Preconditions.checkArgument(width > 0 && height > 0, "empty grid");
+        Preconditions.checkArgument(!layers.isEmpty(), "no layers to write");
+
+        List<byte[]> names = new ArrayList<>(layers.size());
+        int headerSize = MAGIC.length + Integer.BYTES + 6 * Double.BYTES + 3 * Integer.BYTES;
+        for (Map.Entry<String, float[]> layer : layers.entrySet()) {
+            Preconditions.checkArgument(layer.getValue().length == width * height,
+                                        "layer " + layer.getKey() + " has the wrong number of cells");
+            byte[] name = layer.getKey().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            headerSize += Integer.BYTES + name.length;
+        }
+        //floats start aligned
+        headerSize += (Float.BYTES - headerSize % Float.BYTES) % Float.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.put(MAGIC).putInt(VERSION);
+        header.putDouble(mbr.getMinX()).putDouble(mbr.getMaxX()).putDouble(mbr.getMinY()).putDouble(mbr.getMaxY());
+        header.putDouble(mbr.getWidth() / width).putDouble(mbr.getHeight() / height);
+        header.putInt(width).putInt(height).putInt(layers.size());
+        for (byte[] name : names)
+            header.putInt(name.length).put(name);
+        header.position(0);
+
+        //written next to the destination and moved in place once complete, so no reader ever maps half a grid
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, header);
+                //one layer at a time, through a small buffer
+                ByteBuffer chunk = ByteBuffer.allocate(WRITE_BUFFER_FLOATS * Float.BYTES);
+                FloatBuffer floats = chunk.asFloatBuffer();
+                for (float[] values : layers.values())
+                    for (int start = 0; start < values.length; start += WRITE_BUFFER_FLOATS) {
+                        int length = Math.min(WRITE_BUFFER_FLOATS, values.length - start);
+                        floats.clear();
+                        floats.put(values, start, length);
+                        chunk.clear().limit(length * Float.BYTES);
+                        writeFully(channel, chunk);
+                    }
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * maps a grid file in memory
+     * @param file a file written by {@link #write(Path, Envelope, int, int, LinkedHashMap)}
+     * @return the grid, whose layers read straight from the file
+     */
+    public static BinaryGrid read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Preconditions.checkArgument(channel.size() <= Integer.MAX_VALUE, "grid too large to map in memory");
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            byte[] magic = new byte[MAGIC.length];
+            Preconditions.checkArgument(buffer.remaining() >= MAGIC.length + Integer.BYTES,
+                                        file + " is not a binary grid");
+            buffer.get(magic);
+            Preconditions.checkArgument(Arrays.equals(magic, MAGIC), file + " is not a binary grid");
+            int version = buffer.getInt();
+            Preconditions.checkArgument(version == VERSION, "unknown grid version " + version);
+
+            Envelope mbr = new Envelope(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                                        buffer.getDouble());
+            //cell size is implied by the mbr and the dimensions; it's in the header for other readers
+            buffer.getDouble();
+            buffer.getDouble();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int numberOfLayers = buffer.getInt();
+            List<String> names = new ArrayList<>(numberOfLayers);
+            for (int i = 0; i < numberOfLayers; i++) {
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                names.add(new String(name, StandardCharsets.UTF_8));
+            }
+            buffer.position(buffer.position() + (Float.BYTES - buffer.position() % Float.BYTES) % Float.BYTES);
+
+            int cells = width * height;
+            Preconditions.checkArgument(buffer.remaining() == numberOfLayers * cells * Float.BYTES,
+                                        file + " is truncated");
+            FloatBuffer values = buffer.asFloatBuffer();
+            FloatBuffer[] layers = new FloatBuffer[numberOfLayers];
+            for (int i = 0; i < numberOfLayers; i++) {
+                values.limit((i + 1) * cells).position(i * cells);
+                layers[i] = values.slice();
+            }
+            return new BinaryGrid(mbr, width, height, names, layers);
+        }
+    }
+
+    /**
+     * bins a csv of points ("easting,northing,observation") into a grid and writes it as a one-layer grid file. The grid
+     * is the same one {@link uk.ac.ox.oxfish.geography.mapmakers.FromFileMapInitializer} builds from the same csv:
+     * the MBR of the points plus padding, with as many rows as keep the cells square-ish. Each cell holds the average
+     * of the observations falling in it (ignoring anything at or below -9999), NaN if there are none.
+     *
+     * @param csvFile the points
+     * @param header true if the csv's first line is a header
+     * @param gridWidthInCells how many columns the grid has
+     * @param paddingInDegrees how much to grow the MBR of the points on each side
+     * @param layerName name of the layer
+     * @param output where to write the grid
+     */
+    public static void convert(
+            Path csvFile, boolean header, int gridWidthInCells, double paddingInDegrees, String layerName,
+            Path output) throws IOException {
+        GeographicalSample sample = GeographicalSample.read(csvFile, header);
+        Envelope mbr = new Envelope(
+                sample.getMinFirstCoordinate() - paddingInDegrees,
+                sample.getMaxFirstCoordinate() + paddingInDegrees,
+                sample.getMinSecondCoordinate() - paddingInDegrees,
+                sample.getMaxSecondCoordinate() + paddingInDegrees);
+        int gridHeightInCells = (int) Math.round(gridWidthInCells * mbr.getHeight() / mbr.getWidth());
+
+        GeomGridField geomGrid = new GeomGridField(new ObjectGrid2D(gridWidthInCells, gridHeightInCells));
+        geomGrid.setMBR(mbr);
+        double[] averages = SampledMap.fileToAverageGrid(geomGrid, sample, gridWidthInCells, gridHeightInCells);
+        float[] values = new float[averages.length];
+        for (int i = 0; i < averages.length; i++)
+            values[i] = (float) averages[i];
+
+        LinkedHashMap<String, float[]> layers = new LinkedHashMap<>();
+        layers.put(layerName, values);
+        write(output, mbr, gridWidthInCells, gridHeightInCells, layers);
+        Log.info("Converted " + csvFile + " into a " + gridWidthInCells + "x" + gridHeightInCells + " grid at " +
+                         output);
+    }
+
+    /**
+     * converts a csv into a grid file:
+     * {@code BinaryGrid <csv> <output> <gridWidthInCells> [paddingInDegrees] [header] [layerName]}
+     */
+    public static void main(String[] args) throws IOException {
+        Preconditions.checkArgument(args.length >= 3,
+                                    "usage: BinaryGrid <csv> <output> <gridWidthInCells> [paddingInDegrees] " +
+                                            "[header] [layerName]");
+        convert(Paths.get(args[0]),
+                args.length < 5 || Boolean.parseBoolean(args[4]),
+                Integer.parseInt(args[2]),
+                args.length < 4 ? 0 : Double.parseDouble(args[3]),
+                args.length < 6 ? "values" : args[5],
+                Paths.get(args[1]));
+    }
+
+    /**
+     * the value of the given layer in cell x,y (NaN if there was no data there)
+     */
+    public float get(int layer, int x, int y) {
+        return layers[layer].get(x * height + y);
+    }
+
+    /**
+     * a read-only view of the layer (cell x,y at x * height + y)
+     */
+    public FloatBuffer getLayer(int layer) {
+        return layers[layer].asReadOnlyBuffer();
+    }
+
+    /**
+     * a read-only view of the layer with this name
+     */
+    public FloatBuffer getLayer(String name) {
+        int layer = layerNames.indexOf(name);
+        Preconditions.checkArgument(layer >= 0, "no layer called " + name);
+        return getLayer(layer);
+    }
+
+    /**
+     * easting (or longitude) of the center of column x
+     */
+    public double getCellCenterX(int x) {
+        return mbr.getMinX() + (x + .5) * mbr.getWidth() / width;
+    }
+
+    /**
+     * northing (or latitude) of the center of row y; rows go from north to south as in MASON geo-grids
+     */
+    public double getCellCenterY(int y) {
+        return mbr.getMaxY() - (y + .5) * mbr.getHeight() / height;
+    }
+
+    /**
+     * Getter for property 'mbr'.
+     *
+     * @return Value for property 'mbr'.
+     */
+    public Envelope getMbr() {
+        return new Envelope(mbr);
+    }
+
+    /**
+     * Getter for property 'width'.
+     *
+     * @return Value for property 'width'.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter for property 'height'.
+     *
+     * @return Value for property 'height'.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter for property 'layerNames'.
+     *
+     * @return Value for property 'layerNames'.
+     */
+    public List<String> getLayerNames() {
+        return layerNames;
+    }
+}
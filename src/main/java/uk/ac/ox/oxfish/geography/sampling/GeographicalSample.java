@@ -21,24 +21,32 @@
 package uk.ac.ox.oxfish.geography.sampling;
 
 import com.google.common.base.Preconditions;
+import com.google.common.primitives.Doubles;
+import uk.ac.ox.oxfish.utility.InputFileCache;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
- * Just a data frame holding a bunch of coordinates and an observation
+ * Just a data frame holding a bunch of coordinates and an observation (columns are kept as primitive arrays;
+ * the list getters return copies)
  * Created by carrknight on 2/25/16.
  */
 public class GeographicalSample {
 
-    private final LinkedList<Double> secondCoordinate = new LinkedList<>();
+    private final double[] secondCoordinate;
 
-    private final LinkedList<Double> firstCoordinate = new LinkedList<>();
+    private final double[] firstCoordinate;
 
-    private final LinkedList<Double> observations = new LinkedList<>();
+    private final double[] observations;
 
     private  double minSecondCoordinate = Double.NaN;
 
@@ -60,21 +68,46 @@ public class GeographicalSample {
     public GeographicalSample(Path csvFileToParse,
                               boolean csvFileHasHeading) throws IOException {
 
-        List<String> lines = Files.readAllLines(csvFileToParse);
+        this(Files.readAllLines(csvFileToParse), csvFileHasHeading);
 
-        if(csvFileHasHeading)
-            lines.remove(0);
+    }
 
-        for(String line : lines)
+    /**
+     * reads a csv file the same way the constructor does, but the same file (same content) is only parsed once per
+     * JVM: the sample returned is shared by everybody asking for that file and must not be modified
+     * @param csvFileToParse csvFile to Parse
+     * @param csvFileHasHeading if we need to ignore the first line
+     * @throws IOException didn't find the file
+     */
+    public static GeographicalSample read(Path csvFileToParse, boolean csvFileHasHeading) throws IOException {
+        return InputFileCache.get(
+                csvFileToParse, "geographical sample, heading: " + csvFileHasHeading,
+                content -> new GeographicalSample(
+                        new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content),
+                                                                 StandardCharsets.UTF_8)).
+                                lines().collect(Collectors.toList()),
+                        csvFileHasHeading));
+    }
+
+    private GeographicalSample(List<String> lines, boolean csvFileHasHeading) {
+
+        List<String> rows = csvFileHasHeading ? lines.subList(1, lines.size()) : lines;
+        numberOfObservations = rows.size();
+        firstCoordinate = new double[numberOfObservations];
+        secondCoordinate = new double[numberOfObservations];
+        observations = new double[numberOfObservations];
+        int i = 0;
+        for(String line : rows)
         {
             //split and record
             String[] newLine = line.split(",");
             assert  newLine.length == 3;
             double easting = Double.parseDouble(newLine[0]);
-            firstCoordinate.add(easting);
+            firstCoordinate[i] = easting;
             double northing = Double.parseDouble(newLine[1]);
-            secondCoordinate.add(northing);
-            observations.add(Double.parseDouble(newLine[2]));
+            secondCoordinate[i] = northing;
+            observations[i] = Double.parseDouble(newLine[2]);
+            i++;
 
 
             //if it's a min or a max, remember it
@@ -88,9 +121,7 @@ public class GeographicalSample {
                 maxSecondCoordinate = northing;
         }
 
-        numberOfObservations = firstCoordinate.size();
-        Preconditions.checkState(secondCoordinate.size()==numberOfObservations);;
-        Preconditions.checkState(observations.size()==numberOfObservations);
+        Preconditions.checkState(i==numberOfObservations);
 
     }
 
@@ -98,28 +129,49 @@ public class GeographicalSample {
     /**
      * Getter for property 'secondCoordinate'.
      *
-     * @return Value for property 'secondCoordinate'.
+     * @return a new list with the values of property 'secondCoordinate'.
      */
     public LinkedList<Double> getSecondCoordinate() {
-        return secondCoordinate;
+        return new LinkedList<>(Doubles.asList(secondCoordinate));
+    }
+
+    /**
+     * the value of property 'secondCoordinate' for the i-th observation
+     */
+    public double getSecondCoordinate(int i) {
+        return secondCoordinate[i];
     }
 
     /**
      * Getter for property 'firstCoordinate'.
      *
-     * @return Value for property 'firstCoordinate'.
+     * @return a new list with the values of property 'firstCoordinate'.
      */
     public LinkedList<Double> getFirstCoordinate() {
-        return firstCoordinate;
+        return new LinkedList<>(Doubles.asList(firstCoordinate));
+    }
+
+    /**
+     * the value of property 'firstCoordinate' for the i-th observation
+     */
+    public double getFirstCoordinate(int i) {
+        return firstCoordinate[i];
     }
 
     /**
      * Getter for property 'observations'.
      *
-     * @return Value for property 'observations'.
+     * @return a new list with the values of property 'observations'.
      */
     public LinkedList<Double> getObservations() {
-        return observations;
+        return new LinkedList<>(Doubles.asList(observations));
+    }
+
+    /**
+     * the i-th observation
+     */
+    public double getObservation(int i) {
+        return observations[i];
     }
 
     /**
@@ -82,7 +82,7 @@ public class SampledMap implements Serializable
         //read the first biological file
         Iterator<Map.Entry<String, Path>> biologyIterator = biologyFiles.entrySet().iterator();
         Map.Entry<String, Path> firstBiology = biologyIterator.next();
-        GeographicalSample biologySample = new GeographicalSample(firstBiology.getValue(), true);
+        GeographicalSample biologySample = GeographicalSample.read(firstBiology.getValue(), true);
         mbr = new Envelope(biologySample.getMinFirstCoordinate(), biologySample.getMaxFirstCoordinate(),
                            biologySample.getMinSecondCoordinate(), biologySample.getMaxSecondCoordinate());
         System.out.println("Map Info\nEastings from" + biologySample.getMinFirstCoordinate() + " to " + biologySample.getMaxFirstCoordinate());
@@ -102,7 +102,7 @@ public class SampledMap implements Serializable
         biologyGrids.put(firstBiology.getKey(), backingBioTable);
         //read the altitude
         //read raster bathymetry
-        GeographicalSample altitudeSample = new GeographicalSample(bathymetryFile,false);
+        GeographicalSample altitudeSample = GeographicalSample.read(bathymetryFile,false);
         altitudeGrid = fileToGrid( bioGrid, altitudeSample, getGridWith(),
                                   getGridHeight());
 
@@ -112,7 +112,7 @@ public class SampledMap implements Serializable
         {
             Map.Entry<String, Path> biologyFile = biologyIterator.next();
             backingBioTable = fileToGrid(bioGrid,
-                                         new GeographicalSample(biologyFile.getValue(), true), getGridWith(),
+                                         GeographicalSample.read(biologyFile.getValue(), true), getGridWith(),
                                          getGridHeight());
             biologyGrids.put(biologyFile.getKey(),backingBioTable);
 
@@ -140,23 +140,57 @@ public class SampledMap implements Serializable
         for(int x = 0; x< gridWith; x++)
             for(int y = 0; y< gridHeight; y++)
                 backingGrid.put(x,y,new LinkedList<Double>());
-        Iterator<Double> eastings = preformattedCSV.getFirstCoordinate().iterator();
-        Iterator<Double> northings = preformattedCSV.getSecondCoordinate().iterator();
-        Iterator<Double> observations = preformattedCSV.getObservations().iterator();
-        for(int i=0; i<preformattedCSV.getObservations().size(); i++)
+        for(int i=0; i<preformattedCSV.getNumberOfObservations(); i++)
         {
-            int x = coordinateSpace.toXCoord(eastings.next());
-            int y = coordinateSpace.toYCoord(northings.next());
-            double obs = observations.next();
+            int x = coordinateSpace.toXCoord(preformattedCSV.getFirstCoordinate(i));
+            int y = coordinateSpace.toYCoord(preformattedCSV.getSecondCoordinate(i));
+            double obs = preformattedCSV.getObservation(i);
             //the very edge might get cut
             if(x>=0 && x < gridWith && y >=0 && y < gridHeight)
-                ((List) backingGrid.get(x,y)).add(obs);
+                backingGrid.get(x,y).add(obs);
             if(i % 10000 == 0 && Log.TRACE)
                 Log.trace("Transformed " +i + "  sampled lines into a grid" );
         }
         return backingGrid;
     }
 
+    /**
+     * Like {@link #fileToGrid(GeomGridField, GeographicalSample, int, int)} but rather than keeping every observation
+     * it only keeps their average, in an array indexed x * gridHeight + y. Observations at or below -9999 are treated
+     * as missing; cells with no observations are NaN
+     * @param coordinateSpace a geo-spatial grid that can be used to transform data coordinates into grid coordinates
+     * @param preformattedCSV the data from CSV preformatted
+     * @param gridWith
+     * @param gridHeight
+     * @return the average observation in each cell
+     */
+    public static double[] fileToAverageGrid(
+            GeomGridField coordinateSpace,
+            GeographicalSample preformattedCSV,
+            final int gridWith,
+            final int gridHeight) {
+
+        //one running sum and count per cell, no object per cell
+        double[] sums = new double[gridWith * gridHeight];
+        int[] counts = new int[gridWith * gridHeight];
+        for(int i=0; i<preformattedCSV.getNumberOfObservations(); i++)
+        {
+            int x = coordinateSpace.toXCoord(preformattedCSV.getFirstCoordinate(i));
+            int y = coordinateSpace.toYCoord(preformattedCSV.getSecondCoordinate(i));
+            double obs = preformattedCSV.getObservation(i);
+            //the very edge might get cut
+            if(x>=0 && x < gridWith && y >=0 && y < gridHeight && obs > -9999) {
+                int cell = x * gridHeight + y;
+                sums[cell] += obs;
+                counts[cell]++;
+            }
+        }
+        double[] averages = new double[sums.length];
+        for(int cell = 0; cell < sums.length; cell++)
+            averages[cell] = counts[cell] == 0 ? Double.NaN : sums[cell] / counts[cell];
+        return averages;
+    }
+
     public LinkedHashMap<String,Table<Integer,Integer,LinkedList<Double>>> getBiologyGrids() {
         return biologyGrids;
     }
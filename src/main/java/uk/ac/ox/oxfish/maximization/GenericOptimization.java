@@ -20,6 +20,7 @@
 
 package uk.ac.ox.oxfish.maximization;
 
+import com.google.common.hash.Hashing;
 import eva2.problems.simple.SimpleProblemDouble;
 import uk.ac.ox.oxfish.biology.complicated.factory.HockeyStickRecruitmentFactory;
 import uk.ac.ox.oxfish.biology.complicated.factory.RecruitmentBySpawningJackKnifeMaturity;
@@ -32,11 +33,16 @@ import uk.ac.ox.oxfish.model.scenario.FlexibleScenario;
 import uk.ac.ox.oxfish.model.scenario.Scenario;
 import uk.ac.ox.oxfish.utility.parameters.FixedDoubleParameter;
 import uk.ac.ox.oxfish.utility.yaml.FishYAML;
+import uk.ac.ox.oxfish.utility.yaml.ScenarioTemplate;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class GenericOptimization extends SimpleProblemDouble implements Serializable {
 
@@ -271,10 +277,38 @@ public class GenericOptimization extends SimpleProblemDouble implements Serializ
         return sum;
     }
 
+    /**
+     * how many replicates of a candidate can run at the same time; 1 runs everything in the calling thread
+     */
+    private int parallelThreads = 1;
+
+    /**
+     * when true run i of each candidate is seeded with seed + i, so that the same candidate always gives the same
+     * error; when false seeds come from the clock (and nothing is cached)
+     */
+    private boolean fixedSeeds = false;
+
+    private long seed = 0;
+
+    /**
+     * file where the error of every (candidate, seed) run is appended and read back by later sessions so that those
+     * runs are not repeated; empty means no cache. Only used with fixed seeds. Results are keyed by a hash of the
+     * setup too (scenario, parameters, targets, years and runs) so a cache file reused after any of those changed
+     * doesn't serve stale errors
+     */
+    private String resultCacheFile = "";
+
+    /**
+     * "configuration,seed,candidate" ---> error; loaded from the cache file
+     */
+    private transient Map<String, Double> resultCache;
+
     /**
      * Evaluate a double vector representing a possible problem solution as
      * part of an individual in the EvA framework. This makes up the
-     * target function to be evaluated.
+     * target function to be evaluated. <br>
+     * Replicates run concurrently (as many at a time as there are {@link #parallelThreads}) and their errors are
+     * summed in replicate order, so the result doesn't depend on the number of threads
      *
      * @param x a double vector to be evaluated
      * @return the fitness vector assigned to x as to the target function
@@ -282,44 +316,98 @@ public class GenericOptimization extends SimpleProblemDouble implements Serializ
     @Override
     public double[] evaluate(double[] x) {
 
+        final int threads = Math.min(parallelThreads, runsPerSetting);
+        final ExecutorService executor = threads <= 1 ? null : Executors.newFixedThreadPool(threads);
         try {
-            double error = 0;
-
+            final long baseSeed = fixedSeeds ? seed : System.currentTimeMillis();
+            final String configuration = fixedSeeds ? configurationHash() : "";
+            final List<Future<Double>> replicates = new ArrayList<>(runsPerSetting);
             for (int i = 0; i < runsPerSetting; i++) {
-                //read in and modify parameters
-                Scenario scenario = buildScenario(x);
-
-                //run the model
-                FishState model = new FishState(System.currentTimeMillis());
-                model.setScenario(scenario);
-                model.start();
-                System.out.println("starting run");
-                while (model.getYear() < simulatedYears) {
-                    model.schedule.step(model);
-                }
-                model.schedule.step(model);
-
-                //collect error
-                for (DataTarget target : targets) {
-                    error+=target.computeError(model);
-                }
-
+                final long runSeed = baseSeed + i;
+                final Callable<Double> run = () -> runOnce(x, runSeed, configuration);
+                if (executor == null) {
+                    FutureTask<Double> task = new FutureTask<>(run);
+                    task.run();
+                    replicates.add(task);
+                } else
+                    replicates.add(executor.submit(run));
             }
 
+            double error = 0;
+            for (Future<Double> replicate : replicates)
+                error += replicate.get();
+
             double finalError = error / (double) runsPerSetting;
-            if(maximization)
+            if (maximization)
                 finalError = finalError * (-1);
             System.out.println(Arrays.toString(x) + " ---> " + finalError);
             return new double[]{finalError};
 
-        }catch (Exception e) {
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
         }
     }
 
-    public Scenario buildScenario(double[] x) throws FileNotFoundException {
+    /**
+     * runs the model once (or reads its result from the cache)
+     * @return the summed error of all targets
+     */
+    private double runOnce(double[] x, long runSeed, String configuration) throws IOException {
+
+        final String key = configuration + "," + runSeed + "," + toCsv(x);
+        if (fixedSeeds) {
+            Double cached = getResultCache().get(key);
+            if (cached != null)
+                return cached;
+        }
+
+        //read in and modify parameters
+        Scenario scenario = buildScenario(x);
+
+        //run the model
+        FishState model = new FishState(runSeed);
+        model.setScenario(scenario);
+        model.start();
+        System.out.println("starting run");
+        while (model.getYear() < simulatedYears) {
+            model.schedule.step(model);
+        }
+        model.schedule.step(model);
+
+        //collect error
+        double error = 0;
+        for (DataTarget target : targets) {
+            error += target.computeError(model);
+        }
+
+        if (fixedSeeds)
+            cacheResult(key, error);
+        return error;
+    }
+
+    /**
+     * hash of everything a run's error depends on besides the seed and the candidate: the scenario file content,
+     * the parameter and target definitions, the years simulated and the runs per setting
+     */
+    private String configurationHash() throws IOException {
         FishYAML yaml = new FishYAML();
-        Scenario scenario = yaml.loadAs(new FileReader(Paths.get(scenarioFile).toFile()),Scenario.class);
+        return Hashing.murmur3_128().newHasher().
+                putBytes(Files.readAllBytes(Paths.get(scenarioFile))).
+                putString(yaml.dump(parameters), StandardCharsets.UTF_8).
+                putString(yaml.dump(targets), StandardCharsets.UTF_8).
+                putInt(simulatedYears).
+                putInt(runsPerSetting).
+                hash().toString();
+    }
+
+    public Scenario buildScenario(double[] x) throws IOException {
+        //the file is parsed once and then copied for every run
+        Scenario scenario = ScenarioTemplate.of(Paths.get(scenarioFile)).newScenario();
         int parameter=0;
        for (OptimizationParameter optimizationParameter : parameters)
         {
@@ -332,6 +420,38 @@ public class GenericOptimization extends SimpleProblemDouble implements Serializ
         return scenario;
     }
 
+    private synchronized Map<String, Double> getResultCache() throws IOException {
+        if (resultCache == null) {
+            resultCache = new HashMap<>();
+            if (!resultCacheFile.trim().isEmpty() && Files.exists(Paths.get(resultCacheFile)))
+                for (String line : Files.readAllLines(Paths.get(resultCacheFile))) {
+                    int lastComma = line.lastIndexOf(',');
+                    if (lastComma > 0)
+                        resultCache.put(line.substring(0, lastComma),
+                                        Double.parseDouble(line.substring(lastComma + 1)));
+                }
+        }
+        return resultCache;
+    }
+
+    private synchronized void cacheResult(String key, double error) throws IOException {
+        getResultCache().put(key, error);
+        if (!resultCacheFile.trim().isEmpty())
+            Files.write(Paths.get(resultCacheFile),
+                        Collections.singletonList(key + "," + error),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String toCsv(double[] x) {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < x.length; i++) {
+            if (i > 0)
+                csv.append(",");
+            csv.append(x[i]);
+        }
+        return csv.toString();
+    }
+
 
 
 
@@ -463,4 +583,77 @@ public class GenericOptimization extends SimpleProblemDouble implements Serializ
     public void setMaximization(boolean maximization) {
         this.maximization = maximization;
     }
+
+    /**
+     * Getter for property 'parallelThreads'.
+     *
+     * @return Value for property 'parallelThreads'.
+     */
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    /**
+     * Setter for property 'parallelThreads'.
+     *
+     * @param parallelThreads Value to set for property 'parallelThreads'.
+     */
+    public void setParallelThreads(int parallelThreads) {
+        this.parallelThreads = parallelThreads;
+    }
+
+    /**
+     * Getter for property 'fixedSeeds'.
+     *
+     * @return Value for property 'fixedSeeds'.
+     */
+    public boolean isFixedSeeds() {
+        return fixedSeeds;
+    }
+
+    /**
+     * Setter for property 'fixedSeeds'.
+     *
+     * @param fixedSeeds Value to set for property 'fixedSeeds'.
+     */
+    public void setFixedSeeds(boolean fixedSeeds) {
+        this.fixedSeeds = fixedSeeds;
+    }
+
+    /**
+     * Getter for property 'seed'.
+     *
+     * @return Value for property 'seed'.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Setter for property 'seed'.
+     *
+     * @param seed Value to set for property 'seed'.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Getter for property 'resultCacheFile'.
+     *
+     * @return Value for property 'resultCacheFile'.
+     */
+    public String getResultCacheFile() {
+        return resultCacheFile;
+    }
+
+    /**
+     * Setter for property 'resultCacheFile'.
+     *
+     * @param resultCacheFile Value to set for property 'resultCacheFile'.
+     */
+    public synchronized void setResultCacheFile(String resultCacheFile) {
+        this.resultCacheFile = resultCacheFile;
+        this.resultCache = null;
+    }
 }
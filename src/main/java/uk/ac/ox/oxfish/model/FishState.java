@@ -38,6 +38,7 @@ import com.google.common.primitives.Doubles;
 import ec.util.MersenneTwisterFast;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import org.jetbrains.annotations.Nullable;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
@@ -74,6 +75,7 @@ import uk.ac.ox.oxfish.model.scenario.ScenarioEssentials;
 import uk.ac.ox.oxfish.model.scenario.ScenarioPopulation;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 import uk.ac.ox.oxfish.utility.Pair;
+import uk.ac.ox.oxfish.utility.SimulationProfiler;
 
 /**
  *
@@ -175,6 +177,12 @@ public class FishState  extends SimState{
 
     private HashMap<StepOrder,AggregateSteppable> aggregateDailySteppables = new HashMap<>();
 
+    /**
+     * when not null, everything the model schedules goes here rather than in the MASON schedule heap
+     */
+    @Nullable
+    private TimeWheelScheduler timeWheel = null;
+
     public int getStepsPerDay() {
         return stepsPerDay;
     }
@@ -239,10 +247,14 @@ public class FishState  extends SimState{
         dailyCounter.start(this);
 
         //schedule aggregate steppables
-        for(Map.Entry<StepOrder,AggregateSteppable> steppable :aggregateYearlySteppables.entrySet()  )
-            schedule.scheduleRepeating(steppable.getValue(),steppable.getKey().ordinal(), stepsPerDay*365);
-        for(Map.Entry<StepOrder,AggregateSteppable> steppable :aggregateDailySteppables.entrySet()  )
-            schedule.scheduleRepeating(steppable.getValue(),steppable.getKey().ordinal(), stepsPerDay);
+        if(timeWheel != null)
+            timeWheel.start(this);
+        else {
+            for (Map.Entry<StepOrder, AggregateSteppable> steppable : aggregateYearlySteppables.entrySet())
+                schedule.scheduleRepeating(steppable.getValue(), steppable.getKey().ordinal(), stepsPerDay * 365);
+            for (Map.Entry<StepOrder, AggregateSteppable> steppable : aggregateDailySteppables.entrySet())
+                schedule.scheduleRepeating(steppable.getValue(), steppable.getKey().ordinal(), stepsPerDay);
+        }
 
 
 
@@ -423,6 +435,11 @@ public class FishState  extends SimState{
 
     public Stoppable scheduleEveryYear(Steppable steppable, StepOrder order)
     {
+        steppable = SimulationProfiler.profile(steppable, order);
+        if(timeWheel != null)
+            return order.isToRandomize() ?
+                    timeWheel.scheduleRepeating(this, steppable, order, 365 * stepsPerDay) :
+                    timeWheel.scheduleAligned(steppable, order, 365 * stepsPerDay);
         if(order.isToRandomize())
             return schedule.scheduleRepeating(steppable,order.ordinal(),365* stepsPerDay);
         else
@@ -431,16 +448,28 @@ public class FishState  extends SimState{
 
     public Stoppable scheduleEveryStep(Steppable steppable, StepOrder order)
     {
+        steppable = SimulationProfiler.profile(steppable, order);
+        if(timeWheel != null)
+            return timeWheel.scheduleRepeating(this, steppable, order, 1);
         return schedule.scheduleRepeating(steppable,order.ordinal(),1.0);
     }
 
     public void scheduleOnce(Steppable steppable, StepOrder order)
     {
-        schedule.scheduleOnce(steppable,order.ordinal());
+        steppable = SimulationProfiler.profile(steppable, order);
+        if(timeWheel != null)
+            timeWheel.scheduleOnceIn(this, steppable, order, 1);
+        else
+            schedule.scheduleOnce(steppable,order.ordinal());
     }
 
     public Stoppable scheduleEveryDay(Steppable steppable, StepOrder order)
     {
+        steppable = SimulationProfiler.profile(steppable, order);
+        if(timeWheel != null)
+            return order.isToRandomize() ?
+                    timeWheel.scheduleRepeating(this, steppable, order, stepsPerDay) :
+                    timeWheel.scheduleAligned(steppable, order, stepsPerDay);
         if(order.isToRandomize())
             return schedule.scheduleRepeating(steppable,order.ordinal(), stepsPerDay);
         else
@@ -451,6 +480,9 @@ public class FishState  extends SimState{
 
     public Stoppable scheduleEveryXDay(Steppable steppable, StepOrder order, int periodInDays)
     {
+        steppable = SimulationProfiler.profile(steppable, order);
+        if(timeWheel != null)
+            return timeWheel.scheduleRepeating(this, steppable, order, stepsPerDay * periodInDays);
         return schedule.scheduleRepeating(steppable,order.ordinal(), stepsPerDay * periodInDays);
     }
 
@@ -463,7 +495,11 @@ public class FishState  extends SimState{
      */
     public void scheduleOnceInXDays(Steppable steppable, StepOrder order, int daysFromNow)
     {
-        schedule.scheduleOnceIn(stepsPerDay*daysFromNow,steppable,order.ordinal());
+        steppable = SimulationProfiler.profile(steppable, order);
+        if(timeWheel != null)
+            timeWheel.scheduleOnceIn(this, steppable, order, stepsPerDay*daysFromNow);
+        else
+            schedule.scheduleOnceIn(stepsPerDay*daysFromNow,steppable,order.ordinal());
     }
 
 
@@ -749,6 +785,23 @@ public class FishState  extends SimState{
         return started;
     }
 
+    /**
+     * the time wheel everything is scheduled on, or null if the model uses the MASON schedule heap as usual
+     */
+    @Nullable
+    public TimeWheelScheduler getTimeWheel() {
+        return timeWheel;
+    }
+
+    /**
+     * schedule everything on a {@link TimeWheelScheduler} rather than on the MASON schedule heap. Only possible
+     * before the model starts
+     */
+    public void setTimeWheelScheduling(boolean timeWheelScheduling) {
+        Preconditions.checkState(!started, "Choose the scheduler before starting the model");
+        this.timeWheel = timeWheelScheduling ? new TimeWheelScheduler() : null;
+    }
+
 
     /**
      * //todo move this to a config file rather than an all or nothing switch
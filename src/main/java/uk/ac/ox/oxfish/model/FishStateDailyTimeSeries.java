@@ -20,6 +20,7 @@
 
 package uk.ac.ox.oxfish.model;
 
+import sim.engine.SimState;
 import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.fisher.Fisher;
 import uk.ac.ox.oxfish.fisher.log.TripRecord;
@@ -30,9 +31,10 @@ import uk.ac.ox.oxfish.model.data.collectors.*;
 import uk.ac.ox.oxfish.model.market.AbstractMarket;
 import uk.ac.ox.oxfish.model.market.Market;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
-import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -50,6 +52,55 @@ public class FishStateDailyTimeSeries extends TimeSeries<FishState> {
         super(IntervalPolicy.EVERY_DAY,StepOrder.YEARLY_DATA_GATHERING);
     }
 
+    /**
+     * reads all the fisher-level numbers the fleet columns need, in one pass over the fishers
+     */
+    private final FleetAggregation fleet = new FleetAggregation();
+
+    /**
+     * fleet column title ---> its slot in the fleet aggregation
+     */
+    private final Map<String,Integer> fleetSlots = new HashMap<>();
+
+    /**
+     * Registers a column that sums, over all fishers, what the reader reads from each. All these columns are filled
+     * from the same single pass over the fishers (see {@link FleetAggregation}) rather than one pass each.
+     * The reader must have no side effects.
+     */
+    public DataColumn registerFleetSum(String title, FleetAggregation.Reader reader, double defaultValue)
+    {
+        final int slot = fleet.addReader(reader);
+        DataColumn column = registerGatherer(title, (Gatherer<FishState>) ignored -> fleet.sum(slot), defaultValue);
+        fleetSlots.put(title, slot);
+        return column;
+    }
+
+    /**
+     * Like {@link #registerFleetSum(String, FleetAggregation.Reader, double)} but divides by the number of fishers
+     * (0 when there are none)
+     */
+    public DataColumn registerFleetAverage(String title, FleetAggregation.Reader reader, double defaultValue)
+    {
+        final int slot = fleet.addReader(reader);
+        DataColumn column = registerGatherer(title, (Gatherer<FishState>) ignored -> fleet.average(slot), defaultValue);
+        fleetSlots.put(title, slot);
+        return column;
+    }
+
+    @Override
+    public DataColumn removeGatherer(String title) {
+        Integer slot = fleetSlots.remove(title);
+        if(slot != null)
+            fleet.removeReader(slot);
+        return super.removeGatherer(title);
+    }
+
+    @Override
+    public void step(SimState simState) {
+        fleet.gather(getObserved().getFishers());
+        super.step(simState);
+    }
+
     /**
      * call this to start the observation
      *
@@ -93,59 +144,25 @@ public class FishStateDailyTimeSeries extends TimeSeries<FishState> {
         {
 
             String catchesColumn = species + " " + FisherDailyTimeSeries.CATCHES_COLUMN_NAME;
-            registerGatherer(catchesColumn,
-                             new Gatherer<FishState>() {
-                                 @Override
-                                 public Double apply(FishState ignored) {
-                                     return observed.getFishers().stream().mapToDouble(
-                                             new ToDoubleFunction<Fisher>() {
-                                                 @Override
-                                                 public double applyAsDouble(Fisher value) {
-                                                     return value.getDailyCounter().getCatchesPerSpecie(species.getIndex());
-                                                 }
-                                             }).sum();
-                                 }
-                             }, 0d);
+            final int speciesIndex = species.getIndex();
+            registerFleetSum(catchesColumn,
+                             fisher -> fisher.getDailyCounter().getCatchesPerSpecie(speciesIndex),
+                             0d);
         }
 
-        final List<Fisher> fishers = state.getFishers();
-
-
-
-        registerGatherer("Total Effort", new Gatherer<FishState>() {
-            @Override
-            public Double apply(FishState ignored) {
-                return observed.getFishers().stream().mapToDouble(
-                        new ToDoubleFunction<Fisher>() {
-                            @Override
-                            public double applyAsDouble(Fisher value) {
-                                return value.getDailyCounter().getColumn(FisherYearlyTimeSeries.EFFORT);
-                            }
-                        }).sum();
-            }
-        }, 0d);
-
-        registerGatherer(AVERAGE_LAST_TRIP_HOURLY_PROFITS, new Gatherer<FishState>() {
-            @Override
-            public Double apply(FishState ignored) {
-
-                if(fishers.size()==0)
-                    return 0d;
-
-                double sum = 0;
-                for (Fisher fisher : observed.getFishers()) {
-                    TripRecord lastTrip = fisher.getLastFinishedTrip();
-                    if (lastTrip != null ) {
-                        double lastProfits = lastTrip.getProfitPerHour(true);
-                        if(Double.isFinite(lastProfits)) //NaN or Infinite are assumed to be 0 here
-                            sum+= lastProfits;
-                    }
+        registerFleetSum("Total Effort", fisher -> fisher.getDailyCounter().getEffort(), 0d);
 
-                }
-
-                return sum/(double)fishers.size();
-            }
-        }, 0d);
+        registerFleetAverage(AVERAGE_LAST_TRIP_HOURLY_PROFITS,
+                             fisher -> {
+                                 TripRecord lastTrip = fisher.getLastFinishedTrip();
+                                 if (lastTrip != null) {
+                                     double lastProfits = lastTrip.getProfitPerHour(true);
+                                     if (Double.isFinite(lastProfits)) //NaN or Infinite are assumed to be 0 here
+                                         return lastProfits;
+                                 }
+                                 return 0d;
+                             },
+                             0d);
 
 
 
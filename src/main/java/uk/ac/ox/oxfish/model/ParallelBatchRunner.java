@@ -0,0 +1,406 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model;
+
+import com.esotericsoftware.minlog.Log;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
+import uk.ac.ox.oxfish.maximization.generic.SimpleOptimizationParameter;
+import uk.ac.ox.oxfish.model.data.collectors.DataColumn;
+import uk.ac.ox.oxfish.model.scenario.Scenario;
+import uk.ac.ox.oxfish.utility.yaml.FishYAML;
+import uk.ac.ox.oxfish.utility.yaml.ScenarioTemplate;
+import uk.ac.ox.oxfish.utility.yaml.ModelResults;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the same scenario file many times, concurrently: once for each parameter set and seed. Each run reads the
+ * scenario anew and gets its own FishState (and so its own randomizer and its own factories); whatever strategies
+ * share within a model is kept per factory or per FishState, never in a static slot, so a run produces exactly what it
+ * would produce if it ran alone. Parameter set i with seed s always uses seed initialSeed + s whatever the number of
+ * threads. <br>
+ * As runs complete their yearly columns are appended to a single tidy csv (runs.csv: parameters, seed, year,
+ * column, value) and, optionally, their {@link ModelResults} to a single multi-document results.yaml. Rows come out
+ * in order of completion; sort them by parameters and seed to compare with sequential runs. <br>
+ * Completed (parameters, seed) pairs are listed in completed.csv so that running again into the same folder skips
+ * them (rows of runs that never got marked as completed are dropped first). Parameter sets are only known there by
+ * their index, so the runner refuses to resume into a folder whose parameters.csv lists a different grid. Seeds are
+ * written as the actual seed used (initialSeed + seed index), so resuming with another initial seed just adds runs.
+ */
+public class ParallelBatchRunner {
+
+    public static final String RUNS_FILE = "runs.csv";
+
+    public static final String COMPLETED_FILE = "completed.csv";
+
+    public static final String PARAMETERS_FILE = "parameters.csv";
+
+    public static final String RESULTS_FILE = "results.yaml";
+
+    /**
+     * where is the scenario file?
+     */
+    private final Path yamlFile;
+
+    /**
+     * number of years to run each model
+     */
+    private final int yearsToRun;
+
+    /**
+     * names of the yearly columns to write; all of them if empty
+     */
+    private final List<String> columnsToPrint;
+
+    /**
+     * where all the output goes
+     */
+    private final Path outputFolder;
+
+    /**
+     * each element is a set of scenario addresses (the same used by the optimization parameters) and the value to
+     * give them
+     */
+    private final List<? extends Map<String, Double>> parameterSets;
+
+    /**
+     * runs (with different seeds) for each parameter set
+     */
+    private final int seeds;
+
+    private final long initialSeed;
+
+    /**
+     * how many runs at once
+     */
+    private final int threads;
+
+    /**
+     * when true each run's ModelResults are appended to results.yaml
+     */
+    private boolean writeModelResults = false;
+
+    /**
+     * whether to attach the additional gatherers to each model
+     */
+    private boolean additionalData = false;
+
+    /**
+     * anything else to do to a scenario after the parameters have been set
+     */
+    @Nullable
+    private Consumer<Scenario> scenarioSetup;
+
+    private int runsCompleted = 0;
+
+    private long daysSimulated = 0;
+
+    private long nanosElapsed = 0;
+
+    public ParallelBatchRunner(
+            Path yamlFile, int yearsToRun, @Nullable List<String> columnsToPrint, Path outputFolder,
+            List<? extends Map<String, Double>> parameterSets, int seeds, long initialSeed, int threads) {
+        Preconditions.checkArgument(seeds > 0);
+        Preconditions.checkArgument(threads > 0);
+        Preconditions.checkArgument(!parameterSets.isEmpty(), "need at least a parameter set (possibly empty)");
+        this.yamlFile = yamlFile;
+        this.yearsToRun = yearsToRun;
+        this.columnsToPrint = new LinkedList<>();
+        if(columnsToPrint!=null)
+            for (String column : columnsToPrint)
+                this.columnsToPrint.add(column.trim());
+        this.outputFolder = outputFolder;
+        this.parameterSets = parameterSets;
+        this.seeds = seeds;
+        this.initialSeed = initialSeed;
+        this.threads = threads;
+    }
+
+    /**
+     * all the combinations of the given values
+     * @param values for each scenario address the values it should take
+     * @return one parameter set per combination, the last address changing fastest
+     */
+    public static List<LinkedHashMap<String, Double>> grid(LinkedHashMap<String, List<Double>> values) {
+        List<LinkedHashMap<String, Double>> grid = new ArrayList<>();
+        grid.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<Double>> parameter : values.entrySet()) {
+            List<LinkedHashMap<String, Double>> expanded = new ArrayList<>(grid.size() * parameter.getValue().size());
+            for (LinkedHashMap<String, Double> partial : grid)
+                for (Double value : parameter.getValue()) {
+                    LinkedHashMap<String, Double> combination = new LinkedHashMap<>(partial);
+                    combination.put(parameter.getKey(), value);
+                    expanded.add(combination);
+                }
+            grid = expanded;
+        }
+        return grid;
+    }
+
+    /**
+     * runs everything that hasn't been run yet into the output folder
+     * @return the number of runs carried out
+     */
+    public int run() throws IOException, InterruptedException, ExecutionException {
+
+        Files.createDirectories(outputFolder);
+        final ScenarioTemplate template = ScenarioTemplate.of(yamlFile);
+        final String parametersTable = parametersTable();
+        checkSameParameters(parametersTable);
+        final Set<String> completed = readCompletedAndCleanUp();
+        Files.write(outputFolder.resolve(PARAMETERS_FILE), parametersTable.getBytes(StandardCharsets.UTF_8));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CompletionService<RunResult> completion = new ExecutorCompletionService<>(executor);
+        int submitted = 0;
+        for (int parameters = 0; parameters < parameterSets.size(); parameters++)
+            for (int seed = 0; seed < seeds; seed++) {
+                if (completed.contains(key(parameters, initialSeed + seed)))
+                    continue;
+                final int parametersIndex = parameters;
+                final int seedIndex = seed;
+                completion.submit(() -> runOnce(template, parametersIndex, seedIndex));
+                submitted++;
+            }
+        if(submitted < parameterSets.size() * seeds)
+            Log.info("Skipping " + (parameterSets.size() * seeds - submitted) + " runs already completed");
+
+        final long start = System.nanoTime();
+        try (
+                BufferedWriter rows = Files.newBufferedWriter(outputFolder.resolve(RUNS_FILE),
+                                                              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                BufferedWriter done = Files.newBufferedWriter(outputFolder.resolve(COMPLETED_FILE),
+                                                              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                BufferedWriter results = writeModelResults ?
+                        Files.newBufferedWriter(outputFolder.resolve(RESULTS_FILE),
+                                                StandardOpenOption.CREATE, StandardOpenOption.APPEND) : null
+        ) {
+            if (Files.size(outputFolder.resolve(RUNS_FILE)) == 0)
+                rows.write("parameters,seed,year,column,value\n");
+            for (int i = 0; i < submitted; i++) {
+                final RunResult result = completion.take().get();
+                //rows first, then mark as completed: a crash in between only leaves rows that resuming drops
+                rows.write(result.rows);
+                rows.flush();
+                if (results != null) {
+                    results.write(result.modelResults);
+                    results.flush();
+                }
+                done.write(key(result.parameters, initialSeed + result.seed) + "\n");
+                done.flush();
+
+                runsCompleted++;
+                daysSimulated += result.days;
+                nanosElapsed = System.nanoTime() - start;
+                Log.info("Completed run " + runsCompleted + "/" + submitted + " (parameters " + result.parameters +
+                                 ", seed " + result.seed + "): " +
+                                 String.format("%.2f runs/min, %.1f simulated days/sec",
+                                               getRunsPerMinute(), getSimulatedDaysPerSecond()));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return submitted;
+    }
+
+    private RunResult runOnce(ScenarioTemplate template, int parameters, int seed) throws IOException {
+
+        final FishYAML yaml = new FishYAML();
+        final Scenario scenario = template.newScenario();
+        for (Map.Entry<String, Double> parameter : parameterSets.get(parameters).entrySet())
+            new SimpleOptimizationParameter(parameter.getKey(), parameter.getValue(), parameter.getValue()).
+                    parametrizeRealValue(scenario, parameter.getValue());
+        if (scenarioSetup != null)
+            scenarioSetup.accept(scenario);
+
+        final FishState model = new FishState(initialSeed + seed);
+        model.setScenario(scenario);
+        model.start();
+        if (additionalData)
+            model.attachAdditionalGatherers();
+        while (model.getYear() < yearsToRun)
+            model.schedule.step(model);
+
+        final StringBuilder rows = new StringBuilder();
+        for (DataColumn column : selectColumns(model))
+            for (int year = 0; year < column.size(); year++)
+                rows.append(parameters).append(",").append(initialSeed + seed).append(",").append(year).append(",").
+                        append(column.getName()).append(",").append(column.getValue(year)).append("\n");
+
+        String modelResults = null;
+        if (writeModelResults) {
+            final LinkedHashMap<String, Object> document = new LinkedHashMap<>();
+            document.put("parameters", parameters);
+            document.put("seed", initialSeed + seed);
+            document.put("results", new ModelResults(model));
+            modelResults = "---\n" + yaml.dump(document);
+        }
+        final RunResult result = new RunResult(parameters, seed, rows.toString(), modelResults, model.getDay());
+        model.finish();
+        return result;
+    }
+
+    private List<DataColumn> selectColumns(FishState model) {
+        if (columnsToPrint.isEmpty())
+            return new ArrayList<>(model.getYearlyDataSet().getColumns());
+        final List<DataColumn> columns = new ArrayList<>(columnsToPrint.size());
+        for (String column : columnsToPrint) {
+            final DataColumn columnToPrint = model.getYearlyDataSet().getColumn(column);
+            Preconditions.checkState(columnToPrint != null, "Can't find column " + column);
+            columns.add(columnToPrint);
+        }
+        return columns;
+    }
+
+    /**
+     * reads which runs are done; drops from the csv whatever rows belong to runs that were not completed
+     */
+    private Set<String> readCompletedAndCleanUp() throws IOException {
+        final Path completedFile = outputFolder.resolve(COMPLETED_FILE);
+        final Set<String> completed = new HashSet<>();
+        if (Files.exists(completedFile))
+            for (String line : Files.readAllLines(completedFile))
+                if (!line.trim().isEmpty())
+                    completed.add(line.trim());
+
+        final Path runsFile = outputFolder.resolve(RUNS_FILE);
+        if (Files.exists(runsFile)) {
+            final List<String> lines = Files.readAllLines(runsFile);
+            final List<String> kept = lines.stream().filter(
+                    line -> line.startsWith("parameters,") || completed.contains(keyOfRow(line))
+            ).collect(Collectors.toList());
+            if (kept.size() != lines.size())
+                Files.write(runsFile, kept);
+        }
+        return completed;
+    }
+
+    /**
+     * the content of parameters.csv: which values each parameter set index stands for
+     */
+    private String parametersTable() {
+        final StringBuilder table = new StringBuilder("parameters,address,value\n");
+        for (int parameters = 0; parameters < parameterSets.size(); parameters++)
+            for (Map.Entry<String, Double> parameter : parameterSets.get(parameters).entrySet())
+                table.append(parameters).append(",").append(parameter.getKey()).append(",").
+                        append(parameter.getValue()).append("\n");
+        return table.toString();
+    }
+
+    /**
+     * completed runs and rows only refer to parameter sets by index: resuming with a different grid would mix them up
+     */
+    private void checkSameParameters(String parametersTable) throws IOException {
+        final Path parametersFile = outputFolder.resolve(PARAMETERS_FILE);
+        final boolean resuming = Files.exists(outputFolder.resolve(COMPLETED_FILE)) ||
+                Files.exists(outputFolder.resolve(RUNS_FILE));
+        if (resuming && Files.exists(parametersFile)) {
+            final String previous = new String(Files.readAllBytes(parametersFile), StandardCharsets.UTF_8);
+            Preconditions.checkState(previous.equals(parametersTable),
+                                     "Can't resume into " + outputFolder + ": its " + PARAMETERS_FILE +
+                                             " lists different parameter sets; use another output folder");
+        }
+    }
+
+    private static String key(int parameters, long seed) {
+        return parameters + "," + seed;
+    }
+
+    private static String keyOfRow(String row) {
+        final String[] split = row.split(",", 3);
+        return split.length < 3 ? "" : key(Integer.parseInt(split[0]), Long.parseLong(split[1]));
+    }
+
+    private static class RunResult {
+
+        private final int parameters;
+
+        private final int seed;
+
+        private final String rows;
+
+        private final String modelResults;
+
+        private final int days;
+
+        private RunResult(int parameters, int seed, String rows, String modelResults, int days) {
+            this.parameters = parameters;
+            this.seed = seed;
+            this.rows = rows;
+            this.modelResults = modelResults;
+            this.days = days;
+        }
+    }
+
+    /**
+     * runs completed per minute of wall-clock time (so far)
+     */
+    public double getRunsPerMinute() {
+        return nanosElapsed == 0 ? 0 : runsCompleted / (nanosElapsed / 60e9);
+    }
+
+    /**
+     * days simulated, summed over all runs, per second of wall-clock time (so far)
+     */
+    public double getSimulatedDaysPerSecond() {
+        return nanosElapsed == 0 ? 0 : daysSimulated / (nanosElapsed / 1e9);
+    }
+
+    public int getRunsCompleted() {
+        return runsCompleted;
+    }
+
+    public boolean isWriteModelResults() {
+        return writeModelResults;
+    }
+
+    public void setWriteModelResults(boolean writeModelResults) {
+        this.writeModelResults = writeModelResults;
+    }
+
+    public boolean isAdditionalData() {
+        return additionalData;
+    }
+
+    public void setAdditionalData(boolean additionalData) {
+        this.additionalData = additionalData;
+    }
+
+    @Nullable
+    public Consumer<Scenario> getScenarioSetup() {
+        return scenarioSetup;
+    }
+
+    public void setScenarioSetup(@Nullable Consumer<Scenario> scenarioSetup) {
+        this.scenarioSetup = scenarioSetup;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.model;
+
+import com.google.common.base.Preconditions;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import sim.engine.Stoppable;
+import sim.util.Bag;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * An alternative to putting every repeating steppable of the model in the MASON schedule heap. The model only ever
+ * schedules at whole steps, in one of the fixed {@link StepOrder} phases, and mostly every step, day or year; so
+ * here each phase keeps its steppables in plain arrays grouped by period and offset (a time wheel, one spoke per
+ * group) and the MASON schedule only holds one steppable per phase, which runs whatever is due in it. <br>
+ * Stopping is O(1): the entry is marked as dead and skipped; each group is compacted once half of it is dead. <br>
+ * Phases that are to be randomized are shuffled with the model's random number generator, every step, just like
+ * MASON shuffles things due at the same time and ordering; other phases run in the order steppables were added.
+ * The draws are not the same as MASON's though, so a model scheduled this way is reproducible but doesn't follow the
+ * same path as one scheduled the usual way. <br>
+ * Also keeps track of how much time is spent in each phase.
+ */
+public class TimeWheelScheduler implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Phase[] phases;
+
+    /**
+     * nanoseconds spent in each phase since the last reset
+     */
+    private final long[] nanoseconds;
+
+    /**
+     * steppables run in each phase since the last reset
+     */
+    private final long[] stepped;
+
+    public TimeWheelScheduler() {
+        final StepOrder[] orders = StepOrder.values();
+        phases = new Phase[orders.length];
+        for (int i = 0; i < orders.length; i++)
+            phases[i] = new Phase(orders[i]);
+        nanoseconds = new long[orders.length];
+        stepped = new long[orders.length];
+    }
+
+    /**
+     * puts one steppable per phase in the MASON schedule. Call after the schedule has been reset (when the model
+     * starts)
+     */
+    public void start(FishState model) {
+        for (Phase phase : phases)
+            model.schedule.scheduleRepeating(phase, phase.order.ordinal(), 1.0);
+    }
+
+    /**
+     * step the steppable every period steps, starting next step (the same as MASON's scheduleRepeating)
+     */
+    public Stoppable scheduleRepeating(FishState model, Steppable steppable, StepOrder order, int period) {
+        final long first = now(model) + 1;
+        return phases[order.ordinal()].add(steppable, period, first);
+    }
+
+    /**
+     * step the steppable every period steps, at times that are multiples of the period, starting with the first one
+     * that hasn't passed yet (including this step, if the phase hasn't run yet)
+     */
+    public Stoppable scheduleAligned(Steppable steppable, StepOrder order, int period) {
+        return phases[order.ordinal()].add(steppable, period, Long.MIN_VALUE);
+    }
+
+    /**
+     * step the steppable once, stepsFromNow steps from now
+     */
+    public Stoppable scheduleOnceIn(FishState model, Steppable steppable, StepOrder order, int stepsFromNow) {
+        Preconditions.checkArgument(stepsFromNow > 0);
+        return phases[order.ordinal()].addOnce(steppable, now(model) + stepsFromNow);
+    }
+
+    private static long now(FishState model) {
+        //before the model starts MASON's time is "before simulation", a negative number
+        return Math.max((long) model.schedule.getTime(), -1);
+    }
+
+    /**
+     * seconds spent stepping things in this phase since the timings were last reset
+     */
+    public double getSecondsSpent(StepOrder order) {
+        return nanoseconds[order.ordinal()] / 1e9;
+    }
+
+    /**
+     * number of steppables run in this phase since the timings were last reset
+     */
+    public long getSteppablesRun(StepOrder order) {
+        return stepped[order.ordinal()];
+    }
+
+    /**
+     * number of steppables currently scheduled in this phase, repeating or not
+     */
+    public int getScheduled(StepOrder order) {
+        return phases[order.ordinal()].scheduled();
+    }
+
+    public void resetTimings() {
+        Arrays.fill(nanoseconds, 0);
+        Arrays.fill(stepped, 0);
+    }
+
+    private static class Entry implements Stoppable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Steppable steppable;
+
+        /**
+         * not stepped before this time
+         */
+        private final long first;
+
+        /**
+         * the group it belongs to, null for one-off steppables
+         */
+        private final Group group;
+
+        private boolean stopped = false;
+
+        private Entry(Steppable steppable, long first, Group group) {
+            this.steppable = steppable;
+            this.first = first;
+            this.group = group;
+        }
+
+        @Override
+        public void stop() {
+            if (stopped)
+                return;
+            stopped = true;
+            if (group != null)
+                group.dead++;
+        }
+    }
+
+    /**
+     * all the steppables of a phase that repeat with the same period and offset, in the order they were added
+     */
+    private static class Group implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int period;
+
+        private final int offset;
+
+        private Entry[] entries = new Entry[8];
+
+        private int size = 0;
+
+        private int dead = 0;
+
+        private Group(int period, int offset) {
+            this.period = period;
+            this.offset = offset;
+        }
+
+        private void add(Entry entry) {
+            if (size == entries.length)
+                entries = Arrays.copyOf(entries, size * 2);
+            entries[size++] = entry;
+        }
+
+        private void compact() {
+            int alive = 0;
+            for (int i = 0; i < size; i++)
+                if (!entries[i].stopped)
+                    entries[alive++] = entries[i];
+            Arrays.fill(entries, alive, size, null);
+            size = alive;
+            dead = 0;
+        }
+    }
+
+    private class Phase implements Steppable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final StepOrder order;
+
+        /**
+         * in the order they were created
+         */
+        private final List<Group> groups = new ArrayList<>();
+
+        private final HashMap<Long, Group> groupIndex = new HashMap<>();
+
+        /**
+         * steppables to run once, by time
+         */
+        private final HashMap<Long, List<Entry>> once = new HashMap<>();
+
+        /**
+         * what runs this step (only used to shuffle)
+         */
+        private final Bag due = new Bag();
+
+        private Phase(StepOrder order) {
+            this.order = order;
+        }
+
+        private Stoppable add(Steppable steppable, int period, long first) {
+            Preconditions.checkArgument(period > 0);
+            final int offset = first == Long.MIN_VALUE ? 0 : (int) (first % period);
+            final long key = ((long) period << 32) | offset;
+            Group group = groupIndex.get(key);
+            if (group == null) {
+                group = new Group(period, offset);
+                groupIndex.put(key, group);
+                groups.add(group);
+            }
+            final Entry entry = new Entry(steppable, first, group);
+            group.add(entry);
+            return entry;
+        }
+
+        private Stoppable addOnce(Steppable steppable, long time) {
+            final Entry entry = new Entry(steppable, time, null);
+            once.computeIfAbsent(time, t -> new ArrayList<>()).add(entry);
+            return entry;
+        }
+
+        private int scheduled() {
+            int scheduled = 0;
+            for (Group group : groups)
+                scheduled += group.size - group.dead;
+            for (List<Entry> entries : once.values())
+                for (Entry entry : entries)
+                    if (!entry.stopped)
+                        scheduled++;
+            return scheduled;
+        }
+
+        @Override
+        public void step(SimState simState) {
+            final long start = System.nanoTime();
+            final long now = (long) simState.schedule.getTime();
+            //whatever gets scheduled while we run starts next step at the earliest, so sizes can be fixed here
+            final int numberOfGroups = groups.size();
+            final List<Entry> onceNow = once.remove(now);
+            long run = 0;
+            if (order.isToRandomize()) {
+                for (int g = 0; g < numberOfGroups; g++) {
+                    final Group group = groups.get(g);
+                    if (now % group.period == group.offset)
+                        for (int i = 0; i < group.size; i++)
+                            if (!group.entries[i].stopped && group.entries[i].first <= now)
+                                due.add(group.entries[i]);
+                }
+                if (onceNow != null)
+                    due.addAll(onceNow);
+                if (due.numObjs > 1)
+                    due.shuffle(simState.random);
+                for (int i = 0; i < due.numObjs; i++) {
+                    final Entry entry = (Entry) due.objs[i];
+                    if (!entry.stopped) {
+                        entry.steppable.step(simState);
+                        run++;
+                    }
+                }
+                due.clear();
+            } else {
+                for (int g = 0; g < numberOfGroups; g++) {
+                    final Group group = groups.get(g);
+                    if (now % group.period != group.offset)
+                        continue;
+                    final int size = group.size;
+                    for (int i = 0; i < size; i++) {
+                        final Entry entry = group.entries[i];
+                        if (!entry.stopped && entry.first <= now) {
+                            entry.steppable.step(simState);
+                            run++;
+                        }
+                    }
+                }
+                if (onceNow != null)
+                    for (Entry entry : onceNow)
+                        if (!entry.stopped) {
+                            entry.steppable.step(simState);
+                            run++;
+                        }
+            }
+            for (int g = 0; g < numberOfGroups; g++) {
+                final Group group = groups.get(g);
+                if (group.dead > 0 && group.dead * 2 >= group.size)
+                    group.compact();
+            }
+            nanoseconds[order.ordinal()] += System.nanoTime() - start;
+            stepped[order.ordinal()] += run;
+        }
+    }
+}
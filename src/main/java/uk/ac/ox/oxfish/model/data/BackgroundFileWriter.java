@@ -0,0 +1,201 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes text to a file from its own thread. Callers hand over chunks of text, which wait in a bounded queue (so a
+ * caller producing faster than the disk can take blocks rather than piling up memory) and are then encoded as UTF-8
+ * into a direct buffer and written through a file channel, optionally gzipped. <br>
+ * Errors on the writing thread are reported to the caller at the next write, flush or close.
+ */
+public class BackgroundFileWriter implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * markers put in the queue, recognized by identity
+     */
+    private static final String FLUSH = new String("flush");
+
+    private static final String CLOSE = new String("close");
+
+    private final BlockingQueue<String> queue;
+
+    private final FileChannel fileChannel;
+
+    /**
+     * the gzip stream, or null if not compressing
+     */
+    private final OutputStream compressed;
+
+    private final WritableByteChannel channel;
+
+    private final Thread thread;
+
+    private volatile IOException failure = null;
+
+    private boolean closed = false;
+
+    /**
+     * opens (overwriting) the file and starts the writing thread
+     * @param file where to write
+     * @param gzip whether to compress what is written
+     * @param queueCapacity how many chunks can wait to be written before writers block
+     */
+    public BackgroundFileWriter(Path file, boolean gzip, int queueCapacity) throws IOException {
+        Preconditions.checkArgument(queueCapacity > 0);
+        fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING);
+        if (gzip) {
+            //sync flush so that each flush leaves a readable file behind
+            compressed = new GZIPOutputStream(Channels.newOutputStream(fileChannel), BUFFER_SIZE, true);
+            channel = Channels.newChannel(compressed);
+        } else {
+            compressed = null;
+            channel = fileChannel;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        thread = new Thread(this::drain, "writer of " + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public BackgroundFileWriter(Path file, boolean gzip) throws IOException {
+        this(file, gzip, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * queues a copy of the text to be written; blocks if the queue is full
+     */
+    public void write(CharSequence text) throws IOException {
+        Preconditions.checkState(!closed, "Already closed!");
+        if (text.length() > 0)
+            put(text.toString());
+    }
+
+    /**
+     * asks for everything written so far to be pushed to the file
+     */
+    public void flush() throws IOException {
+        Preconditions.checkState(!closed, "Already closed!");
+        put(FLUSH);
+    }
+
+    /**
+     * writes whatever is still queued, closes the file and waits for the writing thread to be done
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            queue.put(CLOSE);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing the file");
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void put(String chunk) throws IOException {
+        if (failure != null)
+            throw failure;
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while queuing output");
+        }
+    }
+
+    private void drain() {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        try {
+            String chunk;
+            while ((chunk = queue.take()) != CLOSE) {
+                if (failure != null) //just empty the queue so writers don't block forever
+                    continue;
+                try {
+                    if (chunk == FLUSH) {
+                        if (compressed != null)
+                            compressed.flush();
+                        continue;
+                    }
+                    encoder.reset();
+                    CharBuffer characters = CharBuffer.wrap(chunk);
+                    CoderResult result;
+                    do {
+                        result = encoder.encode(characters, buffer, true);
+                        writeOut(buffer);
+                    } while (result.isOverflow());
+                    while (encoder.flush(buffer).isOverflow())
+                        writeOut(buffer);
+                    writeOut(buffer);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("writing thread interrupted");
+        } finally {
+            try {
+                channel.close();
+                fileChannel.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+    }
+
+    private void writeOut(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * An output plugin that can also write its file as the simulation goes on, rather than keeping everything in memory
+ * until {@link #composeFileContents()} is called at the end. Until {@link #startStreaming(Path, boolean)} is called
+ * it behaves like any other output plugin.
+ */
+public interface StreamingOutputPlugin extends OutputPlugin {
+
+    /**
+     * opens the output file in the given folder (named after {@link #getFileName()}, plus ".gz" when compressed),
+     * writes what has been gathered so far and keeps writing from then on
+     */
+    void startStreaming(Path outputFolder, boolean compress) throws IOException;
+
+    /**
+     * hands everything gathered so far to the file
+     */
+    void flush() throws IOException;
+
+    /**
+     * writes what's left and closes the file; the plugin goes back to gathering in memory
+     */
+    void finishStreaming() throws IOException;
+
+    boolean isStreaming();
+
+}
@@ -21,9 +21,7 @@
 package uk.ac.ox.oxfish.model.data.collectors;
 
 import com.google.common.base.Preconditions;
-import javafx.collections.ObservableList;
 import uk.ac.ox.oxfish.biology.Species;
-import uk.ac.ox.oxfish.fisher.Fisher;
 import uk.ac.ox.oxfish.model.AdditionalStartable;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.FishStateDailyTimeSeries;
@@ -77,33 +75,18 @@ public class AdditionalFishStateDailyCollectors implements AdditionalStartable {
 
 
 
-        model.getDailyDataSet().registerGatherer("Average Cash-Flow", new Gatherer<FishState>() {
-            @Override
-            public Double apply(FishState observed) {
-                ObservableList<Fisher> fishers = observed.getFishers();
-                if (fishers.size() == 0)
-                    return 0d;
-
-                double sum = 0;
-                for (Fisher fisher : observed.getFishers()) {
-                    sum += fisher.getDailyData().getLatestObservation(FisherYearlyTimeSeries.CASH_FLOW_COLUMN);
-
-                }
-
-                return sum / (double) fishers.size();
-            }
-        }, 0d);
+        model.getDailyDataSet().registerFleetAverage(
+                "Average Cash-Flow",
+                fisher -> fisher.getDailyData().getLatestObservation(FisherYearlyTimeSeries.CASH_FLOW_COLUMN),
+                0d);
 
 
 
         //fishers who are actually out
-        model.getDailyDataSet().registerGatherer("Fishers at Sea", new Gatherer<FishState>() {
-            @Override
-            public Double apply(FishState ignored) {
-                return model.getFishers().stream().mapToDouble(
-                        value -> value.getLocation().equals(value.getHomePort().getLocation()) ? 0 : 1).sum();
-            }
-        }, 0d);
+        model.getDailyDataSet().registerFleetSum(
+                "Fishers at Sea",
+                fisher -> fisher.getLocation().equals(fisher.getHomePort().getLocation()) ? 0 : 1,
+                0d);
 
 
         //number of fishers
@@ -28,19 +28,31 @@ import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.Startable;
 import uk.ac.ox.oxfish.model.StepOrder;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.function.BiFunction;
+import java.util.Set;
 
 /**
- * A simple map String--->Double that auto-resets once started
+ * A simple map String--->Double that auto-resets once started. <br>
+ * Columns are stored in a primitive array: {@link #addColumn(String)} returns the column handle (its index) and
+ * counting through the handle is just an array increment. The String methods look up the handle first and are kept
+ * for callers that don't count often enough to care.
  * Created by carrknight on 6/8/15.
  */
 public class Counter implements Startable, Steppable
 {
 
-    final private Map<String,Double> data;
+    /**
+     * column name ---> handle
+     */
+    final private Map<String,Integer> handles;
+
+    private double[] values = new double[4];
 
     final private Map<String,Double> view;
 
@@ -49,8 +61,8 @@ public class Counter implements Startable, Steppable
     private Stoppable receipt = null;
 
     public Counter(IntervalPolicy policy) {
-        this.data = new LinkedHashMap<>();
-        view = Collections.unmodifiableMap(data);
+        this.handles = new LinkedHashMap<>();
+        view = new DataView();
         this.policy = policy;
     }
 
@@ -65,17 +77,23 @@ public class Counter implements Startable, Steppable
         /**
          * reset all stuff
          */
-        data.entrySet().forEach(datum -> datum.setValue(0d));
+        Arrays.fill(values, 0, handles.size(), 0d);
     }
 
     /**
      * adds a new data column, ready to be counted. It can't be already there
      * @param columnName the name of the column
+     * @return the handle to count and read the column with
      */
-    public void addColumn(String columnName)
+    public int addColumn(String columnName)
     {
         Preconditions.checkArgument(!hasColumn(columnName), columnName + " column already exists!");
-        data.put(columnName,0d);
+        int handle = handles.size();
+        if(handle == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+        values[handle] = 0d;
+        handles.put(columnName, handle);
+        return handle;
     }
 
 
@@ -85,7 +103,17 @@ public class Counter implements Startable, Steppable
      * @return
      */
     public boolean hasColumn(String columnName){
-        return data.containsKey(columnName);
+        return handles.containsKey(columnName);
+    }
+
+    /**
+     * the handle of an existing column
+     * @param columnName the name of the column
+     * @return the handle, or -1 if there is no such column
+     */
+    public int getHandle(String columnName){
+        Integer handle = handles.get(columnName);
+        return handle == null ? -1 : handle;
     }
 
     /**
@@ -95,15 +123,20 @@ public class Counter implements Startable, Steppable
      */
     public void count(String columnName, double add)
     {
+        Integer handle = handles.get(columnName);
+        if(handle==null)
+            throw new NullPointerException("No column exists");
+        values[handle] += add;
+    }
 
-        data.compute(columnName,
-                     (s, oldValue) -> {
-                         if(oldValue==null)
-                             throw new NullPointerException("No column exists");
-                         else
-                             return oldValue + add;
-
-                     });
+    /**
+     * increment column by this
+     * @param handle the handle {@link #addColumn(String)} returned for the column
+     * @param add by how much to increment
+     */
+    public void count(int handle, double add)
+    {
+        values[handle] += add;
     }
 
     /**
@@ -117,7 +150,16 @@ public class Counter implements Startable, Steppable
 
 
     public Double getColumn(String columnName){
-        return data.get(columnName);
+        Integer handle = handles.get(columnName);
+        return handle == null ? null : values[handle];
+    }
+
+    /**
+     * @param handle the handle {@link #addColumn(String)} returned for the column
+     * @return the value counted so far
+     */
+    public double getColumn(int handle){
+        return values[handle];
     }
 
     /**
@@ -129,4 +171,54 @@ public class Counter implements Startable, Steppable
         return view;
     }
 
+    /**
+     * live, read-only map view over the handles and the values
+     */
+    private class DataView extends AbstractMap<String,Double>
+    {
+
+        @Override
+        public Set<Entry<String, Double>> entrySet() {
+            return new AbstractSet<Entry<String, Double>>() {
+                @Override
+                public Iterator<Entry<String, Double>> iterator() {
+                    Iterator<Entry<String, Integer>> columns = handles.entrySet().iterator();
+                    return new Iterator<Entry<String, Double>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return columns.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Double> next() {
+                            Entry<String, Integer> column = columns.next();
+                            return new SimpleImmutableEntry<>(column.getKey(), values[column.getValue()]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return handles.size();
+                }
+            };
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return handles.containsKey(key);
+        }
+
+        @Override
+        public Double get(Object key) {
+            Integer handle = handles.get(key);
+            return handle == null ? null : values[handle];
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return Collections.unmodifiableSet(handles.keySet());
+        }
+    }
+
 }
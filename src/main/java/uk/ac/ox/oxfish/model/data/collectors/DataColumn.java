@@ -20,26 +20,68 @@
 
 package uk.ac.ox.oxfish.model.data.collectors;
 
+import com.google.common.base.Preconditions;
+
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * basically a linked-list for double values that cannot be modified easily
+ * basically a list for double values that cannot be modified easily. <br>
+ * Values are kept as primitives in fixed size chunks so reading any of them (by index or by lag) takes constant time;
+ * a column can also be given a retention, in which case it only keeps that many of the most recent observations (in a
+ * ring buffer) and indices count from the oldest one still kept. <br>
+ * The boxed Iterable/stream methods are still there for compatibility.
  * Created by carrknight on 6/9/15.
  */
 public class DataColumn implements Iterable<Double>, Serializable{
 
-    private final LinkedList<Double> data = new LinkedList<>();
+    private static final int CHUNK_BITS = 9;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * when retention is off, observation i is chunks[i / CHUNK_SIZE][i % CHUNK_SIZE]; when on, chunks[0] is the ring
+     * buffer and observation i (counting them all) is chunks[0][i % retention]
+     */
+    private double[][] chunks = new double[0][];
+
+    /**
+     * how many of the latest observations to keep; 0 means keep them all
+     */
+    private final int retention;
+
+    /**
+     * number of observations ever added
+     */
+    private int added = 0;
 
     private final String name;
 
     public DataColumn(String name) {
+        this(name, 0);
+    }
+
+    /**
+     * @param name name of the column
+     * @param retention how many of the latest observations to keep (0 means keep them all)
+     */
+    public DataColumn(String name, int retention) {
+        Preconditions.checkArgument(retention >= 0);
         this.name = name;
+        this.retention = retention;
+        if(retention > 0)
+            chunks = new double[][]{new double[retention]};
     }
 
     /**
@@ -52,11 +94,30 @@ public class DataColumn implements Iterable<Double>, Serializable{
 
     /**
      * add latest observation
-     * @param newValue latest observation to add
+     * @param newValue latest observation to add (null is stored as NaN)
      */
     public void add(Double newValue)
     {
-        data.addLast(newValue);
+        add(newValue == null ? Double.NaN : newValue.doubleValue());
+    }
+
+    /**
+     * add latest observation
+     * @param newValue latest observation to add
+     */
+    public void add(double newValue)
+    {
+        if(retention > 0)
+            chunks[0][added % retention] = newValue;
+        else {
+            final int chunk = added >>> CHUNK_BITS;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunk] = new double[CHUNK_SIZE];
+            }
+            chunks[chunk][added & CHUNK_MASK] = newValue;
+        }
+        added++;
     }
 
     /**
@@ -65,7 +126,15 @@ public class DataColumn implements Iterable<Double>, Serializable{
      */
     public Double getLatest()
     {
-        return data.isEmpty() ? Double.NaN : data.peekLast();
+        return getLatestValue();
+    }
+
+    /**
+     * the latest value added or NaN if there is none
+     */
+    public double getLatestValue()
+    {
+        return added == 0 ? Double.NaN : observation(added - 1);
     }
 
     /**
@@ -76,12 +145,41 @@ public class DataColumn implements Iterable<Double>, Serializable{
      * @throws IndexOutOfBoundsException {@inheritDoc}
      */
     public Double get(int index) {
-        return data.get(index);
+        return getValue(index);
+    }
+
+    /**
+     * the element at the specified position, unboxed
+     * @throws IndexOutOfBoundsException if there is no such element
+     */
+    public double getValue(int index) {
+        final int size = size();
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return observation(added - size + index);
     }
 
     public Double getDatumXDaysAgo(int daysAgo)
     {
-        return data.get(data.size()-daysAgo-1);
+        return getValueXDaysAgo(daysAgo);
+    }
+
+    /**
+     * the element added daysAgo observations before the latest one, unboxed
+     * @throws IndexOutOfBoundsException if there is no such element
+     */
+    public double getValueXDaysAgo(int daysAgo)
+    {
+        return getValue(size() - daysAgo - 1);
+    }
+
+    /**
+     * observation number i, counting from the very first one added
+     */
+    private double observation(int i) {
+        if(retention > 0)
+            return chunks[0][i % retention];
+        return chunks[i >>> CHUNK_BITS][i & CHUNK_MASK];
     }
 
     /**
@@ -90,7 +188,28 @@ public class DataColumn implements Iterable<Double>, Serializable{
      * @return the number of elements in this list
      */
     public int size() {
-        return data.size();
+        return retention > 0 ? Math.min(added, retention) : added;
+    }
+
+    /**
+     * the number of observations ever added, including the ones the retention has since dropped
+     */
+    public int getNumberOfObservationsAdded() {
+        return added;
+    }
+
+    public int getRetention() {
+        return retention;
+    }
+
+    /**
+     * the elements kept, oldest first, in a new array
+     */
+    public double[] toArray() {
+        final double[] copy = new double[size()];
+        for(int i = 0; i < copy.length; i++)
+            copy[i] = observation(added - copy.length + i);
+        return copy;
     }
 
     /**
@@ -100,7 +219,7 @@ public class DataColumn implements Iterable<Double>, Serializable{
      */
     @Override
     public Iterator<Double> iterator() {
-        return data.iterator();
+        return new ColumnIterator(false);
     }
 
 
@@ -108,57 +227,92 @@ public class DataColumn implements Iterable<Double>, Serializable{
      * @since 1.6
      */
     public Iterator<Double> descendingIterator() {
-        return data.descendingIterator();
+        return new ColumnIterator(true);
     }
 
     /**
      */
     @Override
     public void forEach(Consumer<? super Double> action) {
-        data.forEach(action);
+        final int size = size();
+        for(int i = added - size; i < added; i++)
+            action.accept(observation(i));
     }
 
     /**
      */
     @Override
     public Spliterator<Double> spliterator() {
-        return data.spliterator();
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
     }
 
 
     /**
      * Returns a sequential {@code Stream} with this collection as its source.
      *
-     * <p>This method should be overridden when the {@link #spliterator()}
-     * method cannot return a spliterator that is {@code IMMUTABLE},
-     * {@code CONCURRENT}, or <em>late-binding</em>. (See {@link #spliterator()}
-     * for details.)
-     *
-     * @implSpec
-     * The default implementation creates a sequential {@code Stream} from the
-     * collection's {@code Spliterator}.
-     *
      * @return a sequential {@code Stream} over the elements in this collection
      * @since 1.8
      */
     public Stream<Double> stream() {
-        return data.stream();
+        return StreamSupport.stream(spliterator(), false);
     }
 
-
+    /**
+     * same as {@link #stream()} without boxing
+     */
+    public DoubleStream doubleStream() {
+        return Arrays.stream(toArray());
+    }
 
 
 
     public LinkedList<Double> copy(){
-        return new LinkedList<>(data);
+        final LinkedList<Double> copy = new LinkedList<>();
+        forEach(copy::add);
+        return copy;
     }
 
 
     @Override
     public String toString() {
         final StringBuffer sb = new StringBuffer("DataColumn{");
-        sb.append("data=").append(data);
+        sb.append("data=").append(copy());
         sb.append('}');
         return sb.toString();
     }
+
+    /**
+     * walks the observations kept at the time it was created
+     */
+    private class ColumnIterator implements Iterator<Double> {
+
+        private final boolean descending;
+
+        private final int first;
+
+        private final int last;
+
+        private int next;
+
+        private ColumnIterator(boolean descending) {
+            this.descending = descending;
+            this.first = added - size();
+            this.last = added - 1;
+            this.next = descending ? last : first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return descending ? next >= first : next <= last;
+        }
+
+        @Override
+        public Double next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            final double value = observation(next);
+            next += descending ? -1 : 1;
+            return value;
+        }
+    }
 }
@@ -39,14 +39,18 @@ public class FisherDailyCounter extends Counter {
 
     private double[][][] landingsPerBin;
 
+    private final int cashFlowHandle;
+
+    private final int effortHandle;
+
     public FisherDailyCounter(int numberOfSpecies) {
         super(IntervalPolicy.EVERY_DAY);
         landings = new double[numberOfSpecies];
         earnings = new double[numberOfSpecies];
         catches = new double[numberOfSpecies];
         landingsPerBin = new double[numberOfSpecies][][];
-        super.addColumn(FisherYearlyTimeSeries.CASH_FLOW_COLUMN);
-        super.addColumn(FisherYearlyTimeSeries.EFFORT);
+        cashFlowHandle = super.addColumn(FisherYearlyTimeSeries.CASH_FLOW_COLUMN);
+        effortHandle = super.addColumn(FisherYearlyTimeSeries.EFFORT);
     }
 
     @Override
@@ -88,6 +92,28 @@ public class FisherDailyCounter extends Counter {
 
     }
 
+    /**
+     * increment the cash-flow column by this
+     */
+    public void countCashFlow(double add) {
+        count(cashFlowHandle, add);
+    }
+
+    /**
+     * increment the effort column by this
+     */
+    public void countEffort(double add) {
+        count(effortHandle, add);
+    }
+
+    public double getCashFlow() {
+        return getColumn(cashFlowHandle);
+    }
+
+    public double getEffort() {
+        return getColumn(effortHandle);
+    }
+
     public void countEarnings(Species species, double add) {
         earnings[species.getIndex()]+=add;
     }
@@ -22,6 +22,7 @@ package uk.ac.ox.oxfish.model.data.collectors;
 
 import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.log.TripArchive;
 import uk.ac.ox.oxfish.fisher.log.TripRecord;
 import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
@@ -31,8 +32,7 @@ import uk.ac.ox.oxfish.model.market.AbstractMarket;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
 import java.util.DoubleSummaryStatistics;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.List;
 
 /**
  * the data gatherer for a fisher that steps every year. It gathers:
@@ -111,19 +111,35 @@ public class FisherYearlyTimeSeries extends TimeSeries<Fisher>
                                  (observed.getYearlyCounterColumn(EARNINGS)-observed.getYearlyCounterColumn(VARIABLE_COSTS))/
                                  observed.getYearlyCounterColumn(HOURS_OUT), Double.NaN);
 
-        //this is a set because it gets accessed by two different gatherers and can be filled by either
+        //only the trips finished since the last observation count; those archived in the meantime only contribute
+        //the distance of their most fished tile
         registerGatherer(FISHING_DISTANCE,
                          new Gatherer<Fisher>() {
-                             final HashSet<TripRecord> alreadyExaminedTrips = new HashSet<>();
+                             int alreadyExaminedTrips = 0;
                              @Override
                              public Double apply(Fisher fisher) {
 
                                  NauticalMap map = state.getMap();
                                  SeaTile portLocation = fisher.getHomePort().getLocation();
-                                 LinkedList<TripRecord> trips = new LinkedList<>(fisher.getFinishedTrips());
-                                 boolean removedSome = trips.removeAll(alreadyExaminedTrips);
-                                 assert removedSome ^ alreadyExaminedTrips.isEmpty();
                                  DoubleSummaryStatistics totalDistance = new DoubleSummaryStatistics();
+                                 TripArchive archive = fisher.getTripArchive();
+                                 if(archive != null) {
+                                     int archivedSinceLastTime = Math.min(
+                                             archive.size(),
+                                             archive.getNumberOfArchivedTrips() - alreadyExaminedTrips);
+                                     for(int trip = archive.size() - Math.max(archivedSinceLastTime, 0);
+                                         trip < archive.size(); trip++)
+                                     {
+                                         SeaTile tile = archive.getMostFishedTile(trip, map);
+                                         if(tile != null)
+                                             totalDistance.accept(map.distance(tile, portLocation));
+                                     }
+                                 }
+                                 List<TripRecord> finishedTrips = fisher.getFinishedTrips();
+                                 int newTrips = Math.min(finishedTrips.size(),
+                                                         fisher.getNumberOfFinishedTrips() - alreadyExaminedTrips);
+                                 List<TripRecord> trips = finishedTrips.subList(finishedTrips.size() - newTrips,
+                                                                                finishedTrips.size());
                                  for(TripRecord record : trips)
                                  {
                                      for(SeaTile tile : record.getTilesFished())
@@ -132,7 +148,7 @@ public class FisherYearlyTimeSeries extends TimeSeries<Fisher>
                                      }
                                  }
                                  assert totalDistance.getAverage() > 0 || totalDistance.getCount()==0;
-                                 alreadyExaminedTrips.addAll(trips);
+                                 alreadyExaminedTrips = fisher.getNumberOfFinishedTrips();
 
                                  if(totalDistance.getCount()==0)
                                      return Double.NaN;
@@ -0,0 +1,158 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data.collectors;
+
+import com.google.common.base.Preconditions;
+import uk.ac.ox.oxfish.fisher.Fisher;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Reads a set of numbers from every fisher in one pass and keeps them column by column (one array per reader, one
+ * slot per fisher), so that fleet-wide aggregates can be computed from the arrays rather than by walking the fishers
+ * once per aggregate. <br>
+ * Large fleets are read in parallel chunks; readers must therefore only read. The reductions themselves run
+ * sequentially, in fisher order, so that the results don't depend on how the reading was split.
+ */
+public class FleetAggregation implements Serializable {
+
+    /**
+     * fleets at least this large are read in parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 1000;
+
+    private static final int CHUNK_SIZE = 250;
+
+    /**
+     * something to read from each fisher; serializable so that models can still be saved
+     */
+    public interface Reader extends ToDoubleFunction<Fisher>, Serializable {
+    }
+
+    /**
+     * the readers, null when removed
+     */
+    private final List<Reader> readers = new ArrayList<>();
+
+    /**
+     * for each reader, what it read from each fisher
+     */
+    private double[][] values = new double[0][];
+
+    private Fisher[] fleet = new Fisher[0];
+
+    private int numberOfFishers = 0;
+
+    /**
+     * adds a reader
+     * @return the slot to read the results with
+     */
+    public int addReader(Reader reader) {
+        Preconditions.checkNotNull(reader);
+        readers.add(reader);
+        values = Arrays.copyOf(values, readers.size());
+        values[readers.size() - 1] = new double[fleet.length];
+        return readers.size() - 1;
+    }
+
+    /**
+     * stops reading this slot; the slot is not reused
+     */
+    public void removeReader(int slot) {
+        readers.set(slot, null);
+    }
+
+    /**
+     * reads every reader from every fisher
+     * @param fishers the fleet, in the order the aggregates should go through it
+     */
+    public void gather(List<Fisher> fishers) {
+        numberOfFishers = fishers.size();
+        if (fleet.length < numberOfFishers) {
+            fleet = new Fisher[Math.max(numberOfFishers, fleet.length * 2)];
+            for (int slot = 0; slot < values.length; slot++)
+                values[slot] = new double[fleet.length];
+        }
+        int i = 0;
+        for (Fisher fisher : fishers)
+            fleet[i++] = fisher;
+
+        if (numberOfFishers >= PARALLEL_THRESHOLD) {
+            int chunks = (numberOfFishers + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            IntStream.range(0, chunks).parallel().forEach(
+                    chunk -> read(chunk * CHUNK_SIZE, Math.min(numberOfFishers, (chunk + 1) * CHUNK_SIZE)));
+        } else
+            read(0, numberOfFishers);
+        //don't hold on to fishers that might leave
+        Arrays.fill(fleet, 0, numberOfFishers, null);
+    }
+
+    private void read(int from, int to) {
+        for (int i = from; i < to; i++) {
+            Fisher fisher = fleet[i];
+            for (int slot = 0; slot < values.length; slot++) {
+                Reader reader = readers.get(slot);
+                if (reader != null)
+                    values[slot][i] = reader.applyAsDouble(fisher);
+            }
+        }
+    }
+
+    /**
+     * the sum of what this slot read, summed the way {@link java.util.stream.DoubleStream#sum()} does
+     * (so it matches summing a stream of fishers)
+     */
+    public double sum(int slot) {
+        return Arrays.stream(values[slot], 0, numberOfFishers).sum();
+    }
+
+    /**
+     * the sum of what this slot read, summed one fisher at a time as a plain for loop would
+     */
+    public double plainSum(int slot) {
+        double sum = 0;
+        double[] column = values[slot];
+        for (int i = 0; i < numberOfFishers; i++)
+            sum += column[i];
+        return sum;
+    }
+
+    /**
+     * the plain sum divided by the number of fishers, 0 when there are none
+     */
+    public double average(int slot) {
+        if (numberOfFishers == 0)
+            return 0d;
+        return plainSum(slot) / (double) numberOfFishers;
+    }
+
+    /**
+     * number of fishers read during the last {@link #gather(List)}
+     */
+    public int getNumberOfFishers() {
+        return numberOfFishers;
+    }
+}
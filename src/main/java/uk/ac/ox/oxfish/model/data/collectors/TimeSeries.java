@@ -56,10 +56,23 @@ public class TimeSeries<T> implements Steppable
      *                     some rows filled
      */
     public DataColumn registerGatherer(String title, Gatherer<T> gatherer, double defaultValue)
+    {
+        return registerGatherer(title, gatherer, defaultValue, 0);
+    }
+
+    /**
+     * Create a new data column that only remembers its latest observations
+     * @param title the title of the column
+     * @param gatherer the function to call in order to fill the rows when the datagatherer is stepped
+     * @param defaultValue the value to fill the rows with if this gatherer is added after other columns already have
+     *                     some rows filled
+     * @param retention how many of the latest observations the column keeps (0 means all of them)
+     */
+    public DataColumn registerGatherer(String title, Gatherer<T> gatherer, double defaultValue, int retention)
     {
         Preconditions.checkArgument(!data.containsKey(title), "Column already exists");
         int size =noGatherers() ? 0 : numberOfObservations();
-        DataColumn column = new DataColumn(title);
+        DataColumn column = new DataColumn(title, retention);
         //fill if needed
         for(int i=0; i<size; i++)
             column.add(defaultValue);
@@ -143,7 +156,7 @@ public class TimeSeries<T> implements Steppable
     }
 
     public int numberOfObservations() {
-        return data.values().iterator().next().getColumn().size();
+        return data.values().iterator().next().getColumn().getNumberOfObservationsAdded();
     }
 
     private boolean consistencyCheck()
@@ -156,7 +169,8 @@ public class TimeSeries<T> implements Steppable
 
 
             int size = numberOfObservations();
-            return data.values().stream().allMatch(column -> column.getColumn().size()==size);
+            return data.values().stream().allMatch(
+                    column -> column.getColumn().getNumberOfObservationsAdded()==size);
         }
     }
 
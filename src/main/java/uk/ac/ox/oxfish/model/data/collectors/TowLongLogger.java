@@ -28,16 +28,26 @@ import uk.ac.ox.oxfish.fisher.log.TripRecord;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.AdditionalStartable;
 import uk.ac.ox.oxfish.model.FishState;
-import uk.ac.ox.oxfish.model.data.OutputPlugin;
+import uk.ac.ox.oxfish.model.data.BackgroundFileWriter;
+import uk.ac.ox.oxfish.model.data.StreamingOutputPlugin;
 import uk.ac.ox.oxfish.model.scenario.FisherFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.function.Consumer;
 
 /**
- * listens to all trips and writes down a long data frame collecting where the tows occurred
+ * listens to all trips and writes down a long data frame collecting where the tows occurred. When streaming, rows are
+ * handed to the file every {@link #STREAMING_CHUNK} characters instead of being kept until the end
  */
-public class TowLongLogger implements AdditionalStartable, OutputPlugin, TripListener {
+public class TowLongLogger implements AdditionalStartable, StreamingOutputPlugin, TripListener {
+
+    /**
+     * while streaming, how many characters of rows to hold before handing them to the writer
+     */
+    private static final int STREAMING_CHUNK = 1 << 16;
 
 
     private String fileName = "tow_log.csv";
@@ -50,6 +60,11 @@ public class TowLongLogger implements AdditionalStartable, OutputPlugin, TripLis
 
     private FishState model;
 
+    /**
+     * not null while streaming
+     */
+    private transient BackgroundFileWriter writer = null;
+
 
     public TowLongLogger() {
     }
@@ -73,6 +88,13 @@ public class TowLongLogger implements AdditionalStartable, OutputPlugin, TripLis
                     .append(record.getTripDate()).append(",")
                     .append(String.join(";",fisher.getTags())).append("\n");
         }
+        if(writer != null && log.length() >= STREAMING_CHUNK) {
+            try {
+                handOver();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
     }
 
@@ -139,6 +161,39 @@ public class TowLongLogger implements AdditionalStartable, OutputPlugin, TripLis
         return log.toString();
     }
 
+    @Override
+    public void startStreaming(Path outputFolder, boolean compress) throws IOException {
+        Preconditions.checkState(writer == null, "Already streaming!");
+        writer = new BackgroundFileWriter(outputFolder.resolve(fileName + (compress ? ".gz" : "")), compress);
+        handOver();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if(writer != null) {
+            handOver();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void finishStreaming() throws IOException {
+        Preconditions.checkState(writer != null, "Not streaming!");
+        handOver();
+        writer.close();
+        writer = null;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return writer != null;
+    }
+
+    private void handOver() throws IOException {
+        writer.write(log);
+        log.setLength(0);
+    }
+
 
 
 
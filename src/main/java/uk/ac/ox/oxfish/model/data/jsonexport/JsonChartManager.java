@@ -3,9 +3,14 @@ package uk.ac.ox.oxfish.model.data.jsonexport;
 import com.google.common.base.Preconditions;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import uk.ac.ox.oxfish.model.FishState;
-import uk.ac.ox.oxfish.model.data.OutputPlugin;
+import uk.ac.ox.oxfish.model.data.StreamingOutputPlugin;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.function.ToDoubleFunction;
@@ -13,7 +18,7 @@ import java.util.function.ToDoubleFunction;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.IntStream.range;
 
-public class JsonChartManager implements OutputPlugin {
+public class JsonChartManager implements StreamingOutputPlugin {
 
     private String title;
     private String xLabel;
@@ -27,6 +32,11 @@ public class JsonChartManager implements OutputPlugin {
 
     private ToDoubleFunction<Double> transformer;
 
+    /**
+     * when streaming, the file the chart goes to once the simulation is over
+     */
+    private Path streamingFile;
+
 
     public JsonChartManager(String title, String xLabel, String yLabel, List<Double> yLines, String fileName, List<String> columnNames, Map<String, String> renamedColumns, int numYearsToSkip) {
         this.title = title;
@@ -74,6 +84,37 @@ public class JsonChartManager implements OutputPlugin {
         return gson.toJson(jsonChart);
     }
 
+    /**
+     * charts are only known at the end of the simulation, so this just remembers where to write them: the chart is
+     * then written straight to file rather than built as a string first. Charts are small and the index points at
+     * them by name, so they are never compressed
+     */
+    @Override
+    public void startStreaming(Path outputFolder, boolean compress) {
+        Preconditions.checkState(streamingFile == null, "Already streaming!");
+        streamingFile = outputFolder.resolve(fileName);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void finishStreaming() throws IOException {
+        Preconditions.checkState(streamingFile != null, "Not streaming!");
+        Preconditions.checkNotNull(jsonChart);
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(streamingFile, StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            new Gson().toJson(jsonChart, JsonChart.class, writer);
+        }
+        streamingFile = null;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return streamingFile != null;
+    }
+
 
     /**
      * Getter for property 'transformer'.
@@ -1,5 +1,6 @@
 package uk.ac.ox.oxfish.model.data.jsonexport;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -7,13 +8,22 @@ import sim.engine.Steppable;
 import uk.ac.ox.oxfish.model.AdditionalStartable;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.StepOrder;
-import uk.ac.ox.oxfish.model.data.OutputPlugin;
+import uk.ac.ox.oxfish.model.data.StreamingOutputPlugin;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static java.util.stream.Collectors.toList;
 
-public class JsonIndonesiaManager implements AdditionalStartable, OutputPlugin {
+/**
+ * Sets up all the dashboard outputs (map, charts, regions) and writes the index pointing at them. When asked to
+ * stream it passes that on to the outputs it creates, even when they are only created years into the simulation.
+ */
+public class JsonIndonesiaManager implements AdditionalStartable, StreamingOutputPlugin {
 
     private JsonIndonesiaCharts jsonIndonesiaCharts;
     private JsonIndonesiaMap jsonIndonesiaMap;
@@ -32,24 +42,50 @@ public class JsonIndonesiaManager implements AdditionalStartable, OutputPlugin {
 
     private final String modelDescription;
 
+    /**
+     * whether streamed vessel positions are written in binary rather than json
+     */
+    private final boolean binaryPositions;
+
+    /**
+     * where to stream to; null when not streaming
+     */
+    private Path streamingFolder;
+
+    private boolean compressStreams;
+
     public JsonIndonesiaManager(
             String filePrefix, int numYearsToSkip, String simulationTitle, String modelDescription) {
+        this(filePrefix, numYearsToSkip, simulationTitle, modelDescription, false);
+    }
+
+    public JsonIndonesiaManager(
+            String filePrefix, int numYearsToSkip, String simulationTitle, String modelDescription,
+            boolean binaryPositions) {
         this.filePrefix = filePrefix;
         this.numYearsToSkip = numYearsToSkip;
         this.simulationTitle = simulationTitle;
         this.modelDescription = modelDescription;
+        this.binaryPositions = binaryPositions;
     }
 
 
     @Override
     public void start(FishState model) {
         model.scheduleOnceAtTheBeginningOfYear((Steppable) simState -> {
-            jsonIndonesiaMap = new JsonIndonesiaMap(filePrefix + "_map.json", modelDescription);
+            jsonIndonesiaMap = new JsonIndonesiaMap(filePrefix + "_map.json", modelDescription, binaryPositions);
             jsonIndonesiaMap.start(model);
             jsonIndonesiaCharts = new JsonIndonesiaCharts(filePrefix, numYearsToSkip-1);
             jsonIndonesiaCharts.start(model);
             jsonRegionsManager = new JsonRegionsManager(filePrefix + "_regions.json");
             jsonRegionsManager.start(model);
+            if (streamingFolder != null) {
+                try {
+                    startStreamingOutputs();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
         }, StepOrder.DAWN, numYearsToSkip);
         model.getOutputPlugins().add(this);
     }
@@ -68,6 +104,46 @@ public class JsonIndonesiaManager implements AdditionalStartable, OutputPlugin {
         return filePrefix + "_index.json";
     }
 
+    @Override
+    public void startStreaming(Path outputFolder, boolean compress) throws IOException {
+        Preconditions.checkState(streamingFolder == null, "Already streaming!");
+        streamingFolder = outputFolder;
+        compressStreams = compress;
+        if (jsonIndonesiaMap != null)
+            startStreamingOutputs();
+    }
+
+    private void startStreamingOutputs() throws IOException {
+        if (!jsonIndonesiaMap.isStreaming())
+            jsonIndonesiaMap.startStreaming(streamingFolder, compressStreams);
+        for (JsonChartManager chartManager : jsonIndonesiaCharts.getChartManagers())
+            if (!chartManager.isStreaming())
+                chartManager.startStreaming(streamingFolder, compressStreams);
+    }
+
+    /**
+     * the outputs stream on their own
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * writes the index (the outputs close their own files)
+     */
+    @Override
+    public void finishStreaming() throws IOException {
+        Preconditions.checkState(streamingFolder != null, "Not streaming!");
+        Files.write(streamingFolder.resolve(getFileName()),
+                    composeFileContents().getBytes(StandardCharsets.UTF_8));
+        streamingFolder = null;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return streamingFolder != null;
+    }
+
     @Override
     public String composeFileContents() {
         final List<String> chartPaths =
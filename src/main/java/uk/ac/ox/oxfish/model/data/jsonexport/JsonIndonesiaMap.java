@@ -1,5 +1,6 @@
 package uk.ac.ox.oxfish.model.data.jsonexport;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -14,9 +15,12 @@ import uk.ac.ox.oxfish.geography.ports.Port;
 import uk.ac.ox.oxfish.model.AdditionalStartable;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.StepOrder;
-import uk.ac.ox.oxfish.model.data.OutputPlugin;
+import uk.ac.ox.oxfish.model.data.StreamingOutputPlugin;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,7 +32,12 @@ import static java.util.stream.Collectors.joining;
 import static uk.ac.ox.oxfish.model.data.jsonexport.JsonExportUtils.seaTileHeight;
 import static uk.ac.ox.oxfish.model.data.jsonexport.JsonExportUtils.seaTileWidth;
 
-public class JsonIndonesiaMap implements OutputPlugin, Steppable, AdditionalStartable {
+/**
+ * Daily vessel positions for the dashboard map. By default they are all kept in memory and written as one file at
+ * the end; once {@link #startStreaming(Path, boolean)} is called they are written as the model runs instead, one file
+ * per year plus a manifest listing them (see {@link JsonMapStreamer}).
+ */
+public class JsonIndonesiaMap implements StreamingOutputPlugin, Steppable, AdditionalStartable {
     // TODO: remove `setPrettyPrinting()` once we've reasonably debugged the thing
     private final Gson gson = new GsonBuilder().create();
     private final String fileName;
@@ -42,9 +51,23 @@ public class JsonIndonesiaMap implements OutputPlugin, Steppable, AdditionalStar
     private JsonOutput jsonOutput;
     final private String modelDescription;
 
+    /**
+     * when streaming, write positions in the compact binary format rather than json
+     */
+    private final boolean binaryPositions;
+
+    private JsonMapStreamer streamer;
+
+    private FishState model;
+
     JsonIndonesiaMap(String fileName, String modelDescription) {
+        this(fileName, modelDescription, false);
+    }
+
+    JsonIndonesiaMap(String fileName, String modelDescription, boolean binaryPositions) {
         this.fileName = fileName;
         this.modelDescription = modelDescription;
+        this.binaryPositions = binaryPositions;
     }
 
     @Override
@@ -84,7 +107,45 @@ public class JsonIndonesiaMap implements OutputPlugin, Steppable, AdditionalStar
                                                                FishStateUtilities.round(coordinates.x),
                                                                FishStateUtilities.round(coordinates.y)));
         }
-        jsonOutput.timesteps.add(jsonTimestep);
+        if (streamer != null) {
+            try {
+                streamer.write(jsonTimestep, model.getYear());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else
+            jsonOutput.timesteps.add(jsonTimestep);
+    }
+
+    @Override
+    public void startStreaming(Path outputFolder, boolean compress) throws IOException {
+        Preconditions.checkState(streamer == null, "Already streaming!");
+        Preconditions.checkState(jsonOutput != null, "Not started!");
+        streamer = new JsonMapStreamer(outputFolder, fileName, binaryPositions, compress,
+                                       jsonOutput.description, jsonOutput.vessels, jsonOutput.ports,
+                                       jsonOutput.start);
+        //whatever was gathered so far goes in the files too
+        for (JsonTimestep timestep : jsonOutput.timesteps)
+            streamer.write(timestep, timestep.timeInDays / 365);
+        jsonOutput.timesteps.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (streamer != null)
+            streamer.flush();
+    }
+
+    @Override
+    public void finishStreaming() throws IOException {
+        Preconditions.checkState(streamer != null, "Not streaming!");
+        streamer.close();
+        streamer = null;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return streamer != null;
     }
 
     /**
@@ -95,6 +156,7 @@ public class JsonIndonesiaMap implements OutputPlugin, Steppable, AdditionalStar
      */
     @Override
     public void start(FishState model) {
+        this.model = model;
         final ArrayList<JsonPort> ports = new ArrayList<>();
         for (Port port : model.getPorts()) {
             final Coordinate coordinates = model.getMap().getCoordinates(port.getLocation());
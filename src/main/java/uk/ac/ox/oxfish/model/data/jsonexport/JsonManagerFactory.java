@@ -13,6 +13,11 @@ public class JsonManagerFactory implements AlgorithmFactory<JsonIndonesiaManager
 
     private String modelDescription = "Lorem ipsum";
 
+    /**
+     * when outputs are streamed, write vessel positions in the compact (delta encoded) binary format
+     */
+    private boolean binaryPositions = false;
+
     public int getNumYearsToSkip() {
         return numYearsToSkip;
     }
@@ -51,7 +56,8 @@ public class JsonManagerFactory implements AlgorithmFactory<JsonIndonesiaManager
      */
     @Override
     public JsonIndonesiaManager apply(FishState fishState) {
-        return new JsonIndonesiaManager(filePrefix, numYearsToSkip, dashboardName, modelDescription);
+        return new JsonIndonesiaManager(filePrefix, numYearsToSkip, dashboardName, modelDescription,
+                                        binaryPositions);
 
 
     }
@@ -73,4 +79,22 @@ public class JsonManagerFactory implements AlgorithmFactory<JsonIndonesiaManager
     public void setModelDescription(String modelDescription) {
         this.modelDescription = modelDescription;
     }
+
+    /**
+     * Getter for property 'binaryPositions'.
+     *
+     * @return Value for property 'binaryPositions'.
+     */
+    public boolean isBinaryPositions() {
+        return binaryPositions;
+    }
+
+    /**
+     * Setter for property 'binaryPositions'.
+     *
+     * @param binaryPositions Value to set for property 'binaryPositions'.
+     */
+    public void setBinaryPositions(boolean binaryPositions) {
+        this.binaryPositions = binaryPositions;
+    }
 }
@@ -0,0 +1,16 @@
+package uk.ac.ox.oxfish.model.data.jsonexport;
+
+public class JsonMapChunk {
+    String file;
+    int year;
+    int firstDay;
+    int lastDay;
+    int timesteps;
+
+    public JsonMapChunk(String file, int year, int firstDay) {
+        this.file = file;
+        this.year = year;
+        this.firstDay = firstDay;
+        this.lastDay = firstDay;
+    }
+}
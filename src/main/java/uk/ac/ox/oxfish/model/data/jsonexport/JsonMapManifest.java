@@ -0,0 +1,31 @@
+package uk.ac.ox.oxfish.model.data.jsonexport;
+
+import java.util.List;
+
+/**
+ * what a streamed map file contains instead of the timesteps: the list of files (one per year) they were written to
+ */
+public class JsonMapManifest {
+    String description;
+    List<JsonVessel> vessels;
+    List<JsonPort> ports;
+    long start;
+    String positions;
+    List<JsonMapChunk> chunks;
+
+    public JsonMapManifest(
+        String description,
+        List<JsonVessel> vessels,
+        List<JsonPort> ports,
+        long start,
+        String positions,
+        List<JsonMapChunk> chunks
+    ) {
+        this.description = description;
+        this.vessels = vessels;
+        this.ports = ports;
+        this.start = start;
+        this.positions = positions;
+        this.chunks = chunks;
+    }
+}
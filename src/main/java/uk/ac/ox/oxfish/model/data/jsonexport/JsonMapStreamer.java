@@ -0,0 +1,193 @@
+package uk.ac.ox.oxfish.model.data.jsonexport;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes map timesteps to disk as they come, one file per simulated year, and keeps a manifest listing those files
+ * (rewritten every time a year is done, so the dashboard can page through a run that is still going). <br>
+ * Timesteps are written either as JSON ({@code {"timesteps":[{"timeInDays":..,"vessels":[..]},..]}}, the same
+ * objects the single-file output has) or, for long runs, in a compact binary form: for each timestep the day and
+ * the number of vessels as varints, then for each vessel its id and its longitude and latitude in hundredths of a
+ * degree (positions are already rounded to two decimals) as zig-zag varints, each the difference from the same
+ * vessel's previous position in the file (from 0 the first time the vessel shows up in the file).
+ */
+class JsonMapStreamer {
+
+    static final String JSON = "json";
+
+    static final String BINARY = "delta-binary";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Gson gson = new GsonBuilder().create();
+
+    private final Path outputFolder;
+
+    /**
+     * the map file name; the manifest is written there and the chunks are named after it
+     */
+    private final String fileName;
+
+    private final boolean binary;
+
+    private final boolean compress;
+
+    private final JsonMapManifest manifest;
+
+    private final List<JsonMapChunk> chunks = new ArrayList<>();
+
+    private JsonMapChunk chunk;
+
+    private OutputStream output;
+
+    private JsonWriter json;
+
+    private DataOutputStream data;
+
+    /**
+     * vessel id ---> last written longitude and latitude (in hundredths of degrees); binary only
+     */
+    private final Map<Integer, long[]> lastPositions = new HashMap<>();
+
+    JsonMapStreamer(
+        Path outputFolder, String fileName, boolean binary, boolean compress,
+        String description, List<JsonVessel> vessels, List<JsonPort> ports, long start
+    ) {
+        this.outputFolder = outputFolder;
+        this.fileName = fileName;
+        this.binary = binary;
+        this.compress = compress;
+        this.manifest = new JsonMapManifest(description, vessels, ports, start, binary ? BINARY : JSON, chunks);
+    }
+
+    void write(JsonTimestep timestep, int year) throws IOException {
+        if (chunk == null || chunk.year != year) {
+            closeChunk();
+            openChunk(year, timestep.timeInDays);
+        }
+        if (binary) {
+            writeVarLong(timestep.timeInDays);
+            writeVarLong(timestep.vessels.size());
+            for (JsonVesselPosition position : timestep.vessels) {
+                long[] last = lastPositions.computeIfAbsent(position.id, id -> new long[2]);
+                long longitude = Math.round(position.longitudeDegrees * 100);
+                long latitude = Math.round(position.latitudeDegrees * 100);
+                writeVarLong(position.id);
+                writeVarLong(zigZag(longitude - last[0]));
+                writeVarLong(zigZag(latitude - last[1]));
+                last[0] = longitude;
+                last[1] = latitude;
+            }
+        } else
+            gson.toJson(timestep, JsonTimestep.class, json);
+        chunk.lastDay = timestep.timeInDays;
+        chunk.timesteps++;
+    }
+
+    void flush() throws IOException {
+        if (json != null)
+            json.flush();
+        if (data != null)
+            data.flush();
+    }
+
+    /**
+     * closes the last chunk and writes the final manifest
+     */
+    void close() throws IOException {
+        closeChunk();
+        writeManifest();
+    }
+
+    private void openChunk(int year, int day) throws IOException {
+        String base = fileName.endsWith(".json") ? fileName.substring(0, fileName.length() - 5) : fileName;
+        String chunkName = base + "_year" + year + (binary ? ".bin" : ".json") + (compress ? ".gz" : "");
+        chunk = new JsonMapChunk(chunkName, year, day);
+        chunks.add(chunk);
+        output = Channels.newOutputStream(FileChannel.open(outputFolder.resolve(chunkName),
+                                                           StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                           StandardOpenOption.TRUNCATE_EXISTING));
+        //sync flush: whatever was flushed can be decompressed while the chunk is still being written
+        if (compress)
+            output = new GZIPOutputStream(output, BUFFER_SIZE, true);
+        output = new BufferedOutputStream(output, BUFFER_SIZE);
+        if (binary) {
+            data = new DataOutputStream(output);
+            lastPositions.clear();
+        } else {
+            json = new JsonWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            json.beginObject().name("timesteps").beginArray();
+        }
+    }
+
+    private void closeChunk() throws IOException {
+        if (chunk == null)
+            return;
+        if (binary) {
+            data.close();
+            data = null;
+        } else {
+            json.endArray().endObject();
+            json.close();
+            json = null;
+        }
+        output = null;
+        chunk = null;
+        writeManifest();
+    }
+
+    /**
+     * writes the manifest next to the old one and then moves it in place, so a reader never sees it half written
+     */
+    private void writeManifest() throws IOException {
+        Path temporary = Files.createTempFile(outputFolder, fileName, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                gson.toJson(manifest, writer);
+            }
+            Files.move(temporary, outputFolder.resolve(fileName),
+                       StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        Preconditions.checkArgument(value >= 0);
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    List<JsonMapChunk> getChunks() {
+        return chunks;
+    }
+}
@@ -59,6 +59,13 @@ public abstract class AbstractMarket implements Market {
      */
     private Species species;
 
+    /**
+     * counter handles of the earnings and landings columns
+     */
+    private int earningsHandle;
+
+    private int landingsHandle;
+
     public AbstractMarket() {
         dailyCounter = new Counter(IntervalPolicy.EVERY_DAY);
     }
@@ -84,8 +91,8 @@ public abstract class AbstractMarket implements Market {
 
         //start the counter
         dailyCounter.start(state);
-        dailyCounter.addColumn(EARNINGS_COLUMN_NAME);
-        dailyCounter.addColumn(LANDINGS_COLUMN_NAME);
+        earningsHandle = dailyCounter.addColumn(EARNINGS_COLUMN_NAME);
+        landingsHandle = dailyCounter.addColumn(LANDINGS_COLUMN_NAME);
         dailyCounter.addColumn(PRICE_COLUMN_NAME);
 
         //start the data-set where we are going to store the history of the counter
@@ -94,7 +101,7 @@ public abstract class AbstractMarket implements Market {
         dailyObservations.registerGatherer(EARNINGS_COLUMN_NAME, new Gatherer<Market>() {
                                                @Override
                                                public Double apply(Market market) {
-                                                   return dailyCounter.getColumn(EARNINGS_COLUMN_NAME);
+                                                   return dailyCounter.getColumn(earningsHandle);
                                                }
                                            },
                                            Double.NaN);
@@ -102,7 +109,7 @@ public abstract class AbstractMarket implements Market {
         dailyObservations.registerGatherer(LANDINGS_COLUMN_NAME, new Gatherer<Market>() {
                                                @Override
                                                public Double apply(Market market) {
-                                                   return dailyCounter.getColumn(LANDINGS_COLUMN_NAME);
+                                                   return dailyCounter.getColumn(landingsHandle);
                                                }
                                            },
                                            Double.NaN);
@@ -151,8 +158,8 @@ public abstract class AbstractMarket implements Market {
     {
         if(Log.TRACE && info.getBiomassTraded() >  0)
             Log.trace("recorded the following trade: " + info);
-        dailyCounter.count(EARNINGS_COLUMN_NAME,info.getMoneyExchanged());
-        dailyCounter.count(LANDINGS_COLUMN_NAME, info.getBiomassTraded());
+        dailyCounter.count(earningsHandle,info.getMoneyExchanged());
+        dailyCounter.count(landingsHandle, info.getBiomassTraded());
 
 
 
@@ -26,6 +26,8 @@ import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
 import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.log.TripListener;
+import uk.ac.ox.oxfish.fisher.log.TripRecord;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.model.Startable;
 import uk.ac.ox.oxfish.model.StepOrder;
@@ -37,7 +39,12 @@ import uk.ac.ox.oxfish.utility.FishStateUtilities;
 import java.util.*;
 
 /**
- * An order book to trade ITQs. Very experimental. For now allows only one trade per person per step
+ * An order book to trade ITQs. Very experimental. For now allows only one trade per person per step. <br>
+ * By default every trader is asked for new quotes every day and the book is rebuilt from scratch. In incremental mode
+ * unmatched quotes stay on the book from one day to the next and a trader is only asked for new ones when something
+ * that matters to its price changed: its quota (fishing, trading or a new season), a finished trip, or going in or out
+ * of the penalty box. The two sides of the book are then kept as sorted price arrays, best price first (ties by time
+ * of quoting), and matching just walks down them.
  * Created by carrknight on 8/20/15.
  */
 public class ITQOrderBook implements Steppable,Startable{
@@ -46,6 +53,7 @@ public class ITQOrderBook implements Steppable,Startable{
     public static final String MATCHES_COLUMN_NAME = "MATCHES";
     public static final String QUOTA_COLUMN_NAME = "QUOTA_VOLUME";
     public static final String MONEY_COLUMN_NAME = "MONEY_VOLUME";
+    public static final String REQUOTES_COLUMN_NAME = "REQUOTES";
     HashMap<Fisher,PriceGenerator> pricers  = new HashMap<>();
 
     private PriorityQueue<Quote> asks;
@@ -54,6 +62,11 @@ public class ITQOrderBook implements Steppable,Startable{
 
     private double markup = 0.05;
 
+    /**
+     * how many quotes this book has placed so far; numbers each new quote to break price ties
+     */
+    private int quotesPlaced = 0;
+
     private final int yearOfImplementation;
 
     private double lastClosingPrice = Double.NaN;
@@ -79,6 +92,35 @@ public class ITQOrderBook implements Steppable,Startable{
     private final LinkedList<Fisher> toPenalize = new LinkedList<>();
     private Stoppable stoppable;
 
+    /**
+     * when true quotes persist across days and only traders whose situation changed are asked for new ones
+     */
+    private boolean incremental = false;
+
+    /**
+     * incremental mode only: the two sides of the book
+     */
+    private final BookSide persistentAsks = new BookSide(false);
+
+    private final BookSide persistentBids = new BookSide(true);
+
+    /**
+     * incremental mode only: what each trader looked like when it last quoted
+     */
+    private final HashMap<Fisher,TraderState> traderStates = new HashMap<>();
+
+    /**
+     * traders sorted by id, rebuilt whenever somebody new registers
+     */
+    private List<Fisher> sortedTraders = null;
+
+    /**
+     * number of bids and asks left on the book at the end of the last trading session
+     */
+    private int bidDepth = 0;
+
+    private int askDepth = 0;
+
 
     /**
      * this gets called by the fish-state right after the scenario has started. It's useful to set up steppables
@@ -91,6 +133,7 @@ public class ITQOrderBook implements Steppable,Startable{
         counter.addColumn(MATCHES_COLUMN_NAME);
         counter.addColumn(QUOTA_COLUMN_NAME);
         counter.addColumn(MONEY_COLUMN_NAME);
+        counter.addColumn(REQUOTES_COLUMN_NAME);
         stoppable = model.scheduleEveryDay(this, StepOrder.POLICY_UPDATE);
         counter.start(model);
     }
@@ -102,6 +145,9 @@ public class ITQOrderBook implements Steppable,Startable{
     public void turnOff() {
         if(stoppable!=null)
             stoppable.stop();
+        for(Map.Entry<Fisher,TraderState> trader : traderStates.entrySet())
+            trader.getKey().removeTripListener(trader.getValue());
+        traderStates.clear();
     }
 
     /**
@@ -139,6 +185,7 @@ public class ITQOrderBook implements Steppable,Startable{
     public void registerTrader(Fisher fisher, PriceGenerator pricer)
     {
         pricers.put(fisher,pricer);
+        sortedTraders = null;
     }
 
 
@@ -148,6 +195,12 @@ public class ITQOrderBook implements Steppable,Startable{
 
         penaltyBox.step(state); //tell the penalty box to update durations
         MersenneTwisterFast random = ((FishState) state).getRandom();
+        if(incremental)
+        {
+            if(((FishState) state).getYear() >= yearOfImplementation)
+                stepIncrementally(random);
+            return;
+        }
         List<Map.Entry<Fisher,PriceGenerator>> traders = new ArrayList<>(pricers.entrySet());
         //sort from hash before shuffling or the randomization might not be the same even if the seed is left constant
         traders.sort((o1, o2) -> Integer.compare(o1.getKey().getID(), o2.getKey().getID()));
@@ -171,6 +224,8 @@ public class ITQOrderBook implements Steppable,Startable{
 
             //go for it
             clearQuotes();
+            bidDepth = bids.size();
+            askDepth = asks.size();
 
 
             //clear the quotes
@@ -187,16 +242,73 @@ public class ITQOrderBook implements Steppable,Startable{
 
     }
 
+    /**
+     * asks for new quotes only from traders whose situation changed, then matches the book
+     */
+    private void stepIncrementally(MersenneTwisterFast random) {
+
+        if(sortedTraders == null) {
+            sortedTraders = new ArrayList<>(pricers.keySet());
+            sortedTraders.sort((o1, o2) -> Integer.compare(o1.getID(), o2.getID()));
+        }
+
+        //pull the stale quotes
+        List<Fisher> requoting = new ArrayList<>();
+        for(Fisher fisher : sortedTraders)
+        {
+            TraderState trader = traderStates.get(fisher);
+            if(trader == null)
+            {
+                trader = new TraderState();
+                fisher.addTripListener(trader);
+                traderStates.put(fisher, trader);
+            }
+            if(trader.isStale(getQuotaRemaining(fisher), penaltyBox.has(fisher)))
+            {
+                persistentAsks.remove(fisher);
+                persistentBids.remove(fisher);
+                requoting.add(fisher);
+            }
+        }
+
+        //new quotes go in random order, behind the old ones at the same price
+        Collections.shuffle(requoting, new Random(random.nextLong()));
+        for(Fisher fisher : requoting)
+        {
+            generatePricesAndPutOnBook(fisher, pricers.get(fisher), true, true);
+            traderStates.get(fisher).quoted(getQuotaRemaining(fisher), penaltyBox.has(fisher));
+        }
+
+        clearPersistentQuotes();
+        bidDepth = persistentBids.size();
+        askDepth = persistentAsks.size();
+
+        //traders have to quote again after trading; buyers go to the penalty box
+        for(Fisher trader : toPenalize)
+            penaltyBox.registerTrader(trader);
+        toPenalize.clear();
+
+    }
+
+    private double getQuotaRemaining(Fisher fisher) {
+        return ((QuotaPerSpecieRegulation) fisher.getRegulation()).getQuotaRemaining(specieIndex);
+    }
+
     public void generatePricesAndPutOnBook(Fisher fisher, PriceGenerator priceGenerator,
                                            boolean generateAsk, boolean generateBid) {
         double price =  priceGenerator.computeLambda();
+        counter.count(REQUOTES_COLUMN_NAME, 1);
         if (Double.isFinite(price)) {
             double buyPrice = FishStateUtilities.round(price * (1 - markup));
             //do I want to buy?
             if (generateBid && price > 0) {
-                bids.add(new Quote(
-                        buyPrice,
-                        fisher));
+                if(incremental)
+                    persistentBids.insert(buyPrice, fisher);
+                else
+                    bids.add(new Quote(
+                            buyPrice,
+                            fisher,
+                            quotesPlaced++));
             }
             //can I sell?
             if ( generateAsk  &&
@@ -207,9 +319,13 @@ public class ITQOrderBook implements Steppable,Startable{
                                             buyPrice + FishStateUtilities.EPSILON) //never let bids and ask cross, even if markup is 0!
                         ;
                 assert buyPrice < salePrice;
-                asks.add(new Quote(
-                        salePrice,
-                        fisher));
+                if(incremental)
+                    persistentAsks.insert(salePrice, fisher);
+                else
+                    asks.add(new Quote(
+                            salePrice,
+                            fisher,
+                            quotesPlaced++));
             }
         }
     }
@@ -247,50 +363,89 @@ public class ITQOrderBook implements Steppable,Startable{
                 assert tradingPrice >= bestAsk.getPrice();
                 assert tradingPrice <= bestBid.getPrice();
 
-                //now trade!
+                trade(buyer, seller, tradingPrice);
 
-                QuotaPerSpecieRegulation buyerQuota = (QuotaPerSpecieRegulation) buyer.getRegulation();
-                QuotaPerSpecieRegulation sellerQuota = (QuotaPerSpecieRegulation) seller.getRegulation();
+                //again!
+            }
+            else {
+                return;
+            }
 
+        }
+    }
 
-                buyerQuota.setQuotaRemaining(specieIndex, buyerQuota.getQuotaRemaining(specieIndex) + unitsTradedPerMatch);
-                sellerQuota.setQuotaRemaining(specieIndex,sellerQuota.getQuotaRemaining(specieIndex) - unitsTradedPerMatch);
 
-                buyer.spendExogenously(unitsTradedPerMatch * tradingPrice);
-                seller.earn(unitsTradedPerMatch * tradingPrice);
-                counter.count(QUOTA_COLUMN_NAME, unitsTradedPerMatch);
-                counter.count(MONEY_COLUMN_NAME, unitsTradedPerMatch * tradingPrice);
-                counter.count(MATCHES_COLUMN_NAME, 1);
+    /**
+     * exchanges quotas and money between buyer and seller, then lets them quote again if that's allowed
+     */
+    private void trade(Fisher buyer, Fisher seller, double tradingPrice) {
+        //now trade!
 
+        QuotaPerSpecieRegulation buyerQuota = (QuotaPerSpecieRegulation) buyer.getRegulation();
+        QuotaPerSpecieRegulation sellerQuota = (QuotaPerSpecieRegulation) seller.getRegulation();
 
-                if (Log.TRACE) {
-                    Log.trace(
-                            buyer + " bought " + unitsTradedPerMatch + " quotas of species " + specieIndex + " from " + seller);
-                    Log.trace(buyer + " now has " + buyerQuota.getQuotaRemaining(specieIndex) +
-                                      " quotas left while" + seller + " has " +
-                                      sellerQuota.getQuotaRemaining(specieIndex));
-                }
 
-                toPenalize.add(buyer);
-                lastClosingPrice = tradingPrice;
-                assert sellerQuota.getQuotaRemaining(specieIndex) >= 0;
+        buyerQuota.setQuotaRemaining(specieIndex, buyerQuota.getQuotaRemaining(specieIndex) + unitsTradedPerMatch);
+        sellerQuota.setQuotaRemaining(specieIndex,sellerQuota.getQuotaRemaining(specieIndex) - unitsTradedPerMatch);
 
+        buyer.spendExogenously(unitsTradedPerMatch * tradingPrice);
+        seller.earn(unitsTradedPerMatch * tradingPrice);
+        counter.count(QUOTA_COLUMN_NAME, unitsTradedPerMatch);
+        counter.count(MONEY_COLUMN_NAME, unitsTradedPerMatch * tradingPrice);
+        counter.count(MATCHES_COLUMN_NAME, 1);
 
-                //if you allow it, let buyer and seller posts more offers
-                if (allowMultipleTradesPerFisher) {
-                    generatePricesAndPutOnBook(buyer, pricers.get(buyer), false, true);
-                    generatePricesAndPutOnBook(seller, pricers.get(seller), true, false);
-                }
 
-                //again!
-            }
-            else {
-                return;
-            }
+        if (Log.TRACE) {
+            Log.trace(
+                    buyer + " bought " + unitsTradedPerMatch + " quotas of species " + specieIndex + " from " + seller);
+            Log.trace(buyer + " now has " + buyerQuota.getQuotaRemaining(specieIndex) +
+                              " quotas left while" + seller + " has " +
+                              sellerQuota.getQuotaRemaining(specieIndex));
+        }
 
+        toPenalize.add(buyer);
+        lastClosingPrice = tradingPrice;
+        assert sellerQuota.getQuotaRemaining(specieIndex) >= 0;
+
+
+        //if you allow it, let buyer and seller posts more offers
+        if (allowMultipleTradesPerFisher) {
+            generatePricesAndPutOnBook(buyer, pricers.get(buyer), false, true);
+            generatePricesAndPutOnBook(seller, pricers.get(seller), true, false);
         }
+
     }
 
+    /**
+     * incremental version of {@link #clearQuotes()}: same matching, but walking down the sorted sides of the book
+     * and leaving unmatched quotes where they are
+     */
+    private void clearPersistentQuotes()
+    {
+        while(!persistentBids.isEmpty() && !persistentAsks.isEmpty())
+        {
+            double bestBid = persistentBids.bestPrice();
+            double bestAsk = persistentAsks.bestPrice();
+            if(bestAsk > bestBid)
+                return;
+
+            Fisher buyer = persistentBids.removeBest();
+            Fisher seller = persistentAsks.removeBest();
+            assert !penaltyBox.has(seller); //seller ought not to be in the penalty box
+
+            double tradingPrice = pricingPolicy.tradePrice(
+                    bestAsk, bestBid,
+                    persistentAsks.isEmpty() ? Double.NaN : persistentAsks.bestPrice(),
+                    persistentBids.isEmpty() ? Double.NaN : persistentBids.bestPrice());
+            assert tradingPrice >= bestAsk;
+            assert tradingPrice <= bestBid;
+
+            //their other quotes are stale now
+            traderStates.get(buyer).traded = true;
+            traderStates.get(seller).traded = true;
+            trade(buyer, seller, tradingPrice);
+        }
+    }
 
     public double getMarkup() {
         return markup;
@@ -373,4 +528,180 @@ public class ITQOrderBook implements Steppable,Startable{
     public void setAllowMultipleTradesPerFisher(boolean allowMultipleTradesPerFisher) {
         this.allowMultipleTradesPerFisher = allowMultipleTradesPerFisher;
     }
+
+    /**
+     * Getter for property 'incremental'.
+     *
+     * @return Value for property 'incremental'.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Setter for property 'incremental'. Switch it before the market starts trading.
+     *
+     * @param incremental Value to set for property 'incremental'.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * How many times traders were asked to price quotas since the beginning of the day
+     */
+    public double getDailyRequotes()
+    {
+        return counter.getColumn(REQUOTES_COLUMN_NAME);
+    }
+
+    /**
+     * bids left unmatched at the end of the last trading session
+     */
+    public int getBidDepth() {
+        return bidDepth;
+    }
+
+    /**
+     * asks left unmatched at the end of the last trading session
+     */
+    public int getAskDepth() {
+        return askDepth;
+    }
+
+    /**
+     * what a trader looked like when it quoted last; it needs to quote again when any of it changes
+     */
+    private static class TraderState implements TripListener {
+
+        private boolean quoted = false;
+
+        private double quotaWhenQuoted;
+
+        private boolean penalizedWhenQuoted;
+
+        private boolean tripFinished = false;
+
+        private boolean traded = false;
+
+        private boolean isStale(double quotaRemaining, boolean penalized) {
+            return !quoted || tripFinished || traded ||
+                    quotaRemaining != quotaWhenQuoted || penalized != penalizedWhenQuoted;
+        }
+
+        private void quoted(double quotaRemaining, boolean penalized) {
+            quoted = true;
+            tripFinished = false;
+            traded = false;
+            quotaWhenQuoted = quotaRemaining;
+            penalizedWhenQuoted = penalized;
+        }
+
+        @Override
+        public void reactToFinishedTrip(TripRecord record, Fisher fisher) {
+            tripFinished = true;
+        }
+    }
+
+    /**
+     * One side of the book as parallel arrays of prices and traders, best quote first. Quotes at the same price are
+     * kept in the order they arrived. Removing the best quote only moves the start of the book forward.
+     */
+    private static class BookSide {
+
+        /**
+         * true for bids (highest price is best), false for asks
+         */
+        private final boolean descending;
+
+        private double[] prices = new double[16];
+
+        private Fisher[] traders = new Fisher[16];
+
+        /**
+         * the book is [start, end)
+         */
+        private int start = 0;
+
+        private int end = 0;
+
+        private BookSide(boolean descending) {
+            this.descending = descending;
+        }
+
+        private boolean isEmpty() {
+            return start == end;
+        }
+
+        private int size() {
+            return end - start;
+        }
+
+        private double bestPrice() {
+            return prices[start];
+        }
+
+        private Fisher removeBest() {
+            Fisher best = traders[start];
+            traders[start] = null;
+            start++;
+            return best;
+        }
+
+        /**
+         * true if a quote at price should go after one at other
+         */
+        private boolean after(double price, double other) {
+            return descending ? price <= other : price >= other;
+        }
+
+        private void insert(double price, Fisher trader) {
+            if (end == prices.length) {
+                if (start > 0)
+                    compact();
+                else {
+                    prices = Arrays.copyOf(prices, prices.length * 2);
+                    traders = Arrays.copyOf(traders, traders.length * 2);
+                }
+            }
+            //first position whose quote comes after the new one
+            int low = start;
+            int high = end;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (after(price, prices[middle]))
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            System.arraycopy(prices, low, prices, low + 1, end - low);
+            System.arraycopy(traders, low, traders, low + 1, end - low);
+            prices[low] = price;
+            traders[low] = trader;
+            end++;
+        }
+
+        /**
+         * removes the trader's quote, if it has one
+         */
+        private void remove(Fisher trader) {
+            for (int i = start; i < end; i++)
+                if (traders[i] == trader) {
+                    System.arraycopy(prices, i + 1, prices, i, end - i - 1);
+                    System.arraycopy(traders, i + 1, traders, i, end - i - 1);
+                    end--;
+                    traders[end] = null;
+                    return;
+                }
+        }
+
+        private void compact() {
+            int size = size();
+            System.arraycopy(prices, start, prices, 0, size);
+            System.arraycopy(traders, start, traders, 0, size);
+            Arrays.fill(traders, size, end, null);
+            start = 0;
+            end = size;
+        }
+    }
 }
@@ -35,16 +35,18 @@ public class Quote implements Comparable<Quote>{
 
     final private Fisher trader;
 
-    private static int counter = 0;
-
+    /**
+     * breaks price ties: lower goes first. Numbered by the book placing the quote, so models running side by side
+     * don't draw from the same counter
+     */
     final private int splitter;
 
 
-    public Quote(double price, Fisher trader) {
+    public Quote(double price, Fisher trader, int splitter) {
         Preconditions.checkArgument(price >=0);
         this.price = price;
         this.trader = trader;
-        splitter = counter++;
+        this.splitter = splitter;
 
     }
 
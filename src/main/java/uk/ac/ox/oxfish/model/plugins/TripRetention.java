@@ -0,0 +1,88 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.plugins;
+
+import com.google.common.base.Preconditions;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.model.AdditionalStartable;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.scenario.FisherFactory;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Sets the same trip retention policy (see {@link uk.ac.ox.oxfish.fisher.log.TripLogger}) on every fisher, including
+ * those that enter the fishery later
+ */
+public class TripRetention implements AdditionalStartable {
+
+    private final int hotTrips;
+
+    private final int hotDays;
+
+    private final boolean archivingOldTrips;
+
+    private final int archivedTrips;
+
+    private FishState model;
+
+    public TripRetention(int hotTrips, int hotDays, boolean archivingOldTrips, int archivedTrips) {
+        this.hotTrips = hotTrips;
+        this.hotDays = hotDays;
+        this.archivingOldTrips = archivingOldTrips;
+        this.archivedTrips = archivedTrips;
+    }
+
+    /**
+     * this gets called by the fish-state right after the scenario has started. It's useful to set up steppables
+     * or just to percolate a reference to the model
+     *
+     * @param model the model
+     */
+    @Override
+    public void start(FishState model) {
+        Preconditions.checkState(this.model == null, "Already started!");
+        this.model = model;
+        for (Fisher fisher : model.getFishers())
+            fisher.setTripRetention(hotTrips, hotDays, archivingOldTrips, archivedTrips);
+
+        for (Map.Entry<String, FisherFactory> fisherFactory : model.getFisherFactories()) {
+            fisherFactory.getValue().getAdditionalSetups().add(
+                    new Consumer<Fisher>() {
+                        @Override
+                        public void accept(Fisher fisher) {
+                            if (TripRetention.this.model != null) //if i am still active
+                                fisher.setTripRetention(hotTrips, hotDays, archivingOldTrips, archivedTrips);
+                        }
+                    }
+            );
+        }
+    }
+
+    /**
+     * tell the startable to turnoff,
+     */
+    @Override
+    public void turnOff() {
+        model = null;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.plugins;
+
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.utility.AlgorithmFactory;
+import uk.ac.ox.oxfish.utility.parameters.DoubleParameter;
+import uk.ac.ox.oxfish.utility.parameters.FixedDoubleParameter;
+
+public class TripRetentionFactory implements AlgorithmFactory<TripRetention> {
+
+    /**
+     * how many of the latest trips each fisher keeps in full; negative means all
+     */
+    private DoubleParameter hotTrips = new FixedDoubleParameter(100);
+
+    /**
+     * how many days' worth of trips each fisher keeps in full; negative means no limit
+     */
+    private DoubleParameter hotDays = new FixedDoubleParameter(365);
+
+    /**
+     * when true older trips are summarized in the trip archive, otherwise they are forgotten
+     */
+    private boolean archivingOldTrips = true;
+
+    /**
+     * the most trips each fisher keeps in its archive; past that the oldest are overwritten
+     */
+    private DoubleParameter archivedTrips = new FixedDoubleParameter(1000);
+
+    /**
+     * Applies this function to the given argument.
+     *
+     * @param state the function argument
+     * @return the function result
+     */
+    @Override
+    public TripRetention apply(FishState state) {
+        return new TripRetention(hotTrips.apply(state.getRandom()).intValue(),
+                                 hotDays.apply(state.getRandom()).intValue(),
+                                 archivingOldTrips,
+                                 archivedTrips.apply(state.getRandom()).intValue());
+    }
+
+    /**
+     * Getter for property 'hotTrips'.
+     *
+     * @return Value for property 'hotTrips'.
+     */
+    public DoubleParameter getHotTrips() {
+        return hotTrips;
+    }
+
+    /**
+     * Setter for property 'hotTrips'.
+     *
+     * @param hotTrips Value to set for property 'hotTrips'.
+     */
+    public void setHotTrips(DoubleParameter hotTrips) {
+        this.hotTrips = hotTrips;
+    }
+
+    /**
+     * Getter for property 'hotDays'.
+     *
+     * @return Value for property 'hotDays'.
+     */
+    public DoubleParameter getHotDays() {
+        return hotDays;
+    }
+
+    /**
+     * Setter for property 'hotDays'.
+     *
+     * @param hotDays Value to set for property 'hotDays'.
+     */
+    public void setHotDays(DoubleParameter hotDays) {
+        this.hotDays = hotDays;
+    }
+
+    /**
+     * Getter for property 'archivingOldTrips'.
+     *
+     * @return Value for property 'archivingOldTrips'.
+     */
+    public boolean isArchivingOldTrips() {
+        return archivingOldTrips;
+    }
+
+    /**
+     * Setter for property 'archivingOldTrips'.
+     *
+     * @param archivingOldTrips Value to set for property 'archivingOldTrips'.
+     */
+    public void setArchivingOldTrips(boolean archivingOldTrips) {
+        this.archivingOldTrips = archivingOldTrips;
+    }
+
+    /**
+     * Getter for property 'archivedTrips'.
+     *
+     * @return Value for property 'archivedTrips'.
+     */
+    public DoubleParameter getArchivedTrips() {
+        return archivedTrips;
+    }
+
+    /**
+     * Setter for property 'archivedTrips'.
+     *
+     * @param archivedTrips Value to set for property 'archivedTrips'.
+     */
+    public void setArchivedTrips(DoubleParameter archivedTrips) {
+        this.archivedTrips = archivedTrips;
+    }
+}
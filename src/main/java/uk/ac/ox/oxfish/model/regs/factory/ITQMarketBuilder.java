@@ -140,6 +140,18 @@ public class ITQMarketBuilder  implements Startable
                                                       0d);
 
 
+            //book activity: how many quotes were priced, and how many were left unmatched
+            model.getDailyDataSet().registerGatherer("ITQ Requotes Of " + speciesName,
+                                                     state1 -> market.getDailyRequotes(),
+                                                     Double.NaN);
+            model.getDailyDataSet().registerGatherer("ITQ Bid Depth Of " + speciesName,
+                                                     state1 -> (double) market.getBidDepth(),
+                                                     Double.NaN);
+            model.getDailyDataSet().registerGatherer("ITQ Ask Depth Of " + speciesName,
+                                                     state1 -> (double) market.getAskDepth(),
+                                                     Double.NaN);
+
+
             DataColumn tradeValueColumn = model.getDailyDataSet().registerGatherer("ITQ Trade Value Of " + speciesName,
                                                                           state1 -> {
                                                                               return market.getDailyQuotasExchanged() * market.getDailyAveragePrice();
@@ -81,6 +81,11 @@ public class MultiITQFactory implements AlgorithmFactory<MultiQuotaITQRegulation
      */
     private boolean allowMultipleTrades = false;
 
+    /**
+     * when true the order books keep quotes across days and only re-price traders whose quota or trips changed
+     */
+    private boolean incrementalOrderBook = false;
+
     /**
      * the size of quota units (kg) traded each day
      */
@@ -123,7 +128,8 @@ public class MultiITQFactory implements AlgorithmFactory<MultiQuotaITQRegulation
          *
          */
         buildITQMarketsIfNeeded(state, numberOfSpecies, quotas, markets, builders,
-                                allowMultipleTrades, integer -> minimumQuotaTraded);
+                                allowMultipleTrades, incrementalOrderBook,
+                                integer -> minimumQuotaTraded);
 
         MultiQuotaITQRegulation multiQuotaITQRegulation = new MultiQuotaITQRegulation(quotas, state,
                                                                                       markets);
@@ -143,12 +149,14 @@ public class MultiITQFactory implements AlgorithmFactory<MultiQuotaITQRegulation
      * @param markets ITQ markets
      * @param builders ITQ builders
      * @param allowMultipleTradesPerFisher whether a fisher can make multiple trades within the same step
+     * @param incrementalOrderBook whether the order books keep quotes across days (see {@link ITQOrderBook})
      * @param unitsTradedPerMatch the size of quotas exchanged at each trade (in kg) as a function index of species ---> size of quota
      */
     public static void buildITQMarketsIfNeeded(
             FishState state, int numberOfSpecies, double[] quotas,
             HashMap<Integer,ITQOrderBook> markets,
             ITQMarketBuilder[] builders, final boolean allowMultipleTradesPerFisher,
+            final boolean incrementalOrderBook,
             final Function<Integer,Integer> unitsTradedPerMatch) {
 
         if(Log.TRACE)
@@ -195,6 +203,7 @@ public class MultiITQFactory implements AlgorithmFactory<MultiQuotaITQRegulation
                             ITQOrderBook market = builders[specieIndex].getMarket();
                             markets.put(specieIndex, market);
                             market.setAllowMultipleTradesPerFisher(allowMultipleTradesPerFisher);
+                            market.setIncremental(incrementalOrderBook);
                             market.setUnitsTradedPerMatch(unitsTradedPerMatch.apply(specieIndex));
                         }
 
@@ -255,4 +264,12 @@ public class MultiITQFactory implements AlgorithmFactory<MultiQuotaITQRegulation
     public void setMinimumQuotaTraded(int minimumQuotaTraded) {
         this.minimumQuotaTraded = minimumQuotaTraded;
     }
+
+    public boolean isIncrementalOrderBook() {
+        return incrementalOrderBook;
+    }
+
+    public void setIncrementalOrderBook(boolean incrementalOrderBook) {
+        this.incrementalOrderBook = incrementalOrderBook;
+    }
 }
@@ -62,6 +62,11 @@ public class MultiITQStringFactory implements AlgorithmFactory<MultiQuotaITQRegu
      */
     private boolean allowMultipleTrades = false;
 
+    /**
+     * when true the order books keep quotes across days and only re-price traders whose quota or trips changed
+     */
+    private boolean incrementalOrderBook = false;
+
     /**
      * the size of quota units (kg) traded each match;
      * This can be either a simple number (at which point all quotas are traded at the same tick volume) or a map like
@@ -150,7 +155,7 @@ public class MultiITQStringFactory implements AlgorithmFactory<MultiQuotaITQRegu
 
 
         MultiITQFactory.buildITQMarketsIfNeeded(state, numberOfSpecies, quotas, markets, builders,
-                                                allowMultipleTrades, volumePerMatch);
+                                                allowMultipleTrades, incrementalOrderBook, volumePerMatch);
 
 
         MultiQuotaITQRegulation multiQuotaITQRegulation = new MultiQuotaITQRegulation(quotas, state,
@@ -220,4 +225,22 @@ public class MultiITQStringFactory implements AlgorithmFactory<MultiQuotaITQRegu
     public Locker<FishState, ITQMarketBuilder[]> getOrderBooksBuilder() {
         return orderBooksBuilder;
     }
+
+    /**
+     * Getter for property 'incrementalOrderBook'.
+     *
+     * @return Value for property 'incrementalOrderBook'.
+     */
+    public boolean isIncrementalOrderBook() {
+        return incrementalOrderBook;
+    }
+
+    /**
+     * Setter for property 'incrementalOrderBook'.
+     *
+     * @param incrementalOrderBook Value to set for property 'incrementalOrderBook'.
+     */
+    public void setIncrementalOrderBook(boolean incrementalOrderBook) {
+        this.incrementalOrderBook = incrementalOrderBook;
+    }
 }
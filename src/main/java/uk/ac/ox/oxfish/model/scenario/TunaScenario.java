@@ -39,6 +39,11 @@ import uk.ac.ox.oxfish.geography.fads.FadMap;
 import uk.ac.ox.oxfish.geography.fads.FadMapFactory;
 import uk.ac.ox.oxfish.geography.mapmakers.FromFileMapInitializerFactory;
 import uk.ac.ox.oxfish.geography.pathfinding.AStarFallbackPathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.AStarPathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.GridAStarPathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.PathMemory;
+import uk.ac.ox.oxfish.geography.pathfinding.Pathfinder;
+import uk.ac.ox.oxfish.geography.pathfinding.TableBasedPathMemory;
 import uk.ac.ox.oxfish.geography.ports.FromSimpleFilePortInitializer;
 import uk.ac.ox.oxfish.geography.ports.Port;
 import uk.ac.ox.oxfish.model.FishState;
@@ -185,7 +190,12 @@ public class TunaScenario implements Scenario {
         final GlobalBiology globalBiology = biologyInitializer.generateGlobal(model.random, model);
         final WeatherInitializer weatherInitializer = this.weatherInitializer.apply(model);
         final NauticalMap nauticalMap = mapInitializer.apply(model).makeMap(model.random, globalBiology, model);
-        nauticalMap.setPathfinder(new AStarFallbackPathfinder(nauticalMap.getDistance()));
+        final PathMemory pathMemory = nauticalMap.getPortRouteAtlas() != null ?
+            nauticalMap.getPortRouteAtlas() : new TableBasedPathMemory();
+        final Pathfinder aStarPathfinder = mapInitializer.isGridPathfinder() ?
+            new GridAStarPathfinder(nauticalMap.getDistance(), pathMemory) :
+            new AStarPathfinder(nauticalMap.getDistance(), pathMemory);
+        nauticalMap.setPathfinder(new AStarFallbackPathfinder(aStarPathfinder, pathMemory));
 
         //this next static method calls biology.initialize, weather.initialize and the like
         NauticalMapFactory.initializeMap(
@@ -23,8 +23,11 @@ package uk.ac.ox.oxfish.utility;
 import com.google.common.base.Preconditions;
 import com.opencsv.CSVReader;
 
-import java.io.FileReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -63,55 +66,77 @@ public class CsvColumnsToLists
             columnNames[i] = columnNames[i].replace("\"", "").trim().toLowerCase();
     }
 
+    /**
+     * reads the columns; the file is parsed only the first time it is read (per JVM and per content), the lists
+     * returned are new each time
+     */
     public LinkedList<Double>[] readColumns()
+    {
+        try {
+            double[][] parsed = InputFileCache.get(
+                    Paths.get(pathToCSV),
+                    "csv columns " + separator + " " + Arrays.toString(columnNames),
+                    content -> parse(new InputStreamReader(new ByteArrayInputStream(content))));
+            LinkedList<Double>[] column = new LinkedList[parsed.length];
+            for(int i=0; i<column.length; i++) {
+                column[i] = new LinkedList<>();
+                for (double value : parsed[i])
+                    column[i].add(value);
+            }
+            return column;
+        } catch (IOException e) {
+            throw new RuntimeException("failed to read or parse " + pathToCSV  + " with exception " + e);
+        }
+    }
+
+    private double[][] parse(Reader io) throws IOException
     {
 
 
         //turn the csv column into a list of doubles
-        try {
-            FileReader io = new FileReader(pathToCSV);
-            CSVReader reader = new CSVReader(io, separator);
+        CSVReader reader = new CSVReader(io, separator);
 
 
-            Iterator<String[]> iterator = reader.iterator();
+        Iterator<String[]> iterator = reader.iterator();
 
-            String[] heading = iterator.next();
-            LinkedList<Integer> indices = new LinkedList<Integer>();
+        String[] heading = iterator.next();
+        LinkedList<Integer> indices = new LinkedList<Integer>();
 
-            //find the column index of each column name
-            headloop:
-            for(int i=0; i<columnNames.length; i++)
-            {
-                for(int j=0; j<heading.length; j++) {
-                    if (heading[j].replace("\"", "").trim().toLowerCase().equals(columnNames[i]))
-                    {
-                        indices.add(j);
-                        continue headloop;
-                    }
+        //find the column index of each column name
+        headloop:
+        for(int i=0; i<columnNames.length; i++)
+        {
+            for(int j=0; j<heading.length; j++) {
+                if (heading[j].replace("\"", "").trim().toLowerCase().equals(columnNames[i]))
+                {
+                    indices.add(j);
+                    continue headloop;
                 }
-                throw new IllegalArgumentException("Failed to find column " + columnNames[i] +
-                                                           " in the heading: " + Arrays.toString(heading));
-
             }
+            throw new IllegalArgumentException("Failed to find column " + columnNames[i] +
+                                                       " in the heading: " + Arrays.toString(heading));
 
-            //create an array of columns to return
-            LinkedList<Double>[] column = new LinkedList[columnNames.length];
-            for(int i=0; i<column.length; i++)
-                column[i] = new LinkedList<>();
+        }
 
-            assert column.length == indices.size();
-            while(iterator.hasNext())
-            {
-                String[] line = iterator.next();
-                for(int i=0; i<column.length; i++)
-                    column[i].add(Double.parseDouble(line[indices.get(i)]));
-            }
-            reader.close();
-            io.close();
-            return column;
-        } catch (IOException e) {
-            throw new RuntimeException("failed to read or parse " + pathToCSV  + " with exception " + e);
+        //create an array of columns to return
+        List<double[]> rows = new ArrayList<>();
+        assert columnNames.length == indices.size();
+        while(iterator.hasNext())
+        {
+            String[] line = iterator.next();
+            double[] row = new double[columnNames.length];
+            for(int i=0; i<row.length; i++)
+                row[i] = Double.parseDouble(line[indices.get(i)]);
+            rows.add(row);
         }
+        reader.close();
+        io.close();
+
+        double[][] column = new double[columnNames.length][rows.size()];
+        for(int j=0; j<rows.size(); j++)
+            for(int i=0; i<column.length; i++)
+                column[i][j] = rows.get(j)[i];
+        return column;
     }
 
 
@@ -25,6 +25,7 @@ import com.google.common.base.Preconditions;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.StaxDriver;
 import ec.util.MersenneTwisterFast;
+import sim.engine.Steppable;
 import org.jetbrains.annotations.Nullable;
 import uk.ac.ox.oxfish.biology.GlobalBiology;
 import uk.ac.ox.oxfish.biology.LocalBiology;
@@ -38,8 +39,10 @@ import uk.ac.ox.oxfish.fisher.selfanalysis.ObjectiveFunction;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.geography.ports.Port;
 import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.StepOrder;
 import uk.ac.ox.oxfish.model.data.Gatherer;
 import uk.ac.ox.oxfish.model.data.OutputPlugin;
+import uk.ac.ox.oxfish.model.data.StreamingOutputPlugin;
 import uk.ac.ox.oxfish.model.data.collectors.DataColumn;
 import uk.ac.ox.oxfish.model.data.collectors.FisherYearlyTimeSeries;
 import uk.ac.ox.oxfish.model.data.collectors.TowHeatmapGatherer;
@@ -47,6 +50,7 @@ import uk.ac.ox.oxfish.model.scenario.PolicyScripts;
 import uk.ac.ox.oxfish.model.scenario.Scenario;
 import uk.ac.ox.oxfish.utility.adaptation.Sensor;
 import uk.ac.ox.oxfish.utility.yaml.FishYAML;
+import uk.ac.ox.oxfish.utility.yaml.ScenarioTemplate;
 import uk.ac.ox.oxfish.utility.yaml.ModelResults;
 
 import java.awt.geom.Point2D;
@@ -55,6 +59,7 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
@@ -804,12 +809,17 @@ public class FishStateUtilities {
     }
 
 
+    /**
+     * reads a model saved either as XML or as a binary {@link ModelCheckpoint}
+     */
     public static FishState readModelFromFile(File file)
     {
         Log.info("Reading from File");
         XStream xstream = new XStream(new StaxDriver());
         String xml = null;
         try {
+            if(ModelCheckpoint.isCheckpoint(file.toPath()))
+                return ModelCheckpoint.read(file.toPath());
             xml = new String(Files.readAllBytes(file.toPath()));
             return  (FishState) xstream.fromXML(xml);
         } catch (IOException e) {
@@ -969,12 +979,29 @@ public class FishStateUtilities {
             final boolean saveOnExit, Integer heatmapGathererYear,
             @Nullable Consumer<Scenario> scenarioSetup,
             @Nullable  Consumer<FishState> preStartSetup) throws IOException {
+        return run(simulationName, scenarioYaml, outputFolder, seed, logLevel, additionalData, policyScript,
+                   yearsToRun, saveOnExit, heatmapGathererYear, scenarioSetup, preStartSetup, false, false);
+    }
 
-        //create scenario and files
-        String fullScenario = String.join("\n", Files.readAllLines(scenarioYaml));
+    /**
+     * like the other run, but streaming output plugins (logbooks, tow logs) can be asked to write their files as the
+     * model runs rather than all at the end
+     * @param streamOutputs whether to stream (needs an output folder)
+     * @param compressOutputs whether to gzip the streamed files
+     */
+    public static FishState  run(
+            String simulationName, Path scenarioYaml,
+            @Nullable final Path outputFolder,
+            final Long seed, final int logLevel, final boolean additionalData,
+            final String policyScript, final int yearsToRun,
+            final boolean saveOnExit, Integer heatmapGathererYear,
+            @Nullable Consumer<Scenario> scenarioSetup,
+            @Nullable  Consumer<FishState> preStartSetup,
+            final boolean streamOutputs, final boolean compressOutputs) throws IOException {
 
+        //create scenario and files (the file is parsed only once per JVM, however many runs use it)
         FishYAML yaml = new FishYAML();
-        Scenario scenario = yaml.loadAs(fullScenario, Scenario.class);
+        Scenario scenario = ScenarioTemplate.of(scenarioYaml).newScenario();
 
 
 
@@ -1030,6 +1057,9 @@ public class FishStateUtilities {
                         yaml.dump(scripts.getScripts()).getBytes());
         }
 
+        //last, so plugins added by the additional gatherers or the policy scripts stream too
+        if(streamOutputs && outputFolder!=null)
+            streamOutputsToFolder(outputFolder, model, compressOutputs);
 
         while(model.getYear()< yearsToRun) {
             model.schedule.step(model);
@@ -1056,9 +1086,11 @@ public class FishStateUtilities {
             }
             writeAdditionalOutputsToFolder(outputFolder, model);
             if(saveOnExit)
-                writeModelToFile(
-                        outputFolder.resolve(simulationName+".checkpoint").toFile(),
-                        model);
+                ModelCheckpoint.write(model, outputFolder.resolve(simulationName+".checkpoint"));
+            if(SimulationProfiler.isEnabled()) {
+                SimulationProfiler.writeCSV(outputFolder.resolve("profile.csv"));
+                SimulationProfiler.writeJSON(outputFolder.resolve("profile.json"));
+            }
         }
 
 
@@ -1066,11 +1098,109 @@ public class FishStateUtilities {
         return model;
     }
 
+    /**
+     * restarts the model saved in a checkpoint (see {@link ModelCheckpoint}) once for each policy script and runs each
+     * copy for some more years, so that many policies can share the same burn-in. Forks are restored and run one at a
+     * time; each writes its outputs in its own sub-folder, named after its position and the policy script (say
+     * "0_baseline" when the script is null, "1_closure" for closure.yaml)
+     * @param simulationName name of the simulation, used for the log and checkpoint files
+     * @param checkpoint the checkpoint to start from
+     * @param outputFolder where to write the outputs of each fork
+     * @param logLevel the verbosity of the logs
+     * @param policyScripts one per fork; a null entry means no policy change
+     * @param yearsToRun how many years to run each fork for, after the checkpoint
+     * @param saveOnExit whether each fork should write a checkpoint of its own at the end
+     */
+    public static void runFromCheckpoint(
+            String simulationName, Path checkpoint,
+            Path outputFolder, final int logLevel,
+            List<String> policyScripts, final int yearsToRun,
+            final boolean saveOnExit) throws IOException {
+
+        FishYAML yaml = new FishYAML();
+        try {
+            //one fork at a time, each in its own folder (numbered, so that two scripts with the same name don't clash)
+            ModelCheckpoint.fork(checkpoint, policyScripts.size(), (model, fork) -> {
+                String policyScript = policyScripts.get(fork);
+                Path forkFolder = outputFolder.resolve(
+                        fork + "_" + (policyScript == null ? "baseline" :
+                                com.google.common.io.Files.getNameWithoutExtension(policyScript)));
+                try {
+                    runFork(simulationName, forkFolder, model, logLevel, policyScript, yearsToRun, saveOnExit, yaml);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e){
+            throw e.getCause();
+        }
+    }
+
+    private static void runFork(
+            String simulationName, Path forkFolder, FishState model, int logLevel, String policyScript,
+            int yearsToRun, boolean saveOnExit, FishYAML yaml) throws IOException {
+        forkFolder.toFile().mkdirs();
+        Log.setLogger(new FishStateLogger(model,
+                                          forkFolder.resolve(simulationName+ "_log.txt")));
+        Log.set(logLevel);
+
+        if(policyScript != null)
+        {
+            String policyScriptString = new String(Files.readAllBytes(Paths.get(policyScript)));
+            PolicyScripts scripts = yaml.loadAs(policyScriptString, PolicyScripts.class);
+            model.registerStartable(scripts);
+            Files.write(forkFolder.resolve("policy_script.yaml"),
+                        yaml.dump(scripts.getScripts()).getBytes());
+        }
+
+        int lastYear = model.getYear() + yearsToRun;
+        while(model.getYear()< lastYear)
+            model.schedule.step(model);
+
+        FileWriter writer = new FileWriter(forkFolder.resolve("result.yaml").toFile());
+        yaml.dump(new ModelResults(model), writer);
+        writer.close();
+        writeAdditionalOutputsToFolder(forkFolder, model);
+        if(saveOnExit)
+            ModelCheckpoint.write(model, forkFolder.resolve(simulationName+".checkpoint"));
+    }
+
+    /**
+     * tells every streaming output plugin registered so far to write its file in the output folder as the model runs,
+     * handing its rows over at the end of each simulated year. The files are closed by
+     * {@link #writeAdditionalOutputsToFolder(Path, FishState)}
+     * @param outputFolder where the files go
+     * @param model the (started) model
+     * @param compress whether to gzip the files
+     */
+    public static void streamOutputsToFolder(Path outputFolder, FishState model, boolean compress) throws IOException {
+        for(OutputPlugin plugin : model.getOutputPlugins())
+            if(plugin instanceof StreamingOutputPlugin)
+                ((StreamingOutputPlugin) plugin).startStreaming(outputFolder, compress);
+
+        model.scheduleEveryYear((Steppable) simState -> {
+            for(OutputPlugin plugin : model.getOutputPlugins())
+                if(plugin instanceof StreamingOutputPlugin && ((StreamingOutputPlugin) plugin).isStreaming()) {
+                    try {
+                        ((StreamingOutputPlugin) plugin).flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+        }, StepOrder.DATA_RESET); //not a shuffled phase, so streaming doesn't change the random draws
+    }
+
     public static void writeAdditionalOutputsToFolder(Path outputFolder, FishState model) throws IOException {
         FileWriter writer;//add additional outputs
         for(OutputPlugin plugin : model.getOutputPlugins())
         {
             plugin.reactToEndOfSimulation(model);
+            //streamed files only need closing
+            if(plugin instanceof StreamingOutputPlugin && ((StreamingOutputPlugin) plugin).isStreaming()) {
+                ((StreamingOutputPlugin) plugin).finishStreaming();
+                continue;
+            }
             writer = new FileWriter(outputFolder.resolve(plugin.getFileName()).toFile());
             writer.write(plugin.composeFileContents());
             writer.close();
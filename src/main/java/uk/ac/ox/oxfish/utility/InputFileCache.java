@@ -0,0 +1,102 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.utility;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Remembers what was built out of input files (bathymetry and biomass samples, coefficient tables, parsed scenarios)
+ * so that runs in the same JVM don't read and parse the same file over and over. Entries are keyed by the content of
+ * the file (plus a name for the way it was read), so editing a file between runs is always picked up. <br>
+ * Whatever is returned is shared with every other run asking for the same file: it must be treated as read-only.
+ * Entries are only softly held, so a long sweep over many inputs can't pin them all in memory: the garbage collector
+ * drops them when memory runs short and they are simply read again next time.
+ */
+public class InputFileCache {
+
+    /**
+     * turns the content of a file into whatever the caller needs
+     */
+    public interface Loader<T> {
+
+        T load(byte[] content) throws IOException;
+    }
+
+    private static final Cache<String, Object> CACHE = CacheBuilder.newBuilder().softValues().build();
+
+    private static volatile boolean enabled = true;
+
+    private InputFileCache() {
+    }
+
+    /**
+     * reads the file and returns what the loader made of it last time it saw exactly the same content (or asks the
+     * loader now, if it never did)
+     *
+     * @param file   the input file
+     * @param reader name of the way the file is read; different readers of the same file are cached separately
+     * @param loader builds the object out of the file content
+     * @return the (shared, read-only) object
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Path file, String reader, Loader<T> loader) throws IOException {
+        final byte[] content = Files.readAllBytes(file);
+        if (!enabled)
+            return loader.load(content);
+
+        final String key = reader + "@" + Hashing.murmur3_128().hashBytes(content);
+        Object cached = CACHE.getIfPresent(key);
+        if (cached == null) {
+            cached = loader.load(content);
+            Object previous = CACHE.asMap().putIfAbsent(key, cached);
+            if (previous != null)
+                cached = previous;
+        }
+        return (T) cached;
+    }
+
+    /**
+     * forget everything
+     */
+    public static void clear() {
+        CACHE.invalidateAll();
+    }
+
+    public static int size() {
+        return (int) CACHE.size();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * when disabled files are read and parsed every time (nothing is removed from the cache though)
+     */
+    public static void setEnabled(boolean enabled) {
+        InputFileCache.enabled = enabled;
+    }
+}
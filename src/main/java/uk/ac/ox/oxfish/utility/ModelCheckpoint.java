@@ -0,0 +1,216 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.utility;
+
+import com.esotericsoftware.minlog.Log;
+import com.google.common.base.Preconditions;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.binary.BinaryStreamDriver;
+import uk.ac.ox.oxfish.model.FishState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Binary snapshots of a whole model (map, biologies, fishers and their strategies and memories, markets,
+ * regulations, schedule and random number generator). The object graph goes through the same XStream reflection
+ * the XML snapshots of {@link FishStateUtilities#writeModelToFile(java.io.File, FishState)} use, so nothing needs to
+ * be registered, but it is written with XStream's binary driver (which tokenizes names and writes values as they are)
+ * and streamed straight to and from the file channel instead of being built up as one huge string. <br>
+ * Restoring a checkpoint gives a model that is already started and can keep stepping; restoring it many times
+ * ({@link #fork(Path, int, ObjIntConsumer)}) lets many policies start from the same spin-up without re-running it.
+ */
+public class ModelCheckpoint {
+
+    /**
+     * first bytes of every checkpoint file
+     */
+    private static final byte[] MAGIC = "POSEIDON-CHECKPOINT".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final BinaryStreamDriver DRIVER = new BinaryStreamDriver();
+
+    private ModelCheckpoint() {
+    }
+
+    /**
+     * writes the model to file
+     * @param state the model to save
+     * @param file where to save it; overwritten if it exists
+     */
+    public static void write(FishState state, Path file) throws IOException {
+        Log.info("Writing checkpoint to " + file);
+        //written next to the destination and moved in place once complete, so a failure halfway never destroys the
+        //previous checkpoint
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES);
+                header.put(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining())
+                    channel.write(header);
+
+                OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                HierarchicalStreamWriter writer = DRIVER.createWriter(output);
+                new XStream(DRIVER).marshal(state, writer);
+                writer.flush();
+                output.flush();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        Log.info("Checkpoint saved at " + file);
+    }
+
+    /**
+     * reads a model back from file
+     * @param file the checkpoint
+     * @param memoryMapped when true the file is mapped in memory rather than read through a stream
+     * @return the model as it was when saved
+     */
+    public static FishState read(Path file, boolean memoryMapped) throws IOException {
+        Log.info("Reading checkpoint from " + file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (memoryMapped) {
+                Preconditions.checkArgument(channel.size() <= Integer.MAX_VALUE,
+                                            "checkpoint too large to map in memory");
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                checkHeader(buffer, file);
+                return unmarshal(new ByteBufferInputStream(buffer));
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES);
+                while (header.hasRemaining() && channel.read(header) >= 0) ;
+                header.flip();
+                checkHeader(header, file);
+                return unmarshal(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            }
+        }
+    }
+
+    /**
+     * reads a model back from file, without memory mapping
+     */
+    public static FishState read(Path file) throws IOException {
+        return read(file, false);
+    }
+
+    /**
+     * restores the checkpoint once per fork, one fork at a time (the file is mapped in memory once and shared), and
+     * hands each restored model to the runner. As long as the runner doesn't hold on to it, a fork can be collected
+     * before the next one is restored, so only one is ever in memory
+     *
+     * @param file   the checkpoint
+     * @param forks  how many times to restore it
+     * @param runner given each freshly restored model and its index (0 to forks - 1), in order
+     */
+    public static void fork(Path file, int forks, ObjIntConsumer<FishState> runner) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Preconditions.checkArgument(channel.size() <= Integer.MAX_VALUE, "checkpoint too large to map in memory");
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(buffer, file);
+            for (int fork = 0; fork < forks; fork++)
+                runner.accept(unmarshal(new ByteBufferInputStream(buffer.slice())), fork);
+        }
+    }
+
+    /**
+     * true if the file starts like a checkpoint written by this class
+     */
+    public static boolean isCheckpoint(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            return !header.hasRemaining() && Arrays.equals(header.array(), MAGIC);
+        }
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path file) {
+        byte[] magic = new byte[MAGIC.length];
+        Preconditions.checkArgument(buffer.remaining() >= MAGIC.length + Integer.BYTES,
+                                    file + " is not a model checkpoint");
+        buffer.get(magic);
+        Preconditions.checkArgument(Arrays.equals(magic, MAGIC), file + " is not a model checkpoint");
+        int version = buffer.getInt();
+        Preconditions.checkArgument(version == VERSION, "unknown checkpoint version " + version);
+    }
+
+    private static FishState unmarshal(InputStream input) {
+        HierarchicalStreamReader reader = DRIVER.createReader(input);
+        try {
+            return (FishState) new XStream(DRIVER).unmarshal(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * reads a (memory mapped) buffer as a stream, without copying it
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
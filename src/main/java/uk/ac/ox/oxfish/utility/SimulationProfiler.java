@@ -0,0 +1,290 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.utility;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.GsonBuilder;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import uk.ac.ox.oxfish.model.StepOrder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in instrumentation for simulation runs: a set of named timers, each counting calls, nanoseconds and (where
+ * the JVM can tell) bytes allocated by the thread doing the work. Timers are grouped in categories:
+ * <ul>
+ *     <li>"phase": everything scheduled in a {@link StepOrder}</li>
+ *     <li>"component": everything scheduled, by class (fishers, biology processes, time series, markets...)</li>
+ *     <li>"action": fisher actions, by class</li>
+ *     <li>"pathfinder": route lookups, by pathfinder</li>
+ * </ul>
+ * Times are inclusive: a fisher's actions are counted both as actions and as part of the fisher component and of
+ * the fisher phase. <br>
+ * The profiler is global so that batches of runs in parallel add up into the same timers (which are striped
+ * counters, so threads don't fight over them). It has to be turned on before the model starts; when off,
+ * instrumented code only pays for reading a static boolean.
+ */
+public class SimulationProfiler {
+
+    public static final String PHASE = "phase";
+
+    public static final String COMPONENT = "component";
+
+    public static final String ACTION = "action";
+
+    public static final String PATHFINDER = "pathfinder";
+
+    private static volatile boolean enabled = false;
+
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<Object, Timer>> timers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * null if the JVM can't count allocations per thread
+     */
+    private static final com.sun.management.ThreadMXBean allocations = allocationBean();
+
+    private SimulationProfiler() {
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+            return (com.sun.management.ThreadMXBean) bean;
+        return null;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * turns profiling on or off. Steppables scheduled while off are never timed by phase or component
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled && allocations != null && !allocations.isThreadAllocatedMemoryEnabled())
+            allocations.setThreadAllocatedMemoryEnabled(true);
+        SimulationProfiler.enabled = enabled;
+    }
+
+    /**
+     * forgets all timers
+     */
+    public static void reset() {
+        timers.clear();
+    }
+
+    /**
+     * gets (or creates) the timer for this category and key; for classes the simple name is used
+     */
+    public static Timer timer(String category, Object key) {
+        return timers.computeIfAbsent(category, c -> new ConcurrentHashMap<>()).computeIfAbsent(
+                key, k -> new Timer(category, nameOf(k)));
+    }
+
+    private static String nameOf(Object key) {
+        if (!(key instanceof Class))
+            return key.toString();
+        String name = ((Class<?>) key).getName();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        //lambdas are named after the class they were written in
+        int lambda = name.indexOf("$$Lambda");
+        return lambda >= 0 ? name.substring(0, lambda) + "(lambda)" : name;
+    }
+
+    /**
+     * bytes allocated so far by the current thread, or 0 if unknown
+     */
+    public static long allocatedBytes() {
+        return allocations == null ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * wraps the steppable so that it is timed both as part of its phase and as a component; returns it as it is if
+     * the profiler is off
+     */
+    public static Steppable profile(Steppable steppable, StepOrder order) {
+        if (!enabled || steppable instanceof ProfiledSteppable)
+            return steppable;
+        return new ProfiledSteppable(steppable, order);
+    }
+
+    /**
+     * all timers, ordered by category and then by time spent (most first)
+     */
+    public static List<Timer> getTimers() {
+        List<Timer> all = new ArrayList<>();
+        for (ConcurrentHashMap<Object, Timer> category : timers.values())
+            all.addAll(category.values());
+        all.sort(Comparator.comparing(Timer::getCategory).thenComparing(
+                Comparator.comparingLong(Timer::getNanoseconds).reversed()));
+        return all;
+    }
+
+    /**
+     * one row per timer: category, name, calls, seconds and megabytes allocated
+     */
+    public static void writeCSV(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("category,name,calls,seconds,allocated_mb\n");
+            for (Timer timer : getTimers())
+                writer.write(timer.getCategory() + "," + timer.getName() + "," + timer.getCalls() + "," +
+                                     timer.getSeconds() + "," + timer.getAllocatedMegabytes() + "\n");
+        }
+    }
+
+    /**
+     * the same as {@link #writeCSV(Path)}, as a JSON object of categories, each an object of timers
+     */
+    public static void writeJSON(Path file) throws IOException {
+        Map<String, Map<String, Map<String, Number>>> json = new LinkedHashMap<>();
+        for (Timer timer : getTimers()) {
+            Map<String, Number> values = new LinkedHashMap<>();
+            values.put("calls", timer.getCalls());
+            values.put("seconds", timer.getSeconds());
+            values.put("allocated_mb", timer.getAllocatedMegabytes());
+            json.computeIfAbsent(timer.getCategory(), c -> new LinkedHashMap<>()).put(timer.getName(), values);
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(json, writer);
+        }
+    }
+
+    /**
+     * calls, time and allocations of one thing being measured. Safe to use from many threads at once
+     */
+    public static class Timer {
+
+        private final String category;
+
+        private final String name;
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder nanoseconds = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+
+        private Timer(String category, String name) {
+            this.category = category;
+            this.name = name;
+        }
+
+        /**
+         * records one call
+         * @param startNanos {@link System#nanoTime()} when the call started
+         * @param startBytes {@link #allocatedBytes()} when the call started
+         */
+        public void record(long startNanos, long startBytes) {
+            add(System.nanoTime() - startNanos, allocatedBytes() - startBytes);
+        }
+
+        private void add(long nanos, long allocated) {
+            calls.increment();
+            nanoseconds.add(nanos);
+            bytes.add(allocated);
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getNanoseconds() {
+            return nanoseconds.sum();
+        }
+
+        public double getSeconds() {
+            return nanoseconds.sum() / 1e9;
+        }
+
+        public long getAllocatedBytes() {
+            return bytes.sum();
+        }
+
+        public double getAllocatedMegabytes() {
+            return bytes.sum() / (1024d * 1024d);
+        }
+    }
+
+    /**
+     * times a scheduled steppable. The timers are looked up again after a checkpoint is restored, since they are
+     * not part of the model
+     */
+    private static class ProfiledSteppable implements Steppable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Steppable delegate;
+
+        private final StepOrder order;
+
+        private transient Timer phase;
+
+        private transient Timer component;
+
+        private ProfiledSteppable(Steppable delegate, StepOrder order) {
+            Preconditions.checkArgument(delegate != null);
+            this.delegate = delegate;
+            this.order = order;
+        }
+
+        @Override
+        public void step(SimState simState) {
+            if (!enabled) {
+                delegate.step(simState);
+                return;
+            }
+            if (phase == null) {
+                phase = timer(PHASE, order);
+                component = timer(COMPONENT, delegate.getClass());
+            }
+            final long nanos = System.nanoTime();
+            final long bytes = allocatedBytes();
+            delegate.step(simState);
+            final long elapsed = System.nanoTime() - nanos;
+            final long allocated = allocatedBytes() - bytes;
+            phase.add(elapsed, allocated);
+            component.add(elapsed, allocated);
+        }
+    }
+}
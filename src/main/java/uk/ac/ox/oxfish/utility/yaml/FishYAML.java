@@ -23,6 +23,8 @@ package uk.ac.ox.oxfish.utility.yaml;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.TypeDescription;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.nodes.Node;
 import org.yaml.snakeyaml.nodes.Tag;
 
 import java.util.regex.Pattern;
@@ -55,6 +57,23 @@ public class FishYAML extends Yaml{
 
     }
 
+    /**
+     * builds an object out of an already composed node tree, the same way {@link #loadAs(String, Class)} would build
+     * it out of text. The constructor modifies the nodes as it goes, so don't feed it the same tree twice
+     * @param node the root of the tree
+     * @param type the class of the object to build
+     * @return the object
+     */
+    public <T> T loadAs(Node node, Class<T> type) {
+        customConstructor.setComposer(new Composer(null, null) {
+            @Override
+            public Node getSingleNode() {
+                return node;
+            }
+        });
+        return type.cast(customConstructor.getSingleData(type));
+    }
+
     private static DumperOptions dumperOptions() {
         DumperOptions options = new DumperOptions();
         options.setPrettyFlow(true);
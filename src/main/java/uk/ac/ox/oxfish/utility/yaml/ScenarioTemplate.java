@@ -0,0 +1,119 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+package uk.ac.ox.oxfish.utility.yaml;
+
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import uk.ac.ox.oxfish.model.scenario.Scenario;
+import uk.ac.ox.oxfish.utility.InputFileCache;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A scenario file parsed once and kept as a YAML node tree, from which any number of independent {@link Scenario}
+ * objects can be built. Building one only copies the node tree (the constructor modifies the nodes it is given, so
+ * the original tree is never handed over) and runs the usual {@link YamlConstructor} on the copy; the text is never
+ * scanned or parsed again. <br>
+ * The template itself never changes after it is built, so it can be shared between threads.
+ */
+public class ScenarioTemplate {
+
+    private final Node root;
+
+    /**
+     * @param yaml the scenario, as it would be written in a file
+     */
+    public ScenarioTemplate(String yaml) {
+        this.root = new FishYAML().compose(new StringReader(yaml));
+    }
+
+    /**
+     * the template of the given scenario file. Templates are cached by content, so asking twice for the same file
+     * parses it only once
+     */
+    public static ScenarioTemplate of(Path scenarioFile) throws IOException {
+        return InputFileCache.get(scenarioFile, "scenario template",
+                                  content -> new ScenarioTemplate(new String(content, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return a new scenario, as if just read from file
+     */
+    public Scenario newScenario() {
+        return newInstance(Scenario.class);
+    }
+
+    /**
+     * @param type the class the file describes
+     * @return a new object, as if just read from file
+     */
+    public <T> T newInstance(Class<T> type) {
+        return new FishYAML().loadAs(copy(root, new IdentityHashMap<>()), type);
+    }
+
+    /**
+     * deep copy of a node tree; aliases (the same node showing up more than once) stay aliases
+     */
+    private static Node copy(Node node, IdentityHashMap<Node, Node> copied) {
+        Node copy = copied.get(node);
+        if (copy != null)
+            return copy;
+
+        switch (node.getNodeId()) {
+            case scalar:
+                ScalarNode scalar = (ScalarNode) node;
+                copy = new ScalarNode(scalar.getTag(), scalar.isResolved(), scalar.getValue(),
+                                      scalar.getStartMark(), scalar.getEndMark(), scalar.getStyle());
+                copied.put(node, copy);
+                return copy;
+            case sequence:
+                SequenceNode sequence = (SequenceNode) node;
+                List<Node> items = new ArrayList<>(sequence.getValue().size());
+                copy = new SequenceNode(sequence.getTag(), sequence.isResolved(), items,
+                                        sequence.getStartMark(), sequence.getEndMark(), sequence.getFlowStyle());
+                copied.put(node, copy);
+                for (Node item : sequence.getValue())
+                    items.add(copy(item, copied));
+                return copy;
+            case mapping:
+                MappingNode mapping = (MappingNode) node;
+                List<NodeTuple> tuples = new ArrayList<>(mapping.getValue().size());
+                MappingNode mappingCopy = new MappingNode(mapping.getTag(), mapping.isResolved(), tuples,
+                                                          mapping.getStartMark(), mapping.getEndMark(),
+                                                          mapping.getFlowStyle());
+                mappingCopy.setMerged(mapping.isMerged());
+                copied.put(node, mappingCopy);
+                for (NodeTuple tuple : mapping.getValue())
+                    tuples.add(new NodeTuple(copy(tuple.getKeyNode(), copied), copy(tuple.getValueNode(), copied)));
+                return mappingCopy;
+            default:
+                throw new IllegalArgumentException("Unknown node " + node);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.biology.complicated;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import uk.ac.ox.oxfish.biology.GlobalBiology;
+import uk.ac.ox.oxfish.biology.Species;
+import uk.ac.ox.oxfish.fisher.equipment.Catch;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.utility.FishStateUtilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static uk.ac.ox.oxfish.biology.complicated.AbundanceLocalBiologyTest.longspineTestInput;
+
+public class AbundanceStoreTest {
+
+    @Test
+    public void localsWriteIntoTheStore() throws Exception {
+
+        Species longspine = new Species("Longspine", longspineTestInput);
+        GlobalBiology biology = new GlobalBiology(longspine);
+        AbundanceStore store = new AbundanceStore(biology);
+
+        //more than one block worth of biologies
+        List<AbundanceLocalBiology> locals = new ArrayList<>();
+        for (int i = 0; i < 600; i++)
+            locals.add(new AbundanceLocalBiology(biology, store));
+        assertEquals(600, store.size());
+
+        locals.get(0).getAbundance(longspine).asMatrix()[FishStateUtilities.FEMALE][5] = 100;
+        locals.get(300).getAbundance(longspine).asMatrix()[FishStateUtilities.MALE][5] = 200;
+        locals.get(599).getAbundance(longspine).asMatrix()[FishStateUtilities.MALE][6] = 100;
+
+        StructuredAbundance total = store.sum(longspine);
+        assertEquals(100, total.getAbundance(FishStateUtilities.FEMALE, 5), .0001);
+        assertEquals(200, total.getAbundance(FishStateUtilities.MALE, 5), .0001);
+        assertEquals(100, total.getAbundance(FishStateUtilities.MALE, 6), .0001);
+        double sumOfLocals = 0;
+        for (AbundanceLocalBiology local : locals)
+            sumOfLocals += local.getBiomass(longspine);
+        assertEquals(sumOfLocals, total.computeWeight(longspine), .0001);
+
+        //fishing shows up in the store too
+        double[] maleCatches = new double[longspine.getNumberOfBins()];
+        double[] femaleCatches = new double[longspine.getNumberOfBins()];
+        maleCatches[6] = 50;
+        locals.get(599).reactToThisAmountOfBiomassBeingFished(new Catch(maleCatches, femaleCatches, longspine, biology),
+                                                              null, biology);
+        assertEquals(50, store.sum(longspine).getAbundance(FishStateUtilities.MALE, 6), .0001);
+        assertEquals(50, store.view(longspine, 599)[FishStateUtilities.MALE][6], .0001);
+    }
+
+    @Test
+    public void biomassIsRecountedAfterEachGet() throws Exception {
+
+        Species longspine = new Species("Longspine", longspineTestInput);
+        GlobalBiology biology = new GlobalBiology(longspine);
+        AbundanceLocalBiology local = new AbundanceLocalBiology(biology, new AbundanceStore(biology));
+
+        assertEquals(0, local.getBiomass(longspine), .0001);
+        StructuredAbundance abundance = local.getAbundance(longspine);
+        //no need to create a new wrapper every time
+        assertSame(abundance, local.getAbundance(longspine));
+        abundance.asMatrix()[FishStateUtilities.MALE][5] = 200;
+        assertEquals(200 * 0.019880139, local.getBiomass(longspine), .001);
+    }
+
+    @Test
+    public void recruitmentReadsTheTotalFromTheStore() throws Exception {
+
+        Species longspine = new Species("Longspine", longspineTestInput);
+        GlobalBiology biology = new GlobalBiology(longspine);
+        AbundanceStore store = new AbundanceStore(biology);
+        RecruitmentProcess recruitment = mock(RecruitmentProcess.class);
+        SingleSpeciesNaturalProcesses processes = new SingleSpeciesNaturalProcesses(
+                recruitment, longspine, false, mock(AgingProcess.class), mock(AbundanceDiffuser.class),
+                mock(NaturalMortalityProcess.class), false);
+        for (int i = 0; i < 3; i++) {
+            AbundanceLocalBiology local = new AbundanceLocalBiology(biology, store);
+            local.getAbundance(longspine).asMatrix()[FishStateUtilities.MALE][i] = 10 * (i + 1);
+            processes.add(local, mock(SeaTile.class));
+        }
+
+        processes.step(mock(FishState.class));
+        ArgumentCaptor<StructuredAbundance> total = ArgumentCaptor.forClass(StructuredAbundance.class);
+        verify(recruitment).recruit(eq(longspine), any(), total.capture(), anyInt(), anyInt());
+        assertEquals(10, total.getValue().getAbundance(FishStateUtilities.MALE, 0), .0001);
+        assertEquals(20, total.getValue().getAbundance(FishStateUtilities.MALE, 1), .0001);
+        assertEquals(30, total.getValue().getAbundance(FishStateUtilities.MALE, 2), .0001);
+    }
+
+    @Test
+    public void storeWideProcessesMatchTheLocalOnes() throws Exception {
+
+        Species longspine = new Species("Longspine", longspineTestInput);
+        GlobalBiology biology = new GlobalBiology(longspine);
+        AbundanceStore store = new AbundanceStore(biology);
+        List<AbundanceLocalBiology> stored = new ArrayList<>();
+        List<AbundanceLocalBiology> alone = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            stored.add(new AbundanceLocalBiology(biology, store));
+            alone.add(new AbundanceLocalBiology(biology));
+            for (AbundanceLocalBiology local : new AbundanceLocalBiology[]{stored.get(i), alone.get(i)}) {
+                local.getAbundance(longspine).asMatrix()[FishStateUtilities.MALE][i % 10] = 1000 + i;
+                local.getAbundance(longspine).asMatrix()[FishStateUtilities.FEMALE][i % 7] = 2000 + i;
+            }
+        }
+        //cached before the store gets edited
+        double biomassBefore = stored.get(5).getBiomass(longspine);
+
+        ExponentialMortalityProcess mortality = new ExponentialMortalityProcess(.2, .3);
+        StandardAgingProcess aging = new StandardAgingProcess(true);
+        assertTrue(mortality.cullStore(longspine, true, store, 365));
+        assertTrue(aging.ageStore(store, longspine, mock(FishState.class), true, 365));
+        for (AbundanceLocalBiology local : alone) {
+            mortality.cull(longspine.getMeristics(), true, local.getAbundance(longspine), 365);
+            aging.ageLocally(local, longspine, mock(FishState.class), true, 365);
+        }
+        assertTrue(new ProportionalMortalityProcess(.1).cullStore(longspine, false, store, 30));
+        for (AbundanceLocalBiology local : alone)
+            new ProportionalMortalityProcess(.1).cull(longspine.getMeristics(), false,
+                                                       local.getAbundance(longspine), 30);
+
+        double[] weights = store.weigh(longspine);
+        for (int i = 0; i < 300; i++) {
+            for (int subdivision = 0; subdivision < longspine.getNumberOfSubdivisions(); subdivision++)
+                assertArrayEquals(alone.get(i).getAbundance(longspine).asMatrix()[subdivision],
+                                  stored.get(i).getAbundance(longspine).asMatrix()[subdivision], 0);
+            assertEquals(i, stored.get(i).getSlot());
+            assertEquals(alone.get(i).getBiomass(longspine), weights[i], 0);
+        }
+        //the cached biomass is forgotten when the store is edited
+        assertNotEquals(biomassBefore, stored.get(5).getBiomass(longspine), .0001);
+        assertEquals(weights[5], stored.get(5).getBiomass(longspine), 0);
+    }
+}
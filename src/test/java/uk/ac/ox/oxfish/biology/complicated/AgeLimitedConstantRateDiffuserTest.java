@@ -20,10 +20,8 @@
 
 package uk.ac.ox.oxfish.biology.complicated;
 
-import com.google.common.collect.Lists;
 import ec.util.MersenneTwisterFast;
 import org.junit.Test;
-import sim.util.Bag;
 import uk.ac.ox.oxfish.biology.GlobalBiology;
 import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.geography.NauticalMap;
@@ -37,6 +35,7 @@ import java.util.HashMap;
 import static org.junit.Assert.assertArrayEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static uk.ac.ox.oxfish.geography.TestUtilities.makeMap;
 
 /**
  * Created by carrknight on 7/7/17.
@@ -84,11 +83,9 @@ public class AgeLimitedConstantRateDiffuserTest {
         );
 
         //set up the two tiles as neighbors
-        NauticalMap map = mock(NauticalMap.class);
         FishState state = mock(FishState.class);
+        NauticalMap map = makeMap(new SeaTile[][]{{full, empty}});
         when(state.getMap()).thenReturn(map);
-        when(map.getMooreNeighbors(full,1)).thenReturn(new Bag(Lists.newArrayList(empty)));
-        when(map.getMooreNeighbors(empty,1)).thenReturn(new Bag(Lists.newArrayList(full)));
         when(state.getRandom()).thenReturn(new MersenneTwisterFast());
 
 
@@ -141,11 +138,9 @@ public class AgeLimitedConstantRateDiffuserTest {
         );
 
         //set up the two tiles as neighbors
-        NauticalMap map = mock(NauticalMap.class);
         FishState state = mock(FishState.class);
+        NauticalMap map = makeMap(new SeaTile[][]{{full, empty}});
         when(state.getMap()).thenReturn(map);
-        when(map.getMooreNeighbors(full,1)).thenReturn(new Bag(Lists.newArrayList(empty)));
-        when(map.getMooreNeighbors(empty,1)).thenReturn(new Bag(Lists.newArrayList(full)));
         when(state.getRandom()).thenReturn(new MersenneTwisterFast());
 
 
@@ -20,10 +20,8 @@
 
 package uk.ac.ox.oxfish.biology.complicated;
 
-import com.google.common.collect.Lists;
 import ec.util.MersenneTwisterFast;
 import org.junit.Test;
-import sim.util.Bag;
 import uk.ac.ox.oxfish.biology.GlobalBiology;
 import uk.ac.ox.oxfish.biology.Species;
 import uk.ac.ox.oxfish.geography.NauticalMap;
@@ -32,12 +30,16 @@ import uk.ac.ox.oxfish.geography.habitat.TileHabitat;
 import uk.ac.ox.oxfish.model.FishState;
 import uk.ac.ox.oxfish.utility.FishStateUtilities;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static uk.ac.ox.oxfish.geography.TestUtilities.makeMap;
 
 /**
  * Created by carrknight on 7/7/17.
@@ -82,11 +84,9 @@ public class ConstantRateAbundanceDiffuserTest {
         );
 
         //set up the two tiles as neighbors
-        NauticalMap map = mock(NauticalMap.class);
         FishState state = mock(FishState.class);
+        NauticalMap map = makeMap(new SeaTile[][]{{full, empty}});
         when(state.getMap()).thenReturn(map);
-        when(map.getMooreNeighbors(full,1)).thenReturn(new Bag(Lists.newArrayList(empty)));
-        when(map.getMooreNeighbors(empty,1)).thenReturn(new Bag(Lists.newArrayList(full)));
         when(state.getRandom()).thenReturn(new MersenneTwisterFast());
 
 
@@ -138,11 +138,9 @@ public class ConstantRateAbundanceDiffuserTest {
         );
 
         //set up the two tiles as neighbors
-        NauticalMap map = mock(NauticalMap.class);
         FishState state = mock(FishState.class);
+        NauticalMap map = makeMap(new SeaTile[][]{{full, empty}});
         when(state.getMap()).thenReturn(map);
-        when(map.getMooreNeighbors(full,1)).thenReturn(new Bag(Lists.newArrayList(empty)));
-        when(map.getMooreNeighbors(empty,1)).thenReturn(new Bag(Lists.newArrayList(full)));
         when(state.getRandom()).thenReturn(new MersenneTwisterFast());
 
 
@@ -200,11 +198,9 @@ public class ConstantRateAbundanceDiffuserTest {
         );
 
         //set up the two tiles as neighbors
-        NauticalMap map = mock(NauticalMap.class);
         FishState state = mock(FishState.class);
+        NauticalMap map = makeMap(new SeaTile[][]{{full, empty}});
         when(state.getMap()).thenReturn(map);
-        when(map.getMooreNeighbors(full,1)).thenReturn(new Bag(Lists.newArrayList(empty)));
-        when(map.getMooreNeighbors(empty,1)).thenReturn(new Bag(Lists.newArrayList(full)));
         when(state.getRandom()).thenReturn(new MersenneTwisterFast());
 
 
@@ -217,4 +213,114 @@ public class ConstantRateAbundanceDiffuserTest {
         assertArrayEquals(emptyBio.getAbundance(species).asMatrix()[FishStateUtilities.FEMALE],new double[]{0,0,5},.001);
 
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void snapshotMovesLikeSequentialBetweenTwoTiles() throws Exception {
+
+        Meristics meristics = new FromListMeristics(
+                new double[]{10d,20d,30d}, 2);
+        Species species = new Species("only",meristics);
+        GlobalBiology biology = new GlobalBiology(species);
+
+        SeaTile full = new SeaTile(0,0,-1,new TileHabitat(0d));
+        AbundanceLocalBiology fullBio = new AbundanceLocalBiology(biology);
+        fullBio.getAbundance(species).asMatrix()[FishStateUtilities.MALE][0]=1000;
+        fullBio.getAbundance(species).asMatrix()[FishStateUtilities.MALE][1]=500;
+        fullBio.getAbundance(species).asMatrix()[FishStateUtilities.FEMALE][2]=10;
+        full.setBiology(fullBio);
+        SeaTile empty = new SeaTile(0,1,-1,new TileHabitat(0d));
+        AbundanceLocalBiology emptyBio = new AbundanceLocalBiology(biology);
+        empty.setBiology(emptyBio);
+
+        HashMap<SeaTile,AbundanceLocalBiology> tiles = new HashMap<>();
+        tiles.put(full,fullBio);
+        tiles.put(empty,emptyBio);
+
+        ConstantRateAbundanceDiffuser diffuser = new ConstantRateAbundanceDiffuser(1, .5);
+        diffuser.setParallelism(2);
+
+        FishState state = mock(FishState.class);
+        NauticalMap map = makeMap(new SeaTile[][]{{full, empty}});
+        when(state.getMap()).thenReturn(map);
+        when(state.getRandom()).thenReturn(new MersenneTwisterFast());
+
+        diffuser.step(species,tiles,state);
+
+        assertArrayEquals(fullBio.getAbundance(species).asMatrix()[FishStateUtilities.MALE],new double[]{500,250,0},.001d);
+        assertArrayEquals(fullBio.getAbundance(species).asMatrix()[FishStateUtilities.FEMALE],new double[]{0,0,5},.001d);
+        assertArrayEquals(emptyBio.getAbundance(species).asMatrix()[FishStateUtilities.MALE],new double[]{500,250,0},.001d);
+        assertArrayEquals(emptyBio.getAbundance(species).asMatrix()[FishStateUtilities.FEMALE],new double[]{0,0,5},.001d);
+    }
+
+
+    @Test
+    public void snapshotIsReproducibleAndKeepsAllTheFish() throws Exception {
+
+        double[][] first = diffuseOnBigMap(3, 100);
+        double[][] second = diffuseOnBigMap(3, 100);
+        double total = 0;
+        for(int tile=0; tile<first.length; tile++) {
+            assertArrayEquals(first[tile], second[tile], 0d);
+            for(double fish : first[tile]) {
+                assertTrue(fish >= 0);
+                total += fish;
+            }
+        }
+        //nothing gets created or destroyed
+        assertEquals(1000 * 3 * 2 + 10000, total, .001);
+
+        //fish actually move: a far away tile got some
+        assertTrue(first[8 * 10 + 8][0] > 0);
+    }
+
+    /**
+     * diffuses a 10x10 map with an island in the middle (one corner full of fish) for a number of days and returns each tile's abundance flattened
+     */
+    private double[][] diffuseOnBigMap(int parallelism, int days) {
+        Meristics meristics = new FromListMeristics(
+                new double[]{10d,20d,30d}, 2);
+        Species species = new Species("only",meristics);
+        GlobalBiology biology = new GlobalBiology(species);
+
+        int[][] altitude = new int[10][10];
+        for(int[] column : altitude)
+            Arrays.fill(column, -1);
+        altitude[4][4] = 10;
+        NauticalMap map = makeMap(altitude);
+        LinkedHashMap<SeaTile,AbundanceLocalBiology> tiles = new LinkedHashMap<>();
+        for(SeaTile tile : map.getAllSeaTilesExcludingLandAsList()) {
+            AbundanceLocalBiology local = new AbundanceLocalBiology(biology);
+            tile.setBiology(local);
+            tiles.put(tile, local);
+        }
+        //all the fish start in one corner
+        double[][] corner = tiles.get(map.getSeaTile(0, 0)).getAbundance(species).asMatrix();
+        Arrays.fill(corner[FishStateUtilities.MALE], 1000);
+        Arrays.fill(corner[FishStateUtilities.FEMALE], 1000);
+        corner[FishStateUtilities.FEMALE][0] += 10000;
+
+        ConstantRateAbundanceDiffuser diffuser = new ConstantRateAbundanceDiffuser(1, .2);
+        diffuser.setParallelism(parallelism);
+        FishState state = mock(FishState.class);
+        when(state.getMap()).thenReturn(map);
+        when(state.getRandom()).thenReturn(new MersenneTwisterFast(42));
+        for(int day=0; day<days; day++)
+            diffuser.step(species, tiles, state);
+
+        double[][] result = new double[100][];
+        for(int x=0; x<10; x++)
+            for(int y=0; y<10; y++) {
+                AbundanceLocalBiology local = tiles.get(map.getSeaTile(x, y));
+                result[x * 10 + y] = local == null ? new double[6] : new double[]{
+                        local.getAbundance(species).asMatrix()[FishStateUtilities.MALE][0],
+                        local.getAbundance(species).asMatrix()[FishStateUtilities.MALE][1],
+                        local.getAbundance(species).asMatrix()[FishStateUtilities.MALE][2],
+                        local.getAbundance(species).asMatrix()[FishStateUtilities.FEMALE][0],
+                        local.getAbundance(species).asMatrix()[FishStateUtilities.FEMALE][1],
+                        local.getAbundance(species).asMatrix()[FishStateUtilities.FEMALE][2]
+                };
+            }
+        return result;
+    }
+}
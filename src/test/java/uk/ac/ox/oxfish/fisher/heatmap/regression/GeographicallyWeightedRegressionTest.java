@@ -27,6 +27,7 @@ import uk.ac.ox.oxfish.fisher.Fisher;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.GeographicalObservation;
 import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
 import uk.ac.ox.oxfish.geography.Distance;
+import uk.ac.ox.oxfish.geography.ManhattanDistance;
 import uk.ac.ox.oxfish.geography.NauticalMap;
 import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.model.FishState;
@@ -40,6 +41,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static uk.ac.ox.oxfish.geography.TestUtilities.makeMap;
 
 /**
  * Created by carrknight on 8/18/16.
@@ -125,4 +127,46 @@ public class GeographicallyWeightedRegressionTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void truncatedKernelMatchesTheFullOneWhereItReaches() throws Exception {
+
+        int[][] altitudes = new int[40][40];
+        for (int[] column : altitudes)
+            Arrays.fill(column, -1);
+        NauticalMap map = makeMap(altitudes);
+        ObservationExtractor[] extractors = new ObservationExtractor[]{
+                (tile, timeOfObservation, agent, model) -> tile.getGridX()
+        };
+
+        //with the smallest threshold the only tiles left out are the ones the kernel can't reach anyway
+        GeographicallyWeightedRegression full = new GeographicallyWeightedRegression(
+                map, .95, new ManhattanDistance(), 1, extractors, 0, 10, 10000,
+                new MersenneTwisterFast(1));
+        GeographicallyWeightedRegression truncated = new GeographicallyWeightedRegression(
+                map, .95, new ManhattanDistance(), 1, extractors, 0, 10, 10000, Double.MIN_VALUE,
+                new MersenneTwisterFast(1));
+
+        MersenneTwisterFast random = new MersenneTwisterFast(2);
+        for (int i = 0; i < 200; i++) {
+            //observations clustered in a corner so that the opposite corner is out of reach
+            GeographicalObservation<Double> observation = new GeographicalObservation<>(
+                    map.getSeaTile(random.nextInt(10), random.nextInt(10)), i, random.nextGaussian() * 10);
+            full.addObservation(observation, mock(Fisher.class), mock(FishState.class));
+            truncated.addObservation(observation, mock(Fisher.class), mock(FishState.class));
+        }
+
+        //missed observations are caught up with a single power of the forgetting, so only rounding differs
+        for (SeaTile tile : map.getAllSeaTilesExcludingLandAsList()) {
+            double[] expected = full.getBeta(tile);
+            double[] actual = truncated.getBeta(tile);
+            for (int i = 0; i < expected.length; i++)
+                assertEquals(expected[i], actual[i], Math.abs(expected[i]) * 1e-12);
+        }
+
+        //far tiles were never updated but still became more uncertain
+        double[] uncertainty = truncated.getUncertainty(map.getSeaTile(39, 39));
+        assertEquals(1, uncertainty[0] * Math.pow(.95, 200) / 10000, 1e-9);
+        assertEquals(0, uncertainty[1], 0);
+    }
+}
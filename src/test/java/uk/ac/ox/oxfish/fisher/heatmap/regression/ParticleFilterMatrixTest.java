@@ -0,0 +1,80 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.fisher.heatmap.regression;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.Test;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.bayes.ParticleFilterMatrix;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParticleFilterMatrixTest {
+
+    @Test
+    public void particle() throws Exception {
+        //same as ParticleFilterTest, with two tiles of which only the first sees evidence
+        MersenneTwisterFast random = new MersenneTwisterFast();
+        ParticleFilterMatrix filters = new ParticleFilterMatrix(2, 100, 0, 1, .1, random);
+
+        assertEquals(.5, filters.getMean(0), .2);
+        double earlyDeviation = filters.getStandardDeviation(0);
+
+        for (int i = 0; i < 100; i++)
+            filters.updateGivenEvidence(.8, new double[]{.05, Double.NaN}, random);
+
+        assertEquals(.8, filters.getMean(0), .1);
+        double midDeviation = filters.getStandardDeviation(0);
+        assertTrue(midDeviation < earlyDeviation);
+        assertEquals(.5, filters.getMean(1), .2);
+
+        for (int i = 0; i < 100; i++)
+            filters.drift(random);
+        assertEquals(.5, filters.getMean(0), .2);
+        assertTrue(filters.getStandardDeviation(0) > midDeviation);
+    }
+
+    @Test
+    public void parallelIsLikeSequential() throws Exception {
+        ParticleFilterMatrix sequential = new ParticleFilterMatrix(500, 50, -10, 10, .5, new MersenneTwisterFast(1));
+        ParticleFilterMatrix parallel = new ParticleFilterMatrix(500, 50, -10, 10, .5, new MersenneTwisterFast(1));
+        parallel.setParallel(true);
+        MersenneTwisterFast firstRandom = new MersenneTwisterFast(2);
+        MersenneTwisterFast secondRandom = new MersenneTwisterFast(2);
+        double[] deviations = new double[500];
+        for (int day = 0; day < 20; day++) {
+            for (int tile = 0; tile < deviations.length; tile++)
+                deviations[tile] = tile % 7 == 0 ? Double.NaN : 1 + tile / 100d;
+            sequential.drift(firstRandom);
+            parallel.drift(secondRandom);
+            //far away evidence resets some tiles
+            double observation = day % 5 == 0 ? 1000 : day / 4d;
+            sequential.updateGivenEvidence(observation, deviations, firstRandom);
+            parallel.updateGivenEvidence(observation, Arrays.copyOf(deviations, deviations.length), secondRandom);
+            for (int tile = 0; tile < deviations.length; tile++) {
+                assertEquals(sequential.getMean(tile), parallel.getMean(tile), 0);
+                assertEquals(sequential.getStandardDeviation(tile), parallel.getStandardDeviation(tile), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.fisher.heatmap.regression;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.Test;
+import uk.ac.ox.oxfish.fisher.actions.MovingTest;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GridXExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GridYExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.factory.SparseKernelTransductionFactory;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.GeographicalObservation;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.KernelTransduction;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.numerical.SparseKernelTransduction;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.utility.Pair;
+import uk.ac.ox.oxfish.utility.parameters.FixedDoubleParameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class SparseKernelTransductionTest {
+
+    /**
+     * not a grid extractor, so the sparse transduction has to compute it tile by tile
+     */
+    private static final ObservationExtractor DIAGONAL =
+            (tile, timeOfObservation, agent, model) -> tile.getGridX() + tile.getGridY();
+
+    @SuppressWarnings("unchecked")
+    private static Pair<ObservationExtractor, Double>[] extractors() {
+        return new Pair[]{
+                new Pair<>(new GridXExtractor(), 10d),
+                new Pair<>(new GridYExtractor(), 20d),
+                new Pair<>(DIAGONAL, 100d)
+        };
+    }
+
+    @Test
+    public void noCutoffIsLikeTheKernelTransduction() throws Exception {
+        FishState state = MovingTest.generateSimple50x50Map();
+        NauticalMap map = state.getMap();
+
+        KernelTransduction dense = new KernelTransduction(map, .95, extractors());
+        SparseKernelTransduction sparse = new SparseKernelTransduction(map, .95, 0, extractors());
+        assertEquals(49, sparse.getIndex().getRadiusX());
+
+        assertEquals(0, observeAndCompare(map, dense, sparse)[1], .000001);
+    }
+
+    @Test
+    public void cutoffIsClose() throws Exception {
+        FishState state = MovingTest.generateSimple50x50Map();
+        NauticalMap map = state.getMap();
+
+        KernelTransduction dense = new KernelTransduction(map, .95, extractors());
+        SparseKernelTransduction sparse = new SparseKernelTransduction(map, .95, .0001, extractors());
+        //exp(-dx^2/10) drops below .0001 after 9 columns
+        assertEquals(9, sparse.getIndex().getRadiusX());
+        assertEquals(13, sparse.getIndex().getRadiusY());
+
+        //tiles that only ever got tiny weights can still move a bit, but on average they are the same
+        double[] errors = observeAndCompare(map, dense, sparse);
+        assertEquals(0, errors[0], .01);
+        assertEquals(0, errors[1], 1);
+    }
+
+    /**
+     * @return average and maximum absolute difference in predictions
+     */
+    private static double[] observeAndCompare(
+            NauticalMap map, KernelTransduction dense, SparseKernelTransduction sparse) {
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        FishState model = mock(FishState.class);
+        for (int i = 0; i < 300; i++) {
+            SeaTile tile = map.getSeaTile(random.nextInt(50), random.nextInt(50));
+            GeographicalObservation<Double> observation = new GeographicalObservation<>(tile, i, random.nextDouble() * 100);
+            dense.addObservation(observation, null, model);
+            sparse.addObservation(observation, null, model);
+        }
+        double sum = 0;
+        double max = 0;
+        for (SeaTile tile : map.getAllSeaTilesExcludingLandAsList()) {
+            double error = Math.abs(dense.predict(tile, 300, null, model) - sparse.predict(tile, 300, null, model));
+            sum += error;
+            max = Math.max(max, error);
+        }
+        return new double[]{sum / map.getAllSeaTilesExcludingLandAsList().size(), max};
+    }
+
+    @Test
+    public void fishersShareTheIndex() throws Exception {
+        FishState state = MovingTest.generateSimple50x50Map();
+        SparseKernelTransductionFactory factory = new SparseKernelTransductionFactory();
+        SparseKernelTransduction first = factory.apply(state);
+        SparseKernelTransduction second = factory.apply(state);
+        assertSame(first.getIndex(), second.getIndex());
+
+        factory.setSpaceBandwidth(new FixedDoubleParameter(7));
+        assertNotSame(first.getIndex(), factory.apply(state).getIndex());
+
+        //changing the bandwidths makes a private index
+        second.setParameters(new double[]{3, 3});
+        assertNotSame(first.getIndex(), second.getIndex());
+        assertTrue(second.getIndex().getRadiusX() < first.getIndex().getRadiusX());
+    }
+}
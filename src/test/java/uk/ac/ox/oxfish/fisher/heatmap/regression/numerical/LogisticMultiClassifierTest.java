@@ -77,4 +77,30 @@ public class LogisticMultiClassifierTest {
         assertTrue(chosen1<800);
 
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void sameSeedSameChoices() throws Exception
+    {
+        double[][] beta = {new double[]{1}, new double[]{2}, new double[]{0.5}};
+        LogisticMultiClassifier logit = new LogisticMultiClassifier(beta);
+        double[][] input = {new double[]{1}, new double[]{1}, new double[]{1}};
+
+        MersenneTwisterFast first = new MersenneTwisterFast(42);
+        MersenneTwisterFast second = new MersenneTwisterFast(42);
+        for(int i=0; i<100; i++)
+            assertEquals(logit.choose(input, first), logit.choose(input, second));
+    }
+
+    @Test
+    public void nonFiniteInputsAreNeverChosen() throws Exception
+    {
+        double[][] beta = {new double[]{1}, new double[]{1}};
+        LogisticMultiClassifier logit = new LogisticMultiClassifier(beta);
+        double[][] input = {new double[]{Double.NaN}, new double[]{1000}};
+
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        for(int i=0; i<100; i++)
+            assertEquals(1, logit.choose(input, random));
+    }
+}
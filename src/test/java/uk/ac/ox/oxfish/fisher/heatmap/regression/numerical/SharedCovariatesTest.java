@@ -0,0 +1,107 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.fisher.heatmap.regression.numerical;
+
+import org.junit.Test;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GasPriceExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.GroupLevelExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.ObservationExtractor;
+import uk.ac.ox.oxfish.fisher.heatmap.regression.extractors.WindSpeedExtractor;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.geography.ports.Port;
+import uk.ac.ox.oxfish.model.FishState;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SharedCovariatesTest {
+
+    @Test
+    public void computedOncePerGroupPerDay() throws Exception {
+
+        FishState state = mock(FishState.class);
+        when(state.getDay()).thenReturn(0);
+        int[] calls = new int[1];
+        GroupLevelExtractor extractor = (tile, timeOfObservation, agent, model) -> ++calls[0];
+
+        SharedCovariates covariates = new SharedCovariates(2);
+        SeaTile tile = mock(SeaTile.class);
+        assertEquals(1, covariates.get(extractor, 0, tile, mock(Fisher.class), state), 0);
+        assertEquals(1, covariates.get(extractor, 0, tile, mock(Fisher.class), state), 0);
+        assertEquals(2, covariates.get(extractor, 1, tile, mock(Fisher.class), state), 0);
+        assertEquals(2, calls[0]);
+
+        //new day, new values
+        when(state.getDay()).thenReturn(1);
+        assertEquals(3, covariates.get(extractor, 0, tile, mock(Fisher.class), state), 0);
+        assertEquals(3, covariates.get(extractor, 0, tile, mock(Fisher.class), state), 0);
+        assertEquals(3, calls[0]);
+    }
+
+    @Test
+    public void portLevelValuesAreSharedByPortAcrossEqualExtractors() throws Exception {
+
+        FishState state = mock(FishState.class);
+        when(state.getDay()).thenReturn(0);
+        Port cheap = mock(Port.class);
+        when(cheap.getGasPricePerLiter()).thenReturn(1d);
+        Port expensive = mock(Port.class);
+        when(expensive.getGasPricePerLiter()).thenReturn(2d);
+        Fisher first = mock(Fisher.class);
+        when(first.getHomePort()).thenReturn(cheap);
+        Fisher second = mock(Fisher.class);
+        when(second.getHomePort()).thenReturn(expensive);
+
+        SharedCovariates covariates = new SharedCovariates(1);
+        SeaTile tile = mock(SeaTile.class);
+        assertEquals(1, covariates.get(new GasPriceExtractor(), 0, tile, first, state), 0);
+        assertEquals(2, covariates.get(new GasPriceExtractor(), 0, tile, second, state), 0);
+        //same port, same day: the price is not read again
+        when(cheap.getGasPricePerLiter()).thenReturn(100d);
+        assertEquals(1, covariates.get(new GasPriceExtractor(), 0, tile, first, state), 0);
+        when(state.getDay()).thenReturn(1);
+        assertEquals(100, covariates.get(new GasPriceExtractor(), 0, tile, first, state), 0);
+    }
+
+    @Test
+    public void tileLevelExtractorsAreReadAtEachTile() throws Exception {
+
+        FishState state = mock(FishState.class);
+        when(state.getDay()).thenReturn(0);
+        SeaTile calm = mock(SeaTile.class);
+        when(calm.getWindSpeedInKph()).thenReturn(1d);
+        SeaTile windy = mock(SeaTile.class);
+        when(windy.getWindSpeedInKph()).thenReturn(50d);
+
+        //two arms in the same group, sampling different tiles
+        ObservationExtractor[] wind = new ObservationExtractor[]{new WindSpeedExtractor()};
+        LogisticInputMaker input = new LogisticInputMaker(
+                new ObservationExtractor[][]{wind, wind},
+                arm -> arm == 0 ? calm : windy,
+                new SharedCovariates(1),
+                arm -> 0);
+        double[][] x = input.getRegressionInput(mock(Fisher.class), state);
+        assertEquals(1, x[0][0], 0);
+        assertEquals(50, x[1][0], 0);
+    }
+}
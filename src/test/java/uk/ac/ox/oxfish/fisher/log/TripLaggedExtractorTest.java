@@ -28,6 +28,7 @@ import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.geography.discretization.MapDiscretization;
 import uk.ac.ox.oxfish.geography.discretization.MapDiscretizer;
 import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
 
 import java.util.LinkedList;
 import java.util.function.Function;
@@ -212,4 +213,44 @@ public class TripLaggedExtractorTest {
         assertEquals(fleetwideExtractor.extract(tile3,Double.NaN,null,model),0d,.0001);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void refusesToAverageATruncatedYear() {
+
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(1);
+        state.setScenario(scenario);
+        state.start();
+        Fisher fisher = state.getFishers().get(0);
+        //only the last two trips are kept in full
+        fisher.setTripRetention(2, -1, true, 100);
+        while (fisher.getNumberOfFinishedTrips() < 4)
+            state.schedule.step(state);
+
+        MapDiscretization discretization = mock(MapDiscretization.class);
+        when(discretization.getNumberOfGroups()).thenReturn(1);
+        TripLaggedExtractor extractor = new TripLaggedExtractor(
+                tripRecord -> tripRecord.getProfitPerHour(true), discretization);
+        extractor.setFisherTracked(fisher);
+        try {
+            extractor.step(state);
+            fail("averaged trips that were no longer kept");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+
+        //keeping a year's worth of trips is fine
+        FishState other = new FishState(0);
+        PrototypeScenario otherScenario = new PrototypeScenario();
+        otherScenario.setFishers(1);
+        other.setScenario(otherScenario);
+        other.start();
+        Fisher otherFisher = other.getFishers().get(0);
+        otherFisher.setTripRetention(-1, 365, true, 100);
+        while (otherFisher.getNumberOfFinishedTrips() < 4)
+            other.schedule.step(other);
+        extractor.setFisherTracked(otherFisher);
+        extractor.step(other);
+    }
+}
@@ -84,4 +84,80 @@ public class TripLoggerTest
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void keepsOnlyTheLatestTripsAndArchivesTheRest() throws Exception {
+
+        TripLogger logger = new TripLogger();
+        logger.setNumberOfSpecies(2);
+        logger.setRetention(3, -1, true, 100);
+        Fisher fisher = mock(Fisher.class, RETURNS_DEEP_STUBS);
+        for (int day = 0; day < 10; day++) {
+            logger.newTrip(0, day);
+            logger.recordEarnings(0, day, 10 * day);
+            logger.recordEarnings(1, 1, 1);
+            logger.recordCosts(5);
+            logger.finishTrip(10, mock(Port.class), fisher);
+        }
+
+        assertEquals(10, logger.getNumberOfFinishedTrips());
+        assertEquals(3, logger.getFinishedTrips().size());
+        assertEquals(7, logger.getFinishedTrips().get(0).getTripDate());
+        assertEquals(9, logger.getLastFinishedTrip().getTripDate());
+
+        TripArchive archive = logger.getArchive();
+        assertEquals(7, archive.size());
+        for (int trip = 0; trip < 7; trip++) {
+            assertEquals(trip, archive.getTripDate(trip));
+            assertEquals(10, archive.getDurationInHours(trip), .0001);
+            assertEquals(10 * trip + 1, archive.getEarnings(trip), .0001);
+            assertEquals(10 * trip + 1 - 5, archive.getTotalTripProfit(trip), .0001);
+            assertEquals((10 * trip + 1 - 5) / 10d, archive.getProfitPerHour(trip, true), .0001);
+            assertEquals(trip, archive.getSoldCatch(trip, 0), .0001);
+            assertEquals(1, archive.getSoldCatch(trip, 1), .0001);
+            //no map, no tile
+            assertEquals(-1, archive.getMostFishedTileIndex(trip));
+        }
+    }
+
+    @Test
+    public void keepsOnlyTheLatestDaysAndCanForget() throws Exception {
+
+        TripLogger logger = new TripLogger();
+        logger.setNumberOfSpecies(1);
+        logger.setRetention(-1, 10, false, 100);
+        Fisher fisher = mock(Fisher.class, RETURNS_DEEP_STUBS);
+        for (int day = 0; day < 100; day += 5) {
+            logger.newTrip(0, day);
+            logger.finishTrip(1, mock(Port.class), fisher);
+        }
+        //trips started on day 85, 90 and 95
+        assertEquals(3, logger.getFinishedTrips().size());
+        assertEquals(85, logger.getFinishedTrips().get(0).getTripDate());
+        assertEquals(20, logger.getNumberOfFinishedTrips());
+        assertNull(logger.getArchive());
+    }
+
+    @Test
+    public void archiveOverwritesItsOldestTripsWhenFull() throws Exception {
+
+        TripLogger logger = new TripLogger();
+        logger.setNumberOfSpecies(1);
+        logger.setRetention(2, -1, true, 5);
+        Fisher fisher = mock(Fisher.class, RETURNS_DEEP_STUBS);
+        for (int day = 0; day < 40; day++) {
+            logger.newTrip(0, day);
+            logger.recordEarnings(0, day, day);
+            logger.finishTrip(1, mock(Port.class), fisher);
+        }
+
+        //38 trips archived, only the last 5 (days 33 to 37) are still there
+        TripArchive archive = logger.getArchive();
+        assertEquals(5, archive.size());
+        assertEquals(38, archive.getNumberOfArchivedTrips());
+        for (int trip = 0; trip < 5; trip++) {
+            assertEquals(33 + trip, archive.getTripDate(trip));
+            assertEquals(33 + trip, archive.getSoldCatch(trip, 0), .0001);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.fisher.selfanalysis.profit;
+
+import org.junit.Test;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.selfanalysis.LameTripSimulator;
+import uk.ac.ox.oxfish.fisher.strategies.destination.PerfectDestinationStrategy;
+import uk.ac.ox.oxfish.fisher.strategies.destination.factory.PerfectDestinationFactory;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedTripEvaluatorTest {
+
+    private static final double MAX_HOURS_OUT = 5 * 24;
+
+    private static FishState spinUp() {
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(10);
+        state.setScenario(scenario);
+        state.start();
+        for (int i = 0; i < 50; i++)
+            state.schedule.step(state);
+        return state;
+    }
+
+    /**
+     * the profits ProfitFunction used to predict, one tile at a time
+     */
+    private static double[] oneAtATime(Fisher fisher, FishState state, SeaTile[] tiles) {
+        ProfitFunction function = new ProfitFunction(new LameTripSimulator(), MAX_HOURS_OUT);
+        double[] profits = new double[tiles.length];
+        for (int i = 0; i < tiles.length; i++)
+            profits[i] = fisher.isAllowedToFishHere(tiles[i], state) ?
+                    function.hourlyProfitFromHypotheticalTripHere(
+                            fisher, tiles[i], state,
+                            fisher.getGear().expectedHourlyCatch(fisher, tiles[i], 1, state.getBiology()),
+                            false) :
+                    Double.NaN;
+        return profits;
+    }
+
+    @Test
+    public void sameProfitsAsOneTripAtATime() {
+
+        FishState state = spinUp();
+        BatchedTripEvaluator sequential = new BatchedTripEvaluator(state, false);
+        BatchedTripEvaluator parallel = new BatchedTripEvaluator(state, true);
+        SeaTile[] tiles = sequential.getCandidates();
+        assertTrue(tiles.length >= BatchedTripEvaluator.PARALLEL_THRESHOLD);
+
+        for (Fisher fisher : state.getFishers()) {
+            double[] expected = oneAtATime(fisher, state, tiles);
+            //twice: the second time distances come from the cache
+            for (int times = 0; times < 2; times++) {
+                assertEquals(expected.length, sequential.evaluate(fisher, state, MAX_HOURS_OUT).length);
+                for (BatchedTripEvaluator evaluator : new BatchedTripEvaluator[]{sequential, parallel}) {
+                    double[] profits = evaluator.evaluate(fisher, state, MAX_HOURS_OUT);
+                    for (int i = 0; i < tiles.length; i++)
+                        assertEquals(expected[i], profits[i], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameProfitsWithOtherCosts() {
+
+        FishState state = spinUp();
+        BatchedTripEvaluator evaluator = new BatchedTripEvaluator(state, true);
+        SeaTile[] tiles = evaluator.getCandidates();
+        for (Fisher fisher : state.getFishers()) {
+            fisher.getAdditionalTripCosts().add(new HourlyCost(10));
+            double[] expected = oneAtATime(fisher, state, tiles);
+            double[] profits = evaluator.evaluate(fisher, state, MAX_HOURS_OUT);
+            for (int i = 0; i < tiles.length; i++)
+                assertEquals(expected[i], profits[i], 0);
+        }
+    }
+
+    @Test
+    public void pickBestMatchesTheProfits() {
+
+        FishState state = spinUp();
+        BatchedTripEvaluator evaluator = new BatchedTripEvaluator(state, false);
+        Fisher fisher = state.getFishers().get(0);
+        SeaTile best = evaluator.pickBest(fisher, state, MAX_HOURS_OUT);
+        assertNotNull(best);
+
+        double[] profits = oneAtATime(fisher, state, evaluator.getCandidates());
+        double bestProfits = Double.NEGATIVE_INFINITY;
+        SeaTile expected = null;
+        for (int i = 0; i < profits.length; i++)
+            if (profits[i] > bestProfits) {
+                bestProfits = profits[i];
+                expected = evaluator.getCandidates()[i];
+            }
+        assertEquals(expected, best);
+    }
+
+    @Test
+    public void perfectFishersShareTheirEvaluator() {
+
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(5);
+        PerfectDestinationFactory destination = new PerfectDestinationFactory();
+        destination.setParallel(true);
+        scenario.setDestinationStrategy(destination);
+        state.setScenario(scenario);
+        state.start();
+        for (int i = 0; i < 30; i++)
+            state.schedule.step(state);
+        assertTrue(state.getFishers().stream().anyMatch(fisher -> fisher.getNumberOfFinishedTrips() > 0));
+        BatchedTripEvaluator first =
+                ((PerfectDestinationStrategy) state.getFishers().get(0).getDestinationStrategy()).getEvaluator();
+        assertNotNull(first);
+        assertSame(first,
+                   ((PerfectDestinationStrategy) state.getFishers().get(1).getDestinationStrategy()).getEvaluator());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.fisher.strategies.destination.factory;
+
+import org.junit.Test;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UnifiedAmateurishDynamicFactoryTest {
+
+    private static FishState spinUp(boolean retention) {
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(5);
+        //always the same spot, so streaks run long
+        scenario.setDestinationStrategy(new RandomFavoriteDestinationFactory());
+        state.setScenario(scenario);
+        state.start();
+        if (retention)
+            for (Fisher fisher : state.getFishers())
+                fisher.setTripRetention(1, -1, true, 1000);
+        for (int i = 0; i < 200; i++)
+            state.schedule.step(state);
+        return state;
+    }
+
+    @Test
+    public void streaksGoOnThroughTheArchive() {
+
+        FishState full = spinUp(false);
+        FishState retained = spinUp(true);
+        for (int i = 0; i < full.getFishers().size(); i++) {
+            Fisher fisher = full.getFishers().get(i);
+            Fisher retainedFisher = retained.getFishers().get(i);
+            assertEquals(1, retainedFisher.getFinishedTrips().size());
+            assertEquals(fisher.getNumberOfFinishedTrips(), retainedFisher.getNumberOfFinishedTrips());
+            int streak = UnifiedAmateurishDynamicFactory.timesExploited(fisher, full.getMap());
+            assertTrue(streak > 1);
+            assertEquals(streak, UnifiedAmateurishDynamicFactory.timesExploited(retainedFisher, retained.getMap()));
+        }
+    }
+}
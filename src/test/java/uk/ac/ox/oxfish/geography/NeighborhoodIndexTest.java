@@ -0,0 +1,98 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography;
+
+import org.junit.Test;
+import sim.field.grid.ObjectGrid2D;
+import sim.util.Bag;
+import uk.ac.ox.oxfish.geography.habitat.TileHabitat;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ox.oxfish.geography.TestUtilities.makeMap;
+
+public class NeighborhoodIndexTest {
+
+    private static NauticalMap map() {
+        return makeMap(new int[][]{
+            {-1, -1, 10, -1},
+            {-1, 10, 10, -1},
+            {-1, -1, -1, -1},
+            {10, -1, -1, -1},
+            {-1, -1, -1, 10}
+        });
+    }
+
+    @Test
+    public void sameNeighborsInTheSameOrderAsMason() {
+
+        NauticalMap map = map();
+        for (int radius = 1; radius <= 3; radius++) {
+            NeighborhoodIndex index = map.getNeighborhoodIndex(radius, false);
+            for (SeaTile tile : map.getAllSeaTilesAsList()) {
+                Bag expected = map.getMooreNeighbors(tile, radius);
+                int tileIndex = map.getTileIndex(tile);
+                assertEquals(expected.size(), index.size(tileIndex));
+                for (int i = 0; i < expected.size(); i++)
+                    assertSame(expected.get(i), index.tileAt(index.start(tileIndex) + i));
+                assertEquals(expected.size(), index.getNeighbors(tile).size());
+            }
+        }
+    }
+
+    @Test
+    public void waterOnlyKeepsTheOrderButDropsLand() {
+
+        NauticalMap map = map();
+        NeighborhoodIndex index = map.getNeighborhoodIndex(2, true);
+        for (SeaTile tile : map.getAllSeaTilesAsList()) {
+            Bag all = map.getMooreNeighbors(tile, 2);
+            List<SeaTile> water = index.getNeighbors(tile);
+            int position = 0;
+            for (Object neighbor : all)
+                if (((SeaTile) neighbor).isWater())
+                    assertSame(neighbor, water.get(position++));
+            assertEquals(position, water.size());
+        }
+    }
+
+    @Test
+    public void rebuiltWhenTilesChange() {
+
+        NauticalMap map = map();
+        NeighborhoodIndex before = map.getNeighborhoodIndex(1, true);
+        assertSame(before, map.getNeighborhoodIndex(1, true));
+        assertFalse(before.getNeighbors(map.getSeaTile(0, 0)).contains(map.getSeaTile(1, 1)));
+
+        //swap a land tile for a water one
+        SeaTile newTile = new SeaTile(1, 1, -100, new TileHabitat(0d));
+        ((ObjectGrid2D) map.getRasterBathymetry().getGrid()).set(1, 1, newTile);
+        map.reactToSeaTileChange();
+
+        NeighborhoodIndex after = map.getNeighborhoodIndex(1, true);
+        assertTrue(after != before);
+        assertTrue(after.getNeighbors(map.getSeaTile(0, 0)).contains(newTile));
+    }
+}
@@ -61,6 +61,12 @@ public class SquaresMapDiscretizerTest {
 
         assertTrue(discretization.getGroup(5).contains(chart.getSeaTile(2,2)));
 
+        //the dense index agrees with the groups
+        for(int group=0; group<discretization.getNumberOfGroups(); group++)
+            for(SeaTile tile : discretization.getGroup(group)) {
+                assertEquals(group, discretization.getGroupIndex(tile));
+                assertEquals(group, (int) discretization.getGroup(tile));
+            }
 
     }
 
@@ -21,4 +21,21 @@ public class TestUtilities {
             new CartesianDistance(1), mock(Pathfinder.class)
         );
     }
+
+    /**
+     * a map made of the given tiles; tiles[x][y] must be the tile at grid position x,y
+     */
+    public static NauticalMap makeMap(@NotNull SeaTile[][] tiles) {
+        assert (tiles.length > 0);
+        ObjectGrid2D grid2D = new ObjectGrid2D(tiles.length, tiles[0].length);
+        for (int i = 0; i < tiles.length; i++)
+            for (int j = 0; j < tiles[i].length; j++) {
+                assert tiles[i][j].getGridX() == i && tiles[i][j].getGridY() == j;
+                grid2D.set(i, j, tiles[i][j]);
+            }
+        return new NauticalMap(
+            new GeomGridField(grid2D), new GeomVectorField(),
+            new CartesianDistance(1), mock(Pathfinder.class)
+        );
+    }
 }
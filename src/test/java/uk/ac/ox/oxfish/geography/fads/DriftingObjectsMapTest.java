@@ -0,0 +1,134 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography.fads;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.Test;
+import sim.field.continuous.Continuous2D;
+import sim.util.Bag;
+import sim.util.Double2D;
+import sim.util.Int2D;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.geography.currents.VectorGrid2D;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.ac.ox.oxfish.utility.MasonUtils.bagToStream;
+
+public class DriftingObjectsMapTest {
+
+    private static final int WIDTH = 20;
+
+    private static final int HEIGHT = 15;
+
+    /**
+     * drifts the same objects on the same random currents over the same random islands, once through the drifting
+     * objects map and once the way it used to be done (one object at the time on a MASON Continuous2D)
+     */
+    @Test
+    public void driftsLikeAContinuous2D() {
+
+        final MersenneTwisterFast random = new MersenneTwisterFast(42);
+        final Map<SeaTile, Double2D> vectors = new HashMap<>();
+        for (int x = 0; x < WIDTH; x++)
+            for (int y = 0; y < HEIGHT; y++) {
+                SeaTile tile = mock(SeaTile.class);
+                when(tile.getGridX()).thenReturn(x);
+                when(tile.getGridY()).thenReturn(y);
+                vectors.put(tile, new Double2D(random.nextDouble() * 1.6 - .8, random.nextDouble() * 1.6 - .8));
+            }
+        final VectorGrid2D currents = new VectorGrid2D(WIDTH, HEIGHT, vectors);
+        final boolean[] land = new boolean[WIDTH * HEIGHT];
+        for (int i = 0; i < land.length; i++)
+            land[i] = random.nextDouble() < .05;
+
+        final DriftingObjectsMap map = new DriftingObjectsMap(WIDTH, HEIGHT);
+        final Continuous2D reference = new Continuous2D(1.0, WIDTH, HEIGHT);
+        final List<String> events = new ArrayList<>();
+        final List<String> referenceEvents = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final Integer object = i;
+            Double2D location = new Double2D(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT);
+            map.add(object, location, (oldLocation, newLocation) -> {
+                if (newLocation.isPresent()) {
+                    // beached: take it off the map
+                    if (land[(int) newLocation.get().x * HEIGHT + (int) newLocation.get().y]) {
+                        events.add("beached " + object + " from " + oldLocation);
+                        map.remove(object);
+                    }
+                } else
+                    events.add("lost " + object);
+            });
+            reference.setObjectLocation(object, location);
+        }
+
+        for (int day = 0; day < 40; day++) {
+            map.applyDrift(currents, cell -> land[cell]);
+
+            final Bag copy = new Bag(reference.allObjects);
+            for (Object object : copy) {
+                final Double2D oldLocation = reference.getObjectLocation(object);
+                final Optional<Double2D> newLocation = currents.move(oldLocation);
+                if (!newLocation.isPresent()) {
+                    reference.remove(object);
+                    referenceEvents.add("lost " + object);
+                } else {
+                    reference.setObjectLocation(object, newLocation.get());
+                    if (land[(int) newLocation.get().x * HEIGHT + (int) newLocation.get().y]) {
+                        referenceEvents.add("beached " + object + " from " + oldLocation);
+                        reference.remove(object);
+                        referenceEvents.add("lost " + object);
+                    }
+                }
+            }
+
+            assertEquals(referenceEvents, events);
+            assertEquals(bagToStream(reference.allObjects).collect(toList()), map.objects().collect(toList()));
+            for (Object object : reference.allObjects)
+                assertEquals(reference.getObjectLocation(object), map.getObjectLocation(object));
+            for (int x = 0; x < WIDTH; x++)
+                for (int y = 0; y < HEIGHT; y++) {
+                    final Bag expected = reference.getObjectsAtDiscretizedLocation(new Int2D(x, y));
+                    final Bag actual = map.getObjectsAt(x, y);
+                    if (expected == null || expected.isEmpty())
+                        assertNull(actual);
+                    else
+                        assertEquals(bagToStream(expected).collect(toList()), bagToStream(actual).collect(toList()));
+                }
+        }
+        // both beaching and drifting away happened, and some made it all the way
+        assertTrue(events.stream().anyMatch(event -> event.startsWith("beached")));
+        assertTrue(map.size() > 0);
+        // and the GUI view agrees too
+        assertEquals(map.size(), map.getField().allObjects.size());
+    }
+
+}
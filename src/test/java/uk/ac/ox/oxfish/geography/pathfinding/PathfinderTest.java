@@ -21,6 +21,7 @@
 package uk.ac.ox.oxfish.geography.pathfinding;
 
 import com.google.common.collect.ImmutableList;
+import ec.util.MersenneTwisterFast;
 import org.junit.Test;
 import sim.field.geo.GeomGridField;
 import sim.field.geo.GeomVectorField;
@@ -31,6 +32,7 @@ import uk.ac.ox.oxfish.geography.SeaTile;
 import uk.ac.ox.oxfish.geography.habitat.TileHabitat;
 
 import java.util.Deque;
+import java.util.List;
 
 import static com.google.common.collect.Iterables.elementsEqual;
 import static org.junit.Assert.assertEquals;
@@ -149,4 +151,35 @@ public class PathfinderTest {
         assertNotNull(straightLinePathfinder.getRoute(impassableMap, start, end));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void gridAStarReturnsSameRoutesAsAStar() {
+
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        for (int run = 0; run < 5; run++) {
+            //random map, roughly a quarter of it land
+            int[][] altitude = new int[25][20];
+            for (int x = 0; x < altitude.length; x++)
+                for (int y = 0; y < altitude[x].length; y++)
+                    altitude[x][y] = random.nextDouble() < .25 ? 10 : -1;
+            NauticalMap map = makeMap(altitude);
+
+            final CartesianDistance distance = new CartesianDistance(1);
+            final AStarPathfinder aStar = new AStarPathfinder(distance);
+            final GridAStarPathfinder gridAStar = new GridAStarPathfinder(distance);
+
+            final List<SeaTile> water = map.getAllSeaTilesExcludingLandAsList();
+            for (int query = 0; query < 100; query++) {
+                SeaTile start = water.get(random.nextInt(water.size()));
+                SeaTile end = water.get(random.nextInt(water.size()));
+                Deque<SeaTile> expected = aStar.getRoute(map, start, end);
+                Deque<SeaTile> actual = gridAStar.getRoute(map, start, end);
+                if (expected == null)
+                    assertNull(actual);
+                else
+                    assertTrue(elementsEqual(expected, actual));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography.pathfinding;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.ac.ox.oxfish.geography.CartesianDistance;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.SeaTile;
+import uk.ac.ox.oxfish.geography.ports.Port;
+import uk.ac.ox.oxfish.model.market.MarketMap;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Optional;
+
+import static com.google.common.collect.Iterables.elementsEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static uk.ac.ox.oxfish.geography.TestUtilities.makeMap;
+
+public class PortRouteAtlasTest {
+
+    private static NauticalMap mapWithPort() {
+        //a little island in the middle, port on its left side
+        NauticalMap map = makeMap(new int[][]{
+            {-1, -1, -1, -1, -1},
+            {-1, 10, 10, 10, -1},
+            {-1, 10, 10, 10, -1},
+            {-1, -1, -1, 10, -1},
+            {-1, -1, -1, -1, -1}
+        });
+        map.addPort(new Port("port", map.getSeaTile(1, 1), mock(MarketMap.class), 0));
+        return map;
+    }
+
+    private static double length(NauticalMap map, Iterable<SeaTile> route) {
+        double length = 0;
+        Iterator<SeaTile> iterator = route.iterator();
+        SeaTile previous = iterator.next();
+        while (iterator.hasNext()) {
+            SeaTile next = iterator.next();
+            length += map.distance(previous, next);
+            previous = next;
+        }
+        return length;
+    }
+
+    @Test
+    public void routesAreAsShortAsAStar() {
+
+        NauticalMap map = mapWithPort();
+        PortRouteAtlas atlas = new PortRouteAtlas(null);
+        map.setPortRouteAtlas(atlas);
+        atlas.build(map);
+
+        SeaTile port = map.getSeaTile(1, 1);
+        AStarPathfinder aStar = new AStarPathfinder(new CartesianDistance(1));
+        for (SeaTile tile : map.getAllSeaTilesExcludingLandAsList()) {
+            Optional<ImmutableList<SeaTile>> there = atlas.getPath(port, tile);
+            Optional<ImmutableList<SeaTile>> back = atlas.getPath(tile, port);
+            assertTrue(there.isPresent());
+            assertTrue(back.isPresent());
+            assertEquals(port, there.get().get(0));
+            assertEquals(tile, there.get().get(there.get().size() - 1));
+            assertTrue(elementsEqual(there.get().reverse(), back.get()));
+            //never through land
+            for (SeaTile step : there.get())
+                assertTrue(step == port || step.isWater());
+
+            Deque<SeaTile> expected = aStar.getRoute(map, port, tile);
+            assertEquals(length(map, expected), length(map, there.get()), .0001);
+            assertEquals(length(map, expected), atlas.getDistanceFromPort(port, tile), .0001);
+        }
+
+        //routes not touching a port are not the atlas' business
+        assertNull(atlas.getPath(map.getSeaTile(0, 0), map.getSeaTile(4, 4)));
+        //like A*, routes can end on land next to where we are
+        assertEquals(2, atlas.getPath(port, map.getSeaTile(2, 2)).get().size());
+    }
+
+    @Test
+    public void readsItselfBackFromDisk() throws Exception {
+
+        Path folder = Files.createTempDirectory("atlas");
+        NauticalMap map = mapWithPort();
+        PortRouteAtlas first = new PortRouteAtlas(folder);
+        first.build(map);
+        File[] files = folder.toFile().listFiles();
+        assertEquals(1, files.length);
+        long lastModified = files[0].lastModified();
+
+        PortRouteAtlas second = new PortRouteAtlas(folder);
+        second.build(map);
+        assertEquals(1, folder.toFile().listFiles().length);
+        assertEquals(lastModified, folder.toFile().listFiles()[0].lastModified());
+
+        SeaTile port = map.getSeaTile(1, 1);
+        for (SeaTile tile : map.getAllSeaTilesExcludingLandAsList()) {
+            assertEquals(first.getPath(port, tile), second.getPath(port, tile));
+            assertEquals(first.getDistanceFromPort(port, tile), second.getDistanceFromPort(port, tile), 0);
+        }
+
+        //a different map gets a different file
+        NauticalMap other = makeMap(new int[][]{
+            {-1, -1, -1},
+            {-1, 10, -1},
+            {-1, -1, -1}
+        });
+        other.addPort(new Port("port", other.getSeaTile(1, 1), mock(MarketMap.class), 0));
+        new PortRouteAtlas(folder).build(other);
+        assertEquals(2, folder.toFile().listFiles().length);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.geography.sampling;
+
+import com.vividsolutions.jts.geom.Envelope;
+import ec.util.MersenneTwisterFast;
+import org.junit.Test;
+import uk.ac.ox.oxfish.biology.GlobalBiology;
+import uk.ac.ox.oxfish.biology.Species;
+import uk.ac.ox.oxfish.biology.initializer.allocator.CoordinateFileBiomassAllocator;
+import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.geography.mapmakers.FromFileMapInitializer;
+import uk.ac.ox.oxfish.model.FishState;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static uk.ac.ox.oxfish.geography.mapmakers.FromFileMapInitializerFactory.DEFAULT_MAP_PADDING_IN_DEGREES;
+
+public class BinaryGridTest {
+
+    @Test
+    public void writesAndReadsBack() throws Exception {
+        Path file = Files.createTempFile("test", ".grid");
+        LinkedHashMap<String, float[]> layers = new LinkedHashMap<>();
+        layers.put("depth", new float[]{1, 2, 3, 4, 5, Float.NaN});
+        layers.put("biomass", new float[]{10, 20, 30, 40, 50, 60});
+        BinaryGrid.write(file, new Envelope(0, 30, -10, 10), 3, 2, layers);
+
+        BinaryGrid grid = BinaryGrid.read(file);
+        assertEquals(3, grid.getWidth());
+        assertEquals(2, grid.getHeight());
+        assertEquals(new Envelope(0, 30, -10, 10), grid.getMbr());
+        assertEquals(2, grid.getLayerNames().size());
+        assertEquals("biomass", grid.getLayerNames().get(1));
+        assertEquals(3, grid.get(0, 1, 0), 0);
+        assertTrue(Float.isNaN(grid.get(0, 2, 1)));
+        assertEquals(40, grid.getLayer("biomass").get(1 * 2 + 1), 0);
+        assertEquals(5, grid.getCellCenterX(0), .0001);
+        assertEquals(5, grid.getCellCenterY(0), .0001);
+        assertEquals(-5, grid.getCellCenterY(1), .0001);
+    }
+
+    @Test
+    public void sameMapAsTheCsv() throws Exception {
+        //random bathymetry with a few holes
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        List<String> lines = new ArrayList<>();
+        lines.add("x,y,z");
+        for (int i = 0; i < 2000; i++)
+            lines.add((random.nextDouble() * 50) + "," + (random.nextDouble() * 20) + "," +
+                              (random.nextDouble() < .1 ? -9999 : random.nextDouble() * 200 - 150));
+        Path csv = Files.createTempFile("depth", ".csv");
+        Files.write(csv, lines);
+        Path grid = Files.createTempFile("depth", ".grid");
+        BinaryGrid.convert(csv, true, 40, DEFAULT_MAP_PADDING_IN_DEGREES, "depth", grid);
+
+        NauticalMap fromCsv = new FromFileMapInitializer(csv, 40, DEFAULT_MAP_PADDING_IN_DEGREES, true, false).
+                makeMap(random, new GlobalBiology(mock(Species.class)), mock(FishState.class));
+        NauticalMap fromGrid = new FromFileMapInitializer(grid, 40, DEFAULT_MAP_PADDING_IN_DEGREES, true, false).
+                makeMap(random, new GlobalBiology(mock(Species.class)), mock(FishState.class));
+
+        assertEquals(fromCsv.getWidth(), fromGrid.getWidth());
+        assertEquals(fromCsv.getHeight(), fromGrid.getHeight());
+        assertEquals(fromCsv.getRasterBathymetry().getMBR(), fromGrid.getRasterBathymetry().getMBR());
+        for (int x = 0; x < fromCsv.getWidth(); x++)
+            for (int y = 0; y < fromCsv.getHeight(); y++)
+                assertEquals(fromCsv.getSeaTile(x, y).getAltitude(), fromGrid.getSeaTile(x, y).getAltitude(), .0001);
+    }
+
+    @Test
+    public void allocatorReadsGrids() throws Exception {
+        //same as CoordinateFileBiomassAllocatorTest, with the abundance converted to a grid first
+        NauticalMap map = new FromFileMapInitializer(
+                Paths.get("inputs", "tests", "map.csv"), 2, DEFAULT_MAP_PADDING_IN_DEGREES, true, false).
+                makeMap(new MersenneTwisterFast(), new GlobalBiology(mock(Species.class)), mock(FishState.class));
+        Path grid = Files.createTempFile("abundance", ".grid");
+        BinaryGrid.convert(Paths.get("inputs", "tests", "flipped_map.csv"), true, 2,
+                           DEFAULT_MAP_PADDING_IN_DEGREES, "abundance", grid);
+
+        CoordinateFileBiomassAllocator allocator = new CoordinateFileBiomassAllocator(grid, true);
+        assertEquals(6, allocator.allocate(map.getSeaTile(0, 0), map, new MersenneTwisterFast()), .0001);
+        assertEquals(6, allocator.allocate(map.getSeaTile(0, 1), map, new MersenneTwisterFast()), .0001);
+        assertEquals(-10, allocator.allocate(map.getSeaTile(1, 1), map, new MersenneTwisterFast()), .0001);
+        assertEquals(-10, allocator.allocate(map.getSeaTile(1, 0), map, new MersenneTwisterFast()), .0001);
+    }
+}
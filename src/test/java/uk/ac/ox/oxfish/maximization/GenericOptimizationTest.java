@@ -0,0 +1,85 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.maximization;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import uk.ac.ox.oxfish.maximization.generic.FixedDataLastStepTarget;
+import uk.ac.ox.oxfish.maximization.generic.SimpleOptimizationParameter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class GenericOptimizationTest {
+
+    private static GenericOptimization optimization(Path scenario, int threads, Path cache) {
+        GenericOptimization optimization = new GenericOptimization();
+        optimization.setScenarioFile(scenario.toString());
+        optimization.setParameters(Lists.newArrayList(
+                new SimpleOptimizationParameter("gasPricePerLiter", 0, 2)));
+        optimization.setTargets(Lists.newArrayList(
+                new FixedDataLastStepTarget(0, "Average Cash-Flow")));
+        optimization.setSimulatedYears(1);
+        optimization.setRunsPerSetting(2);
+        optimization.setFixedSeeds(true);
+        optimization.setSeed(123);
+        optimization.setParallelThreads(threads);
+        optimization.setResultCacheFile(cache.toString());
+        return optimization;
+    }
+
+    @Test
+    public void parallelReplicatesMatchSequentialAndAreCached() throws Exception {
+
+        Path scenario = Files.createTempFile("scenario", ".yaml");
+        Files.write(scenario, "Abstract:\n  fishers: 5\n".getBytes());
+        Path cache = Files.createTempFile("cache", ".csv");
+        Files.delete(cache);
+
+        List<double[]> population = Lists.newArrayList(new double[]{-10}, new double[]{10});
+        double first = optimization(scenario, 1, Files.createTempFile("nocache", ".csv")).evaluate(population.get(0))[0];
+        double second = optimization(scenario, 1, Files.createTempFile("nocache", ".csv")).evaluate(population.get(1))[0];
+
+        GenericOptimization parallel = optimization(scenario, 3, cache);
+        assertEquals(first, parallel.evaluate(population.get(0))[0], 0);
+        assertEquals(second, parallel.evaluate(population.get(1))[0], 0);
+        //one line per candidate per replicate
+        assertEquals(4, Files.readAllLines(cache).size());
+
+        //a new session reads the results back instead of running again
+        GenericOptimization resumed = optimization(scenario, 3, cache);
+        assertEquals(first, resumed.evaluate(population.get(0))[0], 0);
+        assertEquals(second, resumed.evaluate(population.get(1))[0], 0);
+        assertEquals(4, Files.readAllLines(cache).size());
+
+        //but not if the setup changed
+        GenericOptimization changed = optimization(scenario, 3, cache);
+        changed.setTargets(Lists.newArrayList(new FixedDataLastStepTarget(1, "Average Cash-Flow")));
+        changed.evaluate(population.get(0));
+        assertEquals(6, Files.readAllLines(cache).size());
+        Files.write(scenario, "Abstract:\n  fishers: 6\n".getBytes());
+        optimization(scenario, 3, cache).evaluate(population.get(0));
+        assertEquals(8, Files.readAllLines(cache).size());
+    }
+}
@@ -24,17 +24,23 @@ import com.beust.jcommander.internal.Lists;
 import javafx.collections.FXCollections;
 import org.junit.Test;
 import uk.ac.ox.oxfish.biology.Species;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.fisher.log.TripRecord;
 import uk.ac.ox.oxfish.geography.NauticalMap;
+import uk.ac.ox.oxfish.model.data.Gatherer;
 import uk.ac.ox.oxfish.model.data.collectors.DataColumn;
+import uk.ac.ox.oxfish.model.data.collectors.FisherDailyTimeSeries;
 import uk.ac.ox.oxfish.model.data.collectors.TimeSeries;
 import uk.ac.ox.oxfish.model.market.AbstractMarket;
 import uk.ac.ox.oxfish.model.market.Market;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
 
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -42,6 +48,11 @@ import static org.mockito.Mockito.when;
 
 public class FishStateDailyTimeSeriesTest {
 
+    @SuppressWarnings("unchecked")
+    private static TimeSeries<Market> mockMarketData() {
+        return mock(TimeSeries.class);
+    }
+
     @Test
     public void testAggregation() throws Exception {
 
@@ -57,7 +68,7 @@ public class FishStateDailyTimeSeriesTest {
         when(state.getSpecies()).thenReturn(Collections.singletonList(species));
 
         //===> aggregate over two markets
-        Market market1 = mock(Market.class); TimeSeries<Market> data1 = mock(TimeSeries.class);
+        Market market1 = mock(Market.class); TimeSeries<Market> data1 = mockMarketData();
         when(data1.getLatestObservation(AbstractMarket.LANDINGS_COLUMN_NAME)).thenReturn(-100d);
         when(data1.getLatestObservation(AbstractMarket.EARNINGS_COLUMN_NAME)).thenReturn(100d);
         when(data1.getColumns()).thenReturn(
@@ -66,7 +77,7 @@ public class FishStateDailyTimeSeriesTest {
         );
         when(market1.getData()).thenReturn(data1);
 
-        Market market2 = mock(Market.class,RETURNS_DEEP_STUBS); TimeSeries<Market> data2 = mock(TimeSeries.class);
+        Market market2 = mock(Market.class,RETURNS_DEEP_STUBS); TimeSeries<Market> data2 = mockMarketData();
         when(data2.getColumns()).thenReturn(
                 Lists.newArrayList(new DataColumn(AbstractMarket.LANDINGS_COLUMN_NAME),
                                    new DataColumn(AbstractMarket.EARNINGS_COLUMN_NAME))
@@ -93,4 +104,44 @@ public class FishStateDailyTimeSeriesTest {
                 .0001d
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void fleetColumnsMatchPerFisherPasses() throws Exception {
+
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(50);
+        state.setScenario(scenario);
+        state.start();
+        //the old way: one pass over the fishers per column
+        FishStateDailyTimeSeries data = state.getDailyDataSet();
+        Species species = state.getSpecies().get(0);
+        data.registerGatherer("old effort", (Gatherer<FishState>) model -> model.getFishers().stream().mapToDouble(
+                fisher -> fisher.getDailyCounter().getEffort()).sum(), 0d);
+        data.registerGatherer("old catches", (Gatherer<FishState>) model -> model.getFishers().stream().mapToDouble(
+                fisher -> fisher.getDailyCounter().getCatchesPerSpecie(species.getIndex())).sum(), 0d);
+        data.registerGatherer("old at sea", (Gatherer<FishState>) model -> model.getFishers().stream().mapToDouble(
+                fisher -> fisher.getLocation().equals(fisher.getHomePort().getLocation()) ? 0 : 1).sum(), 0d);
+        data.registerGatherer("old profits", (Gatherer<FishState>) model -> {
+            double profits = 0;
+            for (Fisher fisher : model.getFishers()) {
+                TripRecord lastTrip = fisher.getLastFinishedTrip();
+                if (lastTrip != null && Double.isFinite(lastTrip.getProfitPerHour(true)))
+                    profits += lastTrip.getProfitPerHour(true);
+            }
+            return profits / model.getFishers().size();
+        }, 0d);
+
+        for (int day = 0; day < 100; day++) {
+            state.schedule.step(state);
+            assertEquals(data.getLatestObservation("old effort"), data.getLatestObservation("Total Effort"), 0);
+            assertEquals(data.getLatestObservation("old catches"),
+                         data.getLatestObservation(species + " " + FisherDailyTimeSeries.CATCHES_COLUMN_NAME), 0);
+            assertEquals(data.getLatestObservation("old at sea"), data.getLatestObservation("Fishers at Sea"), 0);
+            assertEquals(data.getLatestObservation("old profits"),
+                         data.getLatestObservation(FishStateDailyTimeSeries.AVERAGE_LAST_TRIP_HOURLY_PROFITS), 0);
+        }
+        //and something actually happened
+        assertTrue(data.getColumn("Total Effort").stream().mapToDouble(Double::doubleValue).sum() > 0);
+    }
+}
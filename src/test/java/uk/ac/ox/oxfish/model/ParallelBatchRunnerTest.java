@@ -0,0 +1,146 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelBatchRunnerTest {
+
+    private static final String SCENARIO = "Abstract:\n" +
+            "  fishers: 5\n";
+
+    @Test
+    public void gridHasAllCombinations() throws Exception {
+
+        LinkedHashMap<String, List<Double>> values = new LinkedHashMap<>();
+        values.put("a", Lists.newArrayList(1d, 2d));
+        values.put("b", Lists.newArrayList(10d, 20d, 30d));
+        List<LinkedHashMap<String, Double>> grid = ParallelBatchRunner.grid(values);
+
+        assertEquals(6, grid.size());
+        assertEquals(1d, grid.get(0).get("a"), 0);
+        assertEquals(10d, grid.get(0).get("b"), 0);
+        assertEquals(1d, grid.get(2).get("a"), 0);
+        assertEquals(30d, grid.get(2).get("b"), 0);
+        assertEquals(2d, grid.get(5).get("a"), 0);
+    }
+
+    @Test
+    public void sameRowsWhateverTheThreadsAndResumes() throws Exception {
+
+        Path scenario = Files.createTempFile("scenario", ".yaml");
+        Files.write(scenario, SCENARIO.getBytes());
+        LinkedHashMap<String, List<Double>> values = new LinkedHashMap<>();
+        values.put("gasPricePerLiter", Lists.newArrayList(0.01, 1d));
+        List<? extends Map<String, Double>> parameters = ParallelBatchRunner.grid(values);
+        List<String> columns = Lists.newArrayList("Average Cash-Flow", "Average Gas Expenditure");
+
+        Path sequential = Files.createTempDirectory("sequential");
+        ParallelBatchRunner runner = new ParallelBatchRunner(scenario, 1, columns, sequential, parameters, 2, 0, 1);
+        assertEquals(4, runner.run());
+        assertEquals(4, runner.getRunsCompleted());
+        assertTrue(runner.getSimulatedDaysPerSecond() > 0);
+
+        Path parallel = Files.createTempDirectory("parallel");
+        runner = new ParallelBatchRunner(scenario, 1, columns, parallel, parameters, 2, 0, 3);
+        runner.setWriteModelResults(true);
+        assertEquals(4, runner.run());
+
+        List<String> sequentialRows = Files.readAllLines(sequential.resolve(ParallelBatchRunner.RUNS_FILE));
+        List<String> parallelRows = Files.readAllLines(parallel.resolve(ParallelBatchRunner.RUNS_FILE));
+        //header + 2 parameters * 2 seeds * 2 columns * 1 year
+        assertEquals(9, sequentialRows.size());
+        Collections.sort(sequentialRows);
+        Collections.sort(parallelRows);
+        assertEquals(sequentialRows, parallelRows);
+        assertTrue(Files.size(parallel.resolve(ParallelBatchRunner.RESULTS_FILE)) > 0);
+
+        //nothing left to do
+        runner = new ParallelBatchRunner(scenario, 1, columns, parallel, parameters, 2, 0, 3);
+        assertEquals(0, runner.run());
+        assertEquals(9, Files.readAllLines(parallel.resolve(ParallelBatchRunner.RUNS_FILE)).size());
+
+        //forget one run (as if it crashed before being marked): it gets dropped and done again
+        List<String> completed = Files.readAllLines(parallel.resolve(ParallelBatchRunner.COMPLETED_FILE));
+        completed.remove("1,1");
+        Files.write(parallel.resolve(ParallelBatchRunner.COMPLETED_FILE), completed);
+        runner = new ParallelBatchRunner(scenario, 1, columns, parallel, parameters, 2, 0, 3);
+        assertEquals(1, runner.run());
+        parallelRows = Files.readAllLines(parallel.resolve(ParallelBatchRunner.RUNS_FILE));
+        Collections.sort(parallelRows);
+        assertEquals(sequentialRows, parallelRows);
+
+        //a different grid can't resume into the same folder
+        values.put("gasPricePerLiter", Lists.newArrayList(1d, 0.01));
+        runner = new ParallelBatchRunner(scenario, 1, columns, parallel, ParallelBatchRunner.grid(values), 2, 0, 3);
+        try {
+            runner.run();
+            fail("resumed into a folder with a different grid");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        parallelRows = Files.readAllLines(parallel.resolve(ParallelBatchRunner.RUNS_FILE));
+        Collections.sort(parallelRows);
+        assertEquals(sequentialRows, parallelRows);
+    }
+
+    @Test
+    public void strategiesSharingStateWithinAModelDoNotLeakAcrossThreads() throws Exception {
+
+        //bandits share one map discretization per model and the ITQ book numbers its own quotes
+        Path scenario = Files.createTempFile("scenario", ".yaml");
+        Files.write(scenario, ("Abstract:\n" +
+                "  fishers: 10\n" +
+                "  destinationStrategy:\n" +
+                "    Discretized Bandit: {}\n" +
+                "  regulation:\n" +
+                "    Mono-ITQ:\n" +
+                "      individualQuota: 1000\n").getBytes());
+        List<? extends Map<String, Double>> parameters =
+                Collections.singletonList(new LinkedHashMap<>());
+        List<String> columns = Lists.newArrayList("Average Cash-Flow", "Species 0 Landings");
+
+        Path sequential = Files.createTempDirectory("sequential");
+        new ParallelBatchRunner(scenario, 1, columns, sequential, parameters, 6, 0, 1).run();
+        Path parallel = Files.createTempDirectory("parallel");
+        new ParallelBatchRunner(scenario, 1, columns, parallel, parameters, 6, 0, 6).run();
+
+        List<String> sequentialRows = Files.readAllLines(sequential.resolve(ParallelBatchRunner.RUNS_FILE));
+        List<String> parallelRows = Files.readAllLines(parallel.resolve(ParallelBatchRunner.RUNS_FILE));
+        //header + 6 seeds * 2 columns * 1 year
+        assertEquals(13, sequentialRows.size());
+        Collections.sort(sequentialRows);
+        Collections.sort(parallelRows);
+        assertEquals(sequentialRows, parallelRows);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model;
+
+import org.junit.Test;
+import sim.engine.Stoppable;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+import uk.ac.ox.oxfish.utility.ModelCheckpoint;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TimeWheelSchedulerTest {
+
+    private static FishState startedOnTheWheel(long seed, int fishers) {
+        FishState state = new FishState(seed, 2);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(fishers);
+        state.setScenario(scenario);
+        state.setTimeWheelScheduling(true);
+        state.start();
+        return state;
+    }
+
+    @Test
+    public void periodsAndStops() {
+
+        FishState state = startedOnTheWheel(0, 0);
+        int[] counts = new int[6];
+        state.scheduleEveryStep(simState -> counts[0]++, StepOrder.FISHER_PHASE);
+        state.scheduleEveryDay(simState -> counts[1]++, StepOrder.DAILY_DATA_GATHERING);
+        state.scheduleEveryYear(simState -> counts[2]++, StepOrder.POLICY_UPDATE);
+        state.scheduleEveryXDay(simState -> counts[3]++, StepOrder.AFTER_DATA, 10);
+        state.scheduleOnceInXDays(simState -> counts[4]++, StepOrder.DAWN, 3);
+        Stoppable stoppable = state.scheduleEveryStep(simState -> counts[5]++, StepOrder.BIOLOGY_PHASE);
+
+        for (int step = 0; step < 20; step++)
+            state.schedule.step(state);
+        TimeWheelScheduler wheel = state.getTimeWheel();
+        assertNotNull(wheel);
+        int scheduled = wheel.getScheduled(StepOrder.BIOLOGY_PHASE);
+        stoppable.stop();
+        assertEquals(scheduled - 1, wheel.getScheduled(StepOrder.BIOLOGY_PHASE));
+        //stopping twice is harmless
+        stoppable.stop();
+        for (int step = 0; step < 2 * 365 * 2; step++)
+            state.schedule.step(state);
+
+        assertEquals(20 + 2 * 365 * 2, counts[0]);
+        assertEquals(10 + 2 * 365, counts[1]);
+        assertEquals(3, counts[2]);
+        assertEquals(74, counts[3]);
+        assertEquals(1, counts[4]);
+        assertEquals(20, counts[5]);
+
+        assertEquals(20 + 2 * 365 * 2, wheel.getSteppablesRun(StepOrder.FISHER_PHASE));
+        assertTrue(wheel.getSecondsSpent(StepOrder.FISHER_PHASE) > 0);
+        wheel.resetTimings();
+        assertEquals(0, wheel.getSteppablesRun(StepOrder.FISHER_PHASE));
+    }
+
+    @Test
+    public void orderedPhasesRunInOrderAndNotBeforeTheirTime() {
+
+        FishState state = startedOnTheWheel(0, 0);
+        List<String> events = new ArrayList<>();
+        state.scheduleEveryStep(simState -> {
+            events.add("dawn " + state.getStep());
+            //scheduled from within a step: runs next step, never in this one
+            if (state.getStep() == 0)
+                state.scheduleEveryStep(inner -> events.add("late " + state.getStep()), StepOrder.DATA_RESET);
+        }, StepOrder.DAWN);
+        state.scheduleEveryStep(simState -> events.add("first " + state.getStep()), StepOrder.AGGREGATE_DATA_GATHERING);
+        state.scheduleEveryStep(simState -> events.add("second " + state.getStep()), StepOrder.AGGREGATE_DATA_GATHERING);
+
+        state.schedule.step(state);
+        state.schedule.step(state);
+        List<String> expected = new ArrayList<>();
+        expected.add("dawn 0");
+        expected.add("first 0");
+        expected.add("second 0");
+        expected.add("dawn 1");
+        expected.add("first 1");
+        expected.add("second 1");
+        expected.add("late 1");
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void modelRunsAndIsReproducible() {
+
+        double[] landings = new double[2];
+        for (int run = 0; run < 2; run++) {
+            FishState state = startedOnTheWheel(42, 20);
+            while (state.getYear() < 1)
+                state.schedule.step(state);
+            landings[run] = state.getYearlyDataSet().getLatestObservation("Species 0 Landings");
+            TimeWheelScheduler wheel = state.getTimeWheel();
+            assertTrue(wheel.getSteppablesRun(StepOrder.FISHER_PHASE) >= 20 * 365 * 2);
+            assertTrue(wheel.getSecondsSpent(StepOrder.BIOLOGY_PHASE) >= 0);
+        }
+        assertTrue(landings[0] > 0);
+        assertEquals(landings[0], landings[1], 0);
+    }
+
+    @Test
+    public void survivesCheckpoints() throws Exception {
+
+        FishState state = startedOnTheWheel(0, 10);
+        for (int step = 0; step < 100; step++)
+            state.schedule.step(state);
+        Path file = Files.createTempFile("wheel", ".checkpoint");
+        ModelCheckpoint.write(state, file);
+        FishState restored = ModelCheckpoint.read(file);
+        for (int step = 0; step < 100; step++) {
+            state.schedule.step(state);
+            restored.schedule.step(restored);
+        }
+        assertNotNull(restored.getTimeWheel());
+        assertEquals(state.random.nextDouble(), restored.random.nextDouble(), 0);
+        assertEquals(state.getDailyDataSet().getLatestObservation("Species 0 Landings"),
+                     restored.getDailyDataSet().getLatestObservation("Species 0 Landings"), 0);
+    }
+}
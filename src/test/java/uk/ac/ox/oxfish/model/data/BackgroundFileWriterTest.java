@@ -0,0 +1,78 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class BackgroundFileWriterTest {
+
+    @Test
+    public void writesEverythingInOrder() throws Exception {
+
+        for (boolean gzip : new boolean[]{false, true}) {
+            Path file = Files.createTempFile("background", gzip ? ".csv.gz" : ".csv");
+            StringBuilder expected = new StringBuilder();
+            //tiny queue: the writer has to keep up with us
+            BackgroundFileWriter writer = new BackgroundFileWriter(file, gzip, 1);
+            StringBuilder chunk = new StringBuilder();
+            for (int i = 0; i < 20000; i++) {
+                chunk.append(i).append(",àèì,").append(i * .5).append("\n");
+                if (i % 100 == 0) {
+                    writer.write(chunk);
+                    expected.append(chunk);
+                    chunk.setLength(0);
+                }
+                if (i % 5000 == 0)
+                    writer.flush();
+            }
+            writer.write(chunk);
+            expected.append(chunk);
+            writer.close();
+
+            String written;
+            if (gzip)
+                try (InputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+                    written = new String(readAll(input), StandardCharsets.UTF_8);
+                }
+            else
+                written = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            assertEquals(expected.toString(), written);
+        }
+    }
+
+    private static byte[] readAll(InputStream input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) >= 0)
+            output.write(buffer, 0, read);
+        return output.toByteArray();
+    }
+}
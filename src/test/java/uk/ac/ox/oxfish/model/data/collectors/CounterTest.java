@@ -0,0 +1,81 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data.collectors;
+
+import org.junit.Test;
+import sim.engine.SimState;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class CounterTest {
+
+    @Test
+    public void handlesAndNamesCountTheSame() throws Exception {
+
+        Counter counter = new Counter(IntervalPolicy.EVERY_DAY);
+        int[] handles = new int[10];
+        for (int i = 0; i < handles.length; i++)
+            handles[i] = counter.addColumn("column " + i);
+        assertEquals(3, counter.getHandle("column 3"));
+        assertEquals(-1, counter.getHandle("nope"));
+        assertFalse(counter.hasColumn("nope"));
+
+        counter.count(handles[3], 10);
+        counter.count("column 3", 5);
+        counter.count("column 9", 1);
+        assertEquals(15, counter.getColumn(handles[3]), .0001);
+        assertEquals(15, counter.getColumn("column 3"), .0001);
+        assertEquals(1, counter.getColumn(handles[9]), .0001);
+        assertNull(counter.getColumn("nope"));
+
+        //the map view is live and in insertion order
+        Map<String, Double> data = counter.getData();
+        assertEquals(10, data.size());
+        assertEquals("column 0", data.keySet().iterator().next());
+        assertEquals(15, data.get("column 3"), .0001);
+        counter.count(handles[3], 1);
+        assertEquals(16, data.get("column 3"), .0001);
+
+        //reset
+        counter.step(mock(SimState.class));
+        for (int handle : handles)
+            assertEquals(0, counter.getColumn(handle), .0001);
+        assertTrue(data.values().stream().allMatch(value -> value == 0));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void countingMissingColumnsStillFails() throws Exception {
+        new Counter(IntervalPolicy.EVERY_DAY).count("nope", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noDuplicateColumns() throws Exception {
+        Counter counter = new Counter(IntervalPolicy.EVERY_DAY);
+        counter.addColumn("a");
+        counter.addColumn("a");
+    }
+}
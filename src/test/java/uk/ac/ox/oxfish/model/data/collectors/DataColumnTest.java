@@ -0,0 +1,87 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data.collectors;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class DataColumnTest {
+
+    @Test
+    public void readsBackAcrossChunks() throws Exception {
+
+        DataColumn column = new DataColumn("test");
+        assertTrue(Double.isNaN(column.getLatest()));
+        LinkedList<Double> expected = new LinkedList<>();
+        for (int i = 0; i < 2000; i++) {
+            column.add((double) i);
+            expected.add((double) i);
+        }
+
+        assertEquals(2000, column.size());
+        assertEquals(1999, column.getLatest(), 0);
+        assertEquals(700, column.get(700), 0);
+        assertEquals(1999 - 700, column.getDatumXDaysAgo(700), 0);
+        assertEquals(expected, column.copy());
+        assertEquals(expected, column.stream().collect(Collectors.toList()));
+        assertEquals(expected, Lists.newArrayList(column));
+        assertEquals(Lists.reverse(expected), Lists.newArrayList(column.descendingIterator()));
+        assertEquals(expected.stream().mapToDouble(Double::doubleValue).sum(), column.doubleStream().sum(), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() throws Exception {
+        DataColumn column = new DataColumn("test");
+        column.add(1d);
+        column.get(1);
+    }
+
+    @Test
+    public void retentionKeepsOnlyTheLatest() throws Exception {
+
+        DataColumn column = new DataColumn("test", 3);
+        column.add(1d);
+        column.add(2d);
+        assertEquals(2, column.size());
+        assertEquals(1, column.get(0), 0);
+        column.add(3d);
+        column.add(4d);
+        column.add(5d);
+
+        assertEquals(3, column.size());
+        assertEquals(5, column.getNumberOfObservationsAdded());
+        assertEquals(5, column.getLatest(), 0);
+        assertEquals(3, column.get(0), 0);
+        assertEquals(4, column.getDatumXDaysAgo(1), 0);
+        List<Double> kept = Lists.newArrayList(column);
+        assertEquals(Lists.newArrayList(3d, 4d, 5d), kept);
+        assertArrayEquals(new double[]{3, 4, 5}, column.toArray(), 0);
+        Iterator<Double> backwards = column.descendingIterator();
+        assertEquals(5, backwards.next(), 0);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data.collectors;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.Test;
+import uk.ac.ox.oxfish.fisher.Fisher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class FleetAggregationTest {
+
+    @Test
+    public void sameResultsAsStreamsWhateverTheFleetSize() throws Exception {
+
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        //small fleets are read sequentially, large ones in parallel
+        for (int size : new int[]{0, 10, FleetAggregation.PARALLEL_THRESHOLD * 3 + 17}) {
+            List<Fisher> fishers = new ArrayList<>();
+            Map<Fisher, Double> cash = new HashMap<>();
+            Map<Fisher, Double> effort = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                Fisher fisher = mock(Fisher.class);
+                fishers.add(fisher);
+                cash.put(fisher, random.nextGaussian() * 1e6);
+                effort.put(fisher, random.nextDouble() / 3);
+            }
+
+            FleetAggregation aggregation = new FleetAggregation();
+            int cashSlot = aggregation.addReader(cash::get);
+            int effortSlot = aggregation.addReader(effort::get);
+            aggregation.gather(fishers);
+
+            assertEquals(size, aggregation.getNumberOfFishers());
+            //exactly the same, not just close
+            assertEquals(fishers.stream().mapToDouble(cash::get).sum(), aggregation.sum(cashSlot), 0);
+            assertEquals(fishers.stream().mapToDouble(effort::get).sum(), aggregation.sum(effortSlot), 0);
+            double sum = 0;
+            for (Fisher fisher : fishers)
+                sum += effort.get(fisher);
+            assertEquals(sum, aggregation.plainSum(effortSlot), 0);
+            assertEquals(size == 0 ? 0 : sum / size, aggregation.average(effortSlot), 0);
+        }
+    }
+
+    @Test
+    public void removedReadersAreNotRead() throws Exception {
+
+        List<Fisher> fishers = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            fishers.add(mock(Fisher.class));
+        FleetAggregation aggregation = new FleetAggregation();
+        int ones = aggregation.addReader(fisher -> 1);
+        int broken = aggregation.addReader(fisher -> {
+            throw new IllegalStateException("shouldn't be read");
+        });
+        aggregation.removeReader(broken);
+        aggregation.gather(fishers);
+        assertEquals(5, aggregation.sum(ones), 0);
+        //the fleet can grow
+        fishers.add(mock(Fisher.class));
+        aggregation.gather(fishers);
+        assertEquals(6, aggregation.sum(ones), 0);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data.collectors;
+
+import org.junit.Test;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+import uk.ac.ox.oxfish.utility.FishStateUtilities;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TowLongLoggerTest {
+
+    private static Path runFor2Years(boolean stream) throws Exception {
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(20);
+        state.setScenario(scenario);
+        TowLongLogger logger = new TowLongLogger();
+        state.registerStartable(logger);
+        state.start();
+        Path folder = Files.createTempDirectory("tows");
+        if (stream) {
+            FishStateUtilities.streamOutputsToFolder(folder, state, false);
+            assertTrue(logger.isStreaming());
+        }
+        while (state.getYear() < 2)
+            state.schedule.step(state);
+        if (stream) //the first year is already on file
+            assertTrue(Files.size(folder.resolve(logger.getFileName())) > 100);
+        FishStateUtilities.writeAdditionalOutputsToFolder(folder, state);
+        return folder.resolve(logger.getFileName());
+    }
+
+    @Test
+    public void streamingWritesTheSameFile() throws Exception {
+
+        Path inMemory = runFor2Years(false);
+        Path streamed = runFor2Years(true);
+        assertTrue(Files.readAllLines(inMemory).size() > 1);
+        assertEquals(Files.readAllLines(inMemory), Files.readAllLines(streamed));
+    }
+}
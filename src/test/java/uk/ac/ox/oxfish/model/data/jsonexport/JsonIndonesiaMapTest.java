@@ -0,0 +1,155 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.model.data.jsonexport;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+import uk.ac.ox.oxfish.fisher.Fisher;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JsonIndonesiaMapTest {
+
+    private static final int DAYS = 400;
+
+    private static FishState model() {
+        FishState state = new FishState(123);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(5);
+        state.setScenario(scenario);
+        state.start();
+        for (Fisher fisher : state.getFishers())
+            fisher.getTags().add("population0");
+        return state;
+    }
+
+    @Test
+    public void streamedChunksHoldTheSameTimesteps() throws Exception {
+
+        FishState inMemory = model();
+        JsonIndonesiaMap reference = new JsonIndonesiaMap("test_map.json", "test");
+        reference.start(inMemory);
+        for (int day = 0; day < DAYS; day++)
+            inMemory.schedule.step(inMemory);
+        JsonArray expected = new Gson().fromJson(reference.composeFileContents(), JsonObject.class)
+            .getAsJsonArray("timesteps");
+
+        FishState streamed = model();
+        JsonIndonesiaMap map = new JsonIndonesiaMap("test_map.json", "test");
+        map.start(streamed);
+        Path folder = Files.createTempDirectory("json");
+        map.startStreaming(folder, false);
+        for (int day = 0; day < DAYS; day++)
+            streamed.schedule.step(streamed);
+        map.finishStreaming();
+
+        JsonObject manifest = new Gson().fromJson(new String(Files.readAllBytes(folder.resolve("test_map.json"))),
+                                                  JsonObject.class);
+        assertEquals(5, manifest.getAsJsonArray("vessels").size());
+        JsonArray chunks = manifest.getAsJsonArray("chunks");
+        assertEquals(2, chunks.size());
+        JsonArray actual = new JsonArray();
+        for (int i = 0; i < chunks.size(); i++) {
+            JsonObject chunk = chunks.get(i).getAsJsonObject();
+            assertEquals(i, chunk.get("year").getAsInt());
+            JsonArray timesteps = new Gson().fromJson(
+                new String(Files.readAllBytes(folder.resolve(chunk.get("file").getAsString()))), JsonObject.class)
+                .getAsJsonArray("timesteps");
+            assertEquals(chunk.get("timesteps").getAsInt(), timesteps.size());
+            actual.addAll(timesteps);
+        }
+        assertEquals(DAYS, actual.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void binaryPositionsDecodeBack() throws Exception {
+
+        FishState state = model();
+        JsonIndonesiaMap reference = new JsonIndonesiaMap("reference.json", "test");
+        reference.start(state);
+        JsonIndonesiaMap map = new JsonIndonesiaMap("test_map.json", "test", true);
+        map.start(state);
+        Path folder = Files.createTempDirectory("json");
+        map.startStreaming(folder, false);
+        for (int day = 0; day < 30; day++)
+            state.schedule.step(state);
+        map.finishStreaming();
+        JsonArray expected = new Gson().fromJson(reference.composeFileContents(), JsonObject.class)
+            .getAsJsonArray("timesteps");
+
+        Path chunk = folder.resolve("test_map_year0.bin");
+        assertTrue(Files.exists(chunk));
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(chunk))) {
+            Map<Long, long[]> last = new HashMap<>();
+            for (int i = 0; i < expected.size(); i++) {
+                JsonObject timestep = expected.get(i).getAsJsonObject();
+                assertEquals(timestep.get("timeInDays").getAsLong(), readVarLong(input));
+                JsonArray vessels = timestep.getAsJsonArray("vessels");
+                assertEquals(vessels.size(), readVarLong(input));
+                for (int v = 0; v < vessels.size(); v++) {
+                    JsonObject vessel = vessels.get(v).getAsJsonObject();
+                    long id = readVarLong(input);
+                    assertEquals(vessel.get("id").getAsLong(), id);
+                    long[] position = last.computeIfAbsent(id, key -> new long[2]);
+                    position[0] += unZigZag(readVarLong(input));
+                    position[1] += unZigZag(readVarLong(input));
+                    assertEquals(vessel.get("longitudeDegrees").getAsDouble(), position[0] / 100d, 1e-9);
+                    assertEquals(vessel.get("latitudeDegrees").getAsDouble(), position[1] / 100d, 1e-9);
+                }
+            }
+            try {
+                input.readByte();
+                throw new AssertionError("more data than expected");
+            } catch (EOFException ignored) {
+            }
+        }
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte read;
+        do {
+            read = input.readByte();
+            value |= (long) (read & 0x7F) << shift;
+            shift += 7;
+        } while ((read & 0x80) != 0);
+        return value;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
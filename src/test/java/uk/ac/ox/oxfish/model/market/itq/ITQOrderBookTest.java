@@ -294,4 +294,91 @@ public class ITQOrderBookTest {
 
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void incrementalMultiCrossing() throws Exception
+    {
+        //a fresh incremental book matches exactly like the full one
+        ITQOrderBook orderBook = new ITQOrderBook(0, 0, (ask, bids,ignored1,ignore2d) -> ask, 7);
+        orderBook.setIncremental(true);
+        FishState state = mock(FishState.class);
+        when(state.getRandom()).thenReturn(new MersenneTwisterFast());
+        orderBook.start(state);
+        orderBook.setMarkup(0);
+        orderBook.setUnitsTradedPerMatch(100);
+
+        MonoQuotaRegulation regs[] = new MonoQuotaRegulation[5];
+        for(int i=0; i<5;i++)
+        {
+            regs[i] = new MonoQuotaRegulation(100);
+            Fisher fisher = mock(Fisher.class);
+            when(fisher.getRegulation()).thenReturn(regs[i]);
+            MonoQuotaPriceGenerator buyerGenerator = mock(MonoQuotaPriceGenerator.class);
+            when(buyerGenerator.computeLambda()).thenReturn((i+1) * 100d);
+            orderBook.registerTrader(fisher, buyerGenerator);
+        }
+
+        orderBook.step(state);
+        assertEquals(regs[4].getQuotaRemaining(0), 200, .0001);
+        assertEquals(regs[3].getQuotaRemaining(0), 200, .0001);
+        assertEquals(regs[2].getQuotaRemaining(0), 100, .0001);
+        assertEquals(regs[1].getQuotaRemaining(0), 0, .0001);
+        assertEquals(regs[0].getQuotaRemaining(0), 0, .0001);
+        assertEquals(orderBook.getDailyMatches(), 2, .0001);
+        assertEquals(orderBook.getDailyAveragePrice(), (100.01+200.01)/2, .0001);
+        assertEquals(orderBook.getDailyRequotes(), 5, .0001);
+        //unmatched quotes stay: the three lowest bids and the three highest asks
+        assertEquals(3, orderBook.getBidDepth());
+        assertEquals(3, orderBook.getAskDepth());
+    }
+
+    @Test
+    public void incrementalQuotesOnlyWhenSomethingChanged() throws Exception
+    {
+
+        ITQOrderBook orderBook = new ITQOrderBook(0, 0, (ask, bids,ignored1,ignore2d) -> ask, 7);
+        orderBook.setIncremental(true);
+        FishState state = mock(FishState.class); when(state.getYear()).thenReturn(0);
+        when(state.getRandom()).thenReturn(new MersenneTwisterFast());
+        orderBook.start(state);
+        orderBook.setMarkup(.1);
+        orderBook.setUnitsTradedPerMatch(100);
+
+        //both value quota 10: they bid 9 and ask 11, no trade
+        MonoQuotaRegulation buyerReg = new MonoQuotaRegulation(100);
+        Fisher buyer = mock(Fisher.class);
+        when(buyer.getRegulation()).thenReturn(buyerReg);
+        MonoQuotaPriceGenerator buyerGenerator = mock(MonoQuotaPriceGenerator.class);
+        when(buyerGenerator.computeLambda()).thenReturn(10d);
+        orderBook.registerTrader(buyer,buyerGenerator);
+
+        MonoQuotaRegulation sellerReg = new MonoQuotaRegulation(100);
+        Fisher seller = mock(Fisher.class);
+        when(seller.getRegulation()).thenReturn(sellerReg);
+        MonoQuotaPriceGenerator sellerGenerator = mock(MonoQuotaPriceGenerator.class);
+        when(sellerGenerator.computeLambda()).thenReturn(10d);
+        orderBook.registerTrader(seller, sellerGenerator);
+
+        orderBook.step(state);
+        orderBook.step(state);
+        //nothing changed, nobody was asked again and the quotes are still there
+        verify(buyerGenerator,times(1)).computeLambda();
+        verify(sellerGenerator,times(1)).computeLambda();
+        assertEquals(2, orderBook.getBidDepth());
+        assertEquals(2, orderBook.getAskDepth());
+        assertEquals(orderBook.getDailyMatches(), 0, .0001);
+
+        //the seller catches some fish and now values quota much less
+        sellerReg.setQuotaRemaining(0, 150);
+        when(sellerGenerator.computeLambda()).thenReturn(5d);
+        orderBook.step(state);
+        verify(buyerGenerator,times(1)).computeLambda();
+        verify(sellerGenerator,times(2)).computeLambda();
+        //the seller's new ask (5.5) meets the buyer's old bid (9)
+        assertEquals(orderBook.getDailyMatches(), 1, .0001);
+        assertEquals(buyerReg.getQuotaRemaining(0), 200, .0001);
+        assertEquals(sellerReg.getQuotaRemaining(0), 50, .0001);
+        verify(buyer).spendExogenously(5.5 * 100);
+        assertTrue(orderBook.inPenaltyBox(buyer));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.utility;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+public class InputFileCacheTest {
+
+    @Test
+    public void loadsOncePerContentAndReader() throws Exception {
+
+        Path file = Files.createTempFile("input", ".csv");
+        Files.write(file, "1,2,3".getBytes());
+        int[] loads = new int[1];
+        InputFileCache.Loader<String> loader = content -> {
+            loads[0]++;
+            return new String(content);
+        };
+
+        assertEquals("1,2,3", InputFileCache.get(file, "test", loader));
+        assertEquals("1,2,3", InputFileCache.get(file, "test", loader));
+        assertEquals(1, loads[0]);
+        //somebody else reading the same file differently
+        InputFileCache.get(file, "another test", loader);
+        assertEquals(2, loads[0]);
+        //new content, new load
+        Files.write(file, "4,5,6".getBytes());
+        assertEquals("4,5,6", InputFileCache.get(file, "test", loader));
+        assertEquals(3, loads[0]);
+    }
+
+    @Test
+    public void csvColumnsAreFreshEveryTime() throws Exception {
+
+        Path file = Files.createTempFile("columns", ".csv");
+        Files.write(file, "a,b\n1,2\n3,4\n".getBytes());
+        CsvColumnsToLists reader = new CsvColumnsToLists(file.toString(), ',', new String[]{"b"});
+        reader.readColumns()[0].clear();
+        assertEquals(2, reader.readColumns()[0].size());
+        assertEquals(4, reader.readColumns()[0].getLast(), 0);
+    }
+}
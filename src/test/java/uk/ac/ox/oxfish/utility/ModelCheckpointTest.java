@@ -0,0 +1,182 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.utility;
+
+import com.esotericsoftware.minlog.Log;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.Startable;
+import uk.ac.ox.oxfish.model.data.collectors.FisherYearlyTimeSeries;
+import uk.ac.ox.oxfish.model.regs.FishingSeason;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModelCheckpointTest {
+
+    private static FishState spinUp() {
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(10);
+        state.setScenario(scenario);
+        state.start();
+        for (int i = 0; i < 100; i++)
+            state.schedule.step(state);
+        return state;
+    }
+
+    @Test
+    public void restoredModelKeepsGoingLikeTheOriginal() throws Exception {
+
+        FishState state = spinUp();
+        Path file = Files.createTempFile("model", ".checkpoint");
+        ModelCheckpoint.write(state, file);
+        assertTrue(ModelCheckpoint.isCheckpoint(file));
+
+        FishState streamed = ModelCheckpoint.read(file, false);
+        FishState mapped = ModelCheckpoint.read(file, true);
+        //the old reader recognizes checkpoints too
+        FishState fromUtilities = FishStateUtilities.readModelFromFile(file.toFile());
+
+        for (int i = 0; i < 100; i++) {
+            state.schedule.step(state);
+            streamed.schedule.step(streamed);
+            mapped.schedule.step(mapped);
+            fromUtilities.schedule.step(fromUtilities);
+        }
+        double nextRandom = state.random.nextDouble();
+        for (FishState restored : Lists.newArrayList(streamed, mapped, fromUtilities)) {
+            assertEquals(state.getDay(), restored.getDay());
+            assertEquals(nextRandom, restored.random.nextDouble(), 0);
+            for (int id = 0; id < state.getFishers().size(); id++)
+                assertEquals(
+                        state.getFishers().get(id).getDailyData().getLatestObservation(FisherYearlyTimeSeries.CASH_COLUMN),
+                        restored.getFishers().get(id).getDailyData().getLatestObservation(FisherYearlyTimeSeries.CASH_COLUMN),
+                        0);
+        }
+    }
+
+    @Test
+    public void forksAreIndependent() throws Exception {
+
+        Path file = Files.createTempFile("model", ".checkpoint");
+        ModelCheckpoint.write(spinUp(), file);
+
+        List<Consumer<FishState>> policies = Lists.newArrayList(
+                model -> { },
+                //nobody can go out
+                model -> model.getFishers().forEach(fisher -> fisher.setRegulation(new FishingSeason(true, 0)))
+        );
+        int[] checkpointDays = new int[2];
+        int[] finalDays = new int[2];
+        boolean[] landedAfterTheCheckpoint = new boolean[2];
+        ModelCheckpoint.fork(file, policies.size(), (fork, index) -> {
+            policies.get(index).accept(fork);
+            checkpointDays[index] = fork.getDay();
+            for (int i = 0; i < 20; i++)
+                fork.schedule.step(fork);
+            finalDays[index] = fork.getDay();
+            //skip the days a boat at sea can still come back and land
+            landedAfterTheCheckpoint[index] = fork.getDailyDataSet().getColumn("Species 0 Landings").stream()
+                    .skip(checkpointDays[index] + 5).anyMatch(landings -> landings > 0);
+        });
+
+        assertEquals(checkpointDays[0], checkpointDays[1]);
+        assertEquals(checkpointDays[0] + 20, finalDays[0]);
+        assertEquals(checkpointDays[1] + 20, finalDays[1]);
+        assertTrue(landedAfterTheCheckpoint[0]);
+        //the closed fork can only land what was already at sea
+        assertFalse(landedAfterTheCheckpoint[1]);
+    }
+
+    @Test
+    public void forksWithTheSameScriptGetTheirOwnFolders() throws Exception {
+
+        Path file = Files.createTempFile("model", ".checkpoint");
+        ModelCheckpoint.write(spinUp(), file);
+        Path output = Files.createTempDirectory("forks");
+        FishStateUtilities.runFromCheckpoint("test", file, output, Log.LEVEL_NONE,
+                                             Lists.newArrayList(null, null), 1, false);
+        assertTrue(Files.exists(output.resolve("0_baseline").resolve("result.yaml")));
+        assertTrue(Files.exists(output.resolve("1_baseline").resolve("result.yaml")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notACheckpoint() throws Exception {
+        Path file = Files.createTempFile("model", ".xml");
+        Files.write(file, "<xml/>".getBytes());
+        assertFalse(ModelCheckpoint.isCheckpoint(file));
+        ModelCheckpoint.read(file);
+    }
+
+    /**
+     * can't be saved
+     */
+    private static class Unwritable implements Startable, Serializable {
+
+        private void writeObject(ObjectOutputStream output) throws IOException {
+            throw new IOException("not today");
+        }
+
+        @Override
+        public void start(FishState model) {
+        }
+
+        @Override
+        public void turnOff() {
+        }
+    }
+
+    @Test
+    public void aFailedWriteKeepsThePreviousCheckpoint() throws Exception {
+
+        Path folder = Files.createTempDirectory("checkpoints");
+        Path file = folder.resolve("model.checkpoint");
+        FishState state = new FishState(0);
+        ModelCheckpoint.write(state, file);
+        byte[] saved = Files.readAllBytes(file);
+
+        state.registerStartable(new Unwritable());
+        try {
+            ModelCheckpoint.write(state, file);
+            fail("wrote something that can't be written");
+        } catch (Exception e) {
+            //expected
+        }
+        assertArrayEquals(saved, Files.readAllBytes(file));
+        assertTrue(ModelCheckpoint.isCheckpoint(file));
+        //no temporary file left behind
+        assertEquals(1, folder.toFile().list().length);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.utility;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.ox.oxfish.model.FishState;
+import uk.ac.ox.oxfish.model.StepOrder;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulationProfilerTest {
+
+    private static double runAndGetLandings() {
+        FishState state = new FishState(0);
+        PrototypeScenario scenario = new PrototypeScenario();
+        scenario.setFishers(10);
+        state.setScenario(scenario);
+        state.start();
+        for (int i = 0; i < 60; i++)
+            state.schedule.step(state);
+        return state.getDailyDataSet().getColumn("Species 0 Landings").stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    @After
+    public void turnOff() {
+        SimulationProfiler.setEnabled(false);
+        SimulationProfiler.reset();
+    }
+
+    @Test
+    public void timesEverythingWithoutChangingTheRun() throws Exception {
+
+        double unprofiled = runAndGetLandings();
+        assertTrue(SimulationProfiler.getTimers().isEmpty());
+
+        SimulationProfiler.setEnabled(true);
+        assertEquals(unprofiled, runAndGetLandings(), 0);
+
+        List<SimulationProfiler.Timer> timers = SimulationProfiler.getTimers();
+        assertTrue(has(timers, SimulationProfiler.PHASE, StepOrder.FISHER_PHASE.name()));
+        assertTrue(has(timers, SimulationProfiler.PHASE, StepOrder.DAILY_DATA_GATHERING.name()));
+        assertTrue(has(timers, SimulationProfiler.COMPONENT, "Fisher"));
+        assertTrue(has(timers, SimulationProfiler.ACTION, "Moving"));
+        assertTrue(timers.stream().anyMatch(timer -> timer.getCategory().equals(SimulationProfiler.PATHFINDER)));
+        for (SimulationProfiler.Timer timer : timers)
+            if (timer.getCategory().equals(SimulationProfiler.COMPONENT) && timer.getName().equals("Fisher"))
+                assertEquals(10 * 60, timer.getCalls());
+
+        Path csv = Files.createTempFile("profile", ".csv");
+        SimulationProfiler.writeCSV(csv);
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals("category,name,calls,seconds,allocated_mb", lines.get(0));
+        assertEquals(timers.size() + 1, lines.size());
+        Path json = Files.createTempFile("profile", ".json");
+        SimulationProfiler.writeJSON(json);
+        assertTrue(new String(Files.readAllBytes(json)).contains("\"FISHER_PHASE\""));
+    }
+
+    private static boolean has(List<SimulationProfiler.Timer> timers, String category, String name) {
+        return timers.stream().anyMatch(timer -> timer.getCategory().equals(category) &&
+                timer.getName().equals(name) && timer.getCalls() > 0 && timer.getNanoseconds() > 0);
+    }
+}
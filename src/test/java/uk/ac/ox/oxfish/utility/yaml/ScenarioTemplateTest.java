@@ -0,0 +1,80 @@
+/*
+ *     POSEIDON, an agent-based model of fisheries
+ *     Copyright (C) 2017  CoHESyS Lab cohesys.lab@gmail.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ */
+
+package uk.ac.ox.oxfish.utility.yaml;
+
+import org.junit.Test;
+import uk.ac.ox.oxfish.model.scenario.FlexibleScenario;
+import uk.ac.ox.oxfish.model.scenario.PrototypeScenario;
+import uk.ac.ox.oxfish.model.scenario.Scenario;
+import uk.ac.ox.oxfish.utility.parameters.FixedDoubleParameter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScenarioTemplateTest {
+
+    @Test
+    public void buildsWhatTheFileWouldBuild() throws Exception {
+
+        FishYAML yaml = new FishYAML();
+        for (Scenario original : new Scenario[]{new PrototypeScenario(), new FlexibleScenario()}) {
+            String text = yaml.dump(original);
+            ScenarioTemplate template = new ScenarioTemplate(text);
+            Scenario first = template.newScenario();
+            Scenario second = template.newScenario();
+            assertNotSame(first, second);
+            assertEquals(yaml.dump(yaml.loadAs(text, Scenario.class)), yaml.dump(first));
+            assertEquals(yaml.dump(first), yaml.dump(second));
+        }
+    }
+
+    @Test
+    public void copiesAreIndependent() throws Exception {
+
+        ScenarioTemplate template = new ScenarioTemplate("Abstract:\n  fishers: 5\n  gasPricePerLiter: 0.5\n");
+        PrototypeScenario first = (PrototypeScenario) template.newScenario();
+        first.setGasPricePerLiter(new FixedDoubleParameter(100));
+        first.setFishers(1);
+        PrototypeScenario second = (PrototypeScenario) template.newScenario();
+        assertEquals(5, second.getFishers());
+        assertEquals(0.5, ((FixedDoubleParameter) second.getGasPricePerLiter()).getFixedValue(), 0);
+    }
+
+    @Test
+    public void filesAreParsedOncePerContent() throws Exception {
+
+        Path file = Files.createTempFile("scenario", ".yaml");
+        Files.write(file, "Abstract:\n  fishers: 5\n".getBytes());
+        ScenarioTemplate template = ScenarioTemplate.of(file);
+        assertSame(template, ScenarioTemplate.of(file));
+
+        Files.write(file, "Abstract:\n  fishers: 7\n".getBytes());
+        ScenarioTemplate changed = ScenarioTemplate.of(file);
+        assertNotSame(template, changed);
+        assertEquals(7, ((PrototypeScenario) changed.newScenario()).getFishers());
+        assertTrue(template.newScenario() instanceof PrototypeScenario);
+    }
+}